@@ -1,41 +1,36 @@
 package galu.bench;
 
-import com.google.caliper.config.InvalidConfigurationException;
-import com.google.caliper.runner.CaliperMain;
-import com.google.caliper.runner.InvalidBenchmarkException;
-import com.google.caliper.util.InvalidCommandException;
-import com.google.common.collect.ObjectArrays;
-import galu.bench.math.VectorBenchmark;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
 
-import java.io.*;
+import java.io.File;
 
+/**
+ * Runs the JMH benchmarks without any console output, writing the results as JSON and the human-readable log next to them.
+ * <p>
+ * Arguments: the output directory (defaults to {@code benchmarks}) and, optionally, a regular expression selecting which
+ * benchmarks to run (defaults to all of them). Every benchmark is run with the GC profiler, so the results include the
+ * allocation rate per operation ({@code gc.alloc.rate.norm}) as well as the time.
+ */
 public class BenchmarkRunner
 {
-	private static final Class<?>[] BENCHMARKS = new Class<?>[] {VectorBenchmark.class};
-
-	private File baseDir;
-	private String[] caliperArgs;
+	private static final String ALL_BENCHMARKS = "galu\\.bench\\..*";
 
 	public static void main(String[] args)
 	{
-		new BenchmarkRunner().run(args);
-	}
+		File baseDir = args.length > 0 ? new File(args[0]) : new File("benchmarks");
+		String include = args.length > 1 ? args[1] : ALL_BENCHMARKS;
 
-	private void run(String[] args)
-	{
 		try
 		{
-			baseDir = args.length > 0 ? new File(args[0]) : new File("benchmarks");
-			baseDir.mkdirs();
-
-			caliperArgs = args.length > 1 ? args[1].split("\\s+") : new String[0];
-
-			for(Class<?> benchmark : BENCHMARKS)
-			{
-				runBenchmark(benchmark);
-			}
+			new BenchmarkRunner().run(baseDir, include);
 		}
-		catch(IOException | InvalidConfigurationException | InvalidCommandException | InvalidBenchmarkException e)
+		catch(RunnerException e)
 		{
 			System.err.println("Error running benchmark:");
 			e.printStackTrace();
@@ -43,35 +38,62 @@ public class BenchmarkRunner
 		}
 	}
 
-	private void runBenchmark(Class<?> benchmarkClass) throws IOException, InvalidConfigurationException, InvalidCommandException, InvalidBenchmarkException
+	private void run(File baseDir, String include) throws RunnerException
 	{
-		final File logFile = new File(baseDir, getBaseName(benchmarkClass) + ".out.txt");
-		final File errFile = new File(baseDir, getBaseName(benchmarkClass) + ".err.txt");
+		baseDir.mkdirs();
+		String baseName = getBaseName();
+
+		ChainedOptionsBuilder options = new OptionsBuilder()
+			.include(include)
+			.forks(1)
+			.warmupIterations(5)
+			.warmupTime(TimeValue.seconds(1))
+			.measurementIterations(10)
+			.measurementTime(TimeValue.seconds(1))
+			.addProfiler(GCProfiler.class)
+			.resultFormat(ResultFormatType.JSON)
+			.result(new File(baseDir, baseName + ".json").getPath())
+			.output(new File(baseDir, baseName + ".log").getPath());
 
-		try(FileOutputStream out = new FileOutputStream(logFile); FileOutputStream err = new FileOutputStream(errFile))
+		if(hasVectorApi())
 		{
-			String[] args = new String[] {
-				"--verbose",
-				"--trials", "10",
-				"--time-limit", "60s",
-				"--run-name", benchmarkClass.getSimpleName(),
-				"--directory", baseDir.getAbsolutePath(),
-			};
-			args = ObjectArrays.concat(caliperArgs, args, String.class);
-			args = ObjectArrays.concat(args, benchmarkClass.getName());
+			// Lets the SIMD kernels load in the forked VMs
+			options.jvmArgsAppend("--add-modules", "jdk.incubator.vector");
+		}
+
+		new Runner(options.build()).run();
+	}
 
-			CaliperMain.exitlessMain(args,
-			    new PrintWriter(new MultiOutputStream(out, System.out)),
-			    new PrintWriter(new MultiOutputStream(err, System.err)));
+	/**
+	 * Check whether this JDK has the Vector API module. Incubator modules aren't resolved unless asked for, so this looks
+	 * at the system modules rather than the boot layer. It's done reflectively because Galu still builds on Java 7.
+	 */
+	private static boolean hasVectorApi()
+	{
+		try
+		{
+			Class<?> moduleFinder = Class.forName("java.lang.module.ModuleFinder");
+			Object systemModules = moduleFinder.getMethod("ofSystem").invoke(null);
+			Object module = moduleFinder.getMethod("find", String.class).invoke(systemModules, "jdk.incubator.vector");
+			return (Boolean) module.getClass().getMethod("isPresent").invoke(module);
+		}
+		catch(ClassNotFoundException e)
+		{
+			// Java 8 and older don't know about modules
+			return false;
+		}
+		catch(ReflectiveOperationException e)
+		{
+			throw new IllegalStateException("Couldn't look up the system modules", e);
 		}
 	}
 
-	private static String getBaseName(Class<?> benchmarkClass)
+	private static String getBaseName()
 	{
 		String javaVersion = System.getProperty("java.version");
 		String osName = System.getProperty("os.name").replaceAll("\\s+", "_");
 		String osArch = System.getProperty("os.arch");
 
-		return String.format("%s-java%s-os%s-%s", benchmarkClass.getName(), javaVersion, osName, osArch);
+		return String.format("galu-bench-java%s-os%s-%s", javaVersion, osName, osArch);
 	}
 }
@@ -0,0 +1,136 @@
+package galu.bench.math;
+
+import galu.layout.BlockLayout;
+import galu.matrix.Matrix;
+import galu.matrix.Matrix3;
+import galu.matrix.Matrix4;
+import galu.vector.Vector3;
+import galu.vector.Vector4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing {@code size} std140 blocks (a model matrix, a normal matrix, a light position, a scale, and 4 colors) with
+ * {@link BlockLayout}, compared with packing them by hand through temporary arrays. Divide the score by {@code size} for
+ * the cost of one block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlockLayoutBenchmark
+{
+	@Param({"100", "10000"})
+	public int size;
+
+	private Matrix4[] models;
+	private Matrix3[] normals;
+	private Vector3[] lights;
+	private float[] scales;
+	private Vector4[] colors;
+
+	private BlockLayout layout;
+	private BlockLayout.Member model;
+	private BlockLayout.Member normal;
+	private BlockLayout.Member light;
+	private BlockLayout.Member scale;
+	private BlockLayout.Member color;
+	private ByteBuffer buffer;
+
+	private final float[] matrix4 = new float[16];
+	private final float[] matrix3 = new float[9];
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		models = new Matrix4[size];
+		normals = new Matrix3[size];
+		lights = new Vector3[size];
+		scales = new float[size];
+		colors = new Vector4[4];
+		for(int i = 0; i < size; i++)
+		{
+			models[i] = new Matrix4(
+				random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat(),
+				random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat(),
+				random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat(),
+				0, 0, 0, 1);
+			normals[i] = models[i].normalMatrix();
+			lights[i] = new Vector3(random.nextFloat(), random.nextFloat(), random.nextFloat());
+			scales[i] = random.nextFloat();
+		}
+		for(int i = 0; i < colors.length; i++)
+		{
+			colors[i] = new Vector4(random.nextFloat(), random.nextFloat(), random.nextFloat(), 1);
+		}
+
+		BlockLayout.Builder builder = BlockLayout.builder(BlockLayout.Rules.STD140);
+		model = builder.add("model", BlockLayout.Type.MAT4);
+		normal = builder.add("normal", BlockLayout.Type.MAT3);
+		light = builder.add("light", BlockLayout.Type.VEC3);
+		scale = builder.add("scale", BlockLayout.Type.FLOAT);
+		color = builder.addArray("colors", BlockLayout.Type.VEC4, colors.length);
+		layout = builder.build();
+		buffer = ByteBuffer.allocateDirect(size * layout.size()).order(ByteOrder.nativeOrder());
+	}
+
+	@Benchmark
+	public Object blockLayout()
+	{
+		ByteBuffer buf = buffer;
+		int stride = layout.size();
+		for(int i = 0; i < size; i++)
+		{
+			buf.position(i * stride);
+			model.put(buf, models[i]);
+			normal.put(buf, normals[i]);
+			light.put(buf, lights[i]);
+			scale.putFloat(buf, scales[i]);
+			for(int c = 0; c < colors.length; c++)
+			{
+				color.put(buf, c, colors[c]);
+			}
+		}
+		buf.clear();
+		return buf;
+	}
+
+	@Benchmark
+	public Object handPacked()
+	{
+		ByteBuffer buf = buffer;
+		buf.clear();
+		for(int i = 0; i < size; i++)
+		{
+			models[i].store(matrix4, Matrix.Order.COLUMN_MAJOR);
+			for(float f : matrix4)
+			{
+				buf.putFloat(f);
+			}
+			normals[i].store(matrix3, Matrix.Order.COLUMN_MAJOR);
+			for(int column = 0; column < 3; column++)
+			{
+				buf.putFloat(matrix3[3 * column]).putFloat(matrix3[3 * column + 1]).putFloat(matrix3[3 * column + 2]).putFloat(0);
+			}
+			Vector3 l = lights[i];
+			buf.putFloat(l.x).putFloat(l.y).putFloat(l.z).putFloat(scales[i]);
+			for(Vector4 c : colors)
+			{
+				buf.putFloat(c.x).putFloat(c.y).putFloat(c.z).putFloat(c.w);
+			}
+		}
+		buf.clear();
+		return buf;
+	}
+}
@@ -0,0 +1,148 @@
+package galu.bench.math;
+
+import galu.geometry.Bvh;
+import galu.geometry.RayHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a tree over {@code size} small triangles scattered through a cube, and casting {@value #RAYS} rays into it
+ * from a camera at one side, as a 64x64 grid of pixel rays. {@code buildSingleThreaded} builds on a pool with one thread;
+ * {@code build} uses the shared pool. Query scores are for all of the rays; divide by {@value #RAYS} for the cost of
+ * one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BvhBenchmark
+{
+	private static final int RAYS = 4096;
+
+	@Param({"10000", "200000"})
+	public int size;
+
+	private float[] positions;
+	private int[] indices;
+	private ForkJoinPool singleThread;
+	private Bvh bvh;
+
+	private float[] ox = new float[RAYS], oy = new float[RAYS], oz = new float[RAYS];
+	private float[] dx = new float[RAYS], dy = new float[RAYS], dz = new float[RAYS];
+	private float[] hitT = new float[RAYS];
+	private int[] hitPrimitives = new int[RAYS];
+	private BitSet hits = new BitSet(RAYS);
+	private RayHit hit = new RayHit();
+	private int[] stack;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		positions = new float[9 * size];
+		indices = new int[3 * size];
+		for(int t = 0; t < size; t++)
+		{
+			float cx = (random.nextFloat() * 2 - 1) * 100;
+			float cy = (random.nextFloat() * 2 - 1) * 100;
+			float cz = (random.nextFloat() * 2 - 1) * 100;
+			for(int v = 0; v < 3; v++)
+			{
+				positions[9 * t + 3 * v] = cx + random.nextFloat() * 4 - 2;
+				positions[9 * t + 3 * v + 1] = cy + random.nextFloat() * 4 - 2;
+				positions[9 * t + 3 * v + 2] = cz + random.nextFloat() * 4 - 2;
+				indices[3 * t + v] = 3 * t + v;
+			}
+		}
+		singleThread = new ForkJoinPool(1);
+		bvh = Bvh.fromTriangles(positions, indices);
+		stack = new int[bvh.stackSize()];
+
+		// Pixel rays from (0, 0, 150), looking down -z with a 90 degree field of view
+		for(int y = 0; y < 64; y++)
+		{
+			for(int x = 0; x < 64; x++)
+			{
+				int i = 64 * y + x;
+				ox[i] = 0;
+				oy[i] = 0;
+				oz[i] = 150;
+				dx[i] = (x + 0.5f) / 32 - 1;
+				dy[i] = (y + 0.5f) / 32 - 1;
+				dz[i] = -1;
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		singleThread.shutdown();
+	}
+
+	@Benchmark
+	public Object build()
+	{
+		return Bvh.fromTriangles(positions, indices);
+	}
+
+	@Benchmark
+	public Object buildSingleThreaded()
+	{
+		return Bvh.fromTriangles(positions, indices, singleThread);
+	}
+
+	@Benchmark
+	public float closestHit()
+	{
+		float sum = 0;
+		for(int i = 0; i < RAYS; i++)
+		{
+			if(bvh.closestHit(ox[i], oy[i], oz[i], dx[i], dy[i], dz[i], 1000, hit, stack))
+			{
+				sum += hit.t;
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public Object closestHitPackets()
+	{
+		bvh.closestHits(ox, oy, oz, dx, dy, dz, RAYS, 1000, hitT, hitPrimitives);
+		return hitPrimitives;
+	}
+
+	@Benchmark
+	public int anyHit()
+	{
+		int count = 0;
+		for(int i = 0; i < RAYS; i++)
+		{
+			if(bvh.anyHit(ox[i], oy[i], oz[i], dx[i], dy[i], dz[i], 1000, stack))
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	public Object anyHitPackets()
+	{
+		bvh.anyHits(ox, oy, oz, dx, dy, dz, RAYS, 1000, hits);
+		return hits;
+	}
+}
@@ -0,0 +1,99 @@
+package galu.bench.math;
+
+import galu.matrix.Matrix4;
+import galu.transform.Camera;
+import galu.transform.Transformations;
+import galu.vector.Vector3;
+import galu.vector.Vector4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unprojecting {@code size} packed points, as for a batch of picks. {@code inverseEachTime} is the old approach of
+ * building the matrices and calling {@link Matrix4#inverse()} for every pick; {@code transformEach} unprojects with a
+ * precomputed inverse, one {@link Vector4} at a time. Scores are for the whole batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CameraBenchmark
+{
+	@Param({"16", "10000"})
+	public int size;
+
+	private Camera camera;
+	private Vector3 eye, target, up;
+	private float[] points;
+	private float[] result;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		eye = new Vector3(2, 3, 10);
+		target = new Vector3(0, 1, 0);
+		up = new Vector3(0, 1, 0);
+		camera = new Camera();
+		camera.lookAt(eye, target, up);
+		camera.perspective(1, 1.5f, 0.1f, 100);
+
+		points = new float[3 * size];
+		for(int i = 0; i < points.length; i++)
+		{
+			points[i] = random.nextFloat() * 2 - 1;
+		}
+		result = new float[3 * size];
+	}
+
+	@Benchmark
+	public Object inverseEachTime()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			Matrix4 viewProjection = Transformations.perspective(1, 1.5f, 0.1f, 100).multiply(Transformations.lookAt(eye, target, up));
+			Vector4 p = viewProjection.inverse().transform(new Vector4(points[3 * i], points[3 * i + 1], points[3 * i + 2], 1));
+			result[3 * i] = p.x / p.w;
+			result[3 * i + 1] = p.y / p.w;
+			result[3 * i + 2] = p.z / p.w;
+		}
+		return result;
+	}
+
+	@Benchmark
+	public Object transformEach()
+	{
+		Matrix4 inverse = camera.inverseViewProjection();
+		for(int i = 0; i < size; i++)
+		{
+			Vector4 p = inverse.transform(new Vector4(points[3 * i], points[3 * i + 1], points[3 * i + 2], 1));
+			result[3 * i] = p.x / p.w;
+			result[3 * i + 1] = p.y / p.w;
+			result[3 * i + 2] = p.z / p.w;
+		}
+		return result;
+	}
+
+	@Benchmark
+	public Object unproject()
+	{
+		camera.unproject(points, 0, 3, result, 0, 3, size);
+		return result;
+	}
+
+	@Benchmark
+	public Object changeAspectAndUnproject()
+	{
+		camera.setAspect(1.5f);
+		camera.unproject(points, 0, 3, result, 0, 3, size);
+		return result;
+	}
+}
@@ -0,0 +1,78 @@
+package galu.bench.math;
+
+import galu.text.DistanceFieldGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warming up distance fields for printable ASCII in a 32 point font. {@code sequentialFields} makes single-channel
+ * fields on one thread, {@code parallelFields} makes them on a pool with a thread per processor, and
+ * {@code parallelMultiChannelFields} makes MSDFs on that pool. Scores are for the whole font.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DistanceFieldBenchmark
+{
+	private Font font;
+	private int[] glyphCodes;
+	private DistanceFieldGenerator generator;
+	private DistanceFieldGenerator multiChannelGenerator;
+	private ForkJoinPool sequential;
+	private ForkJoinPool parallel;
+
+	@Setup
+	public void setUp()
+	{
+		System.setProperty("java.awt.headless", "true");
+		font = new Font(Font.SERIF, Font.PLAIN, 32);
+		StringBuilder ascii = new StringBuilder();
+		for(char c = ' '; c <= '~'; c++)
+		{
+			ascii.append(c);
+		}
+		GlyphVector vector = font.createGlyphVector(new FontRenderContext(null, true, true), ascii.toString());
+		glyphCodes = vector.getGlyphCodes(0, vector.getNumGlyphs(), null);
+		generator = new DistanceFieldGenerator(4, false);
+		multiChannelGenerator = new DistanceFieldGenerator(4, true);
+		sequential = new ForkJoinPool(1);
+		parallel = new ForkJoinPool();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		sequential.shutdown();
+		parallel.shutdown();
+	}
+
+	@Benchmark
+	public Object sequentialFields()
+	{
+		return generator.glyphs(font, glyphCodes, sequential);
+	}
+
+	@Benchmark
+	public Object parallelFields()
+	{
+		return generator.glyphs(font, glyphCodes, parallel);
+	}
+
+	@Benchmark
+	public Object parallelMultiChannelFields()
+	{
+		return multiChannelGenerator.glyphs(font, glyphCodes, parallel);
+	}
+}
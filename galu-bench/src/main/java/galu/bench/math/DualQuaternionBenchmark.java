@@ -0,0 +1,225 @@
+package galu.bench.math;
+
+import galu.matrix.Matrix4;
+import galu.transform.DualQuaternion;
+import galu.transform.DualQuaternionArray;
+import galu.transform.Quaternion;
+import galu.vector.Vector3;
+import galu.vector.Vector4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@link DualQuaternion} operation, and skinning {@code size} vertices against a palette of bones with the
+ * {@link DualQuaternionArray} kernels. Linear blend skinning with {@link Matrix4}s is included for comparison. Divide
+ * the score by {@code size} for the cost of a single call (or a single vertex).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DualQuaternionBenchmark
+{
+	private static final int BONES = 64;
+	private static final int INFLUENCES = 4;
+
+	@Param({"100", "10000"})
+	public int size;
+
+	private DualQuaternion[] a;
+	private DualQuaternion[] b;
+	private Matrix4[] matrices;
+	private Vector3[] points;
+
+	private DualQuaternion[] bones;
+	private Matrix4[] boneMatrices;
+	private DualQuaternionArray palette;
+	private DualQuaternionArray blended;
+	private int[] joints;
+	private float[] weights;
+	private float[] src;
+	private float[] dst;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		a = new DualQuaternion[size];
+		b = new DualQuaternion[size];
+		matrices = new Matrix4[size];
+		points = new Vector3[size];
+		for(int i = 0; i < size; i++)
+		{
+			a[i] = randomTransform(random);
+			b[i] = randomTransform(random);
+			matrices[i] = a[i].toMatrix4();
+			points[i] = new Vector3(random.nextFloat(), random.nextFloat(), random.nextFloat());
+		}
+
+		bones = new DualQuaternion[BONES];
+		boneMatrices = new Matrix4[BONES];
+		palette = new DualQuaternionArray(BONES);
+		for(int i = 0; i < BONES; i++)
+		{
+			bones[i] = randomTransform(random);
+			boneMatrices[i] = bones[i].toMatrix4();
+			palette.set(i, bones[i]);
+		}
+
+		blended = new DualQuaternionArray(size);
+		joints = new int[size * INFLUENCES];
+		weights = new float[size * INFLUENCES];
+		for(int i = 0; i < joints.length; i++)
+		{
+			joints[i] = random.nextInt(BONES);
+			weights[i] = random.nextFloat();
+		}
+		src = new float[size * 3];
+		dst = new float[size * 3];
+		for(int i = 0; i < src.length; i++)
+		{
+			src[i] = random.nextFloat();
+		}
+	}
+
+	private static DualQuaternion randomTransform(Random random)
+	{
+		Quaternion rotation = Quaternion.fromAxisAngle(random.nextFloat() * 6,
+				new Vector3(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, 1));
+		return DualQuaternion.fromRotationTranslation(rotation,
+				new Vector3(random.nextFloat(), random.nextFloat(), random.nextFloat()));
+	}
+
+	@Benchmark
+	public void fromRotationTranslation(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(DualQuaternion.fromRotationTranslation(a[i].real, points[i]));
+		}
+	}
+
+	@Benchmark
+	public void fromMatrix(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(DualQuaternion.fromMatrix(matrices[i]));
+		}
+	}
+
+	@Benchmark
+	public void toMatrix4(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].toMatrix4());
+		}
+	}
+
+	@Benchmark
+	public void multiply(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].multiply(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void normalize(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].normalize());
+		}
+	}
+
+	@Benchmark
+	public void translation(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].translation());
+		}
+	}
+
+	@Benchmark
+	public void transformPoint(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].transformPoint(points[i]));
+		}
+	}
+
+	@Benchmark
+	public void transformDirection(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].transformDirection(points[i]));
+		}
+	}
+
+	@Benchmark
+	public void skinScalar(Blackhole bh)
+	{
+		DualQuaternion[] influences = new DualQuaternion[INFLUENCES];
+		float[] vertexWeights = new float[INFLUENCES];
+		for(int v = 0; v < size; v++)
+		{
+			for(int k = 0; k < INFLUENCES; k++)
+			{
+				influences[k] = bones[joints[v * INFLUENCES + k]];
+				vertexWeights[k] = weights[v * INFLUENCES + k];
+			}
+			bh.consume(DualQuaternion.blend(influences, vertexWeights).transformPoint(points[v]));
+		}
+	}
+
+	@Benchmark
+	public void skinLinearBlendMatrix4(Blackhole bh)
+	{
+		for(int v = 0; v < size; v++)
+		{
+			Matrix4 blend = boneMatrices[joints[v * INFLUENCES]].multiply(weights[v * INFLUENCES]);
+			for(int k = 1; k < INFLUENCES; k++)
+			{
+				blend = blend.add(boneMatrices[joints[v * INFLUENCES + k]].multiply(weights[v * INFLUENCES + k]));
+			}
+			Vector3 p = points[v];
+			bh.consume(blend.transform(new Vector4(p.x, p.y, p.z, 1)));
+		}
+	}
+
+	@Benchmark
+	public Object batchBlend()
+	{
+		palette.blend(joints, weights, INFLUENCES, blended, 0, size);
+		return blended;
+	}
+
+	@Benchmark
+	public Object batchSkinPoints()
+	{
+		palette.skinPoints(joints, weights, INFLUENCES, src, 0, 3, dst, 0, 3, size);
+		return dst;
+	}
+
+	@Benchmark
+	public Object batchSkinDirections()
+	{
+		palette.skinDirections(joints, weights, INFLUENCES, src, 0, 3, dst, 0, 3, size);
+		return dst;
+	}
+}
@@ -0,0 +1,107 @@
+package galu.bench.math;
+
+import galu.encoding.HalfFloat;
+import galu.encoding.Normalized;
+import galu.encoding.Packed1010102;
+import galu.encoding.PositionQuantizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding {@code size} packed normals (three floats each) into direct buffers, as when filling a vertex buffer.
+ * {@code floats} is the uncompressed baseline, writing 12 bytes per normal; the half and snorm16 encodings write 6,
+ * snorm8 writes 3, and the packed encoding writes 4. Scores are for the whole batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodingBenchmark
+{
+	@Param({"1000", "100000"})
+	public int size;
+
+	private float[] normals;
+	private PositionQuantizer quantizer;
+	private FloatBuffer floats;
+	private ShortBuffer shorts;
+	private ByteBuffer bytes;
+	private IntBuffer ints;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		normals = new float[3 * size];
+		for(int i = 0; i < normals.length; i++)
+		{
+			normals[i] = random.nextFloat() * 2 - 1;
+		}
+		quantizer = PositionQuantizer.fromPoints(normals, 0, size);
+		floats = ByteBuffer.allocateDirect(12 * size).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		shorts = ByteBuffer.allocateDirect(6 * size).order(ByteOrder.nativeOrder()).asShortBuffer();
+		bytes = ByteBuffer.allocateDirect(3 * size).order(ByteOrder.nativeOrder());
+		ints = ByteBuffer.allocateDirect(4 * size).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	@Benchmark
+	public Object floats()
+	{
+		floats.clear();
+		floats.put(normals);
+		return floats;
+	}
+
+	@Benchmark
+	public Object half()
+	{
+		shorts.clear();
+		HalfFloat.encode(normals, 0, normals.length, shorts);
+		return shorts;
+	}
+
+	@Benchmark
+	public Object snorm16()
+	{
+		shorts.clear();
+		Normalized.encodeSnorm16(normals, 0, normals.length, shorts);
+		return shorts;
+	}
+
+	@Benchmark
+	public Object snorm8()
+	{
+		bytes.clear();
+		Normalized.encodeSnorm8(normals, 0, normals.length, bytes);
+		return bytes;
+	}
+
+	@Benchmark
+	public Object packed()
+	{
+		ints.clear();
+		Packed1010102.encodeSnorm(normals, 0, 3, size, ints);
+		return ints;
+	}
+
+	@Benchmark
+	public Object quantized()
+	{
+		shorts.clear();
+		quantizer.encode(normals, 0, size, shorts);
+		return shorts;
+	}
+}
@@ -0,0 +1,132 @@
+package galu.bench.math;
+
+import galu.geometry.Frustum;
+import galu.matrix.Matrix4;
+import galu.vector.Vector4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Culling {@code size} bounding spheres and boxes, scattered around a camera, against a perspective frustum. About a
+ * sixth of them are visible. {@code transformCenters} is the old approach of transforming each center to clip space with
+ * {@link Matrix4#transform(Vector4)}. Scores are for the whole batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrustumBenchmark
+{
+	@Param({"10000", "1000000"})
+	public int size;
+
+	private Matrix4 viewProjection;
+	private Frustum frustum;
+	private float[] spheres;
+	private float[] boxes;
+	private byte[] planeCache;
+	private BitSet visibleBits;
+	private int[] visibleIndices;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		float near = 0.1f, far = 500f;
+		viewProjection = new Matrix4(
+			1, 0, 0, 0,
+			0, 1, 0, 0,
+			0, 0, (far + near) / (near - far), 2 * far * near / (near - far),
+			0, 0, -1, 0);
+		frustum = Frustum.fromMatrix(viewProjection);
+
+		spheres = new float[4 * size];
+		boxes = new float[6 * size];
+		for(int i = 0; i < size; i++)
+		{
+			float x = (random.nextFloat() * 2 - 1) * 400;
+			float y = (random.nextFloat() * 2 - 1) * 400;
+			float z = (random.nextFloat() * 2 - 1) * 400;
+			float r = random.nextFloat() * 4;
+			spheres[4 * i] = x;
+			spheres[4 * i + 1] = y;
+			spheres[4 * i + 2] = z;
+			spheres[4 * i + 3] = r;
+			boxes[6 * i] = x - r;
+			boxes[6 * i + 1] = y - r;
+			boxes[6 * i + 2] = z - r;
+			boxes[6 * i + 3] = x + r;
+			boxes[6 * i + 4] = y + r;
+			boxes[6 * i + 5] = z + r;
+		}
+		planeCache = new byte[size];
+		visibleBits = new BitSet(size);
+		visibleIndices = new int[size];
+
+		// Prime the plane cache, as it would be after the first frame
+		frustum.cullSpheres(spheres, 0, 4, size, planeCache, visibleIndices);
+	}
+
+	@Benchmark
+	public int transformCenters()
+	{
+		int visible = 0;
+		for(int i = 0; i < size; i++)
+		{
+			float r = spheres[4 * i + 3];
+			Vector4 clip = viewProjection.transform(new Vector4(spheres[4 * i], spheres[4 * i + 1], spheres[4 * i + 2], 1));
+			float limit = clip.w + r;
+			if(Math.abs(clip.x) <= limit && Math.abs(clip.y) <= limit && Math.abs(clip.z) <= limit)
+			{
+				visibleIndices[visible++] = i;
+			}
+		}
+		return visible;
+	}
+
+	@Benchmark
+	public Object cullSpheresBitSet()
+	{
+		frustum.cullSpheres(spheres, 0, 4, size, null, visibleBits);
+		return visibleBits;
+	}
+
+	@Benchmark
+	public int cullSpheresIndices()
+	{
+		return frustum.cullSpheres(spheres, 0, 4, size, null, visibleIndices);
+	}
+
+	@Benchmark
+	public int cullSpheresCoherent()
+	{
+		return frustum.cullSpheres(spheres, 0, 4, size, planeCache, visibleIndices);
+	}
+
+	@Benchmark
+	public int cullBoxesIndices()
+	{
+		return frustum.cullBoxes(boxes, 0, 6, size, null, visibleIndices);
+	}
+
+	@Benchmark
+	public int cullBoxesCoherent()
+	{
+		return frustum.cullBoxes(boxes, 0, 6, size, planeCache, visibleIndices);
+	}
+
+	@Benchmark
+	public Object fromMatrix()
+	{
+		return Frustum.fromMatrix(viewProjection);
+	}
+}
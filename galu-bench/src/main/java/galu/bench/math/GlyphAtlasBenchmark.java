@@ -0,0 +1,100 @@
+package galu.bench.math;
+
+import galu.text.Glyph;
+import galu.text.GlyphAtlas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting bitmaps for a line of chat text in a 16 point font, once per frame. {@code rasterizeString} is the old
+ * approach of drawing the whole string into a new image each time; {@code cachedGlyphs} looks its glyphs up in a warm
+ * {@link GlyphAtlas}; and {@code evictingGlyphs} uses an atlas too small for the fonts in use, so it keeps evicting and
+ * repacking. Scores are per line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GlyphAtlasBenchmark
+{
+	private static final String TEXT = "<player42> anyone up for a raid tonight? meet at the east gate, 9pm";
+
+	private Font font;
+	private Font[] fonts;
+	private FontRenderContext context;
+	private int[] glyphCodes;
+	private GlyphAtlas atlas;
+	private GlyphAtlas smallAtlas;
+	private int frame;
+
+	@Setup
+	public void setUp()
+	{
+		System.setProperty("java.awt.headless", "true");
+		context = new FontRenderContext(null, true, true);
+		font = new Font(Font.SANS_SERIF, Font.PLAIN, 16);
+		GlyphVector vector = font.createGlyphVector(context, TEXT);
+		glyphCodes = vector.getGlyphCodes(0, vector.getNumGlyphs(), null);
+		atlas = new GlyphAtlas(512, 512);
+		cachedGlyphs();
+
+		fonts = new Font[4];
+		for(int i = 0; i < fonts.length; i++)
+		{
+			fonts[i] = new Font(Font.SANS_SERIF, Font.PLAIN, 16 + 4 * i);
+		}
+		smallAtlas = new GlyphAtlas(128, 128);
+	}
+
+	@Benchmark
+	public Object rasterizeString()
+	{
+		GlyphVector vector = font.createGlyphVector(context, TEXT);
+		Rectangle bounds = vector.getPixelBounds(context, 0, 0);
+		BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(Color.WHITE);
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+		graphics.drawGlyphVector(vector, -bounds.x, -bounds.y);
+		graphics.dispose();
+		return image;
+	}
+
+	@Benchmark
+	public Object cachedGlyphs()
+	{
+		Glyph last = null;
+		for(int code : glyphCodes)
+		{
+			last = atlas.glyph(font, code);
+		}
+		return last;
+	}
+
+	@Benchmark
+	public Object evictingGlyphs()
+	{
+		Font current = fonts[frame++ % fonts.length];
+		Glyph last = null;
+		for(int code : glyphCodes)
+		{
+			last = smallAtlas.glyph(current, code);
+		}
+		return last;
+	}
+}
@@ -0,0 +1,139 @@
+package galu.bench.math;
+
+import galu.mesh.Triangulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.PathIterator;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Triangulating the outline of a line of text in a 64 point serif font, flattened to within {@code flatness} of its
+ * curves, as read through {@code java.awt.font} in headless mode. {@code triangulate} reuses a {@link Triangulator} and
+ * index buffer, as for text that changes every frame; {@code newTriangulator} makes a new one each time; and
+ * {@code layoutAndTriangulate} also lays the text out and flattens its outline. Scores are for the whole line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GlyphTriangulationBenchmark
+{
+	private static final String TEXT = "Sphinx of black quartz, judge my vow! 0123456789 @&%";
+
+	@Param({"0.5", "0.05"})
+	public float flatness;
+
+	private Font font;
+	private FontRenderContext context;
+	private float[] points = new float[1024];
+	private int[] contourEnds = new int[16];
+	private int contourCount;
+	private Triangulator triangulator;
+	private IntBuffer indices;
+
+	@Setup
+	public void setUp()
+	{
+		System.setProperty("java.awt.headless", "true");
+		font = new Font(Font.SERIF, Font.PLAIN, 64);
+		context = new FontRenderContext(null, true, true);
+		flatten(font.createGlyphVector(context, TEXT).getOutline());
+		triangulator = new Triangulator();
+		indices = IntBuffer.allocate(Triangulator.maxIndexCount(contourEnds[contourCount - 1], contourCount));
+	}
+
+	/**
+	 * Flatten a shape's outline into packed contours.
+	 */
+	private void flatten(Shape outline)
+	{
+		int pointCount = 0;
+		contourCount = 0;
+		float[] segment = new float[6];
+		for(PathIterator path = outline.getPathIterator(null, flatness); !path.isDone(); path.next())
+		{
+			switch(path.currentSegment(segment))
+			{
+				case PathIterator.SEG_MOVETO:
+					if(pointCount > 0 && (contourCount == 0 || contourEnds[contourCount - 1] < pointCount))
+					{
+						endContour(pointCount);
+					}
+					pointCount = addPoint(pointCount, segment[0], segment[1]);
+					break;
+				case PathIterator.SEG_LINETO:
+					pointCount = addPoint(pointCount, segment[0], segment[1]);
+					break;
+				case PathIterator.SEG_CLOSE:
+					endContour(pointCount);
+					break;
+				default:
+					throw new IllegalStateException("Flattened path has a curve");
+			}
+		}
+		if(contourCount == 0 || contourEnds[contourCount - 1] < pointCount)
+		{
+			endContour(pointCount);
+		}
+	}
+
+	/**
+	 * @return the new number of points
+	 */
+	private int addPoint(int pointCount, float x, float y)
+	{
+		if(points.length < 2 * pointCount + 2)
+		{
+			points = Arrays.copyOf(points, 2 * points.length);
+		}
+		points[2 * pointCount] = x;
+		// Flip y, which points down in Java 2D
+		points[2 * pointCount + 1] = -y;
+		return pointCount + 1;
+	}
+
+	private void endContour(int pointCount)
+	{
+		if(contourCount == contourEnds.length)
+		{
+			contourEnds = Arrays.copyOf(contourEnds, 2 * contourCount);
+		}
+		contourEnds[contourCount++] = pointCount;
+	}
+
+	@Benchmark
+	public Object triangulate()
+	{
+		indices.clear();
+		triangulator.triangulate(points, contourEnds, contourCount, indices);
+		return indices;
+	}
+
+	@Benchmark
+	public Object newTriangulator()
+	{
+		indices.clear();
+		new Triangulator().triangulate(points, contourEnds, contourCount, indices);
+		return indices;
+	}
+
+	@Benchmark
+	public Object layoutAndTriangulate()
+	{
+		flatten(font.createGlyphVector(context, TEXT).getOutline());
+		indices.clear();
+		triangulator.triangulate(points, contourEnds, contourCount, indices);
+		return indices;
+	}
+}
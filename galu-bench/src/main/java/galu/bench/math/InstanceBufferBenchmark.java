@@ -0,0 +1,102 @@
+package galu.bench.math;
+
+import galu.layout.BlockLayout;
+import galu.layout.InstanceBuffer;
+import galu.matrix.Matrix;
+import galu.matrix.Matrix4;
+import galu.vector.Vector4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One frame of instance data (a model matrix and a color per instance) for {@code size} instances, of which
+ * {@code dirtyPercent} percent changed. {@code repackAll} re-serializes every instance, as is done without dirty
+ * tracking; {@code repackDirty} packs only the changed instances into an {@link InstanceBuffer} and swaps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InstanceBufferBenchmark
+{
+	@Param({"1000", "100000"})
+	public int size;
+
+	@Param({"1", "5", "50"})
+	public int dirtyPercent;
+
+	private Matrix4[] models;
+	private Vector4[] colors;
+	private int[] dirty;
+
+	private FloatBuffer everything;
+	private InstanceBuffer instances;
+	private BlockLayout.Member model;
+	private BlockLayout.Member color;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		models = new Matrix4[size];
+		colors = new Vector4[size];
+		for(int i = 0; i < size; i++)
+		{
+			models[i] = new Matrix4(
+				1, 0, 0, random.nextFloat(),
+				0, 1, 0, random.nextFloat(),
+				0, 0, 1, random.nextFloat(),
+				0, 0, 0, 1);
+			colors[i] = new Vector4(random.nextFloat(), random.nextFloat(), random.nextFloat(), 1);
+		}
+
+		dirty = new int[size * dirtyPercent / 100];
+		for(int i = 0; i < dirty.length; i++)
+		{
+			dirty[i] = random.nextInt(size);
+		}
+
+		BlockLayout.Builder builder = BlockLayout.builder(BlockLayout.Rules.STD430);
+		model = builder.add("model", BlockLayout.Type.MAT4);
+		color = builder.add("color", BlockLayout.Type.VEC4);
+		instances = new InstanceBuffer(builder.build(), size);
+		everything = ByteBuffer.allocateDirect(80 * size).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	@Benchmark
+	public Object repackAll()
+	{
+		FloatBuffer buf = everything;
+		buf.clear();
+		for(int i = 0; i < size; i++)
+		{
+			models[i].store(buf, Matrix.Order.COLUMN_MAJOR);
+			colors[i].store(buf);
+		}
+		return buf;
+	}
+
+	@Benchmark
+	public Object repackDirty()
+	{
+		for(int i : dirty)
+		{
+			ByteBuffer buf = instances.edit(i);
+			model.put(buf, models[i]);
+			color.put(buf, colors[i]);
+		}
+		instances.swap();
+		return instances.front();
+	}
+}
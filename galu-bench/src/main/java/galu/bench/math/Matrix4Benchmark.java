@@ -0,0 +1,318 @@
+package galu.bench.math;
+
+import galu.matrix.Matrix;
+import galu.matrix.Matrix4;
+import galu.vector.Vector4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@link Matrix4} operation. Each invocation applies the operation to {@code size} operands (or, for the bulk
+ * transforms, transforms {@code size} vectors in one call), so divide the score by {@code size} for the cost of a single
+ * call. Matrices are stored and loaded in column-major order, which is what OpenGL expects.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Matrix4Benchmark
+{
+	@Param({"100", "10000"})
+	public int size;
+
+	private Matrix4[] a;
+	private Matrix4[] b;
+	private Vector4[] vectors;
+	private float[] factors;
+	private float[][] arrays;
+	private float[][] out;
+	private FloatBuffer buffer;
+
+	// Packed vectors for the bulk transforms
+	private float[] packed;
+	private float[] packedDest;
+	private FloatBuffer packedBuffer;
+	private FloatBuffer packedBufferDest;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		a = new Matrix4[size];
+		b = new Matrix4[size];
+		vectors = new Vector4[size];
+		factors = new float[size];
+		arrays = new float[size][16];
+		out = new float[size][16];
+		buffer = floatBuffer(16 * size);
+
+		float[] elements = new float[16];
+		float[] vectorElements = new float[4];
+		for(int i = 0; i < size; i++)
+		{
+			a[i] = Matrix4.load(fill(random, elements), Matrix.Order.ROW_MAJOR);
+			b[i] = Matrix4.load(fill(random, elements), Matrix.Order.ROW_MAJOR);
+			vectors[i] = Vector4.load(fill(random, vectorElements));
+			factors[i] = random.nextFloat();
+			a[i].store(arrays[i], Matrix.Order.COLUMN_MAJOR);
+			a[i].store(buffer, Matrix.Order.COLUMN_MAJOR);
+		}
+
+		packed = new float[4 * size];
+		packedDest = new float[4 * size];
+		fill(random, packed);
+		packedBuffer = floatBuffer(packed.length);
+		packedBuffer.put(packed);
+		packedBufferDest = floatBuffer(packed.length);
+	}
+
+	private static float[] fill(Random random, float[] array)
+	{
+		for(int i = 0; i < array.length; i++)
+		{
+			array[i] = random.nextFloat() - 0.5f;
+		}
+		return array;
+	}
+
+	private static FloatBuffer floatBuffer(int size)
+	{
+		return ByteBuffer.allocateDirect(4 * size).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	@Benchmark
+	public void determinant(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].determinant());
+		}
+	}
+
+	@Benchmark
+	public void inverse(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].inverse());
+		}
+	}
+
+	@Benchmark
+	public void inverseAffine(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].inverseAffine());
+		}
+	}
+
+	@Benchmark
+	public void inverseRigid(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].inverseRigid());
+		}
+	}
+
+	@Benchmark
+	public void normalMatrix(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].normalMatrix());
+		}
+	}
+
+	@Benchmark
+	public void negate(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].negate());
+		}
+	}
+
+	@Benchmark
+	public void transpose(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].transpose());
+		}
+	}
+
+	@Benchmark
+	public void add(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].add(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void subtract(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].subtract(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void multiply(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].multiply(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void divide(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].divide(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void multiplyScalar(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].multiply(factors[i]));
+		}
+	}
+
+	@Benchmark
+	public void elementMultiply(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].elementMultiply(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void elementDivide(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].elementDivide(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void transformVector(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].transform(vectors[i]));
+		}
+	}
+
+	@Benchmark
+	public void loadArray(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Matrix4.load(arrays[i], Matrix.Order.COLUMN_MAJOR));
+		}
+	}
+
+	@Benchmark
+	public void loadBuffer(Blackhole bh)
+	{
+		buffer.rewind();
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Matrix4.load(buffer, Matrix.Order.COLUMN_MAJOR));
+		}
+	}
+
+	@Benchmark
+	public float[][] storeArray()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			a[i].store(out[i], Matrix.Order.COLUMN_MAJOR);
+		}
+		return out;
+	}
+
+	@Benchmark
+	public FloatBuffer storeBuffer()
+	{
+		buffer.clear();
+		for(int i = 0; i < size; i++)
+		{
+			a[i].store(buffer, Matrix.Order.COLUMN_MAJOR);
+		}
+		return buffer;
+	}
+
+	@Benchmark
+	public float[] bulkTransformArray()
+	{
+		a[0].transform(packed, 0, 4, packedDest, 0, 4, size);
+		return packedDest;
+	}
+
+	@Benchmark
+	public FloatBuffer bulkTransformBuffer()
+	{
+		a[0].transform(packedBuffer, 0, 4, packedBufferDest, 0, 4, size);
+		return packedBufferDest;
+	}
+
+	@Benchmark
+	public float[] bulkTransformPointsArray()
+	{
+		a[0].transformPoints(packed, 0, 3, packedDest, 0, 3, size, false);
+		return packedDest;
+	}
+
+	@Benchmark
+	public float[] bulkTransformPointsDivideArray()
+	{
+		a[0].transformPoints(packed, 0, 3, packedDest, 0, 3, size, true);
+		return packedDest;
+	}
+
+	@Benchmark
+	public FloatBuffer bulkTransformPointsBuffer()
+	{
+		a[0].transformPoints(packedBuffer, 0, 3, packedBufferDest, 0, 3, size, false);
+		return packedBufferDest;
+	}
+
+	@Benchmark
+	public float[] bulkTransformDirectionsArray()
+	{
+		a[0].transformDirections(packed, 0, 3, packedDest, 0, 3, size);
+		return packedDest;
+	}
+
+	@Benchmark
+	public FloatBuffer bulkTransformDirectionsBuffer()
+	{
+		a[0].transformDirections(packedBuffer, 0, 3, packedBufferDest, 0, 3, size);
+		return packedBufferDest;
+	}
+}
@@ -0,0 +1,140 @@
+package galu.bench.math;
+
+import galu.matrix.Matrix;
+import galu.matrix.Matrix4;
+import galu.matrix.Matrix4Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Matrix4Buffer} operations on {@code size} slots, compared with keeping the same matrices as {@link Matrix4}
+ * objects and storing them into a direct buffer for upload. Divide the score by {@code size} for the cost per matrix.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Matrix4BufferBenchmark
+{
+	@Param({"100", "10000"})
+	public int size;
+
+	private Matrix4[] a;
+	private Matrix4[] b;
+	private Matrix4 view;
+	private FloatBuffer upload;
+
+	private Matrix4Buffer bufferA;
+	private Matrix4Buffer bufferB;
+	private Matrix4Buffer bufferDest;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		a = new Matrix4[size];
+		b = new Matrix4[size];
+		bufferA = new Matrix4Buffer(size, Matrix.Order.COLUMN_MAJOR);
+		bufferB = new Matrix4Buffer(size, Matrix.Order.COLUMN_MAJOR);
+		bufferDest = new Matrix4Buffer(size, Matrix.Order.COLUMN_MAJOR);
+		for(int i = 0; i < size; i++)
+		{
+			a[i] = randomMatrix(random);
+			b[i] = randomMatrix(random);
+			bufferA.set(i, a[i]);
+			bufferB.set(i, b[i]);
+		}
+		view = randomMatrix(random);
+		upload = ByteBuffer.allocateDirect(64 * size).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	private static Matrix4 randomMatrix(Random random)
+	{
+		return new Matrix4(
+			random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat(),
+			random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat(),
+			random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat(),
+			0, 0, 0, 1
+		);
+	}
+
+	@Benchmark
+	public Object storeObjects()
+	{
+		upload.clear();
+		for(int i = 0; i < size; i++)
+		{
+			a[i].store(upload, Matrix.Order.COLUMN_MAJOR);
+		}
+		return upload;
+	}
+
+	@Benchmark
+	public Object get(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(bufferA.get(i));
+		}
+		return bufferA;
+	}
+
+	@Benchmark
+	public Object set()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bufferDest.set(i, a[i]);
+		}
+		return bufferDest;
+	}
+
+	@Benchmark
+	public Object multiplyObjects(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].multiply(b[i]));
+		}
+		return a;
+	}
+
+	@Benchmark
+	public Object multiplyRange()
+	{
+		bufferA.multiply(0, bufferB, 0, bufferDest, 0, size);
+		return bufferDest;
+	}
+
+	@Benchmark
+	public Object multiplySlots()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bufferDest.multiply(i, view);
+		}
+		return bufferDest;
+	}
+
+	@Benchmark
+	public Object invertAffine()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bufferA.invertAffine(i);
+		}
+		return bufferA;
+	}
+}
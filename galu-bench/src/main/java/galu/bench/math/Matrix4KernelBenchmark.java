@@ -0,0 +1,127 @@
+package galu.bench.math;
+
+import galu.matrix.Matrix;
+import galu.matrix.Matrix4;
+import galu.matrix.Matrix4Kernel;
+import galu.matrix.Matrix4Kernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link Matrix4Kernel} implementations against the same work done with {@link Matrix4} objects.
+ * The accelerated kernel is only used if the benchmark VM is started with {@code --add-modules jdk.incubator.vector}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Matrix4KernelBenchmark
+{
+	public enum Implementation
+	{
+		SCALAR {
+			@Override
+			Matrix4Kernel kernel()
+			{
+				return Matrix4Kernels.scalar();
+			}
+		},
+		BEST {
+			@Override
+			Matrix4Kernel kernel()
+			{
+				return Matrix4Kernels.get();
+			}
+		};
+
+		abstract Matrix4Kernel kernel();
+	}
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	@Param({"SCALAR", "BEST"})
+	public Implementation implementation;
+
+	private Matrix4Kernel kernel;
+
+	private Matrix4[] objectsA;
+	private Matrix4[] objectsB;
+	private Matrix4[] objectsDest;
+
+	private float[] packedA;
+	private float[] packedB;
+	private float[] packedDest;
+	private float[] vectors;
+	private float[] vectorsDest;
+
+	@Setup
+	public void setUp()
+	{
+		kernel = implementation.kernel();
+
+		Random random = new Random(42);
+		objectsA = new Matrix4[size];
+		objectsB = new Matrix4[size];
+		objectsDest = new Matrix4[size];
+		packedA = new float[16 * size];
+		packedB = new float[16 * size];
+		packedDest = new float[16 * size];
+		vectors = new float[4 * size];
+		vectorsDest = new float[4 * size];
+
+		float[] elements = new float[16];
+		for(int i = 0; i < size; i++)
+		{
+			for(int j = 0; j < 16; j++)
+			{
+				elements[j] = random.nextFloat();
+			}
+			objectsA[i] = Matrix4.load(elements, Matrix.Order.ROW_MAJOR);
+			System.arraycopy(elements, 0, packedA, 16 * i, 16);
+
+			for(int j = 0; j < 16; j++)
+			{
+				elements[j] = random.nextFloat();
+			}
+			objectsB[i] = Matrix4.load(elements, Matrix.Order.ROW_MAJOR);
+			System.arraycopy(elements, 0, packedB, 16 * i, 16);
+		}
+		for(int i = 0; i < vectors.length; i++)
+		{
+			vectors[i] = random.nextFloat();
+		}
+	}
+
+	@Benchmark
+	public Object objectMultiply()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			objectsDest[i] = objectsA[i].multiply(objectsB[i]);
+		}
+		return objectsDest;
+	}
+
+	@Benchmark
+	public Object kernelMultiply()
+	{
+		kernel.multiply(packedA, 0, packedB, 0, packedDest, 0, size);
+		return packedDest;
+	}
+
+	@Benchmark
+	public Object kernelTransform()
+	{
+		kernel.transform(packedA, 0, vectors, 0, vectorsDest, 0, size);
+		return vectorsDest;
+	}
+}
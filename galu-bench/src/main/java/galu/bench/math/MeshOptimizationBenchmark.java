@@ -0,0 +1,138 @@
+package galu.bench.math;
+
+import galu.mesh.Overdraw;
+import galu.mesh.VertexCache;
+import galu.mesh.VertexFetch;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optimizing a {@code size} by {@code size} grid whose triangles have been shuffled, like an imported mesh. Scores are
+ * for optimizing the whole mesh. {@code vertexCache} also reports the ACMR (the vertices shaded per triangle, with a
+ * 16-entry FIFO cache) before and after as the {@code acmrBefore} and {@code acmrAfter} secondary results;
+ * {@code overdraw} reports it after clustering as {@code acmrAfter}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MeshOptimizationBenchmark
+{
+	private static final int FIFO_SIZE = 16;
+
+	@Param({"64", "256"})
+	public int size;
+
+	private float[] positions;
+	private int[] shuffled;
+	private int[] optimized;
+	private int[] work;
+	private float[] remapped;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Acmr
+	{
+		public double acmrBefore;
+		public double acmrAfter;
+		// JMH adds up event counters over the measurement iterations, so each one reports its share
+		private int iterations;
+
+		@Setup(Level.Trial)
+		public void setUp(BenchmarkParams params)
+		{
+			iterations = params.getMeasurement().getCount();
+		}
+
+		void set(double before, double after)
+		{
+			acmrBefore = before / iterations;
+			acmrAfter = after / iterations;
+		}
+	}
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		positions = new float[3 * size * size];
+		for(int y = 0; y < size; y++)
+		{
+			for(int x = 0; x < size; x++)
+			{
+				positions[3 * (y * size + x)] = x;
+				positions[3 * (y * size + x) + 1] = y;
+				positions[3 * (y * size + x) + 2] = (float) Math.sin(x * 0.1) * (float) Math.cos(y * 0.1) * 10;
+			}
+		}
+
+		shuffled = new int[6 * (size - 1) * (size - 1)];
+		int i = 0;
+		for(int y = 0; y < size - 1; y++)
+		{
+			for(int x = 0; x < size - 1; x++)
+			{
+				int v = y * size + x;
+				shuffled[i++] = v;
+				shuffled[i++] = v + 1;
+				shuffled[i++] = v + size;
+				shuffled[i++] = v + 1;
+				shuffled[i++] = v + size + 1;
+				shuffled[i++] = v + size;
+			}
+		}
+		for(int t = shuffled.length / 3 - 1; t > 0; t--)
+		{
+			int other = random.nextInt(t + 1);
+			for(int k = 0; k < 3; k++)
+			{
+				int tmp = shuffled[3 * t + k];
+				shuffled[3 * t + k] = shuffled[3 * other + k];
+				shuffled[3 * other + k] = tmp;
+			}
+		}
+
+		optimized = shuffled.clone();
+		VertexCache.optimize(optimized, 0, optimized.length, size * size);
+		work = new int[shuffled.length];
+		remapped = new float[positions.length];
+	}
+
+	@Benchmark
+	public Object vertexCache(Acmr acmr)
+	{
+		System.arraycopy(shuffled, 0, work, 0, work.length);
+		VertexCache.optimize(work, 0, work.length, size * size);
+		acmr.set(VertexCache.acmr(shuffled, 0, shuffled.length, FIFO_SIZE), VertexCache.acmr(work, 0, work.length, FIFO_SIZE));
+		return work;
+	}
+
+	@Benchmark
+	public Object vertexFetch()
+	{
+		System.arraycopy(optimized, 0, work, 0, work.length);
+		int[] remap = VertexFetch.optimize(work, 0, work.length, size * size);
+		VertexFetch.remap(remap, positions, 0, remapped, 0, 3);
+		return remapped;
+	}
+
+	@Benchmark
+	public Object overdraw(Acmr acmr)
+	{
+		System.arraycopy(optimized, 0, work, 0, work.length);
+		Overdraw.optimize(work, 0, work.length, positions, 0, 3, size * size, 1.05f);
+		acmr.set(VertexCache.acmr(optimized, 0, optimized.length, FIFO_SIZE), VertexCache.acmr(work, 0, work.length, FIFO_SIZE));
+		return work;
+	}
+}
@@ -0,0 +1,116 @@
+package galu.bench.math;
+
+import galu.encoding.Octahedral;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Octahedral encoding and decoding of {@code size} packed unit normals, to and from direct buffers. {@code floats} is
+ * the uncompressed baseline, writing 12 bytes per normal instead of 2 or 4. Scores are for the whole batch. For the
+ * error of each encoding, see {@link OctahedralErrorBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OctahedralBenchmark
+{
+	@Param({"1000", "100000"})
+	public int size;
+
+	private float[] normals;
+	private float[] decoded;
+	private FloatBuffer floats;
+	private ByteBuffer bytes;
+	private ShortBuffer shorts;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		normals = new float[3 * size];
+		for(int i = 0; i < normals.length; i += 3)
+		{
+			double z = random.nextDouble() * 2 - 1;
+			double phi = random.nextDouble() * 2 * Math.PI;
+			double r = Math.sqrt(1 - z * z);
+			normals[i] = (float) (r * Math.cos(phi));
+			normals[i + 1] = (float) (r * Math.sin(phi));
+			normals[i + 2] = (float) z;
+		}
+		decoded = new float[3 * size];
+		floats = ByteBuffer.allocateDirect(12 * size).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		bytes = ByteBuffer.allocateDirect(2 * size).order(ByteOrder.nativeOrder());
+		shorts = ByteBuffer.allocateDirect(4 * size).order(ByteOrder.nativeOrder()).asShortBuffer();
+		Octahedral.encode8(normals, 0, size, bytes);
+		Octahedral.encode16(normals, 0, size, shorts);
+	}
+
+	@Benchmark
+	public Object floats()
+	{
+		floats.clear();
+		floats.put(normals);
+		return floats;
+	}
+
+	@Benchmark
+	public Object encode8()
+	{
+		bytes.clear();
+		Octahedral.encode8(normals, 0, size, bytes);
+		return bytes;
+	}
+
+	@Benchmark
+	public Object encode8Precise()
+	{
+		bytes.clear();
+		Octahedral.encode8Precise(normals, 0, size, bytes);
+		return bytes;
+	}
+
+	@Benchmark
+	public Object encode16()
+	{
+		shorts.clear();
+		Octahedral.encode16(normals, 0, size, shorts);
+		return shorts;
+	}
+
+	@Benchmark
+	public Object encode16Precise()
+	{
+		shorts.clear();
+		Octahedral.encode16Precise(normals, 0, size, shorts);
+		return shorts;
+	}
+
+	@Benchmark
+	public Object decode8()
+	{
+		bytes.clear();
+		Octahedral.decode8(bytes, decoded, 0, size);
+		return decoded;
+	}
+
+	@Benchmark
+	public Object decode16()
+	{
+		shorts.clear();
+		Octahedral.decode16(shorts, decoded, 0, size);
+		return decoded;
+	}
+}
@@ -0,0 +1,134 @@
+package galu.bench.math;
+
+import galu.encoding.Octahedral;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The angular error of each octahedral encoding, over {@code size} uniformly distributed directions. The time is for a
+ * whole round trip, but the interesting results are the {@code meanDegrees} and {@code maxDegrees} secondary results:
+ * the mean and largest angle between a direction and its round trip, measured in double precision.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OctahedralErrorBenchmark
+{
+	@Param({"100000"})
+	public int size;
+
+	@Param({"8", "8Precise", "16", "16Precise"})
+	public String encoding;
+
+	private float[] normals;
+	private float[] decoded;
+	private ByteBuffer bytes;
+	private ShortBuffer shorts;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Error
+	{
+		public double meanDegrees;
+		public double maxDegrees;
+		// JMH adds up event counters over the measurement iterations, so each one reports its share
+		private int iterations;
+
+		@Setup(Level.Trial)
+		public void setUp(BenchmarkParams params)
+		{
+			iterations = params.getMeasurement().getCount();
+		}
+
+		void set(double mean, double max)
+		{
+			meanDegrees = mean / iterations;
+			maxDegrees = max / iterations;
+		}
+	}
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		normals = new float[3 * size];
+		for(int i = 0; i < normals.length; i += 3)
+		{
+			double z = random.nextDouble() * 2 - 1;
+			double phi = random.nextDouble() * 2 * Math.PI;
+			double r = Math.sqrt(1 - z * z);
+			normals[i] = (float) (r * Math.cos(phi));
+			normals[i + 1] = (float) (r * Math.sin(phi));
+			normals[i + 2] = (float) z;
+		}
+		decoded = new float[3 * size];
+		bytes = ByteBuffer.allocate(2 * size);
+		shorts = ShortBuffer.allocate(2 * size);
+	}
+
+	@Benchmark
+	public Object roundTrip(Error error)
+	{
+		bytes.clear();
+		shorts.clear();
+		switch(encoding)
+		{
+			case "8":
+				Octahedral.encode8(normals, 0, size, bytes);
+				break;
+			case "8Precise":
+				Octahedral.encode8Precise(normals, 0, size, bytes);
+				break;
+			case "16":
+				Octahedral.encode16(normals, 0, size, shorts);
+				break;
+			default:
+				Octahedral.encode16Precise(normals, 0, size, shorts);
+				break;
+		}
+		bytes.flip();
+		shorts.flip();
+		if(encoding.startsWith("8"))
+		{
+			Octahedral.decode8(bytes, decoded, 0, size);
+		}
+		else
+		{
+			Octahedral.decode16(shorts, decoded, 0, size);
+		}
+
+		double sum = 0, max = 0;
+		for(int i = 0; i < normals.length; i += 3)
+		{
+			double degrees = degrees(normals, decoded, i);
+			sum += degrees;
+			max = Math.max(max, degrees);
+		}
+		error.set(sum / size, max);
+		return decoded;
+	}
+
+	private static double degrees(float[] a, float[] b, int i)
+	{
+		double ax = a[i], ay = a[i + 1], az = a[i + 2];
+		double bx = b[i], by = b[i + 1], bz = b[i + 2];
+		double cx = ay * bz - az * by;
+		double cy = az * bx - ax * bz;
+		double cz = ax * by - ay * bx;
+		return Math.toDegrees(Math.atan2(Math.sqrt(cx * cx + cy * cy + cz * cz), ax * bx + ay * by + az * bz));
+	}
+}
@@ -0,0 +1,99 @@
+package galu.bench.math;
+
+import galu.matrix.Matrix4;
+import galu.matrix.ParallelTransformer;
+import galu.transform.Transformations;
+import galu.vector.Vector3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How {@link ParallelTransformer} scales with the number of threads, transforming {@code size} packed points. The
+ * {@code sequential} benchmarks call {@link Matrix4} directly, as the baseline. Scores are for the whole buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelTransformBenchmark
+{
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	@Param({"1", "2", "4", "8", "16", "32"})
+	public int threads;
+
+	private Matrix4 matrix;
+	private float[] src;
+	private float[] dst;
+	private FloatBuffer srcBuffer;
+	private FloatBuffer dstBuffer;
+	private ForkJoinPool pool;
+	private ParallelTransformer transformer;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		matrix = Transformations.trs(new Vector3(1, 2, 3), 0.7f, new Vector3(1, 1, 0), new Vector3(2, 2, 2));
+		src = new float[3 * size];
+		dst = new float[3 * size];
+		for(int i = 0; i < src.length; i++)
+		{
+			src[i] = random.nextFloat();
+		}
+		srcBuffer = ByteBuffer.allocateDirect(4 * src.length).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		srcBuffer.put(src).flip();
+		dstBuffer = ByteBuffer.allocateDirect(4 * dst.length).order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+		pool = new ForkJoinPool(threads);
+		transformer = new ParallelTransformer(pool, ParallelTransformer.DEFAULT_THRESHOLD, ParallelTransformer.DEFAULT_CHUNK_SIZE);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public Object sequentialArray()
+	{
+		matrix.transformPoints(src, 0, 3, dst, 0, 3, size, false);
+		return dst;
+	}
+
+	@Benchmark
+	public Object parallelArray()
+	{
+		transformer.transformPoints(matrix, src, 0, 3, dst, 0, 3, size, false);
+		return dst;
+	}
+
+	@Benchmark
+	public Object sequentialBuffer()
+	{
+		matrix.transformPoints(srcBuffer, 0, 3, dstBuffer, 0, 3, size, false);
+		return dstBuffer;
+	}
+
+	@Benchmark
+	public Object parallelBuffer()
+	{
+		transformer.transformPoints(matrix, srcBuffer, 0, 3, dstBuffer, 0, 3, size, false);
+		return dstBuffer;
+	}
+}
@@ -0,0 +1,237 @@
+package galu.bench.math;
+
+import galu.matrix.Matrix4;
+import galu.transform.Quaternion;
+import galu.transform.QuaternionArray;
+import galu.vector.Vector3;
+import galu.vector.Vector3Array;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@link Quaternion} operation, plus the {@link QuaternionArray} batch versions and rotation composition with
+ * {@link Matrix4} for comparison. Each invocation works on {@code size} operands, so divide the score by {@code size} for
+ * the cost of a single call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QuaternionBenchmark
+{
+	@Param({"100", "10000"})
+	public int size;
+
+	private Quaternion[] a;
+	private Quaternion[] b;
+	private Matrix4[] matricesA;
+	private Matrix4[] matricesB;
+	private Vector3[] vectors;
+	private float[] angles;
+
+	private QuaternionArray batchA;
+	private QuaternionArray batchB;
+	private QuaternionArray batchDest;
+	private Vector3Array batchVectors;
+	private Vector3Array batchVectorsDest;
+	private float[] batchMatrices;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		a = new Quaternion[size];
+		b = new Quaternion[size];
+		matricesA = new Matrix4[size];
+		matricesB = new Matrix4[size];
+		vectors = new Vector3[size];
+		angles = new float[size];
+		batchA = new QuaternionArray(size);
+		batchB = new QuaternionArray(size);
+		batchDest = new QuaternionArray(size);
+		batchVectors = new Vector3Array(size);
+		batchVectorsDest = new Vector3Array(size);
+		batchMatrices = new float[16 * size];
+
+		for(int i = 0; i < size; i++)
+		{
+			angles[i] = (float) (random.nextFloat() * 2 * Math.PI);
+			vectors[i] = new Vector3(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+			a[i] = Quaternion.fromAxisAngle(angles[i], vectors[i]);
+			b[i] = Quaternion.fromAxisAngle(random.nextFloat(), new Vector3(random.nextFloat(), random.nextFloat(), 1));
+			matricesA[i] = a[i].toMatrix4();
+			matricesB[i] = b[i].toMatrix4();
+			batchA.set(i, a[i]);
+			batchB.set(i, b[i]);
+			batchVectors.set(i, vectors[i]);
+		}
+	}
+
+	@Benchmark
+	public void fromAxisAngle(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Quaternion.fromAxisAngle(angles[i], vectors[i]));
+		}
+	}
+
+	@Benchmark
+	public void fromMatrix(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Quaternion.fromMatrix(matricesA[i]));
+		}
+	}
+
+	@Benchmark
+	public void multiply(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].multiply(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void multiplyMatrix4(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(matricesA[i].multiply(matricesB[i]));
+		}
+	}
+
+	@Benchmark
+	public void conjugate(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].conjugate());
+		}
+	}
+
+	@Benchmark
+	public void inverse(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].inverse());
+		}
+	}
+
+	@Benchmark
+	public void normalize(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].normalize());
+		}
+	}
+
+	@Benchmark
+	public void rotate(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].rotate(vectors[i]));
+		}
+	}
+
+	@Benchmark
+	public void nlerp(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].nlerp(b[i], 0.3f));
+		}
+	}
+
+	@Benchmark
+	public void slerp(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].slerp(b[i], 0.3f));
+		}
+	}
+
+	@Benchmark
+	public void fastSlerp(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].fastSlerp(b[i], 0.3f));
+		}
+	}
+
+	@Benchmark
+	public void toMatrix3(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].toMatrix3());
+		}
+	}
+
+	@Benchmark
+	public void toMatrix4(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].toMatrix4());
+		}
+	}
+
+	@Benchmark
+	public Object batchMultiply()
+	{
+		batchA.multiply(batchB, batchDest, 0, size);
+		return batchDest;
+	}
+
+	@Benchmark
+	public Object batchNormalize()
+	{
+		batchA.normalize(batchDest, 0, size);
+		return batchDest;
+	}
+
+	@Benchmark
+	public Object batchNlerp()
+	{
+		batchA.nlerp(batchB, 0.3f, batchDest, 0, size);
+		return batchDest;
+	}
+
+	@Benchmark
+	public Object batchFastSlerp()
+	{
+		batchA.fastSlerp(batchB, 0.3f, batchDest, 0, size);
+		return batchDest;
+	}
+
+	@Benchmark
+	public Object batchRotate()
+	{
+		batchA.rotate(batchVectors, batchVectorsDest, 0, size);
+		return batchVectorsDest;
+	}
+
+	@Benchmark
+	public Object batchToMatrices()
+	{
+		batchA.toMatrices(batchMatrices, 0, 0, size);
+		return batchMatrices;
+	}
+}
@@ -0,0 +1,155 @@
+package galu.bench.math;
+
+import galu.geometry.RayHit;
+import galu.geometry.RayTriangle;
+import galu.vector.Vector3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Casting {@value #RAYS} rays against every one of {@code size} triangles, for picking against a small mesh.
+ * {@code vectors} is the old approach of building each edge and cross product with {@link Vector3}. Scores are for all
+ * of the ray-triangle tests; divide by {@code size * }{@value #RAYS} for the cost of one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RayTriangleBenchmark
+{
+	private static final int RAYS = 256;
+
+	@Param({"64", "1024"})
+	public int size;
+
+	private float[] triangles;
+	private float[] positions;
+	private int[] indices;
+	private float[] ox = new float[RAYS], oy = new float[RAYS], oz = new float[RAYS];
+	private float[] dx = new float[RAYS], dy = new float[RAYS], dz = new float[RAYS];
+	private float[] hitT = new float[RAYS], hitU = new float[RAYS], hitV = new float[RAYS];
+	private int[] hitTriangles = new int[RAYS];
+	private RayHit hit = new RayHit();
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		triangles = new float[9 * size];
+		for(int i = 0; i < triangles.length; i++)
+		{
+			triangles[i] = (random.nextFloat() * 2 - 1) * 10;
+		}
+		positions = triangles.clone();
+		indices = new int[3 * size];
+		for(int i = 0; i < indices.length; i++)
+		{
+			indices[i] = i;
+		}
+		for(int r = 0; r < RAYS; r++)
+		{
+			ox[r] = (random.nextFloat() * 2 - 1) * 10;
+			oy[r] = (random.nextFloat() * 2 - 1) * 10;
+			oz[r] = 20;
+			dx[r] = random.nextFloat() * 0.2f - 0.1f;
+			dy[r] = random.nextFloat() * 0.2f - 0.1f;
+			dz[r] = -1;
+		}
+	}
+
+	@Benchmark
+	public float vectors()
+	{
+		float sum = 0;
+		for(int r = 0; r < RAYS; r++)
+		{
+			Vector3 origin = new Vector3(ox[r], oy[r], oz[r]);
+			Vector3 direction = new Vector3(dx[r], dy[r], dz[r]);
+			float best = Float.POSITIVE_INFINITY;
+			for(int i = 0; i < size; i++)
+			{
+				int p = 9 * i;
+				Vector3 a = new Vector3(triangles[p], triangles[p + 1], triangles[p + 2]);
+				Vector3 e1 = new Vector3(triangles[p + 3], triangles[p + 4], triangles[p + 5]).subtract(a);
+				Vector3 e2 = new Vector3(triangles[p + 6], triangles[p + 7], triangles[p + 8]).subtract(a);
+				Vector3 pv = direction.cross(e2);
+				float det = e1.dot(pv);
+				if(det == 0)
+				{
+					continue;
+				}
+				Vector3 s = origin.subtract(a);
+				float u = s.dot(pv) / det;
+				Vector3 q = s.cross(e1);
+				float v = direction.dot(q) / det;
+				float t = e2.dot(q) / det;
+				if(u >= 0 && v >= 0 && u + v <= 1 && t >= 0 && t < best)
+				{
+					best = t;
+				}
+			}
+			sum += best == Float.POSITIVE_INFINITY ? 0 : best;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public float closestHit()
+	{
+		float sum = 0;
+		for(int r = 0; r < RAYS; r++)
+		{
+			if(RayTriangle.closestHit(ox[r], oy[r], oz[r], dx[r], dy[r], dz[r], Float.POSITIVE_INFINITY, triangles, 0, size, false, hit))
+			{
+				sum += hit.t;
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public float closestHitCulled()
+	{
+		float sum = 0;
+		for(int r = 0; r < RAYS; r++)
+		{
+			if(RayTriangle.closestHit(ox[r], oy[r], oz[r], dx[r], dy[r], dz[r], Float.POSITIVE_INFINITY, triangles, 0, size, true, hit))
+			{
+				sum += hit.t;
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public Object closestHits()
+	{
+		RayTriangle.closestHits(ox, oy, oz, dx, dy, dz, RAYS, Float.POSITIVE_INFINITY, triangles, 0, size, false,
+		                        hitT, hitU, hitV, hitTriangles);
+		return hitTriangles;
+	}
+
+	@Benchmark
+	public Object closestHitsCulled()
+	{
+		RayTriangle.closestHits(ox, oy, oz, dx, dy, dz, RAYS, Float.POSITIVE_INFINITY, triangles, 0, size, true,
+		                        hitT, hitU, hitV, hitTriangles);
+		return hitTriangles;
+	}
+
+	@Benchmark
+	public Object closestHitsIndexed()
+	{
+		RayTriangle.closestHits(ox, oy, oz, dx, dy, dz, RAYS, Float.POSITIVE_INFINITY, positions, indices, 0, size, false,
+		                        hitT, hitU, hitV, hitTriangles);
+		return hitTriangles;
+	}
+}
@@ -0,0 +1,108 @@
+package galu.bench.math;
+
+import galu.mesh.Lod;
+import galu.mesh.Simplifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building four levels of detail, at 1/2, 1/4, 1/8, and 1/16 of the triangles, for a wavy {@code size} by {@code size}
+ * grid. {@code simplifyEach} simplifies from scratch for each level; {@code lodChain} makes all of them in one pass.
+ * {@code sequentialChains} and {@code parallelChains} do the same for eight such meshes, one after another and with
+ * {@link Simplifier#lodChains}. Scores are for the whole set of levels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimplifierBenchmark
+{
+	private static final float[] RATIOS = {0.5f, 0.25f, 0.125f, 0.0625f};
+	private static final int MESHES = 8;
+
+	@Param({"32", "128"})
+	public int size;
+
+	private Simplifier simplifier;
+	private List<Simplifier> simplifiers;
+
+	@Setup
+	public void setUp()
+	{
+		simplifiers = new ArrayList<>();
+		for(int mesh = 0; mesh < MESHES; mesh++)
+		{
+			float[] positions = new float[3 * size * size];
+			for(int y = 0; y < size; y++)
+			{
+				for(int x = 0; x < size; x++)
+				{
+					positions[3 * (y * size + x)] = x;
+					positions[3 * (y * size + x) + 1] = y;
+					positions[3 * (y * size + x) + 2] = (float) Math.sin(x * 0.1 + mesh) * (float) Math.cos(y * 0.1) * 10;
+				}
+			}
+
+			int[] indices = new int[6 * (size - 1) * (size - 1)];
+			int i = 0;
+			for(int y = 0; y < size - 1; y++)
+			{
+				for(int x = 0; x < size - 1; x++)
+				{
+					int v = y * size + x;
+					indices[i++] = v;
+					indices[i++] = v + 1;
+					indices[i++] = v + size;
+					indices[i++] = v + 1;
+					indices[i++] = v + size + 1;
+					indices[i++] = v + size;
+				}
+			}
+			simplifiers.add(new Simplifier(positions, 3, size * size, indices, 0, indices.length));
+		}
+		simplifier = simplifiers.get(0);
+	}
+
+	@Benchmark
+	public Object simplifyEach()
+	{
+		List<Lod> lods = new ArrayList<>();
+		for(float ratio : RATIOS)
+		{
+			lods.add(simplifier.simplify((int) (ratio * simplifier.triangleCount()), Float.MAX_VALUE));
+		}
+		return lods;
+	}
+
+	@Benchmark
+	public Object lodChain()
+	{
+		return simplifier.lodChain(RATIOS, Float.MAX_VALUE);
+	}
+
+	@Benchmark
+	public Object sequentialChains()
+	{
+		List<List<Lod>> chains = new ArrayList<>();
+		for(Simplifier s : simplifiers)
+		{
+			chains.add(s.lodChain(RATIOS, Float.MAX_VALUE));
+		}
+		return chains;
+	}
+
+	@Benchmark
+	public Object parallelChains()
+	{
+		return Simplifier.lodChains(simplifiers, RATIOS, Float.MAX_VALUE);
+	}
+}
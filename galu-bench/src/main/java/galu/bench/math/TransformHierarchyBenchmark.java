@@ -0,0 +1,138 @@
+package galu.bench.math;
+
+import galu.matrix.Matrix4;
+import galu.transform.Quaternion;
+import galu.transform.TransformHierarchy;
+import galu.transform.Transformations;
+import galu.vector.Vector3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updating the world matrices of a {@code size}-node scene: one root with a hundred random subtrees under it.
+ * {@code combineAll} is the old approach of rebuilding every world matrix with {@link Transformations#combine} each
+ * frame. The {@code All} benchmarks move every node, and the {@code Moving} ones move 1% of the nodes (and whatever is
+ * under them). Scores are for the whole frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransformHierarchyBenchmark
+{
+	@Param({"10000", "100000"})
+	public int size;
+
+	private int[] parents;
+	private Vector3[] translations;
+	private Quaternion[] rotations;
+	private Vector3[] scales;
+	private Matrix4[] worlds;
+	private int[] moving;
+	private TransformHierarchy hierarchy;
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		parents = new int[size];
+		translations = new Vector3[size];
+		rotations = new Quaternion[size];
+		scales = new Vector3[size];
+		worlds = new Matrix4[size];
+		hierarchy = new TransformHierarchy(size);
+		for(int i = 0; i < size; i++)
+		{
+			parents[i] = i == 0 ? TransformHierarchy.NO_PARENT : i <= 100 ? 0 : 1 + random.nextInt(i - 1);
+			translations[i] = new Vector3(random.nextFloat(), random.nextFloat(), random.nextFloat());
+			Vector3 axis = new Vector3(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f).normalize();
+			rotations[i] = Quaternion.fromAxisAngle(random.nextFloat(), axis);
+			scales[i] = new Vector3(1, 1, 1);
+			hierarchy.add(parents[i]);
+			hierarchy.setLocal(i, translations[i], rotations[i], scales[i]);
+		}
+		hierarchy.update();
+
+		moving = new int[size / 100];
+		for(int i = 0; i < moving.length; i++)
+		{
+			moving[i] = random.nextInt(size);
+		}
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public Object combineAll()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			Matrix4 local = Transformations.trs(translations[i], rotations[i], scales[i]);
+			worlds[i] = parents[i] < 0 ? local : Transformations.combine(local, worlds[parents[i]]);
+		}
+		return worlds;
+	}
+
+	@Benchmark
+	public int updateAll()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			hierarchy.setTranslation(i, i, 0, 0);
+		}
+		return hierarchy.update();
+	}
+
+	@Benchmark
+	public int updateAllParallel()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			hierarchy.setTranslation(i, i, 0, 0);
+		}
+		return hierarchy.update(pool);
+	}
+
+	@Benchmark
+	public int updateMoving()
+	{
+		for(int node : moving)
+		{
+			hierarchy.setTranslation(node, node, 0, 0);
+		}
+		return hierarchy.update();
+	}
+
+	@Benchmark
+	public int updateMovingParallel()
+	{
+		for(int node : moving)
+		{
+			hierarchy.setTranslation(node, node, 0, 0);
+		}
+		return hierarchy.update(pool);
+	}
+
+	@Benchmark
+	public int updateStatic()
+	{
+		return hierarchy.update();
+	}
+}
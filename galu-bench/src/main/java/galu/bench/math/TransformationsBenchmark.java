@@ -0,0 +1,302 @@
+package galu.bench.math;
+
+import galu.matrix.Matrix;
+import galu.matrix.Matrix2;
+import galu.matrix.Matrix3;
+import galu.matrix.Matrix4;
+import galu.transform.Transformations;
+import galu.vector.Vector2;
+import galu.vector.Vector3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@link Transformations} builder. Each invocation builds {@code size} matrices, so divide the score by
+ * {@code size} for the cost of a single call. The {@code combine} benchmarks compose three matrices at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransformationsBenchmark
+{
+	@Param({"100", "10000"})
+	public int size;
+
+	private float[] angles;
+	private float[] shears;
+	private Vector2[] vectors2;
+	private Vector3[] vectors3;
+	private Matrix2[] matrices2;
+	private Matrix3[] matrices3;
+	private Matrix4[] matrices4;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		angles = new float[size];
+		shears = new float[size];
+		vectors2 = new Vector2[size];
+		vectors3 = new Vector3[size];
+		matrices2 = new Matrix2[size];
+		matrices3 = new Matrix3[size];
+		matrices4 = new Matrix4[size];
+
+		float[] elements = new float[16];
+		for(int i = 0; i < size; i++)
+		{
+			angles[i] = (float) (random.nextFloat() * 2 * Math.PI);
+			shears[i] = random.nextFloat();
+			vectors2[i] = Vector2.load(fill(random, elements)).normalize();
+			vectors3[i] = Vector3.load(fill(random, elements)).normalize();
+			matrices2[i] = Matrix2.load(fill(random, elements), Matrix.Order.ROW_MAJOR);
+			matrices3[i] = Matrix3.load(fill(random, elements), Matrix.Order.ROW_MAJOR);
+			matrices4[i] = Matrix4.load(fill(random, elements), Matrix.Order.ROW_MAJOR);
+		}
+	}
+
+	private static float[] fill(Random random, float[] array)
+	{
+		for(int i = 0; i < array.length; i++)
+		{
+			array[i] = random.nextFloat() - 0.5f;
+		}
+		return array;
+	}
+
+	private int next(int i)
+	{
+		return i + 1 < size ? i + 1 : 0;
+	}
+
+	@Benchmark
+	public void rotate2(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.rotate(angles[i]));
+		}
+	}
+
+	@Benchmark
+	public void scale2(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.scale(vectors2[i]));
+		}
+	}
+
+	@Benchmark
+	public void reflect2(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.reflect(vectors2[i]));
+		}
+	}
+
+	@Benchmark
+	public void projectOrthogonal2(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.projectOrthogonal(vectors2[i]));
+		}
+	}
+
+	@Benchmark
+	public void combine2(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.combine(matrices2[i], matrices2[next(i)], matrices2[next(next(i))]));
+		}
+	}
+
+	@Benchmark
+	public void rotation3(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.rotation3(angles[i], vectors3[i]));
+		}
+	}
+
+	@Benchmark
+	public void scale3(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.scale3(vectors3[i]));
+		}
+	}
+
+	@Benchmark
+	public void combine3(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.combine(matrices3[i], matrices3[next(i)], matrices3[next(next(i))]));
+		}
+	}
+
+	@Benchmark
+	public void scale4(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.scale(vectors3[i]));
+		}
+	}
+
+	@Benchmark
+	public void rotateX(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.rotateX(angles[i]));
+		}
+	}
+
+	@Benchmark
+	public void rotateY(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.rotateY(angles[i]));
+		}
+	}
+
+	@Benchmark
+	public void rotateZ(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.rotateZ(angles[i]));
+		}
+	}
+
+	@Benchmark
+	public void rotateEuler(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.rotate(vectors3[i]));
+		}
+	}
+
+	@Benchmark
+	public void rotateAxisAngle(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.rotate(angles[i], vectors3[i]));
+		}
+	}
+
+	@Benchmark
+	public void translate(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.translate(vectors3[i]));
+		}
+	}
+
+	@Benchmark
+	public void shear(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			float s = shears[i];
+			bh.consume(Transformations.shear(s, -s, 0.5f * s, 0, s, 0.25f));
+		}
+	}
+
+	@Benchmark
+	public void combine4(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.combine(matrices4[i], matrices4[next(i)], matrices4[next(next(i))]));
+		}
+	}
+
+	@Benchmark
+	public void combineTrs(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			Vector3 v = vectors3[i];
+			bh.consume(Transformations.combine(Transformations.scale(v), Transformations.rotate(angles[i], v), Transformations.translate(v)));
+		}
+	}
+
+	@Benchmark
+	public void trsAxisAngle(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			Vector3 v = vectors3[i];
+			bh.consume(Transformations.trs(v, angles[i], v, v));
+		}
+	}
+
+	@Benchmark
+	public void trsEuler(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			Vector3 v = vectors3[i];
+			bh.consume(Transformations.trs(v, v, v));
+		}
+	}
+
+	@Benchmark
+	public void trsMatrix(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			Vector3 v = vectors3[i];
+			bh.consume(Transformations.trs(v, matrices3[i], v));
+		}
+	}
+
+	@Benchmark
+	public void decompose(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.decompose(matrices4[i]));
+		}
+	}
+
+	@Benchmark
+	public void toHomogeneous(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.toHomogeneous(matrices3[i]));
+		}
+	}
+
+	@Benchmark
+	public void fromHomogeneous(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Transformations.fromHomogeneous(matrices4[i]));
+		}
+	}
+}
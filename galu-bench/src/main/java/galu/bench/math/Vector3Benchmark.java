@@ -0,0 +1,226 @@
+package galu.bench.math;
+
+import galu.vector.Vector3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@link Vector3} operation. Each invocation applies the operation to {@code size} operands, so divide the score by
+ * {@code size} for the cost of a single call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Vector3Benchmark
+{
+	@Param({"100", "10000"})
+	public int size;
+
+	private Vector3[] a;
+	private Vector3[] b;
+	private float[] factors;
+	private float[][] arrays;
+	private float[][] out;
+	private FloatBuffer buffer;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		a = new Vector3[size];
+		b = new Vector3[size];
+		factors = new float[size];
+		arrays = new float[size][3];
+		out = new float[size][3];
+		buffer = ByteBuffer.allocateDirect(4 * 3 * size).order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+		float[] elements = new float[3];
+		for(int i = 0; i < size; i++)
+		{
+			a[i] = Vector3.load(fill(random, elements));
+			b[i] = Vector3.load(fill(random, elements));
+			factors[i] = random.nextFloat();
+			a[i].store(arrays[i]);
+			a[i].store(buffer);
+		}
+	}
+
+	private static float[] fill(Random random, float[] array)
+	{
+		for(int i = 0; i < array.length; i++)
+		{
+			array[i] = random.nextFloat() - 0.5f;
+		}
+		return array;
+	}
+
+	@Benchmark
+	public void get(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].get(i % 3));
+		}
+	}
+
+	@Benchmark
+	public void length(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].length());
+		}
+	}
+
+	@Benchmark
+	public void lengthSquared(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].lengthSquared());
+		}
+	}
+
+	@Benchmark
+	public void normalize(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].normalize());
+		}
+	}
+
+	@Benchmark
+	public void add(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].add(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void subtract(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].subtract(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void dot(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].dot(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void cross(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].cross(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void angleBetween(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].angleBetween(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void negate(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].negate());
+		}
+	}
+
+	@Benchmark
+	public void multiplyScalar(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].multiply(factors[i]));
+		}
+	}
+
+	@Benchmark
+	public void multiplyVector(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].multiply(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void toArray(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(a[i].toArray());
+		}
+	}
+
+	@Benchmark
+	public void loadArray(Blackhole bh)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Vector3.load(arrays[i]));
+		}
+	}
+
+	@Benchmark
+	public void loadBuffer(Blackhole bh)
+	{
+		buffer.rewind();
+		for(int i = 0; i < size; i++)
+		{
+			bh.consume(Vector3.load(buffer));
+		}
+	}
+
+	@Benchmark
+	public float[][] storeArray()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			a[i].store(out[i]);
+		}
+		return out;
+	}
+
+	@Benchmark
+	public FloatBuffer storeBuffer()
+	{
+		buffer.clear();
+		for(int i = 0; i < size; i++)
+		{
+			a[i].store(buffer);
+		}
+		return buffer;
+	}
+}
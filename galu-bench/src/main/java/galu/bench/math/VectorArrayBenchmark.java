@@ -0,0 +1,106 @@
+package galu.bench.math;
+
+import galu.vector.Vector3;
+import galu.vector.Vector3Array;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the structure-of-arrays {@link Vector3Array} kernels against the same work done with {@link Vector3} objects.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VectorArrayBenchmark
+{
+	@Param({"1000", "200000"})
+	public int size;
+
+	private Vector3[] scalarA;
+	private Vector3[] scalarB;
+	private Vector3[] scalarDest;
+
+	private Vector3Array batchA;
+	private Vector3Array batchB;
+	private Vector3Array batchDest;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		scalarA = new Vector3[size];
+		scalarB = new Vector3[size];
+		scalarDest = new Vector3[size];
+		batchA = new Vector3Array(size);
+		batchB = new Vector3Array(size);
+		batchDest = new Vector3Array(size);
+
+		for(int i = 0; i < size; i++)
+		{
+			scalarA[i] = new Vector3(random.nextFloat(), random.nextFloat(), random.nextFloat());
+			scalarB[i] = new Vector3(random.nextFloat(), random.nextFloat(), random.nextFloat());
+			batchA.set(i, scalarA[i]);
+			batchB.set(i, scalarB[i]);
+		}
+	}
+
+	@Benchmark
+	public Object scalarAdd()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			scalarDest[i] = scalarA[i].add(scalarB[i]);
+		}
+		return scalarDest;
+	}
+
+	@Benchmark
+	public Object batchAdd()
+	{
+		batchA.add(batchB, batchDest, 0, size);
+		return batchDest;
+	}
+
+	@Benchmark
+	public Object scalarCross()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			scalarDest[i] = scalarA[i].cross(scalarB[i]);
+		}
+		return scalarDest;
+	}
+
+	@Benchmark
+	public Object batchCross()
+	{
+		batchA.cross(batchB, batchDest, 0, size);
+		return batchDest;
+	}
+
+	@Benchmark
+	public Object scalarNormalize()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			scalarDest[i] = scalarA[i].normalize();
+		}
+		return scalarDest;
+	}
+
+	@Benchmark
+	public Object batchNormalize()
+	{
+		batchA.normalize(batchDest, 0, size);
+		return batchDest;
+	}
+}
@@ -0,0 +1,150 @@
+package galu.encoding;
+
+import galu.util.Checks;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * IEEE 754 half-precision (binary16) floats: 1 sign bit, 5 exponent bits, and 10 mantissa bits, as used by
+ * {@code GL_HALF_FLOAT} vertex attributes.
+ * <p>
+ * Conversion rounds to the nearest half, ties to even. For magnitudes from {@code 2^-14} (about 6.1e-5) up to 65504,
+ * the relative error is at most {@code 2^-11} (about 4.9e-4); below that, halves are subnormal and the absolute error is
+ * at most {@code 2^-25} (about 3e-8). Magnitudes of 65520 or more become infinity. Infinities, NaNs, and signed zeros
+ * are kept. Every half converts back to a float exactly.
+ * <p>
+ * The batch methods read and write at the buffers' positions and advance them, like {@link galu.vector.Vector3#store}.
+ */
+public final class HalfFloat
+{
+	/**
+	 * The largest finite half.
+	 */
+	public static final float MAX_VALUE = 65504f;
+
+	private HalfFloat() {}
+
+	/**
+	 * @return the bits of the half closest to {@code value}
+	 */
+	public static short fromFloat(float value)
+	{
+		int bits = Float.floatToRawIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int exponent = (bits >>> 23) & 0xff;
+		int mantissa = bits & 0x7fffff;
+
+		if(exponent == 0xff)
+		{
+			// Infinity stays infinity; NaN keeps its top payload bits and stays a NaN
+			return (short) (sign | 0x7c00 | (mantissa == 0 ? 0 : 0x200 | (mantissa >>> 13)));
+		}
+
+		int halfExponent = exponent - 127 + 15;
+		if(halfExponent >= 0x1f)
+		{
+			return (short) (sign | 0x7c00);
+		}
+		if(halfExponent <= 0)
+		{
+			// Subnormal: shift the mantissa, with its implicit leading 1, down to units of 2^-24
+			if(halfExponent < -10)
+			{
+				return (short) sign;
+			}
+			mantissa |= 0x800000;
+			int shift = 14 - halfExponent;
+			int half = mantissa >>> shift;
+			int remainder = mantissa & ((1 << shift) - 1);
+			int halfway = 1 << (shift - 1);
+			if(remainder > halfway || (remainder == halfway && (half & 1) != 0))
+			{
+				half++;
+			}
+			return (short) (sign | half);
+		}
+
+		int half = (halfExponent << 10) | (mantissa >>> 13);
+		int remainder = mantissa & 0x1fff;
+		// Rounding up can carry into the exponent, which is still correct (and overflows to infinity at the top)
+		if(remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0))
+		{
+			half++;
+		}
+		return (short) (sign | half);
+	}
+
+	/**
+	 * @return the value of the half with the given bits
+	 */
+	public static float toFloat(short half)
+	{
+		int bits = half & 0xffff;
+		int sign = (bits & 0x8000) << 16;
+		int exponent = (bits >>> 10) & 0x1f;
+		int mantissa = bits & 0x3ff;
+		if(exponent == 0x1f)
+		{
+			return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+		}
+		if(exponent == 0)
+		{
+			float value = mantissa * 0x1p-24f;
+			return sign == 0 ? value : -value;
+		}
+		return Float.intBitsToFloat(sign | ((exponent + 127 - 15) << 23) | (mantissa << 13));
+	}
+
+	/**
+	 * Convert {@code count} floats to halves.
+	 */
+	public static void encode(float[] src, int srcOffset, int count, ShortBuffer dst)
+	{
+		Checks.checkArray("Source", src.length, srcOffset, count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = srcOffset; i < srcOffset + count; i++)
+		{
+			dst.put(fromFloat(src[i]));
+		}
+	}
+
+	/**
+	 * Convert {@code count} floats to halves.
+	 */
+	public static void encode(FloatBuffer src, int count, ShortBuffer dst)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(fromFloat(src.get()));
+		}
+	}
+
+	/**
+	 * Convert {@code count} halves to floats.
+	 */
+	public static void decode(ShortBuffer src, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkArray("Destination", dst.length, dstOffset, count);
+		for(int i = dstOffset; i < dstOffset + count; i++)
+		{
+			dst[i] = toFloat(src.get());
+		}
+	}
+
+	/**
+	 * Convert {@code count} halves to floats.
+	 */
+	public static void decode(ShortBuffer src, FloatBuffer dst, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(toFloat(src.get()));
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package galu.encoding;
+
+import galu.util.Checks;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Normalized integers, as used by {@code GL_BYTE}, {@code GL_UNSIGNED_BYTE}, {@code GL_SHORT}, and
+ * {@code GL_UNSIGNED_SHORT} vertex attributes with normalization turned on.
+ * <p>
+ * An unsigned normalized (unorm) integer with {@code b} bits maps {@code [0, 1]} onto {@code [0, 2^b - 1]}; a signed
+ * normalized (snorm) one maps {@code [-1, 1]} onto {@code [-(2^(b-1) - 1), 2^(b-1) - 1]}, so that 0 and both ends are
+ * exact and the most negative integer decodes to -1 as well. Values are clamped to the range before rounding to the
+ * nearest integer, and NaN encodes to 0. Inside the range, a value survives a round trip with an absolute error of at
+ * most half a step:
+ * <table>
+ *     <tr><th>Format</th><th>Error bound</th></tr>
+ *     <tr><td>snorm8</td><td>1/254</td></tr>
+ *     <tr><td>unorm8</td><td>1/510</td></tr>
+ *     <tr><td>snorm16</td><td>1/65534</td></tr>
+ *     <tr><td>unorm16</td><td>1/131070</td></tr>
+ * </table>
+ * Eight-bit values are written to {@link ByteBuffer}s and sixteen-bit ones to {@link ShortBuffer}s, in the buffers'
+ * byte order. The batch methods read and write at the buffers' positions and advance them.
+ */
+public final class Normalized
+{
+	private static final float SNORM8_MAX = 127;
+	private static final float UNORM8_MAX = 255;
+	private static final float SNORM16_MAX = 32767;
+	private static final float UNORM16_MAX = 65535;
+
+	private Normalized() {}
+
+	private static int encodeSigned(float value, float max)
+	{
+		// NaN fails both comparisons and ends up as 0 after rounding
+		float clamped = value > 1 ? 1 : value < -1 ? -1 : value;
+		return Math.round(clamped * max);
+	}
+
+	private static int encodeUnsigned(float value, float max)
+	{
+		float clamped = value > 1 ? 1 : value < 0 ? 0 : value;
+		return Math.round(clamped * max);
+	}
+
+	public static byte encodeSnorm8(float value)
+	{
+		return (byte) encodeSigned(value, SNORM8_MAX);
+	}
+
+	public static float decodeSnorm8(byte value)
+	{
+		return Math.max(value / SNORM8_MAX, -1);
+	}
+
+	public static byte encodeUnorm8(float value)
+	{
+		return (byte) encodeUnsigned(value, UNORM8_MAX);
+	}
+
+	public static float decodeUnorm8(byte value)
+	{
+		return (value & 0xff) / UNORM8_MAX;
+	}
+
+	public static short encodeSnorm16(float value)
+	{
+		return (short) encodeSigned(value, SNORM16_MAX);
+	}
+
+	public static float decodeSnorm16(short value)
+	{
+		return Math.max(value / SNORM16_MAX, -1);
+	}
+
+	public static short encodeUnorm16(float value)
+	{
+		return (short) encodeUnsigned(value, UNORM16_MAX);
+	}
+
+	public static float decodeUnorm16(short value)
+	{
+		return (value & 0xffff) / UNORM16_MAX;
+	}
+
+	public static void encodeSnorm8(float[] src, int srcOffset, int count, ByteBuffer dst)
+	{
+		Checks.checkArray("Source", src.length, srcOffset, count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = srcOffset; i < srcOffset + count; i++)
+		{
+			dst.put(encodeSnorm8(src[i]));
+		}
+	}
+
+	public static void encodeSnorm8(FloatBuffer src, int count, ByteBuffer dst)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(encodeSnorm8(src.get()));
+		}
+	}
+
+	public static void decodeSnorm8(ByteBuffer src, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkArray("Destination", dst.length, dstOffset, count);
+		for(int i = dstOffset; i < dstOffset + count; i++)
+		{
+			dst[i] = decodeSnorm8(src.get());
+		}
+	}
+
+	public static void decodeSnorm8(ByteBuffer src, FloatBuffer dst, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(decodeSnorm8(src.get()));
+		}
+	}
+
+	public static void encodeUnorm8(float[] src, int srcOffset, int count, ByteBuffer dst)
+	{
+		Checks.checkArray("Source", src.length, srcOffset, count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = srcOffset; i < srcOffset + count; i++)
+		{
+			dst.put(encodeUnorm8(src[i]));
+		}
+	}
+
+	public static void encodeUnorm8(FloatBuffer src, int count, ByteBuffer dst)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(encodeUnorm8(src.get()));
+		}
+	}
+
+	public static void decodeUnorm8(ByteBuffer src, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkArray("Destination", dst.length, dstOffset, count);
+		for(int i = dstOffset; i < dstOffset + count; i++)
+		{
+			dst[i] = decodeUnorm8(src.get());
+		}
+	}
+
+	public static void decodeUnorm8(ByteBuffer src, FloatBuffer dst, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(decodeUnorm8(src.get()));
+		}
+	}
+
+	public static void encodeSnorm16(float[] src, int srcOffset, int count, ShortBuffer dst)
+	{
+		Checks.checkArray("Source", src.length, srcOffset, count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = srcOffset; i < srcOffset + count; i++)
+		{
+			dst.put(encodeSnorm16(src[i]));
+		}
+	}
+
+	public static void encodeSnorm16(FloatBuffer src, int count, ShortBuffer dst)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(encodeSnorm16(src.get()));
+		}
+	}
+
+	public static void decodeSnorm16(ShortBuffer src, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkArray("Destination", dst.length, dstOffset, count);
+		for(int i = dstOffset; i < dstOffset + count; i++)
+		{
+			dst[i] = decodeSnorm16(src.get());
+		}
+	}
+
+	public static void decodeSnorm16(ShortBuffer src, FloatBuffer dst, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(decodeSnorm16(src.get()));
+		}
+	}
+
+	public static void encodeUnorm16(float[] src, int srcOffset, int count, ShortBuffer dst)
+	{
+		Checks.checkArray("Source", src.length, srcOffset, count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = srcOffset; i < srcOffset + count; i++)
+		{
+			dst.put(encodeUnorm16(src[i]));
+		}
+	}
+
+	public static void encodeUnorm16(FloatBuffer src, int count, ShortBuffer dst)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(encodeUnorm16(src.get()));
+		}
+	}
+
+	public static void decodeUnorm16(ShortBuffer src, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkArray("Destination", dst.length, dstOffset, count);
+		for(int i = dstOffset; i < dstOffset + count; i++)
+		{
+			dst[i] = decodeUnorm16(src.get());
+		}
+	}
+
+	public static void decodeUnorm16(ShortBuffer src, FloatBuffer dst, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(decodeUnorm16(src.get()));
+		}
+	}
+}
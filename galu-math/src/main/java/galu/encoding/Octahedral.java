@@ -0,0 +1,253 @@
+package galu.encoding;
+
+import galu.util.Checks;
+import galu.vector.Vector3;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Octahedral encoding of unit vectors, such as normals, into two signed normalized components.
+ * <p>
+ * A direction is projected onto the octahedron {@code |x| + |y| + |z| = 1}, and the lower half of the octahedron is
+ * folded over the upper one, which flattens the sphere into the square {@code [-1, 1]^2}. That square is then stored as
+ * two 8-bit or two 16-bit snorm integers (see {@link Normalized}), so a normal takes 2 or 4 bytes instead of 12. The
+ * input doesn't have to be normalized, since only its direction is kept; a zero vector encodes as {@code (0, 0, 1)}.
+ * Decoded vectors are normalized.
+ * <p>
+ * The plain encoders round each component to the nearest integer. The {@code Precise} ones instead try the four
+ * integer pairs around the exact encoding and keep the one whose decoded direction is closest to the input, which costs
+ * four decodes but lowers the worst-case error by about a third. Measured over two million uniformly distributed
+ * directions, the angle between a vector and its round trip was:
+ * <table>
+ *     <tr><th>Format</th><th>Plain (mean / max)</th><th>Precise (mean / max)</th></tr>
+ *     <tr><td>2x8 bits</td><td>0.34 / 0.96 degrees</td><td>0.32 / 0.64 degrees</td></tr>
+ *     <tr><td>2x16 bits</td><td>0.0013 / 0.0037 degrees</td><td>0.0012 / 0.0025 degrees</td></tr>
+ * </table>
+ * The single-vector methods pack the two components into one value, with x in the low bits and y in the high bits. The
+ * batch methods work on packed {@code float[]}s of three components per vector and write x then y, as
+ * {@code GL_BYTE} or {@code GL_SHORT} attributes with two normalized components. They read and write at the buffers'
+ * positions and advance them.
+ */
+public final class Octahedral
+{
+	private static final float MAX8 = 127;
+	private static final float MAX16 = 32767;
+
+	private Octahedral() {}
+
+	/**
+	 * Encode a direction, returning the two integer components packed as {@code (x & 0xffff) | y << 16}.
+	 */
+	private static int encode(float x, float y, float z, float max, boolean precise)
+	{
+		float l1 = Math.abs(x) + Math.abs(y) + Math.abs(z);
+		float scale = l1 > 0 ? max / l1 : 0;
+		float u = x * scale;
+		float v = y * scale;
+		if(z < 0)
+		{
+			// Fold the lower half over the upper one
+			float foldedU = (max - Math.abs(v)) * (u >= 0 ? 1 : -1);
+			v = (max - Math.abs(u)) * (v >= 0 ? 1 : -1);
+			u = foldedU;
+		}
+
+		int encodedU, encodedV;
+		if(precise)
+		{
+			int floorU = (int) Math.floor(u);
+			int floorV = (int) Math.floor(v);
+			encodedU = floorU;
+			encodedV = floorV;
+			double best = Double.NEGATIVE_INFINITY;
+			for(int i = 0; i < 4; i++)
+			{
+				int candidateU = Math.min(floorU + (i & 1), (int) max);
+				int candidateV = Math.min(floorV + (i >> 1), (int) max);
+				double similarity = similarity(candidateU, candidateV, max, x, y, z);
+				if(similarity > best)
+				{
+					best = similarity;
+					encodedU = candidateU;
+					encodedV = candidateV;
+				}
+			}
+		}
+		else
+		{
+			encodedU = Math.round(u);
+			encodedV = Math.round(v);
+		}
+		return (encodedU & 0xffff) | encodedV << 16;
+	}
+
+	/**
+	 * @return a value that increases with the cosine of the angle between the direction encoded by {@code (u, v)} and
+	 * {@code (x, y, z)}: the squared cosine with the cosine's sign, which saves a square root. This is done in double
+	 * precision, because at 16 bits the candidates differ by less than a float can resolve.
+	 */
+	private static double similarity(double u, double v, double max, float x, float y, float z)
+	{
+		double w = max - Math.abs(u) - Math.abs(v);
+		double t = Math.max(-w, 0);
+		u += u >= 0 ? -t : t;
+		v += v >= 0 ? -t : t;
+		double dot = u * x + v * y + w * z;
+		return dot * Math.abs(dot) / (u * u + v * v + w * w);
+	}
+
+	/**
+	 * Decode the integer components {@code (u, v)} into {@code dst[offset]} through {@code dst[offset + 2]}.
+	 */
+	private static void decode(int encodedU, int encodedV, float max, float[] dst, int offset)
+	{
+		// Work in units of one step, since the result is normalized anyway
+		float u = Math.max(encodedU, -max);
+		float v = Math.max(encodedV, -max);
+		float w = max - Math.abs(u) - Math.abs(v);
+		// Unfold the lower half without branching on which half the point is in
+		float t = Math.max(-w, 0);
+		u += u >= 0 ? -t : t;
+		v += v >= 0 ? -t : t;
+		float scale = 1 / (float) Math.sqrt(u * u + v * v + w * w);
+		dst[offset] = u * scale;
+		dst[offset + 1] = v * scale;
+		dst[offset + 2] = w * scale;
+	}
+
+	private static Vector3 decode(int encodedU, int encodedV, float max)
+	{
+		float[] result = new float[3];
+		decode(encodedU, encodedV, max, result, 0);
+		return new Vector3(result[0], result[1], result[2]);
+	}
+
+	/**
+	 * @return the two 8-bit components, packed as {@code (x & 0xff) | y << 8}
+	 */
+	public static short encode8(Vector3 direction)
+	{
+		int encoded = encode(direction.x, direction.y, direction.z, MAX8, false);
+		return (short) ((encoded & 0xff) | encoded >> 16 << 8);
+	}
+
+	/**
+	 * @return the two 8-bit components with the least error, packed as {@code (x & 0xff) | y << 8}
+	 */
+	public static short encode8Precise(Vector3 direction)
+	{
+		int encoded = encode(direction.x, direction.y, direction.z, MAX8, true);
+		return (short) ((encoded & 0xff) | encoded >> 16 << 8);
+	}
+
+	public static Vector3 decode8(short encoded)
+	{
+		return decode((byte) encoded, encoded >> 8, MAX8);
+	}
+
+	/**
+	 * @return the two 16-bit components, packed as {@code (x & 0xffff) | y << 16}
+	 */
+	public static int encode16(Vector3 direction)
+	{
+		return encode(direction.x, direction.y, direction.z, MAX16, false);
+	}
+
+	/**
+	 * @return the two 16-bit components with the least error, packed as {@code (x & 0xffff) | y << 16}
+	 */
+	public static int encode16Precise(Vector3 direction)
+	{
+		return encode(direction.x, direction.y, direction.z, MAX16, true);
+	}
+
+	public static Vector3 decode16(int encoded)
+	{
+		return decode((short) encoded, encoded >> 16, MAX16);
+	}
+
+	/**
+	 * Encode {@code count} packed vectors, writing two bytes for each.
+	 */
+	public static void encode8(float[] src, int srcOffset, int count, ByteBuffer dst)
+	{
+		encode8(src, srcOffset, count, dst, false);
+	}
+
+	/**
+	 * Encode {@code count} packed vectors with the least error, writing two bytes for each.
+	 */
+	public static void encode8Precise(float[] src, int srcOffset, int count, ByteBuffer dst)
+	{
+		encode8(src, srcOffset, count, dst, true);
+	}
+
+	private static void encode8(float[] src, int srcOffset, int count, ByteBuffer dst, boolean precise)
+	{
+		Checks.checkArray("Source", src.length, srcOffset, 3 * count);
+		Checks.checkRemaining("Destination", dst.remaining(), 2 * count);
+		for(int i = srcOffset; i < srcOffset + 3 * count; i += 3)
+		{
+			int encoded = encode(src[i], src[i + 1], src[i + 2], MAX8, precise);
+			dst.put((byte) encoded).put((byte) (encoded >> 16));
+		}
+	}
+
+	/**
+	 * Decode {@code count} vectors of two bytes each into packed floats.
+	 */
+	public static void decode8(ByteBuffer src, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), 2 * count);
+		Checks.checkArray("Destination", dst.length, dstOffset, 3 * count);
+		for(int i = dstOffset; i < dstOffset + 3 * count; i += 3)
+		{
+			byte u = src.get();
+			byte v = src.get();
+			decode(u, v, MAX8, dst, i);
+		}
+	}
+
+	/**
+	 * Encode {@code count} packed vectors, writing two shorts for each.
+	 */
+	public static void encode16(float[] src, int srcOffset, int count, ShortBuffer dst)
+	{
+		encode16(src, srcOffset, count, dst, false);
+	}
+
+	/**
+	 * Encode {@code count} packed vectors with the least error, writing two shorts for each.
+	 */
+	public static void encode16Precise(float[] src, int srcOffset, int count, ShortBuffer dst)
+	{
+		encode16(src, srcOffset, count, dst, true);
+	}
+
+	private static void encode16(float[] src, int srcOffset, int count, ShortBuffer dst, boolean precise)
+	{
+		Checks.checkArray("Source", src.length, srcOffset, 3 * count);
+		Checks.checkRemaining("Destination", dst.remaining(), 2 * count);
+		for(int i = srcOffset; i < srcOffset + 3 * count; i += 3)
+		{
+			int encoded = encode(src[i], src[i + 1], src[i + 2], MAX16, precise);
+			dst.put((short) encoded).put((short) (encoded >> 16));
+		}
+	}
+
+	/**
+	 * Decode {@code count} vectors of two shorts each into packed floats.
+	 */
+	public static void decode16(ShortBuffer src, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), 2 * count);
+		Checks.checkArray("Destination", dst.length, dstOffset, 3 * count);
+		for(int i = dstOffset; i < dstOffset + 3 * count; i += 3)
+		{
+			short u = src.get();
+			short v = src.get();
+			decode(u, v, MAX16, dst, i);
+		}
+	}
+}
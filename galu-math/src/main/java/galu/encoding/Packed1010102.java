@@ -0,0 +1,233 @@
+package galu.encoding;
+
+import galu.util.Checks;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Vectors packed into 32 bits as three 10-bit normalized components and a 2-bit fourth one, as used by
+ * {@code GL_INT_2_10_10_10_REV} and {@code GL_UNSIGNED_INT_2_10_10_10_REV} vertex attributes: x is in the lowest ten
+ * bits, then y, then z, and w is in the top two bits. This is a good fit for normals and tangents, with the tangent's
+ * handedness in w.
+ * <p>
+ * Components are encoded like {@link Normalized} integers: clamped, rounded to the nearest integer, and NaN encodes to
+ * 0. The signed x, y, and z survive a round trip with an absolute error of at most 1/1022 and the unsigned ones with at
+ * most 1/2046. The signed w can only be -1, 0, or 1, which are exact, and everything in between is rounded to one of
+ * them; the unsigned w can be 0, 1/3, 2/3, or 1, so its error is at most 1/6.
+ * <p>
+ * The batch methods take the number of components per vector, 3 or 4. With 3, w is written as 0 and skipped when
+ * decoding. They read and write at the buffers' positions and advance them.
+ */
+public final class Packed1010102
+{
+	private static final float SNORM10_MAX = 511;
+	private static final float UNORM10_MAX = 1023;
+	private static final float SNORM2_MAX = 1;
+	private static final float UNORM2_MAX = 3;
+
+	private Packed1010102() {}
+
+	private static int signed(float value, float max)
+	{
+		float clamped = value > 1 ? 1 : value < -1 ? -1 : value;
+		return Math.round(clamped * max);
+	}
+
+	private static int unsigned(float value, float max)
+	{
+		float clamped = value > 1 ? 1 : value < 0 ? 0 : value;
+		return Math.round(clamped * max);
+	}
+
+	public static int packSnorm(float x, float y, float z, float w)
+	{
+		return (signed(x, SNORM10_MAX) & 0x3ff)
+			| (signed(y, SNORM10_MAX) & 0x3ff) << 10
+			| (signed(z, SNORM10_MAX) & 0x3ff) << 20
+			| signed(w, SNORM2_MAX) << 30;
+	}
+
+	public static int packUnorm(float x, float y, float z, float w)
+	{
+		return unsigned(x, UNORM10_MAX)
+			| unsigned(y, UNORM10_MAX) << 10
+			| unsigned(z, UNORM10_MAX) << 20
+			| unsigned(w, UNORM2_MAX) << 30;
+	}
+
+	/**
+	 * @param component the component to get, from 0 for x to 3 for w
+	 */
+	public static float unpackSnorm(int packed, int component)
+	{
+		checkElementIndex(component, 4);
+		// Shift the component to the top, then back down to sign-extend it
+		if(component == 3)
+		{
+			return Math.max(packed >> 30, -1);
+		}
+		return Math.max(((packed << (22 - 10 * component)) >> 22) / SNORM10_MAX, -1);
+	}
+
+	/**
+	 * @param component the component to get, from 0 for x to 3 for w
+	 */
+	public static float unpackUnorm(int packed, int component)
+	{
+		checkElementIndex(component, 4);
+		if(component == 3)
+		{
+			return (packed >>> 30) / UNORM2_MAX;
+		}
+		return ((packed >>> (10 * component)) & 0x3ff) / UNORM10_MAX;
+	}
+
+	private static void checkComponents(int components)
+	{
+		if(components != 3 && components != 4)
+		{
+			throw new IllegalArgumentException(String.format("Vectors must have 3 or 4 components, not %d", components));
+		}
+	}
+
+	/**
+	 * Pack {@code count} vectors of {@code components} floats each.
+	 */
+	public static void encodeSnorm(float[] src, int srcOffset, int components, int count, IntBuffer dst)
+	{
+		checkComponents(components);
+		Checks.checkArray("Source", src.length, srcOffset, components * count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0, s = srcOffset; i < count; i++, s += components)
+		{
+			dst.put(packSnorm(src[s], src[s + 1], src[s + 2], components == 4 ? src[s + 3] : 0));
+		}
+	}
+
+	/**
+	 * Pack {@code count} vectors of {@code components} floats each.
+	 */
+	public static void encodeSnorm(FloatBuffer src, int components, int count, IntBuffer dst)
+	{
+		checkComponents(components);
+		Checks.checkRemaining("Source", src.remaining(), components * count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			float x = src.get(), y = src.get(), z = src.get();
+			dst.put(packSnorm(x, y, z, components == 4 ? src.get() : 0));
+		}
+	}
+
+	/**
+	 * Unpack {@code count} vectors into {@code components} floats each.
+	 */
+	public static void decodeSnorm(IntBuffer src, float[] dst, int dstOffset, int components, int count)
+	{
+		checkComponents(components);
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkArray("Destination", dst.length, dstOffset, components * count);
+		for(int i = 0, d = dstOffset; i < count; i++, d += components)
+		{
+			int packed = src.get();
+			dst[d] = unpackSnorm(packed, 0);
+			dst[d + 1] = unpackSnorm(packed, 1);
+			dst[d + 2] = unpackSnorm(packed, 2);
+			if(components == 4)
+			{
+				dst[d + 3] = unpackSnorm(packed, 3);
+			}
+		}
+	}
+
+	/**
+	 * Unpack {@code count} vectors into {@code components} floats each.
+	 */
+	public static void decodeSnorm(IntBuffer src, FloatBuffer dst, int components, int count)
+	{
+		checkComponents(components);
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), components * count);
+		for(int i = 0; i < count; i++)
+		{
+			int packed = src.get();
+			dst.put(unpackSnorm(packed, 0)).put(unpackSnorm(packed, 1)).put(unpackSnorm(packed, 2));
+			if(components == 4)
+			{
+				dst.put(unpackSnorm(packed, 3));
+			}
+		}
+	}
+
+	/**
+	 * Pack {@code count} vectors of {@code components} floats each.
+	 */
+	public static void encodeUnorm(float[] src, int srcOffset, int components, int count, IntBuffer dst)
+	{
+		checkComponents(components);
+		Checks.checkArray("Source", src.length, srcOffset, components * count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0, s = srcOffset; i < count; i++, s += components)
+		{
+			dst.put(packUnorm(src[s], src[s + 1], src[s + 2], components == 4 ? src[s + 3] : 0));
+		}
+	}
+
+	/**
+	 * Pack {@code count} vectors of {@code components} floats each.
+	 */
+	public static void encodeUnorm(FloatBuffer src, int components, int count, IntBuffer dst)
+	{
+		checkComponents(components);
+		Checks.checkRemaining("Source", src.remaining(), components * count);
+		Checks.checkRemaining("Destination", dst.remaining(), count);
+		for(int i = 0; i < count; i++)
+		{
+			float x = src.get(), y = src.get(), z = src.get();
+			dst.put(packUnorm(x, y, z, components == 4 ? src.get() : 0));
+		}
+	}
+
+	/**
+	 * Unpack {@code count} vectors into {@code components} floats each.
+	 */
+	public static void decodeUnorm(IntBuffer src, float[] dst, int dstOffset, int components, int count)
+	{
+		checkComponents(components);
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkArray("Destination", dst.length, dstOffset, components * count);
+		for(int i = 0, d = dstOffset; i < count; i++, d += components)
+		{
+			int packed = src.get();
+			dst[d] = unpackUnorm(packed, 0);
+			dst[d + 1] = unpackUnorm(packed, 1);
+			dst[d + 2] = unpackUnorm(packed, 2);
+			if(components == 4)
+			{
+				dst[d + 3] = unpackUnorm(packed, 3);
+			}
+		}
+	}
+
+	/**
+	 * Unpack {@code count} vectors into {@code components} floats each.
+	 */
+	public static void decodeUnorm(IntBuffer src, FloatBuffer dst, int components, int count)
+	{
+		checkComponents(components);
+		Checks.checkRemaining("Source", src.remaining(), count);
+		Checks.checkRemaining("Destination", dst.remaining(), components * count);
+		for(int i = 0; i < count; i++)
+		{
+			int packed = src.get();
+			dst.put(unpackUnorm(packed, 0)).put(unpackUnorm(packed, 1)).put(unpackUnorm(packed, 2));
+			if(components == 4)
+			{
+				dst.put(unpackUnorm(packed, 3));
+			}
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package galu.encoding;
+
+import galu.matrix.Matrix4;
+import galu.util.Checks;
+import galu.vector.Vector3;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Quantizes positions to three unsigned 16-bit integers, relative to a bounding box such as the mesh's. Each axis of
+ * the box is split into 65535 equal steps, so a position inside the box survives a round trip with an error of at most
+ * half a step, {@link #maxError()}, on each axis. Positions outside the box are clamped to it.
+ * <p>
+ * The GPU doesn't need to decode anything itself: with the integers read as unnormalized {@code GL_UNSIGNED_SHORT}
+ * attributes, {@link #dequantization()} maps them back to model space and can be folded into the model matrix.
+ * <p>
+ * The batch methods read and write at the buffers' positions and advance them. Quantizers are immutable.
+ */
+public final class PositionQuantizer
+{
+	private static final float STEPS = 65535;
+
+	private final float minX, minY, minZ;
+	private final float stepX, stepY, stepZ;
+	// The reciprocals of the steps, or 0 for a flat axis
+	private final float inverseStepX, inverseStepY, inverseStepZ;
+
+	/**
+	 * Create a quantizer for the box from {@code min} to {@code max}. The box may be flat, in which case every position
+	 * is quantized to {@code min} on the flat axes.
+	 */
+	public PositionQuantizer(Vector3 min, Vector3 max)
+	{
+		checkNotNull(min, "min");
+		checkNotNull(max, "max");
+		checkArgument(min.x <= max.x && min.y <= max.y && min.z <= max.z, "%s is not below %s", min, max);
+		minX = min.x;
+		minY = min.y;
+		minZ = min.z;
+		stepX = (max.x - min.x) / STEPS;
+		stepY = (max.y - min.y) / STEPS;
+		stepZ = (max.z - min.z) / STEPS;
+		inverseStepX = stepX > 0 ? 1 / stepX : 0;
+		inverseStepY = stepY > 0 ? 1 / stepY : 0;
+		inverseStepZ = stepZ > 0 ? 1 / stepZ : 0;
+	}
+
+	/**
+	 * Create a quantizer for the bounding box of {@code count} packed points.
+	 */
+	public static PositionQuantizer fromPoints(float[] src, int srcOffset, int count)
+	{
+		checkArgument(count > 0, "Need at least one point");
+		Checks.checkArray("Source", src.length, srcOffset, 3 * count);
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+		for(int i = srcOffset; i < srcOffset + 3 * count; i += 3)
+		{
+			minX = Math.min(minX, src[i]);
+			minY = Math.min(minY, src[i + 1]);
+			minZ = Math.min(minZ, src[i + 2]);
+			maxX = Math.max(maxX, src[i]);
+			maxY = Math.max(maxY, src[i + 1]);
+			maxZ = Math.max(maxZ, src[i + 2]);
+		}
+		return new PositionQuantizer(new Vector3(minX, minY, minZ), new Vector3(maxX, maxY, maxZ));
+	}
+
+	public Vector3 min()
+	{
+		return new Vector3(minX, minY, minZ);
+	}
+
+	public Vector3 max()
+	{
+		return new Vector3(minX + STEPS * stepX, minY + STEPS * stepY, minZ + STEPS * stepZ);
+	}
+
+	/**
+	 * @return the size of one step on each axis
+	 */
+	public Vector3 step()
+	{
+		return new Vector3(stepX, stepY, stepZ);
+	}
+
+	/**
+	 * @return the largest error on each axis for positions inside the box, which is half a step
+	 */
+	public Vector3 maxError()
+	{
+		return new Vector3(stepX / 2, stepY / 2, stepZ / 2);
+	}
+
+	/**
+	 * @return the transformation from quantized integers back to positions
+	 */
+	public Matrix4 dequantization()
+	{
+		return new Matrix4(
+			stepX, 0,     0,     minX,
+			0,     stepY, 0,     minY,
+			0,     0,     stepZ, minZ,
+			0,     0,     0,     1
+		);
+	}
+
+	private static short quantize(float value, float min, float inverseStep)
+	{
+		float steps = (value - min) * inverseStep;
+		// NaN fails both comparisons and ends up as 0 after rounding
+		return (short) Math.round(steps > STEPS ? STEPS : steps < 0 ? 0 : steps);
+	}
+
+	/**
+	 * Quantize {@code count} packed points, writing three shorts for each.
+	 */
+	public void encode(float[] src, int srcOffset, int count, ShortBuffer dst)
+	{
+		Checks.checkArray("Source", src.length, srcOffset, 3 * count);
+		Checks.checkRemaining("Destination", dst.remaining(), 3 * count);
+		for(int i = srcOffset; i < srcOffset + 3 * count; i += 3)
+		{
+			dst.put(quantize(src[i], minX, inverseStepX));
+			dst.put(quantize(src[i + 1], minY, inverseStepY));
+			dst.put(quantize(src[i + 2], minZ, inverseStepZ));
+		}
+	}
+
+	/**
+	 * Quantize {@code count} packed points, writing three shorts for each.
+	 */
+	public void encode(FloatBuffer src, int count, ShortBuffer dst)
+	{
+		Checks.checkRemaining("Source", src.remaining(), 3 * count);
+		Checks.checkRemaining("Destination", dst.remaining(), 3 * count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(quantize(src.get(), minX, inverseStepX));
+			dst.put(quantize(src.get(), minY, inverseStepY));
+			dst.put(quantize(src.get(), minZ, inverseStepZ));
+		}
+	}
+
+	/**
+	 * Dequantize {@code count} points into packed floats.
+	 */
+	public void decode(ShortBuffer src, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), 3 * count);
+		Checks.checkArray("Destination", dst.length, dstOffset, 3 * count);
+		for(int i = dstOffset; i < dstOffset + 3 * count; i += 3)
+		{
+			dst[i] = minX + (src.get() & 0xffff) * stepX;
+			dst[i + 1] = minY + (src.get() & 0xffff) * stepY;
+			dst[i + 2] = minZ + (src.get() & 0xffff) * stepZ;
+		}
+	}
+
+	/**
+	 * Dequantize {@code count} points into packed floats.
+	 */
+	public void decode(ShortBuffer src, FloatBuffer dst, int count)
+	{
+		Checks.checkRemaining("Source", src.remaining(), 3 * count);
+		Checks.checkRemaining("Destination", dst.remaining(), 3 * count);
+		for(int i = 0; i < count; i++)
+		{
+			dst.put(minX + (src.get() & 0xffff) * stepX);
+			dst.put(minY + (src.get() & 0xffff) * stepY);
+			dst.put(minZ + (src.get() & 0xffff) * stepZ);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PositionQuantizer[" + min() + ", " + max() + "]";
+	}
+}
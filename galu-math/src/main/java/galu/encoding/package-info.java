@@ -0,0 +1,5 @@
+/**
+ * Contains compact encodings for vertex attributes, such as half floats and normalized integers, with batch encoders
+ * and decoders between float arrays or buffers and the NIO buffers that are uploaded to the GPU.
+ */
+package galu.encoding;
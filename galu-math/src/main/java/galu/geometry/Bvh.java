@@ -0,0 +1,890 @@
+package galu.geometry;
+
+import galu.util.Checks;
+import galu.util.SharedPool;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A bounding volume hierarchy over static triangles or axis-aligned boxes, for ray casts (picking, line of sight,
+ * occlusion) and overlap queries.
+ * <p>
+ * The tree is stored in flat arrays rather than as node objects: six floats of bounds per node, plus either the index of
+ * the node's first child (children are stored next to each other) or the range of primitives in a leaf. The primitives
+ * themselves are copied into one packed array in leaf order, so a leaf's primitives are contiguous in memory. Queries
+ * report primitives by their original index.
+ * <p>
+ * The tree is built top-down with the surface area heuristic, evaluated over {@value #BINS} bins per axis. Subtrees
+ * with more than a few thousand primitives are built in parallel on a {@link ForkJoinPool}. A built tree is immutable,
+ * so it can be queried from any number of threads.
+ * <p>
+ * Rays are given as an origin and a direction, and hit distances are measured in units of the direction vector (it
+ * doesn't have to be normalized). Triangles are double-sided.
+ */
+public final class Bvh
+{
+	/**
+	 * The number of bins the surface area heuristic is evaluated over, along each axis.
+	 */
+	public static final int BINS = 16;
+
+	/**
+	 * Nodes with at most this many primitives become leaves.
+	 */
+	public static final int MAX_LEAF_SIZE = 4;
+
+	// Nodes with more primitives than this can still become leaves, if the surface area heuristic says splitting them
+	// costs more than testing all of their primitives
+	private static final int MAX_SAH_LEAF_SIZE = 16;
+
+	// Subtrees with more primitives than this are built as separate fork/join tasks
+	static final int PARALLEL_THRESHOLD = 4096;
+
+	// The cost of visiting a node, relative to the cost of intersecting a primitive
+	private static final float TRAVERSAL_COST = 1f;
+
+	// Rays are traced in packets of up to this many, with one bit per ray in a long
+	private static final int PACKET_SIZE = 64;
+
+	private final boolean triangles;
+	private final int primitiveCount;
+	private final int nodeCount;
+	private final int depth;
+
+	// Per node: bounds as (minX, minY, minZ, maxX, maxY, maxZ); for leaves the first primitive and the primitive count,
+	// and for interior nodes the index of the left child (the right child follows it) and a count of 0
+	private final float[] nodeBounds;
+	private final int[] nodeStart;
+	private final int[] nodeSize;
+
+	// Primitives in leaf order: 9 floats per triangle or 6 per box, and each one's original index
+	private final float[] primitiveData;
+	private final int[] primitiveIds;
+
+	private Bvh(boolean triangles, int primitiveCount, int nodeCount, float[] nodeBounds, int[] nodeStart, int[] nodeSize,
+	            float[] primitiveData, int[] primitiveIds)
+	{
+		this.triangles = triangles;
+		this.primitiveCount = primitiveCount;
+		this.nodeCount = nodeCount;
+		this.nodeBounds = nodeBounds;
+		this.nodeStart = nodeStart;
+		this.nodeSize = nodeSize;
+		this.primitiveData = primitiveData;
+		this.primitiveIds = primitiveIds;
+		this.depth = primitiveCount == 0 ? 0 : depth(0);
+	}
+
+	/**
+	 * Build a tree over an indexed triangle mesh, on the {@link SharedPool shared pool}.
+	 * @param positions packed vertex positions, 3 floats per vertex
+	 * @param indices 3 vertex indices per triangle
+	 * @return the tree
+	 */
+	public static Bvh fromTriangles(float[] positions, int[] indices)
+	{
+		return fromTriangles(positions, indices, SharedPool.get());
+	}
+
+	/**
+	 * Build a tree over an indexed triangle mesh.
+	 * @param pool the pool to build large subtrees on
+	 * @see #fromTriangles(float[], int[])
+	 */
+	public static Bvh fromTriangles(float[] positions, int[] indices, ForkJoinPool pool)
+	{
+		return fromTriangles(positions, indices, pool, PARALLEL_THRESHOLD);
+	}
+
+	static Bvh fromTriangles(float[] positions, int[] indices, ForkJoinPool pool, int parallelThreshold)
+	{
+		Checks.checkArgument(indices.length % 3 == 0, "Index count (%d) isn't a multiple of 3", indices.length);
+		int count = indices.length / 3;
+		float[] data = new float[9 * count];
+		for(int i = 0; i < indices.length; i++)
+		{
+			int vertex = indices[i];
+			Checks.checkArgument(vertex >= 0 && 3 * vertex + 2 < positions.length, "Vertex index %d is out of range", vertex);
+			data[3 * i] = positions[3 * vertex];
+			data[3 * i + 1] = positions[3 * vertex + 1];
+			data[3 * i + 2] = positions[3 * vertex + 2];
+		}
+		return build(true, data, count, pool, parallelThreshold);
+	}
+
+	/**
+	 * Build a tree over axis-aligned boxes, on the {@link SharedPool shared pool}. Rays hit a box at the
+	 * distance where they enter it (or 0, if they start inside).
+	 * @param boxes packed boxes, as {@code (minX, minY, minZ, maxX, maxY, maxZ)}
+	 * @param count the number of boxes
+	 * @return the tree
+	 */
+	public static Bvh fromBoxes(float[] boxes, int count)
+	{
+		return fromBoxes(boxes, count, SharedPool.get());
+	}
+
+	/**
+	 * Build a tree over axis-aligned boxes.
+	 * @param pool the pool to build large subtrees on
+	 * @see #fromBoxes(float[], int)
+	 */
+	public static Bvh fromBoxes(float[] boxes, int count, ForkJoinPool pool)
+	{
+		return fromBoxes(boxes, count, pool, PARALLEL_THRESHOLD);
+	}
+
+	static Bvh fromBoxes(float[] boxes, int count, ForkJoinPool pool, int parallelThreshold)
+	{
+		Checks.checkArgument(count >= 0 && 6L * count <= boxes.length, "Array of length %d can't hold %d boxes", boxes.length, count);
+		return build(false, Arrays.copyOf(boxes, 6 * count), count, pool, parallelThreshold);
+	}
+
+	private static Bvh build(boolean triangles, float[] data, int count, ForkJoinPool pool, int parallelThreshold)
+	{
+		checkNotNull(pool, "pool");
+		int stride = triangles ? 9 : 6;
+
+		// Bounds and centroids of every primitive
+		float[] bounds = new float[6 * count];
+		float[] centroids = new float[3 * count];
+		for(int i = 0; i < count; i++)
+		{
+			int p = i * stride;
+			if(triangles)
+			{
+				for(int axis = 0; axis < 3; axis++)
+				{
+					float a = data[p + axis], b = data[p + 3 + axis], c = data[p + 6 + axis];
+					bounds[6 * i + axis] = Math.min(a, Math.min(b, c));
+					bounds[6 * i + 3 + axis] = Math.max(a, Math.max(b, c));
+				}
+			}
+			else
+			{
+				System.arraycopy(data, p, bounds, 6 * i, 6);
+			}
+			for(int axis = 0; axis < 3; axis++)
+			{
+				centroids[3 * i + axis] = 0.5f * (bounds[6 * i + axis] + bounds[6 * i + 3 + axis]);
+			}
+		}
+
+		int[] order = new int[count];
+		for(int i = 0; i < count; i++)
+		{
+			order[i] = i;
+		}
+
+		// A tree with at least one primitive per leaf has at most 2n - 1 nodes
+		int maxNodes = Math.max(1, 2 * count - 1);
+		Nodes nodes = new Nodes(maxNodes);
+		nodes.next.set(1);
+		if(count > 0)
+		{
+			pool.invoke(new BuildTask(nodes, bounds, centroids, order, 0, 0, count, parallelThreshold));
+		}
+		else
+		{
+			// An empty root, which nothing overlaps
+			Arrays.fill(nodes.bounds, 0, 3, Float.POSITIVE_INFINITY);
+			Arrays.fill(nodes.bounds, 3, 6, Float.NEGATIVE_INFINITY);
+		}
+
+		// Copy the primitives into leaf order
+		float[] ordered = new float[data.length];
+		for(int i = 0; i < count; i++)
+		{
+			System.arraycopy(data, order[i] * stride, ordered, i * stride, stride);
+		}
+
+		int used = nodes.next.get();
+		return new Bvh(triangles, count, used, Arrays.copyOf(nodes.bounds, 6 * used), Arrays.copyOf(nodes.start, used),
+		               Arrays.copyOf(nodes.count, used), ordered, order);
+	}
+
+	private static final class Nodes
+	{
+		final float[] bounds;
+		final int[] start;
+		final int[] count;
+		final AtomicInteger next = new AtomicInteger();
+
+		Nodes(int capacity)
+		{
+			bounds = new float[6 * capacity];
+			start = new int[capacity];
+			count = new int[capacity];
+		}
+	}
+
+	/**
+	 * Builds the subtree rooted at {@code node} over {@code order[start, end)}. Sibling subtrees work on disjoint ranges
+	 * of {@code order} and of the node arrays, so they can be built at the same time.
+	 */
+	@SuppressWarnings("serial")
+	private static final class BuildTask extends RecursiveAction
+	{
+		private final Nodes nodes;
+		private final float[] bounds;
+		private final float[] centroids;
+		private final int[] order;
+		private final int node;
+		private final int start;
+		private final int end;
+		private final int parallelThreshold;
+
+		BuildTask(Nodes nodes, float[] bounds, float[] centroids, int[] order, int node, int start, int end, int parallelThreshold)
+		{
+			this.nodes = nodes;
+			this.bounds = bounds;
+			this.centroids = centroids;
+			this.order = order;
+			this.node = node;
+			this.start = start;
+			this.end = end;
+			this.parallelThreshold = parallelThreshold;
+		}
+
+		@Override
+		protected void compute()
+		{
+			build(node, start, end);
+		}
+
+		private void build(int node, int start, int end)
+		{
+			// Bounds of the primitives and of their centroids
+			float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+			float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+			float[] cMin = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+			float[] cMax = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+			for(int i = start; i < end; i++)
+			{
+				int p = order[i];
+				minX = Math.min(minX, bounds[6 * p]);
+				minY = Math.min(minY, bounds[6 * p + 1]);
+				minZ = Math.min(minZ, bounds[6 * p + 2]);
+				maxX = Math.max(maxX, bounds[6 * p + 3]);
+				maxY = Math.max(maxY, bounds[6 * p + 4]);
+				maxZ = Math.max(maxZ, bounds[6 * p + 5]);
+				for(int axis = 0; axis < 3; axis++)
+				{
+					cMin[axis] = Math.min(cMin[axis], centroids[3 * p + axis]);
+					cMax[axis] = Math.max(cMax[axis], centroids[3 * p + axis]);
+				}
+			}
+			float[] nb = nodes.bounds;
+			nb[6 * node] = minX;
+			nb[6 * node + 1] = minY;
+			nb[6 * node + 2] = minZ;
+			nb[6 * node + 3] = maxX;
+			nb[6 * node + 4] = maxY;
+			nb[6 * node + 5] = maxZ;
+
+			int count = end - start;
+			if(count <= MAX_LEAF_SIZE)
+			{
+				makeLeaf(node, start, count);
+				return;
+			}
+
+			// Find the cheapest split over every axis's bins
+			float bestCost = Float.POSITIVE_INFINITY;
+			int bestAxis = -1;
+			int bestBin = -1;
+			int[] binCounts = new int[BINS];
+			float[] binBounds = new float[6 * BINS];
+			float[] rightArea = new float[BINS];
+			int[] rightCount = new int[BINS];
+			for(int axis = 0; axis < 3; axis++)
+			{
+				float extent = cMax[axis] - cMin[axis];
+				if(!(extent > 0))
+				{
+					continue;
+				}
+				float scale = BINS / extent;
+				Arrays.fill(binCounts, 0);
+				for(int b = 0; b < BINS; b++)
+				{
+					resetBounds(binBounds, b);
+				}
+				for(int i = start; i < end; i++)
+				{
+					int p = order[i];
+					int b = bin(centroids[3 * p + axis], cMin[axis], scale);
+					binCounts[b]++;
+					growBounds(binBounds, b, bounds, p);
+				}
+
+				// Sweep from the right to get the area and count to the right of each split, then from the left
+				float rMinX = Float.POSITIVE_INFINITY, rMinY = Float.POSITIVE_INFINITY, rMinZ = Float.POSITIVE_INFINITY;
+				float rMaxX = Float.NEGATIVE_INFINITY, rMaxY = Float.NEGATIVE_INFINITY, rMaxZ = Float.NEGATIVE_INFINITY;
+				int rCount = 0;
+				for(int b = BINS - 1; b > 0; b--)
+				{
+					rMinX = Math.min(rMinX, binBounds[6 * b]);
+					rMinY = Math.min(rMinY, binBounds[6 * b + 1]);
+					rMinZ = Math.min(rMinZ, binBounds[6 * b + 2]);
+					rMaxX = Math.max(rMaxX, binBounds[6 * b + 3]);
+					rMaxY = Math.max(rMaxY, binBounds[6 * b + 4]);
+					rMaxZ = Math.max(rMaxZ, binBounds[6 * b + 5]);
+					rCount += binCounts[b];
+					rightCount[b] = rCount;
+					rightArea[b] = rCount == 0 ? 0 : halfArea(rMinX, rMinY, rMinZ, rMaxX, rMaxY, rMaxZ);
+				}
+				float lMinX = Float.POSITIVE_INFINITY, lMinY = Float.POSITIVE_INFINITY, lMinZ = Float.POSITIVE_INFINITY;
+				float lMaxX = Float.NEGATIVE_INFINITY, lMaxY = Float.NEGATIVE_INFINITY, lMaxZ = Float.NEGATIVE_INFINITY;
+				int lCount = 0;
+				for(int b = 1; b < BINS; b++)
+				{
+					int l = b - 1;
+					lMinX = Math.min(lMinX, binBounds[6 * l]);
+					lMinY = Math.min(lMinY, binBounds[6 * l + 1]);
+					lMinZ = Math.min(lMinZ, binBounds[6 * l + 2]);
+					lMaxX = Math.max(lMaxX, binBounds[6 * l + 3]);
+					lMaxY = Math.max(lMaxY, binBounds[6 * l + 4]);
+					lMaxZ = Math.max(lMaxZ, binBounds[6 * l + 5]);
+					lCount += binCounts[l];
+					if(lCount == 0 || rightCount[b] == 0)
+					{
+						continue;
+					}
+					float cost = halfArea(lMinX, lMinY, lMinZ, lMaxX, lMaxY, lMaxZ) * lCount + rightArea[b] * rightCount[b];
+					if(cost < bestCost)
+					{
+						bestCost = cost;
+						bestAxis = axis;
+						bestBin = b;
+					}
+				}
+			}
+
+			int middle;
+			if(bestAxis < 0)
+			{
+				// Every centroid is in the same place, so no split is better than another; halve the range to keep
+				// leaves small
+				middle = start + count / 2;
+			}
+			else
+			{
+				float area = halfArea(minX, minY, minZ, maxX, maxY, maxZ);
+				float splitCost = TRAVERSAL_COST + (area > 0 ? bestCost / area : count);
+				if(count <= MAX_SAH_LEAF_SIZE && splitCost >= count)
+				{
+					makeLeaf(node, start, count);
+					return;
+				}
+
+				// Partition the primitives on the split bin
+				float scale = BINS / (cMax[bestAxis] - cMin[bestAxis]);
+				int i = start, j = end - 1;
+				while(i <= j)
+				{
+					if(bin(centroids[3 * order[i] + bestAxis], cMin[bestAxis], scale) < bestBin)
+					{
+						i++;
+					}
+					else
+					{
+						int tmp = order[i];
+						order[i] = order[j];
+						order[j] = tmp;
+						j--;
+					}
+				}
+				middle = i;
+			}
+
+			int left = nodes.next.getAndAdd(2);
+			nodes.start[node] = left;
+			nodes.count[node] = 0;
+			if(count > parallelThreshold)
+			{
+				invokeAll(new BuildTask(nodes, bounds, centroids, order, left, start, middle, parallelThreshold),
+				          new BuildTask(nodes, bounds, centroids, order, left + 1, middle, end, parallelThreshold));
+			}
+			else
+			{
+				build(left, start, middle);
+				build(left + 1, middle, end);
+			}
+		}
+
+		private void makeLeaf(int node, int start, int count)
+		{
+			nodes.start[node] = start;
+			nodes.count[node] = count;
+		}
+
+		private static int bin(float centroid, float min, float scale)
+		{
+			return Math.min(BINS - 1, (int) ((centroid - min) * scale));
+		}
+
+		private static void resetBounds(float[] binBounds, int b)
+		{
+			binBounds[6 * b] = binBounds[6 * b + 1] = binBounds[6 * b + 2] = Float.POSITIVE_INFINITY;
+			binBounds[6 * b + 3] = binBounds[6 * b + 4] = binBounds[6 * b + 5] = Float.NEGATIVE_INFINITY;
+		}
+
+		private static void growBounds(float[] binBounds, int b, float[] bounds, int p)
+		{
+			for(int k = 0; k < 3; k++)
+			{
+				binBounds[6 * b + k] = Math.min(binBounds[6 * b + k], bounds[6 * p + k]);
+				binBounds[6 * b + 3 + k] = Math.max(binBounds[6 * b + 3 + k], bounds[6 * p + 3 + k]);
+			}
+		}
+
+		private static float halfArea(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+		{
+			float dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+			return dx * dy + dy * dz + dz * dx;
+		}
+	}
+
+	private int depth(int node)
+	{
+		if(nodeSize[node] > 0)
+		{
+			return 1;
+		}
+		int left = nodeStart[node];
+		return 1 + Math.max(depth(left), depth(left + 1));
+	}
+
+	/**
+	 * @return the number of primitives in the tree
+	 */
+	public int primitiveCount()
+	{
+		return primitiveCount;
+	}
+
+	/**
+	 * @return the number of nodes in the tree
+	 */
+	public int nodeCount()
+	{
+		return nodeCount;
+	}
+
+	/**
+	 * @return the number of nodes on the longest path from the root to a leaf
+	 */
+	public int depth()
+	{
+		return depth;
+	}
+
+	/**
+	 * @return the length a traversal stack passed to the queries has to be, {@link #depth()} + 1
+	 */
+	public int stackSize()
+	{
+		return depth + 1;
+	}
+
+	/**
+	 * Find the closest primitive a ray hits. This allocates a traversal stack; in a loop, use
+	 * {@link #closestHit(float, float, float, float, float, float, float, RayHit, int[])} with a stack you keep.
+	 * @param tMax the maximum distance along the ray to look for hits
+	 * @param hit where to store the hit, if there is one
+	 * @return whether the ray hit anything within {@code tMax}
+	 */
+	public boolean closestHit(float ox, float oy, float oz, float dx, float dy, float dz, float tMax, RayHit hit)
+	{
+		return closestHit(ox, oy, oz, dx, dy, dz, tMax, hit, new int[stackSize()]);
+	}
+
+	/**
+	 * Find the closest primitive a ray hits, without allocating.
+	 * @param hit where to store the hit. If there isn't one, its fields are left as they were.
+	 * @param stack scratch space for the traversal, of at least {@link #stackSize()} ints. A thread can reuse one stack
+	 * for all of its queries, but threads can't share one.
+	 * @see #closestHit(float, float, float, float, float, float, float, RayHit)
+	 */
+	public boolean closestHit(float ox, float oy, float oz, float dx, float dy, float dz, float tMax, RayHit hit, int[] stack)
+	{
+		return trace(ox, oy, oz, dx, dy, dz, tMax, hit, stack, false);
+	}
+
+	/**
+	 * Check whether a ray hits anything, for shadow and line-of-sight tests. This stops at the first hit found, which
+	 * isn't necessarily the closest. This allocates a traversal stack; in a loop, use
+	 * {@link #anyHit(float, float, float, float, float, float, float, int[])} with a stack you keep.
+	 * @param tMax the maximum distance along the ray to look for hits
+	 * @return whether the ray hit anything within {@code tMax}
+	 */
+	public boolean anyHit(float ox, float oy, float oz, float dx, float dy, float dz, float tMax)
+	{
+		return anyHit(ox, oy, oz, dx, dy, dz, tMax, new int[stackSize()]);
+	}
+
+	/**
+	 * Check whether a ray hits anything, reusing a traversal stack.
+	 * @param stack scratch space for the traversal, as for
+	 * {@link #closestHit(float, float, float, float, float, float, float, RayHit, int[])}
+	 * @see #anyHit(float, float, float, float, float, float, float)
+	 */
+	public boolean anyHit(float ox, float oy, float oz, float dx, float dy, float dz, float tMax, int[] stack)
+	{
+		return trace(ox, oy, oz, dx, dy, dz, tMax, null, stack, true);
+	}
+
+	private boolean trace(float ox, float oy, float oz, float dx, float dy, float dz, float tMax, RayHit hit, int[] stack,
+	                      boolean any)
+	{
+		checkStack(stack);
+		if(primitiveCount == 0)
+		{
+			return false;
+		}
+		float idx = 1f / dx, idy = 1f / dy, idz = 1f / dz;
+		// Each hit is closer than the last, so the closest one ends up in the caller's hit. Any-hit queries only need
+		// somewhere to put the first one.
+		RayHit result = hit != null ? hit : new RayHit();
+		float best = tMax;
+		int bestPrimitive = -1;
+
+		int top = 0;
+		if(enter(0, ox, oy, oz, idx, idy, idz, best) >= 0)
+		{
+			stack[top++] = 0;
+		}
+		while(top > 0)
+		{
+			int node = stack[--top];
+			int count = nodeSize[node];
+			if(count > 0)
+			{
+				int first = nodeStart[node];
+				for(int i = first; i < first + count; i++)
+				{
+					if(intersect(i, ox, oy, oz, dx, dy, dz, idx, idy, idz, best, result))
+					{
+						if(any)
+						{
+							return true;
+						}
+						best = result.t;
+						bestPrimitive = i;
+					}
+				}
+			}
+			else
+			{
+				// Visit the nearer child first, and skip children farther away than the best hit so far
+				int left = nodeStart[node];
+				float tLeft = enter(left, ox, oy, oz, idx, idy, idz, best);
+				float tRight = enter(left + 1, ox, oy, oz, idx, idy, idz, best);
+				if(tLeft >= 0 && tRight >= 0)
+				{
+					if(tLeft <= tRight)
+					{
+						stack[top++] = left + 1;
+						stack[top++] = left;
+					}
+					else
+					{
+						stack[top++] = left;
+						stack[top++] = left + 1;
+					}
+				}
+				else if(tLeft >= 0)
+				{
+					stack[top++] = left;
+				}
+				else if(tRight >= 0)
+				{
+					stack[top++] = left + 1;
+				}
+			}
+		}
+
+		if(bestPrimitive < 0)
+		{
+			return false;
+		}
+		result.primitive = primitiveIds[bestPrimitive];
+		return true;
+	}
+
+	private void checkStack(int[] stack)
+	{
+		Checks.checkArgument(stack.length > depth, "Traversal stack is shorter than the tree's stack size (%d)", depth + 1);
+	}
+
+	/**
+	 * @return the distance at which the ray enters a node's bounds, or -1 if it misses them within {@code tMax}
+	 */
+	private float enter(int node, float ox, float oy, float oz, float idx, float idy, float idz, float tMax)
+	{
+		float[] b = nodeBounds;
+		int n = 6 * node;
+		return slab(b[n], b[n + 1], b[n + 2], b[n + 3], b[n + 4], b[n + 5], ox, oy, oz, idx, idy, idz, tMax);
+	}
+
+	private static float slab(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+	                          float ox, float oy, float oz, float idx, float idy, float idz, float tMax)
+	{
+		float tx1 = (minX - ox) * idx, tx2 = (maxX - ox) * idx;
+		float ty1 = (minY - oy) * idy, ty2 = (maxY - oy) * idy;
+		float tz1 = (minZ - oz) * idz, tz2 = (maxZ - oz) * idz;
+		float near = Math.max(Math.max(Math.min(tx1, tx2), Math.min(ty1, ty2)), Math.max(Math.min(tz1, tz2), 0f));
+		float far = Math.min(Math.min(Math.max(tx1, tx2), Math.max(ty1, ty2)), Math.min(Math.max(tz1, tz2), tMax));
+		return near <= far ? near : -1;
+	}
+
+	/**
+	 * Intersect a ray with the primitive at position {@code i} in leaf order. On a hit closer than {@code tMax}, store
+	 * the distance and barycentric coordinates in {@code result}.
+	 */
+	private boolean intersect(int i, float ox, float oy, float oz, float dx, float dy, float dz,
+	                          float idx, float idy, float idz, float tMax, RayHit result)
+	{
+		float[] p = primitiveData;
+		if(triangles)
+		{
+			int v = 9 * i;
+			return RayTriangle.intersect(p[v], p[v + 1], p[v + 2], p[v + 3], p[v + 4], p[v + 5], p[v + 6], p[v + 7], p[v + 8],
+			                             ox, oy, oz, dx, dy, dz, tMax, false, result);
+		}
+		int b = 6 * i;
+		float t = slab(p[b], p[b + 1], p[b + 2], p[b + 3], p[b + 4], p[b + 5], ox, oy, oz, idx, idy, idz, tMax);
+		if(t < 0 || t >= tMax)
+		{
+			return false;
+		}
+		result.t = t;
+		result.u = 0;
+		result.v = 0;
+		return true;
+	}
+
+	/**
+	 * Find every primitive whose bounding box overlaps a box. For triangles, this is the triangle's bounding box, so
+	 * the results may include triangles that come close to the box without touching it.
+	 * @param results where to write the indices of the overlapping primitives, in no particular order
+	 * @return the number of overlapping primitives. If this is more than {@code results.length}, only the first
+	 * {@code results.length} were written.
+	 */
+	public int overlapping(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int[] results)
+	{
+		return overlapping(minX, minY, minZ, maxX, maxY, maxZ, results, new int[stackSize()]);
+	}
+
+	/**
+	 * Find every primitive whose bounding box overlaps a box, reusing a traversal stack.
+	 * @param stack scratch space for the traversal, as for
+	 * {@link #closestHit(float, float, float, float, float, float, float, RayHit, int[])}
+	 * @see #overlapping(float, float, float, float, float, float, int[])
+	 */
+	public int overlapping(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int[] results, int[] stack)
+	{
+		checkStack(stack);
+		if(primitiveCount == 0)
+		{
+			return 0;
+		}
+		int found = 0;
+		int top = 0;
+		stack[top++] = 0;
+		float[] b = nodeBounds;
+		while(top > 0)
+		{
+			int node = stack[--top];
+			int n = 6 * node;
+			if(b[n] > maxX || b[n + 3] < minX || b[n + 1] > maxY || b[n + 4] < minY || b[n + 2] > maxZ || b[n + 5] < minZ)
+			{
+				continue;
+			}
+			int count = nodeSize[node];
+			if(count > 0)
+			{
+				int first = nodeStart[node];
+				for(int i = first; i < first + count; i++)
+				{
+					if(primitiveOverlaps(i, minX, minY, minZ, maxX, maxY, maxZ))
+					{
+						if(found < results.length)
+						{
+							results[found] = primitiveIds[i];
+						}
+						found++;
+					}
+				}
+			}
+			else
+			{
+				stack[top++] = nodeStart[node];
+				stack[top++] = nodeStart[node] + 1;
+			}
+		}
+		return found;
+	}
+
+	private boolean primitiveOverlaps(int i, float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		float[] p = primitiveData;
+		if(!triangles)
+		{
+			int b = 6 * i;
+			return !(p[b] > maxX || p[b + 3] < minX || p[b + 1] > maxY || p[b + 4] < minY || p[b + 2] > maxZ || p[b + 5] < minZ);
+		}
+		int v = 9 * i;
+		return !(Math.min(p[v], Math.min(p[v + 3], p[v + 6])) > maxX || Math.max(p[v], Math.max(p[v + 3], p[v + 6])) < minX
+		      || Math.min(p[v + 1], Math.min(p[v + 4], p[v + 7])) > maxY || Math.max(p[v + 1], Math.max(p[v + 4], p[v + 7])) < minY
+		      || Math.min(p[v + 2], Math.min(p[v + 5], p[v + 8])) > maxZ || Math.max(p[v + 2], Math.max(p[v + 5], p[v + 8])) < minZ);
+	}
+
+	/**
+	 * Find the closest hit for each of {@code count} rays, given as structure-of-arrays origins and directions. Rays are
+	 * traced in packets of 64 consecutive rays that traverse the tree together, so rays that start near each other and
+	 * point the same way (like the rays of a pixel block, or of a sound source) share node visits.
+	 * @param hitT for each ray, the distance to the closest hit, or {@code tMax} if it missed
+	 * @param hitPrimitives for each ray, the index of the primitive hit, or -1 if it missed
+	 */
+	public void closestHits(float[] ox, float[] oy, float[] oz, float[] dx, float[] dy, float[] dz, int count, float tMax,
+	                        float[] hitT, int[] hitPrimitives)
+	{
+		checkRays(count, ox, oy, oz, dx, dy, dz);
+		Checks.checkArgument(hitT.length >= count && hitPrimitives.length >= count, "Result arrays are shorter than the ray count (%d)", count);
+		tracePackets(ox, oy, oz, dx, dy, dz, count, tMax, hitT, hitPrimitives, null);
+	}
+
+	/**
+	 * Check whether each of {@code count} rays hits anything within {@code tMax}, setting or clearing bit {@code i} of
+	 * {@code hits} for ray {@code i}. Rays are traced in packets, like {@link #closestHits}.
+	 */
+	public void anyHits(float[] ox, float[] oy, float[] oz, float[] dx, float[] dy, float[] dz, int count, float tMax, BitSet hits)
+	{
+		checkRays(count, ox, oy, oz, dx, dy, dz);
+		tracePackets(ox, oy, oz, dx, dy, dz, count, tMax, null, null, hits);
+	}
+
+	private static void checkRays(int count, float[] ox, float[] oy, float[] oz, float[] dx, float[] dy, float[] dz)
+	{
+		Checks.checkArgument(count >= 0, "Negative ray count: %d", count);
+		Checks.checkArgument(ox.length >= count && oy.length >= count && oz.length >= count
+		                     && dx.length >= count && dy.length >= count && dz.length >= count,
+		                     "Ray arrays are shorter than the ray count (%d)", count);
+	}
+
+	private void tracePackets(float[] ox, float[] oy, float[] oz, float[] dx, float[] dy, float[] dz, int count, float tMax,
+	                          float[] hitT, int[] hitPrimitives, BitSet hits)
+	{
+		boolean any = hits != null;
+		float[] idx = new float[PACKET_SIZE], idy = new float[PACKET_SIZE], idz = new float[PACKET_SIZE];
+		float[] best = new float[PACKET_SIZE];
+		int[] bestPrimitive = new int[PACKET_SIZE];
+		RayHit result = new RayHit();
+		int[] nodeStack = new int[depth + 1];
+		long[] maskStack = new long[depth + 1];
+
+		for(int base = 0; base < count; base += PACKET_SIZE)
+		{
+			int size = Math.min(PACKET_SIZE, count - base);
+			for(int r = 0; r < size; r++)
+			{
+				idx[r] = 1f / dx[base + r];
+				idy[r] = 1f / dy[base + r];
+				idz[r] = 1f / dz[base + r];
+				best[r] = tMax;
+				bestPrimitive[r] = -1;
+			}
+			long done = 0;
+
+			int top = 0;
+			if(primitiveCount > 0)
+			{
+				nodeStack[top] = 0;
+				maskStack[top] = size == 64 ? -1L : (1L << size) - 1;
+				top++;
+			}
+			while(top > 0)
+			{
+				top--;
+				int node = nodeStack[top];
+				long active = maskStack[top] & ~done;
+
+				// Keep only the rays that hit this node before their best hit so far
+				long mask = 0;
+				for(long m = active; m != 0; m &= m - 1)
+				{
+					int r = Long.numberOfTrailingZeros(m);
+					int ray = base + r;
+					if(enter(node, ox[ray], oy[ray], oz[ray], idx[r], idy[r], idz[r], best[r]) >= 0)
+					{
+						mask |= 1L << r;
+					}
+				}
+				if(mask == 0)
+				{
+					continue;
+				}
+
+				int primitives = nodeSize[node];
+				if(primitives > 0)
+				{
+					int first = nodeStart[node];
+					for(int i = first; i < first + primitives; i++)
+					{
+						for(long m = mask & ~done; m != 0; m &= m - 1)
+						{
+							int r = Long.numberOfTrailingZeros(m);
+							int ray = base + r;
+							if(intersect(i, ox[ray], oy[ray], oz[ray], dx[ray], dy[ray], dz[ray], idx[r], idy[r], idz[r], best[r], result))
+							{
+								best[r] = result.t;
+								bestPrimitive[r] = i;
+								if(any)
+								{
+									done |= 1L << r;
+								}
+							}
+						}
+					}
+				}
+				else
+				{
+					// Order the children for the first active ray; the others usually point the same way
+					int r = Long.numberOfTrailingZeros(mask);
+					int ray = base + r;
+					int left = nodeStart[node];
+					float tLeft = enter(left, ox[ray], oy[ray], oz[ray], idx[r], idy[r], idz[r], Float.POSITIVE_INFINITY);
+					float tRight = enter(left + 1, ox[ray], oy[ray], oz[ray], idx[r], idy[r], idz[r], Float.POSITIVE_INFINITY);
+					boolean leftFirst = tRight < 0 || (tLeft >= 0 && tLeft <= tRight);
+					nodeStack[top] = leftFirst ? left + 1 : left;
+					maskStack[top] = mask;
+					top++;
+					nodeStack[top] = leftFirst ? left : left + 1;
+					maskStack[top] = mask;
+					top++;
+				}
+			}
+
+			for(int r = 0; r < size; r++)
+			{
+				if(any)
+				{
+					hits.set(base + r, bestPrimitive[r] >= 0);
+				}
+				else
+				{
+					hitT[base + r] = best[r];
+					hitPrimitives[base + r] = bestPrimitive[r] < 0 ? -1 : primitiveIds[bestPrimitive[r]];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,397 @@
+package galu.geometry;
+
+import galu.matrix.Matrix4;
+import galu.util.Checks;
+import galu.vector.Vector4;
+
+import java.util.BitSet;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * A view frustum: the six planes bounding what a camera can see, for culling bounding spheres and axis-aligned boxes.
+ * <p>
+ * The planes are extracted from a view-projection matrix (using OpenGL's clip space, where {@code -w <= z <= w}) and
+ * normalized once, so that plugging a point into a plane gives its signed distance. Normals point into the frustum.
+ * <p>
+ * Besides plain visibility tests, there are two optimizations for hierarchies (such as bounding volume trees) and for
+ * objects tested frame after frame:
+ * <ul>
+ *     <li><em>Plane masking</em>: the {@code classify} methods return a mask of the planes that a volume straddles. A
+ *     volume nested inside it only needs to be tested against those planes, and once the mask is 0 everything
+ *     below is inside.</li>
+ *     <li><em>Plane coherency</em>: an object that was rejected by a plane is likely to be rejected by the same plane
+ *     next time, so that plane is tested first. The batch methods keep track of this in an optional per-object
+ *     cache.</li>
+ * </ul>
+ */
+public final class Frustum
+{
+	public static final int LEFT = 0;
+	public static final int RIGHT = 1;
+	public static final int BOTTOM = 2;
+	public static final int TOP = 3;
+	public static final int NEAR = 4;
+	public static final int FAR = 5;
+
+	/**
+	 * The plane mask to start a hierarchical test with: every plane still needs to be tested.
+	 */
+	public static final int ALL_PLANES = (1 << 6) - 1;
+
+	// Plane equations a*x + b*y + c*z + d, with the absolute values of the normals cached for box tests
+	private final float[] a = new float[6];
+	private final float[] b = new float[6];
+	private final float[] c = new float[6];
+	private final float[] d = new float[6];
+	private final float[] absA = new float[6];
+	private final float[] absB = new float[6];
+	private final float[] absC = new float[6];
+
+	private Frustum()
+	{
+	}
+
+	/**
+	 * Extract the frustum from a combined view-projection matrix (or a model-view-projection matrix, to cull in model
+	 * space).
+	 * @param viewProjection the matrix that transforms world coordinates to clip coordinates
+	 * @return the frustum
+	 */
+	public static Frustum fromMatrix(Matrix4 viewProjection)
+	{
+		Matrix4 m = viewProjection;
+		Frustum frustum = new Frustum();
+		// Each plane is the last row of the matrix plus or minus another row (Gribb and Hartmann)
+		frustum.setPlane(LEFT,   m.m30 + m.m00, m.m31 + m.m01, m.m32 + m.m02, m.m33 + m.m03);
+		frustum.setPlane(RIGHT,  m.m30 - m.m00, m.m31 - m.m01, m.m32 - m.m02, m.m33 - m.m03);
+		frustum.setPlane(BOTTOM, m.m30 + m.m10, m.m31 + m.m11, m.m32 + m.m12, m.m33 + m.m13);
+		frustum.setPlane(TOP,    m.m30 - m.m10, m.m31 - m.m11, m.m32 - m.m12, m.m33 - m.m13);
+		frustum.setPlane(NEAR,   m.m30 + m.m20, m.m31 + m.m21, m.m32 + m.m22, m.m33 + m.m23);
+		frustum.setPlane(FAR,    m.m30 - m.m20, m.m31 - m.m21, m.m32 - m.m22, m.m33 - m.m23);
+		return frustum;
+	}
+
+	private void setPlane(int plane, float pa, float pb, float pc, float pd)
+	{
+		float length = (float) Math.sqrt(pa*pa + pb*pb + pc*pc);
+		// A degenerate plane (from a degenerate matrix) is left unnormalized rather than turned into NaNs
+		float factor = length == 0 ? 1 : 1f / length;
+		a[plane] = pa * factor;
+		b[plane] = pb * factor;
+		c[plane] = pc * factor;
+		d[plane] = pd * factor;
+		absA[plane] = Math.abs(a[plane]);
+		absB[plane] = Math.abs(b[plane]);
+		absC[plane] = Math.abs(c[plane]);
+	}
+
+	/**
+	 * @param plane one of {@link #LEFT}, {@link #RIGHT}, {@link #BOTTOM}, {@link #TOP}, {@link #NEAR}, or {@link #FAR}
+	 * @return the normalized plane equation {@code (a, b, c, d)}, where {@code ax + by + cz + d} is the signed distance
+	 * from the plane (positive inside)
+	 */
+	public Vector4 plane(int plane)
+	{
+		checkElementIndex(plane, 6);
+		return new Vector4(a[plane], b[plane], c[plane], d[plane]);
+	}
+
+	/**
+	 * @return whether any part of the sphere may be inside the frustum
+	 */
+	public boolean intersectsSphere(float x, float y, float z, float radius)
+	{
+		return classifySphere(x, y, z, radius, ALL_PLANES, 0) >= 0;
+	}
+
+	/**
+	 * @return whether any part of the box may be inside the frustum
+	 */
+	public boolean intersectsBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		return classifyBox(minX, minY, minZ, maxX, maxY, maxZ, ALL_PLANES, 0) >= 0;
+	}
+
+	/**
+	 * Test a sphere against the planes in {@code mask}, starting with {@code firstPlane}.
+	 * @param mask the planes to test, as a bit mask (bit {@code i} for plane {@code i}); start with {@link #ALL_PLANES}
+	 * @param firstPlane the plane to test first, usually the one that rejected this sphere last time
+	 * @return if the sphere is outside, a negative number; {@link #rejectingPlane(int)} tells which plane rejected it.
+	 * Otherwise, the subset of {@code mask} whose planes the sphere straddles, which is 0 if it's entirely inside.
+	 * @throws IllegalArgumentException if {@code firstPlane} isn't between 0 and 5
+	 */
+	public int classifySphere(float x, float y, float z, float radius, int mask, int firstPlane)
+	{
+		checkFirstPlane(firstPlane);
+		int straddling = 0;
+		for(int n = 0, plane = firstPlane; n < 6; n++, plane = plane == 5 ? 0 : plane + 1)
+		{
+			int bit = 1 << plane;
+			if((mask & bit) == 0)
+			{
+				continue;
+			}
+			float distance = a[plane] * x + b[plane] * y + c[plane] * z + d[plane];
+			if(distance < -radius)
+			{
+				return -1 - plane;
+			}
+			if(distance < radius)
+			{
+				straddling |= bit;
+			}
+		}
+		return straddling;
+	}
+
+	/**
+	 * Test an axis-aligned box against the planes in {@code mask}, starting with {@code firstPlane}.
+	 * @return a negative number if the box is outside, otherwise the planes it straddles
+	 * @see #classifySphere(float, float, float, float, int, int)
+	 */
+	public int classifyBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int mask, int firstPlane)
+	{
+		checkFirstPlane(firstPlane);
+		float cx = 0.5f * (minX + maxX), cy = 0.5f * (minY + maxY), cz = 0.5f * (minZ + maxZ);
+		float ex = 0.5f * (maxX - minX), ey = 0.5f * (maxY - minY), ez = 0.5f * (maxZ - minZ);
+		int straddling = 0;
+		for(int n = 0, plane = firstPlane; n < 6; n++, plane = plane == 5 ? 0 : plane + 1)
+		{
+			int bit = 1 << plane;
+			if((mask & bit) == 0)
+			{
+				continue;
+			}
+			// The box's extent along the plane normal
+			float radius = absA[plane] * ex + absB[plane] * ey + absC[plane] * ez;
+			float distance = a[plane] * cx + b[plane] * cy + c[plane] * cz + d[plane];
+			if(distance < -radius)
+			{
+				return -1 - plane;
+			}
+			if(distance < radius)
+			{
+				straddling |= bit;
+			}
+		}
+		return straddling;
+	}
+
+	/**
+	 * @param result a negative result of one of the {@code classify} methods
+	 * @return the plane that rejected the volume
+	 */
+	public static int rejectingPlane(int result)
+	{
+		return -1 - result;
+	}
+
+	/**
+	 * Cull {@code count} packed spheres, each stored as {@code (x, y, z, radius)}. Sphere {@code i} is read from
+	 * {@code spheres[offset + i*stride]}, and bit {@code i} of {@code visible} is set if it may be visible and cleared
+	 * otherwise.
+	 * @param planeCache if not {@code null}, the plane that last rejected each sphere ({@code planeCache[i]}), which is
+	 *                   tested first and updated. Start with an array of zeros; values outside 0-5 are treated as
+	 *                   0.
+	 */
+	public void cullSpheres(float[] spheres, int offset, int stride, int count, byte[] planeCache, BitSet visible)
+	{
+		checkBatch("Sphere", spheres.length, offset, stride, 4, count, planeCache);
+		for(int i = 0, s = offset; i < count; i++, s += stride)
+		{
+			visible.set(i, testSphere(spheres, s, planeCache, i));
+		}
+	}
+
+	/**
+	 * Cull {@code count} packed spheres, writing the indices of the ones that may be visible into {@code visible}, in
+	 * increasing order. {@code visible} must have room for {@code count} indices.
+	 * @return the number of visible spheres
+	 * @see #cullSpheres(float[], int, int, int, byte[], BitSet)
+	 */
+	public int cullSpheres(float[] spheres, int offset, int stride, int count, byte[] planeCache, int[] visible)
+	{
+		checkBatch("Sphere", spheres.length, offset, stride, 4, count, planeCache);
+		checkVisible(visible, count);
+		int visibleCount = 0;
+		for(int i = 0, s = offset; i < count; i++, s += stride)
+		{
+			if(testSphere(spheres, s, planeCache, i))
+			{
+				visible[visibleCount++] = i;
+			}
+		}
+		return visibleCount;
+	}
+
+	/**
+	 * Cull {@code count} packed axis-aligned boxes, each stored as {@code (minX, minY, minZ, maxX, maxY, maxZ)}.
+	 * @see #cullSpheres(float[], int, int, int, byte[], BitSet)
+	 */
+	public void cullBoxes(float[] boxes, int offset, int stride, int count, byte[] planeCache, BitSet visible)
+	{
+		checkBatch("Box", boxes.length, offset, stride, 6, count, planeCache);
+		for(int i = 0, s = offset; i < count; i++, s += stride)
+		{
+			visible.set(i, testBox(boxes, s, planeCache, i));
+		}
+	}
+
+	/**
+	 * Cull {@code count} packed axis-aligned boxes, writing the indices of the ones that may be visible into
+	 * {@code visible}, in increasing order.
+	 * @return the number of visible boxes
+	 * @see #cullBoxes(float[], int, int, int, byte[], BitSet)
+	 */
+	public int cullBoxes(float[] boxes, int offset, int stride, int count, byte[] planeCache, int[] visible)
+	{
+		checkBatch("Box", boxes.length, offset, stride, 6, count, planeCache);
+		checkVisible(visible, count);
+		int visibleCount = 0;
+		for(int i = 0, s = offset; i < count; i++, s += stride)
+		{
+			if(testBox(boxes, s, planeCache, i))
+			{
+				visible[visibleCount++] = i;
+			}
+		}
+		return visibleCount;
+	}
+
+	private boolean testSphere(float[] spheres, int s, byte[] planeCache, int i)
+	{
+		float x = spheres[s], y = spheres[s + 1], z = spheres[s + 2], radius = spheres[s + 3];
+		if(planeCache == null)
+		{
+			return !sphereOutside(x, y, z, radius);
+		}
+		int plane = sphereRejectedBy(x, y, z, radius, cachedPlane(planeCache, i));
+		if(plane >= 0)
+		{
+			planeCache[i] = (byte) plane;
+		}
+		return plane < 0;
+	}
+
+	private boolean testBox(float[] boxes, int s, byte[] planeCache, int i)
+	{
+		float minX = boxes[s], minY = boxes[s + 1], minZ = boxes[s + 2], maxX = boxes[s + 3], maxY = boxes[s + 4], maxZ = boxes[s + 5];
+		if(planeCache == null)
+		{
+			return !boxOutside(minX, minY, minZ, maxX, maxY, maxZ);
+		}
+		int plane = boxRejectedBy(minX, minY, minZ, maxX, maxY, maxZ, cachedPlane(planeCache, i));
+		if(plane >= 0)
+		{
+			planeCache[i] = (byte) plane;
+		}
+		return plane < 0;
+	}
+
+	// The cache is the caller's, so a plane number this class didn't write just means starting from the left plane
+	private static int cachedPlane(byte[] planeCache, int i)
+	{
+		int plane = planeCache[i];
+		return plane >= 0 && plane <= FAR ? plane : LEFT;
+	}
+
+	// The batch methods only need visibility, not the straddled planes. Without a plane cache, all six planes are tested
+	// without branching, since the outcome of each test is hard to predict when culling scattered objects.
+	private boolean sphereOutside(float x, float y, float z, float radius)
+	{
+		float[] a = this.a, b = this.b, c = this.c, d = this.d;
+		float limit = -radius;
+		return (a[0] * x + b[0] * y + c[0] * z + d[0] < limit)
+		     | (a[1] * x + b[1] * y + c[1] * z + d[1] < limit)
+		     | (a[2] * x + b[2] * y + c[2] * z + d[2] < limit)
+		     | (a[3] * x + b[3] * y + c[3] * z + d[3] < limit)
+		     | (a[4] * x + b[4] * y + c[4] * z + d[4] < limit)
+		     | (a[5] * x + b[5] * y + c[5] * z + d[5] < limit);
+	}
+
+	private boolean boxOutside(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		float[] a = this.a, b = this.b, c = this.c, d = this.d;
+		float[] absA = this.absA, absB = this.absB, absC = this.absC;
+		float cx = 0.5f * (minX + maxX), cy = 0.5f * (minY + maxY), cz = 0.5f * (minZ + maxZ);
+		float ex = 0.5f * (maxX - minX), ey = 0.5f * (maxY - minY), ez = 0.5f * (maxZ - minZ);
+		return (a[0] * cx + b[0] * cy + c[0] * cz + d[0] < -(absA[0] * ex + absB[0] * ey + absC[0] * ez))
+		     | (a[1] * cx + b[1] * cy + c[1] * cz + d[1] < -(absA[1] * ex + absB[1] * ey + absC[1] * ez))
+		     | (a[2] * cx + b[2] * cy + c[2] * cz + d[2] < -(absA[2] * ex + absB[2] * ey + absC[2] * ez))
+		     | (a[3] * cx + b[3] * cy + c[3] * cz + d[3] < -(absA[3] * ex + absB[3] * ey + absC[3] * ez))
+		     | (a[4] * cx + b[4] * cy + c[4] * cz + d[4] < -(absA[4] * ex + absB[4] * ey + absC[4] * ez))
+		     | (a[5] * cx + b[5] * cy + c[5] * cz + d[5] < -(absA[5] * ex + absB[5] * ey + absC[5] * ez));
+	}
+
+	// With a plane cache, the cached plane usually rejects the volume straight away, so stop at the first rejection
+	private int sphereRejectedBy(float x, float y, float z, float radius, int first)
+	{
+		float[] a = this.a, b = this.b, c = this.c, d = this.d;
+		if(a[first] * x + b[first] * y + c[first] * z + d[first] < -radius)
+		{
+			return first;
+		}
+		for(int plane = 0; plane < 6; plane++)
+		{
+			if(a[plane] * x + b[plane] * y + c[plane] * z + d[plane] < -radius)
+			{
+				return plane;
+			}
+		}
+		return -1;
+	}
+
+	private int boxRejectedBy(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int first)
+	{
+		float[] a = this.a, b = this.b, c = this.c, d = this.d;
+		float cx = 0.5f * (minX + maxX), cy = 0.5f * (minY + maxY), cz = 0.5f * (minZ + maxZ);
+		float ex = 0.5f * (maxX - minX), ey = 0.5f * (maxY - minY), ez = 0.5f * (maxZ - minZ);
+		if(a[first] * cx + b[first] * cy + c[first] * cz + d[first] < -(absA[first] * ex + absB[first] * ey + absC[first] * ez))
+		{
+			return first;
+		}
+		for(int plane = 0; plane < 6; plane++)
+		{
+			if(a[plane] * cx + b[plane] * cy + c[plane] * cz + d[plane] < -(absA[plane] * ex + absB[plane] * ey + absC[plane] * ez))
+			{
+				return plane;
+			}
+		}
+		return -1;
+	}
+
+	private static void checkFirstPlane(int firstPlane)
+	{
+		Checks.checkArgument(firstPlane >= 0 && firstPlane < 6, "First plane must be between 0 and 5, not %d", firstPlane);
+	}
+
+	private static void checkBatch(String name, int length, int offset, int stride, int components, int count, byte[] planeCache)
+	{
+		Checks.checkRange(name, length, offset, stride, components, count);
+		if(planeCache != null)
+		{
+			Checks.checkArray("Plane cache", planeCache.length, 0, count);
+		}
+	}
+
+	private static void checkVisible(int[] visible, int count)
+	{
+		Checks.checkArray("Index list", visible.length, 0, count);
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder("Frustum{");
+		for(int plane = 0; plane < 6; plane++)
+		{
+			if(plane > 0)
+			{
+				builder.append(", ");
+			}
+			builder.append(String.format("(%.4f, %.4f, %.4f, %.4f)", a[plane], b[plane], c[plane], d[plane]));
+		}
+		return builder.append('}').toString();
+	}
+}
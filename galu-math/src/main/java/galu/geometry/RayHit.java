@@ -0,0 +1,30 @@
+package galu.geometry;
+
+/**
+ * The result of a ray query, reused between queries to avoid allocating. Fields are only meaningful after a query that
+ * reported a hit.
+ */
+public final class RayHit
+{
+	/**
+	 * The distance along the ray to the hit, in units of the ray's direction vector.
+	 */
+	public float t;
+
+	/**
+	 * The index of the primitive that was hit, in the order the primitives were given.
+	 */
+	public int primitive;
+
+	/**
+	 * The barycentric coordinates of the hit on a triangle: the weights of its second and third vertices. For other
+	 * primitives, both are 0.
+	 */
+	public float u, v;
+
+	@Override
+	public String toString()
+	{
+		return String.format("RayHit{t=%.4f, primitive=%d, u=%.4f, v=%.4f}", t, primitive, u, v);
+	}
+}
@@ -0,0 +1,270 @@
+package galu.geometry;
+
+import galu.util.Checks;
+
+/**
+ * Ray-triangle intersection over packed arrays, with the M&ouml;ller-Trumbore algorithm. Nothing is allocated: results go
+ * into a {@link RayHit} or into arrays the caller provides.
+ * <p>
+ * Triangles are given either as packed vertex positions, 9 floats per triangle, or as packed positions (3 floats per
+ * vertex) plus 3 indices per triangle. Rays are given as an origin and a direction, and hit distances are measured in
+ * units of the direction vector. Every method has a {@code cullBackFaces} flag: if it's set, triangles are only hit from
+ * the front, the side their vertices wind counterclockwise on; otherwise they're double-sided.
+ * <p>
+ * The batch methods test every ray in a structure-of-arrays batch against one triangle at a time. The inner loop over the
+ * rays has no branches and reads and writes each array sequentially, so the JIT can unroll and vectorize it.
+ * @see <a href="http://www.graphics.cornell.edu/pubs/1997/MT97.pdf">Fast, Minimum Storage Ray/Triangle Intersection</a>
+ */
+public final class RayTriangle
+{
+	private RayTriangle() {}
+
+	/**
+	 * Find the closest of {@code count} packed triangles that a ray hits.
+	 * @param triangles packed vertex positions, 9 floats per triangle
+	 * @param offset the index of the first triangle's first float
+	 * @param hit where to store the hit; {@code primitive} is the triangle's index, counting from {@code offset}
+	 * @return whether the ray hit a triangle within {@code tMax}
+	 */
+	public static boolean closestHit(float ox, float oy, float oz, float dx, float dy, float dz, float tMax,
+	                                 float[] triangles, int offset, int count, boolean cullBackFaces, RayHit hit)
+	{
+		checkTriangles(triangles, offset, count);
+		float t = hit.t, u = hit.u, v = hit.v;
+		int primitive = hit.primitive;
+
+		hit.t = tMax;
+		hit.primitive = -1;
+		for(int i = 0, p = offset; i < count; i++, p += 9)
+		{
+			if(intersect(triangles[p], triangles[p + 1], triangles[p + 2],
+			             triangles[p + 3], triangles[p + 4], triangles[p + 5],
+			             triangles[p + 6], triangles[p + 7], triangles[p + 8],
+			             ox, oy, oz, dx, dy, dz, hit.t, cullBackFaces, hit))
+			{
+				hit.primitive = i;
+			}
+		}
+		return restoreOnMiss(hit, t, u, v, primitive);
+	}
+
+	/**
+	 * Find the closest of {@code count} indexed triangles that a ray hits.
+	 * @param positions packed vertex positions, 3 floats per vertex
+	 * @param indices 3 vertex indices per triangle
+	 * @param indexOffset the index of the first triangle's first index
+	 * @param hit where to store the hit; {@code primitive} is the triangle's index, counting from {@code indexOffset}
+	 * @return whether the ray hit a triangle within {@code tMax}
+	 */
+	public static boolean closestHit(float ox, float oy, float oz, float dx, float dy, float dz, float tMax,
+	                                 float[] positions, int[] indices, int indexOffset, int count, boolean cullBackFaces,
+	                                 RayHit hit)
+	{
+		checkIndices(indices, indexOffset, count);
+		float t = hit.t, u = hit.u, v = hit.v;
+		int primitive = hit.primitive;
+
+		hit.t = tMax;
+		hit.primitive = -1;
+		for(int i = 0, p = indexOffset; i < count; i++, p += 3)
+		{
+			int a = 3 * indices[p], b = 3 * indices[p + 1], c = 3 * indices[p + 2];
+			if(intersect(positions[a], positions[a + 1], positions[a + 2],
+			             positions[b], positions[b + 1], positions[b + 2],
+			             positions[c], positions[c + 1], positions[c + 2],
+			             ox, oy, oz, dx, dy, dz, hit.t, cullBackFaces, hit))
+			{
+				hit.primitive = i;
+			}
+		}
+		return restoreOnMiss(hit, t, u, v, primitive);
+	}
+
+	private static boolean restoreOnMiss(RayHit hit, float t, float u, float v, int primitive)
+	{
+		if(hit.primitive >= 0)
+		{
+			return true;
+		}
+		hit.t = t;
+		hit.u = u;
+		hit.v = v;
+		hit.primitive = primitive;
+		return false;
+	}
+
+	/**
+	 * Intersect a ray with one triangle. On a hit closer than {@code tMax}, store the distance and barycentric
+	 * coordinates in {@code hit}, leaving {@code hit.primitive} alone.
+	 */
+	static boolean intersect(float ax, float ay, float az, float bx, float by, float bz, float cx, float cy, float cz,
+	                         float ox, float oy, float oz, float dx, float dy, float dz, float tMax, boolean cullBackFaces,
+	                         RayHit hit)
+	{
+		float e1x = bx - ax, e1y = by - ay, e1z = bz - az;
+		float e2x = cx - ax, e2y = cy - ay, e2z = cz - az;
+		float px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+		float det = e1x * px + e1y * py + e1z * pz;
+		// The determinant is positive when the ray hits the front face
+		if(cullBackFaces ? !(det > 0) : det == 0)
+		{
+			return false;
+		}
+		float invDet = 1f / det;
+		float sx = ox - ax, sy = oy - ay, sz = oz - az;
+		float u = (sx * px + sy * py + sz * pz) * invDet;
+		if(u < 0 || u > 1)
+		{
+			return false;
+		}
+		float qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+		float v = (dx * qx + dy * qy + dz * qz) * invDet;
+		if(v < 0 || u + v > 1)
+		{
+			return false;
+		}
+		float t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+		if(t < 0 || t >= tMax)
+		{
+			return false;
+		}
+		hit.t = t;
+		hit.u = u;
+		hit.v = v;
+		return true;
+	}
+
+	/**
+	 * Find the closest hit for each of {@code rayCount} rays against {@code count} packed triangles.
+	 * @param triangles packed vertex positions, 9 floats per triangle
+	 * @param offset the index of the first triangle's first float
+	 * @param hitT for each ray, the distance to the closest hit, or {@code tMax} if it missed
+	 * @param hitU for each ray, the barycentric weight of the hit triangle's second vertex
+	 * @param hitV for each ray, the barycentric weight of the hit triangle's third vertex
+	 * @param hitTriangles for each ray, the index of the hit triangle counting from {@code offset}, or -1 if it missed
+	 */
+	public static void closestHits(float[] ox, float[] oy, float[] oz, float[] dx, float[] dy, float[] dz, int rayCount,
+	                               float tMax, float[] triangles, int offset, int count, boolean cullBackFaces,
+	                               float[] hitT, float[] hitU, float[] hitV, int[] hitTriangles)
+	{
+		checkTriangles(triangles, offset, count);
+		checkBatch(rayCount, ox, oy, oz, dx, dy, dz, hitT, hitU, hitV, hitTriangles);
+		clear(rayCount, tMax, hitT, hitU, hitV, hitTriangles);
+		for(int i = 0, p = offset; i < count; i++, p += 9)
+		{
+			intersectAll(triangles[p], triangles[p + 1], triangles[p + 2],
+			             triangles[p + 3], triangles[p + 4], triangles[p + 5],
+			             triangles[p + 6], triangles[p + 7], triangles[p + 8],
+			             i, cullBackFaces, ox, oy, oz, dx, dy, dz, rayCount, hitT, hitU, hitV, hitTriangles);
+		}
+	}
+
+	/**
+	 * Find the closest hit for each of {@code rayCount} rays against {@code count} indexed triangles.
+	 * @param positions packed vertex positions, 3 floats per vertex
+	 * @param indices 3 vertex indices per triangle
+	 * @param indexOffset the index of the first triangle's first index
+	 * @see #closestHits(float[], float[], float[], float[], float[], float[], int, float, float[], int, int, boolean, float[], float[], float[], int[])
+	 */
+	public static void closestHits(float[] ox, float[] oy, float[] oz, float[] dx, float[] dy, float[] dz, int rayCount,
+	                               float tMax, float[] positions, int[] indices, int indexOffset, int count,
+	                               boolean cullBackFaces, float[] hitT, float[] hitU, float[] hitV, int[] hitTriangles)
+	{
+		checkIndices(indices, indexOffset, count);
+		checkBatch(rayCount, ox, oy, oz, dx, dy, dz, hitT, hitU, hitV, hitTriangles);
+		clear(rayCount, tMax, hitT, hitU, hitV, hitTriangles);
+		for(int i = 0, p = indexOffset; i < count; i++, p += 3)
+		{
+			int a = 3 * indices[p], b = 3 * indices[p + 1], c = 3 * indices[p + 2];
+			intersectAll(positions[a], positions[a + 1], positions[a + 2],
+			             positions[b], positions[b + 1], positions[b + 2],
+			             positions[c], positions[c + 1], positions[c + 2],
+			             i, cullBackFaces, ox, oy, oz, dx, dy, dz, rayCount, hitT, hitU, hitV, hitTriangles);
+		}
+	}
+
+	private static void clear(int rayCount, float tMax, float[] hitT, float[] hitU, float[] hitV, int[] hitTriangles)
+	{
+		for(int r = 0; r < rayCount; r++)
+		{
+			hitT[r] = tMax;
+			hitU[r] = 0;
+			hitV[r] = 0;
+			hitTriangles[r] = -1;
+		}
+	}
+
+	/**
+	 * Test every ray against one triangle, keeping the closer of each ray's current hit and this one.
+	 */
+	private static void intersectAll(float ax, float ay, float az, float bx, float by, float bz, float cx, float cy, float cz,
+	                                 int triangle, boolean cullBackFaces,
+	                                 float[] ox, float[] oy, float[] oz, float[] dx, float[] dy, float[] dz, int rayCount,
+	                                 float[] hitT, float[] hitU, float[] hitV, int[] hitTriangles)
+	{
+		float e1x = bx - ax, e1y = by - ay, e1z = bz - az;
+		float e2x = cx - ax, e2y = cy - ay, e2z = cz - az;
+		// Culling only needs the sign of the determinant, so the loops differ in one comparison; they're kept separate so
+		// the flag isn't tested per ray
+		if(cullBackFaces)
+		{
+			for(int r = 0; r < rayCount; r++)
+			{
+				float px = dy[r] * e2z - dz[r] * e2y, py = dz[r] * e2x - dx[r] * e2z, pz = dx[r] * e2y - dy[r] * e2x;
+				float det = e1x * px + e1y * py + e1z * pz;
+				float invDet = 1f / det;
+				float sx = ox[r] - ax, sy = oy[r] - ay, sz = oz[r] - az;
+				float u = (sx * px + sy * py + sz * pz) * invDet;
+				float qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+				float v = (dx[r] * qx + dy[r] * qy + dz[r] * qz) * invDet;
+				float t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+				boolean hit = det > 0 & u >= 0 & v >= 0 & u + v <= 1 & t >= 0 & t < hitT[r];
+				hitT[r] = hit ? t : hitT[r];
+				hitU[r] = hit ? u : hitU[r];
+				hitV[r] = hit ? v : hitV[r];
+				hitTriangles[r] = hit ? triangle : hitTriangles[r];
+			}
+		}
+		else
+		{
+			for(int r = 0; r < rayCount; r++)
+			{
+				float px = dy[r] * e2z - dz[r] * e2y, py = dz[r] * e2x - dx[r] * e2z, pz = dx[r] * e2y - dy[r] * e2x;
+				float det = e1x * px + e1y * py + e1z * pz;
+				float invDet = 1f / det;
+				float sx = ox[r] - ax, sy = oy[r] - ay, sz = oz[r] - az;
+				float u = (sx * px + sy * py + sz * pz) * invDet;
+				float qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+				float v = (dx[r] * qx + dy[r] * qy + dz[r] * qz) * invDet;
+				float t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+				// A zero determinant makes u, v, and t infinite or NaN, which fail these comparisons
+				boolean hit = u >= 0 & v >= 0 & u + v <= 1 & t >= 0 & t < hitT[r];
+				hitT[r] = hit ? t : hitT[r];
+				hitU[r] = hit ? u : hitU[r];
+				hitV[r] = hit ? v : hitV[r];
+				hitTriangles[r] = hit ? triangle : hitTriangles[r];
+			}
+		}
+	}
+
+	private static void checkTriangles(float[] triangles, int offset, int count)
+	{
+		Checks.checkRange("Triangle array", triangles.length, offset, 9, 9, count);
+	}
+
+	private static void checkIndices(int[] indices, int indexOffset, int count)
+	{
+		Checks.checkRange("Index array", indices.length, indexOffset, 3, 3, count);
+	}
+
+	private static void checkBatch(int rayCount, float[] ox, float[] oy, float[] oz, float[] dx, float[] dy, float[] dz,
+	                               float[] hitT, float[] hitU, float[] hitV, int[] hitTriangles)
+	{
+		Checks.checkArgument(rayCount >= 0, "Negative ray count: %d", rayCount);
+		Checks.checkArgument(ox.length >= rayCount && oy.length >= rayCount && oz.length >= rayCount
+		                  && dx.length >= rayCount && dy.length >= rayCount && dz.length >= rayCount,
+		                     "Ray arrays are shorter than the ray count (%d)", rayCount);
+		Checks.checkArgument(hitT.length >= rayCount && hitU.length >= rayCount && hitV.length >= rayCount
+		                  && hitTriangles.length >= rayCount, "Result arrays are shorter than the ray count (%d)", rayCount);
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains bounding volumes and intersection tests, such as view frustum culling.
+ */
+package galu.geometry;
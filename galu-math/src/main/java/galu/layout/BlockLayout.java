@@ -0,0 +1,395 @@
+package galu.layout;
+
+import galu.matrix.Matrix2;
+import galu.matrix.Matrix3;
+import galu.matrix.Matrix4;
+import galu.util.Checks;
+import galu.vector.Vector2;
+import galu.vector.Vector3;
+import galu.vector.Vector4;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * The memory layout of a GLSL uniform or shader storage block, following the std140 or std430 rules.
+ * <p>
+ * Declare the block's members in the same order as the shader does, with a {@link Builder}. Each member's offset,
+ * array stride, and matrix column stride are worked out once, when it's declared, and the returned {@link Member} writes
+ * values straight into a {@code ByteBuffer} at the padded position. Writing doesn't allocate or look anything up.
+ * <p>
+ * Matrices are written column-major, which is GLSL's default. Offsets are relative to the buffer's position, which is
+ * treated as the start of the block and isn't changed by writing. The buffer should be in native byte order (or
+ * whichever order the GL implementation expects), and padding is left untouched.
+ */
+public final class BlockLayout
+{
+	public static enum Rules
+	{
+		/**
+		 * The layout for uniform blocks. Array elements and matrix columns are padded to a multiple of 16 bytes.
+		 */
+		STD140,
+
+		/**
+		 * The layout for shader storage blocks. Like std140, but arrays of scalars and 2-element vectors, and the columns
+		 * of 2x2 matrices, are packed tightly.
+		 */
+		STD430;
+	}
+
+	public static enum Type
+	{
+		FLOAT(1, 1), INT(1, 1),
+		VEC2(2, 1), VEC3(3, 1), VEC4(4, 1),
+		MAT2(2, 2), MAT3(3, 3), MAT4(4, 4);
+
+		final int components;
+		final int columns;
+
+		Type(int components, int columns)
+		{
+			this.components = components;
+			this.columns = columns;
+		}
+	}
+
+	private final Rules rules;
+	private final List<Member> members;
+	private final Map<String, Member> membersByName;
+	private final int size;
+
+	private BlockLayout(Rules rules, List<Member> members, Map<String, Member> membersByName, int size)
+	{
+		this.rules = rules;
+		this.members = members;
+		this.membersByName = membersByName;
+		this.size = size;
+	}
+
+	public static Builder builder(Rules rules)
+	{
+		return new Builder(rules);
+	}
+
+	public Rules rules()
+	{
+		return rules;
+	}
+
+	/**
+	 * @return the size of the block in bytes, including padding at the end. This is also the stride of an array of these
+	 * blocks (or of a struct with these members).
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the members, in declaration order
+	 */
+	public List<Member> members()
+	{
+		return members;
+	}
+
+	/**
+	 * Look up a member by name. This is meant for setting things up; keep the {@link Member} around for writing.
+	 * @throws IllegalArgumentException if there is no such member
+	 */
+	public Member member(String name)
+	{
+		Member member = membersByName.get(name);
+		checkArgument(member != null, "No member named %s", name);
+		return member;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BlockLayout{" + rules + ", size=" + size + ", members=" + members + "}";
+	}
+
+	/**
+	 * Declares the members of a block in order. Members know their offsets as soon as they're declared.
+	 */
+	public static final class Builder
+	{
+		private final Rules rules;
+		private final List<Member> members = new ArrayList<>();
+		private final Map<String, Member> membersByName = new LinkedHashMap<>();
+		private int offset = 0;
+		private int alignment = 0;
+		private boolean built = false;
+
+		private Builder(Rules rules)
+		{
+			this.rules = checkNotNull(rules, "rules");
+			if(rules == Rules.STD140)
+			{
+				// A std140 struct is always aligned like a vec4
+				alignment = 16;
+			}
+		}
+
+		/**
+		 * Declare a single value.
+		 */
+		public Member add(String name, Type type)
+		{
+			return add(name, type, 0);
+		}
+
+		/**
+		 * Declare an array of {@code length} values.
+		 */
+		public Member addArray(String name, Type type, int length)
+		{
+			checkArgument(length > 0, "Array length must be positive: %s", length);
+			return add(name, type, length);
+		}
+
+		private Member add(String name, Type type, int length)
+		{
+			checkState(!built, "Layout has already been built");
+			checkNotNull(name, "name");
+			checkNotNull(type, "type");
+			checkArgument(!membersByName.containsKey(name), "Duplicate member %s", name);
+
+			// A matrix is laid out like an array of its column vectors
+			int vectorAlign = vectorAlignment(type.components);
+			int columnStride = type.columns > 1 ? arrayAlignment(vectorAlign) : 0;
+			int elementSize = type.columns > 1 ? type.columns * columnStride : 4 * type.components;
+			int align = type.columns > 1 || length > 0 ? arrayAlignment(vectorAlign) : vectorAlign;
+			int arrayStride = length > 0 ? roundUp(elementSize, align) : 0;
+
+			int memberOffset = roundUp(offset, align);
+			Member member = new Member(name, type, length, memberOffset, arrayStride, columnStride);
+			offset = memberOffset + (length > 0 ? length * arrayStride : elementSize);
+			alignment = Math.max(alignment, align);
+
+			members.add(member);
+			membersByName.put(name, member);
+			return member;
+		}
+
+		public BlockLayout build()
+		{
+			checkState(!built, "Layout has already been built");
+			built = true;
+			int size = alignment == 0 ? 0 : roundUp(offset, alignment);
+			return new BlockLayout(rules, Collections.unmodifiableList(new ArrayList<>(members)),
+			                       Collections.unmodifiableMap(new LinkedHashMap<>(membersByName)), size);
+		}
+
+		private static int vectorAlignment(int components)
+		{
+			// A vec3 is aligned like a vec4
+			return components == 1 ? 4 : components == 2 ? 8 : 16;
+		}
+
+		private int arrayAlignment(int elementAlignment)
+		{
+			return rules == Rules.STD140 ? roundUp(elementAlignment, 16) : elementAlignment;
+		}
+
+		private static int roundUp(int value, int multiple)
+		{
+			return (value + multiple - 1) / multiple * multiple;
+		}
+	}
+
+	/**
+	 * One member of a block. The {@code put} methods write a value (or, for arrays, one element) into the block that
+	 * starts at the buffer's position.
+	 */
+	public static final class Member
+	{
+		private final String name;
+		private final Type type;
+		private final int length;
+		private final int offset;
+		private final int arrayStride;
+		private final int matrixStride;
+
+		private Member(String name, Type type, int length, int offset, int arrayStride, int matrixStride)
+		{
+			this.name = name;
+			this.type = type;
+			this.length = length;
+			this.offset = offset;
+			this.arrayStride = arrayStride;
+			this.matrixStride = matrixStride;
+		}
+
+		public String name()
+		{
+			return name;
+		}
+
+		public Type type()
+		{
+			return type;
+		}
+
+		/**
+		 * @return whether this member is an array
+		 */
+		public boolean isArray()
+		{
+			return length > 0;
+		}
+
+		/**
+		 * @return the number of array elements, or 1 if this isn't an array
+		 */
+		public int length()
+		{
+			return Math.max(length, 1);
+		}
+
+		/**
+		 * @return the offset of this member from the start of the block, in bytes
+		 */
+		public int offset()
+		{
+			return offset;
+		}
+
+		/**
+		 * @return the distance between array elements in bytes, or 0 if this isn't an array
+		 */
+		public int arrayStride()
+		{
+			return arrayStride;
+		}
+
+		/**
+		 * @return the distance between matrix columns in bytes, or 0 if this isn't a matrix
+		 */
+		public int matrixStride()
+		{
+			return matrixStride;
+		}
+
+		public void putFloat(ByteBuffer buf, float value)
+		{
+			putFloat(buf, 0, value);
+		}
+
+		public void putFloat(ByteBuffer buf, int index, float value)
+		{
+			buf.putFloat(position(buf, index, Type.FLOAT), value);
+		}
+
+		public void putInt(ByteBuffer buf, int value)
+		{
+			putInt(buf, 0, value);
+		}
+
+		public void putInt(ByteBuffer buf, int index, int value)
+		{
+			buf.putInt(position(buf, index, Type.INT), value);
+		}
+
+		public void put(ByteBuffer buf, Vector2 value)
+		{
+			put(buf, 0, value);
+		}
+
+		public void put(ByteBuffer buf, int index, Vector2 value)
+		{
+			int p = position(buf, index, Type.VEC2);
+			buf.putFloat(p, value.x).putFloat(p + 4, value.y);
+		}
+
+		public void put(ByteBuffer buf, Vector3 value)
+		{
+			put(buf, 0, value);
+		}
+
+		public void put(ByteBuffer buf, int index, Vector3 value)
+		{
+			int p = position(buf, index, Type.VEC3);
+			buf.putFloat(p, value.x).putFloat(p + 4, value.y).putFloat(p + 8, value.z);
+		}
+
+		public void put(ByteBuffer buf, Vector4 value)
+		{
+			put(buf, 0, value);
+		}
+
+		public void put(ByteBuffer buf, int index, Vector4 value)
+		{
+			int p = position(buf, index, Type.VEC4);
+			buf.putFloat(p, value.x).putFloat(p + 4, value.y).putFloat(p + 8, value.z).putFloat(p + 12, value.w);
+		}
+
+		public void put(ByteBuffer buf, Matrix2 value)
+		{
+			put(buf, 0, value);
+		}
+
+		public void put(ByteBuffer buf, int index, Matrix2 value)
+		{
+			int p = position(buf, index, Type.MAT2);
+			int s = matrixStride;
+			buf.putFloat(p, value.m00).putFloat(p + 4, value.m10);
+			buf.putFloat(p + s, value.m01).putFloat(p + s + 4, value.m11);
+		}
+
+		public void put(ByteBuffer buf, Matrix3 value)
+		{
+			put(buf, 0, value);
+		}
+
+		public void put(ByteBuffer buf, int index, Matrix3 value)
+		{
+			int p = position(buf, index, Type.MAT3);
+			int s = matrixStride;
+			buf.putFloat(p, value.m00).putFloat(p + 4, value.m10).putFloat(p + 8, value.m20);
+			buf.putFloat(p + s, value.m01).putFloat(p + s + 4, value.m11).putFloat(p + s + 8, value.m21);
+			buf.putFloat(p + 2*s, value.m02).putFloat(p + 2*s + 4, value.m12).putFloat(p + 2*s + 8, value.m22);
+		}
+
+		public void put(ByteBuffer buf, Matrix4 value)
+		{
+			put(buf, 0, value);
+		}
+
+		public void put(ByteBuffer buf, int index, Matrix4 value)
+		{
+			int p = position(buf, index, Type.MAT4);
+			int s = matrixStride;
+			buf.putFloat(p, value.m00).putFloat(p + 4, value.m10).putFloat(p + 8, value.m20).putFloat(p + 12, value.m30);
+			buf.putFloat(p + s, value.m01).putFloat(p + s + 4, value.m11).putFloat(p + s + 8, value.m21).putFloat(p + s + 12, value.m31);
+			buf.putFloat(p + 2*s, value.m02).putFloat(p + 2*s + 4, value.m12).putFloat(p + 2*s + 8, value.m22).putFloat(p + 2*s + 12, value.m32);
+			buf.putFloat(p + 3*s, value.m03).putFloat(p + 3*s + 4, value.m13).putFloat(p + 3*s + 8, value.m23).putFloat(p + 3*s + 12, value.m33);
+		}
+
+		private int position(ByteBuffer buf, int index, Type expected)
+		{
+			if(type != expected)
+			{
+				throw new IllegalArgumentException("Member " + name + " is a " + type + ", not a " + expected);
+			}
+			Checks.checkIndex(name, index, Math.max(length, 1));
+			return buf.position() + offset + index * arrayStride;
+		}
+
+		@Override
+		public String toString()
+		{
+			return name + (length > 0 ? "[" + length + "]" : "") + " " + type + " @" + offset;
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package galu.layout;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Per-instance attributes for instanced rendering, packed into direct buffers, with tracking of which instances changed
+ * so that only those have to be uploaded.
+ * <p>
+ * Each instance is one record laid out by a {@link BlockLayout} (std430 is the natural choice for instance attributes),
+ * so the record size is the layout's size. There are two copies of the data. The producer writes into the <em>back</em>
+ * buffer: {@link #edit(int)} marks an instance dirty and returns the back buffer positioned at its record, ready for
+ * the layout's {@link BlockLayout.Member} writers. At the end of a frame, {@link #swap()} publishes the back buffer as
+ * the <em>front</em> buffer, which the consumer uploads from, and coalesces the instances edited during the frame into
+ * contiguous byte ranges for partial uploads ({@code glBufferSubData} and the like).
+ * <p>
+ * Between swaps the producer and consumer work on different buffers, so neither waits for the other. {@code swap()}
+ * itself must be called when the consumer is done with the previous front buffer (usually at the frame boundary, on the
+ * thread that does the upload): it brings the new back buffer up to date by copying the dirty ranges into it.
+ * <p>
+ * Nothing is allocated after construction. The counters report how many bytes were packed and uploaded, for the
+ * published frame and in total.
+ */
+public final class InstanceBuffer
+{
+	private final BlockLayout layout;
+	private final int capacity;
+	private final int stride;
+	private final int maxGap;
+
+	private final ByteBuffer[] buffers = new ByteBuffer[2];
+	private final ByteBuffer[] views = new ByteBuffer[2];
+	// Separate views for copying between the buffers in swap(), so the other views' positions aren't disturbed
+	private final ByteBuffer[] copySources = new ByteBuffer[2];
+	private final ByteBuffer[] copyTargets = new ByteBuffer[2];
+	private int back = 0;
+
+	private final BitSet dirty;
+	private final int[] rangeOffsets;
+	private final int[] rangeLengths;
+	private int rangeCount = 0;
+
+	private long pendingPackedBytes = 0;
+	private long packedBytes = 0;
+	private long uploadBytes = 0;
+	private long totalPackedBytes = 0;
+	private long totalUploadBytes = 0;
+
+	/**
+	 * Create a buffer where only consecutive dirty instances are merged into one range.
+	 * @see #InstanceBuffer(BlockLayout, int, int)
+	 */
+	public InstanceBuffer(BlockLayout layout, int capacity)
+	{
+		this(layout, capacity, 0);
+	}
+
+	/**
+	 * @param layout the layout of one instance's attributes
+	 * @param capacity the number of instances
+	 * @param maxGap dirty ranges separated by at most this many clean instances are merged, trading a few redundant
+	 *               bytes for fewer upload calls
+	 */
+	public InstanceBuffer(BlockLayout layout, int capacity, int maxGap)
+	{
+		this.layout = checkNotNull(layout, "layout");
+		checkArgument(layout.size() > 0, "Layout has no members");
+		checkArgument(capacity >= 0, "Capacity must not be negative: %s", capacity);
+		checkArgument(capacity <= Integer.MAX_VALUE / layout.size(), "Capacity is too large: %s", capacity);
+		checkArgument(maxGap >= 0, "Maximum gap must not be negative: %s", maxGap);
+		this.capacity = capacity;
+		this.stride = layout.size();
+		this.maxGap = maxGap;
+
+		for(int i = 0; i < 2; i++)
+		{
+			buffers[i] = ByteBuffer.allocateDirect(capacity * stride).order(ByteOrder.nativeOrder());
+			views[i] = buffers[i].duplicate().order(ByteOrder.nativeOrder());
+			copySources[i] = buffers[i].duplicate();
+			copyTargets[i] = buffers[i].duplicate();
+		}
+		dirty = new BitSet(capacity);
+
+		// Dirty and clean runs alternate, so there can't be more than this many ranges
+		int maxRanges = (capacity + 1) / 2;
+		rangeOffsets = new int[maxRanges];
+		rangeLengths = new int[maxRanges];
+	}
+
+	public BlockLayout layout()
+	{
+		return layout;
+	}
+
+	public int capacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * @return the size of one instance's record in bytes
+	 */
+	public int stride()
+	{
+		return stride;
+	}
+
+	/**
+	 * Mark an instance as changed, and get the back buffer to write its new attributes into. The buffer's position is
+	 * set to the start of the instance's record (which is what the {@link BlockLayout.Member} writers expect). The
+	 * same buffer object is returned every time, so don't hold on to it across calls.
+	 * @param instance the index of the instance
+	 * @return the back buffer, positioned at the instance
+	 */
+	public ByteBuffer edit(int instance)
+	{
+		checkElementIndex(instance, capacity);
+		dirty.set(instance);
+		pendingPackedBytes += stride;
+		ByteBuffer view = views[back];
+		view.limit(view.capacity()).position(instance * stride);
+		return view;
+	}
+
+	/**
+	 * Publish the back buffer as the front buffer, work out the dirty ranges to upload from it, and bring the new back
+	 * buffer up to date. The consumer must be done with the previous front buffer.
+	 */
+	public void swap()
+	{
+		int front = back;
+		back = 1 - back;
+
+		rangeCount = 0;
+		long bytes = 0;
+		int start = dirty.nextSetBit(0);
+		while(start >= 0)
+		{
+			int end = dirty.nextClearBit(start);
+			// Swallow short gaps
+			int next = dirty.nextSetBit(end);
+			while(next >= 0 && next - end <= maxGap)
+			{
+				end = dirty.nextClearBit(next);
+				next = dirty.nextSetBit(end);
+			}
+
+			int offset = start * stride;
+			int length = (end - start) * stride;
+			rangeOffsets[rangeCount] = offset;
+			rangeLengths[rangeCount] = length;
+			rangeCount++;
+			bytes += length;
+			copy(copySources[front], copyTargets[back], offset, length);
+
+			start = next;
+		}
+		dirty.clear();
+
+		packedBytes = pendingPackedBytes;
+		uploadBytes = bytes;
+		totalPackedBytes += pendingPackedBytes;
+		totalUploadBytes += bytes;
+		pendingPackedBytes = 0;
+	}
+
+	private static void copy(ByteBuffer src, ByteBuffer dst, int offset, int length)
+	{
+		src.limit(offset + length).position(offset);
+		dst.clear().position(offset);
+		dst.put(src);
+	}
+
+	/**
+	 * @return the buffer to upload from, with its position at 0 and its limit at the end. The same object is returned
+	 * every time, so its position and limit can be changed freely.
+	 */
+	public ByteBuffer front()
+	{
+		ByteBuffer view = views[1 - back];
+		view.clear();
+		return view;
+	}
+
+	/**
+	 * @return the number of dirty ranges in the front buffer
+	 */
+	public int dirtyRangeCount()
+	{
+		return rangeCount;
+	}
+
+	/**
+	 * @return the byte offset of a dirty range in the front buffer; ranges are in increasing order and don't overlap
+	 */
+	public int dirtyRangeOffset(int range)
+	{
+		checkElementIndex(range, rangeCount);
+		return rangeOffsets[range];
+	}
+
+	/**
+	 * @return the length in bytes of a dirty range in the front buffer
+	 */
+	public int dirtyRangeLength(int range)
+	{
+		checkElementIndex(range, rangeCount);
+		return rangeLengths[range];
+	}
+
+	/**
+	 * @return the number of bytes packed into the back buffer since the last swap
+	 */
+	public long pendingPackedBytes()
+	{
+		return pendingPackedBytes;
+	}
+
+	/**
+	 * @return the number of bytes packed for the front buffer's frame. An instance edited twice counts twice.
+	 */
+	public long packedBytes()
+	{
+		return packedBytes;
+	}
+
+	/**
+	 * @return the total length of the front buffer's dirty ranges
+	 */
+	public long uploadBytes()
+	{
+		return uploadBytes;
+	}
+
+	public long totalPackedBytes()
+	{
+		return totalPackedBytes;
+	}
+
+	public long totalUploadBytes()
+	{
+		return totalUploadBytes;
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains writers for laying out galu types in GPU buffers, following the GLSL block layout rules.
+ */
+package galu.layout;
@@ -1,5 +1,6 @@
 package galu.matrix;
 
+import galu.util.Checks;
 import galu.vector.Vector2;
 
 import java.nio.FloatBuffer;
@@ -150,6 +151,47 @@ public final class Matrix2 implements Matrix<Matrix2>
 		return new Vector2(x, y);
 	}
 
+	/**
+	 * Transform {@code count} packed 2-element vectors without allocating.
+	 * Vector {@code i} is read from {@code src[srcOffset + i*srcStride]} and written to {@code dst[dstOffset + i*dstStride]}.
+	 * Strides are in elements, not bytes. {@code src} and {@code dst} may be the same array if the layouts are the same.
+	 * @param src the vectors to transform
+	 * @param srcOffset the index of the first source vector
+	 * @param srcStride the distance between consecutive source vectors (at least 2)
+	 * @param dst where to write the transformed vectors
+	 * @param dstOffset the index of the first destination vector
+	 * @param dstStride the distance between consecutive destination vectors (at least 2)
+	 * @param count the number of vectors to transform
+	 */
+	public void transform(float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 2, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 2, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src[s], y = src[s + 1];
+			dst[d]     = m00 * x + m01 * y;
+			dst[d + 1] = m10 * x + m11 * y;
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 2-element vectors without allocating.
+	 * Offsets are absolute indices into the buffers, and neither buffer's position is changed.
+	 * @see #transform(float[], int, int, float[], int, int, int)
+	 */
+	public void transform(FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 2, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 2, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src.get(s), y = src.get(s + 1);
+			dst.put(d,     m00 * x + m01 * y);
+			dst.put(d + 1, m10 * x + m11 * y);
+		}
+	}
+
 	@Override
 	public void store(FloatBuffer buf, galu.matrix.Matrix.Order order)
 	{
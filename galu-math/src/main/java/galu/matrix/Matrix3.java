@@ -1,5 +1,6 @@
 package galu.matrix;
 
+import galu.util.Checks;
 import galu.vector.Vector3;
 
 import java.nio.FloatBuffer;
@@ -154,6 +155,135 @@ public final class Matrix3 implements Matrix<Matrix3>
 		return new Vector3(x, y, z);
 	}
 
+	/**
+	 * Transform {@code count} packed 3-element vectors without allocating.
+	 * Vector {@code i} is read from {@code src[srcOffset + i*srcStride]} and written to {@code dst[dstOffset + i*dstStride]}.
+	 * Strides are in elements, not bytes. {@code src} and {@code dst} may be the same array if the layouts are the same.
+	 * @param src the vectors to transform
+	 * @param srcOffset the index of the first source vector
+	 * @param srcStride the distance between consecutive source vectors (at least 3)
+	 * @param dst where to write the transformed vectors
+	 * @param dstOffset the index of the first destination vector
+	 * @param dstStride the distance between consecutive destination vectors (at least 3)
+	 * @param count the number of vectors to transform
+	 */
+	public void transform(float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 3, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src[s], y = src[s + 1], z = src[s + 2];
+			dst[d]     = m00 * x + m01 * y + m02 * z;
+			dst[d + 1] = m10 * x + m11 * y + m12 * z;
+			dst[d + 2] = m20 * x + m21 * y + m22 * z;
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 3-element vectors without allocating.
+	 * Offsets are absolute indices into the buffers, and neither buffer's position is changed.
+	 * @see #transform(float[], int, int, float[], int, int, int)
+	 */
+	public void transform(FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 3, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2);
+			dst.put(d,     m00 * x + m01 * y + m02 * z);
+			dst.put(d + 1, m10 * x + m11 * y + m12 * z);
+			dst.put(d + 2, m20 * x + m21 * y + m22 * z);
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 2-element points, treating this as a 2-D homogeneous transformation and each point
+	 * as {@code (x, y, 1)}.
+	 * If {@code perspectiveDivide} is set, the result is divided by its third component; otherwise that component is dropped.
+	 * @param perspectiveDivide whether to divide by the transformed third component
+	 * @see #transform(float[], int, int, float[], int, int, int)
+	 */
+	public void transformPoints(float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count, boolean perspectiveDivide)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 2, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 2, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src[s], y = src[s + 1];
+			float tx = m00 * x + m01 * y + m02;
+			float ty = m10 * x + m11 * y + m12;
+			if(perspectiveDivide)
+			{
+				float invW = 1f / (m20 * x + m21 * y + m22);
+				tx *= invW;
+				ty *= invW;
+			}
+			dst[d] = tx;
+			dst[d + 1] = ty;
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 2-element points, treating each as {@code (x, y, 1)}.
+	 * Offsets are absolute indices into the buffers, and neither buffer's position is changed.
+	 * @see #transformPoints(float[], int, int, float[], int, int, int, boolean)
+	 */
+	public void transformPoints(FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count, boolean perspectiveDivide)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 2, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 2, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src.get(s), y = src.get(s + 1);
+			float tx = m00 * x + m01 * y + m02;
+			float ty = m10 * x + m11 * y + m12;
+			if(perspectiveDivide)
+			{
+				float invW = 1f / (m20 * x + m21 * y + m22);
+				tx *= invW;
+				ty *= invW;
+			}
+			dst.put(d, tx);
+			dst.put(d + 1, ty);
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 2-element directions, treating this as a 2-D homogeneous transformation and each
+	 * direction as {@code (x, y, 0)}. Translation therefore has no effect.
+	 * @see #transform(float[], int, int, float[], int, int, int)
+	 */
+	public void transformDirections(float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 2, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 2, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src[s], y = src[s + 1];
+			dst[d]     = m00 * x + m01 * y;
+			dst[d + 1] = m10 * x + m11 * y;
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 2-element directions, treating each as {@code (x, y, 0)}.
+	 * Offsets are absolute indices into the buffers, and neither buffer's position is changed.
+	 * @see #transformDirections(float[], int, int, float[], int, int, int)
+	 */
+	public void transformDirections(FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 2, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 2, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src.get(s), y = src.get(s + 1);
+			dst.put(d,     m00 * x + m01 * y);
+			dst.put(d + 1, m10 * x + m11 * y);
+		}
+	}
+
 	@Override
 	public void store(FloatBuffer buf, Order order)
 	{
@@ -1,5 +1,6 @@
 package galu.matrix;
 
+import galu.util.Checks;
 import galu.vector.Vector4;
 
 import java.nio.FloatBuffer;
@@ -89,6 +90,70 @@ public final class Matrix4 implements Matrix<Matrix4>
 		);
 	}
 
+	/**
+	 * Invert an affine transformation, one whose bottom row is (0, 0, 0, 1), like those built by
+	 * {@link galu.transform.Transformations}. Only the upper-left 3x3 block has to be inverted, which is much cheaper than
+	 * {@link #inverse()}. The bottom row is assumed, not checked; for any other matrix the result is wrong.
+	 * @return the inverse of this matrix
+	 * @throws IllegalStateException if the matrix is singular
+	 */
+	public Matrix4 inverseAffine()
+	{
+		// Cofactors of the upper-left 3x3 block
+		float c00 = m11*m22 - m12*m21, c01 = m12*m20 - m10*m22, c02 = m10*m21 - m11*m20;
+		float det = m00*c00 + m01*c01 + m02*c02;
+		checkState(det != 0.0, "Matrix is not invertible: determinant is 0");
+		float factor = 1.0f / det;
+
+		float i00 = factor * c00, i01 = factor * (m02*m21 - m01*m22), i02 = factor * (m01*m12 - m02*m11);
+		float i10 = factor * c01, i11 = factor * (m00*m22 - m02*m20), i12 = factor * (m02*m10 - m00*m12);
+		float i20 = factor * c02, i21 = factor * (m01*m20 - m00*m21), i22 = factor * (m00*m11 - m01*m10);
+
+		return new Matrix4(
+			i00, i01, i02, -(i00*m03 + i01*m13 + i02*m23),
+			i10, i11, i12, -(i10*m03 + i11*m13 + i12*m23),
+			i20, i21, i22, -(i20*m03 + i21*m13 + i22*m23),
+			0,   0,   0,   1
+		);
+	}
+
+	/**
+	 * Invert a rigid-body transformation: a rotation followed by a translation, with no scaling or shearing. The inverse
+	 * of the rotation is just its transpose, so this needs no division at all. Neither the bottom row nor the
+	 * orthogonality of the rotation is checked; for any other matrix the result is wrong.
+	 * @return the inverse of this matrix
+	 */
+	public Matrix4 inverseRigid()
+	{
+		return new Matrix4(
+			m00, m10, m20, -(m00*m03 + m10*m13 + m20*m23),
+			m01, m11, m21, -(m01*m03 + m11*m13 + m21*m23),
+			m02, m12, m22, -(m02*m03 + m12*m13 + m22*m23),
+			0,   0,   0,   1
+		);
+	}
+
+	/**
+	 * Calculate the matrix for transforming normals: the inverse transpose of the upper-left 3x3 block. That's the
+	 * block's cofactor matrix divided by its determinant, so nothing needs to be transposed or inverted separately.
+	 * Translation doesn't affect normals, so it's ignored.
+	 * @return the normal matrix
+	 * @throws IllegalStateException if the upper-left 3x3 block is singular
+	 */
+	public Matrix3 normalMatrix()
+	{
+		float c00 = m11*m22 - m12*m21, c01 = m12*m20 - m10*m22, c02 = m10*m21 - m11*m20;
+		float det = m00*c00 + m01*c01 + m02*c02;
+		checkState(det != 0.0, "Matrix is not invertible: determinant is 0");
+		float factor = 1.0f / det;
+
+		return new Matrix3(
+			factor * c00,                   factor * c01,                   factor * c02,
+			factor * (m02*m21 - m01*m22),   factor * (m00*m22 - m02*m20),   factor * (m01*m20 - m00*m21),
+			factor * (m01*m12 - m02*m11),   factor * (m02*m10 - m00*m12),   factor * (m00*m11 - m01*m10)
+		);
+	}
+
 	@Override
 	public Matrix4 negate()
 	{
@@ -207,6 +272,145 @@ public final class Matrix4 implements Matrix<Matrix4>
 		return new Vector4(x, y, z, w);
 	}
 
+	/**
+	 * Transform {@code count} packed 4-element vectors without allocating.
+	 * Vector {@code i} is read from {@code src[srcOffset + i*srcStride]} and written to {@code dst[dstOffset + i*dstStride]}.
+	 * Strides are in elements, not bytes. {@code src} and {@code dst} may be the same array if the layouts are the same.
+	 * @param src the vectors to transform
+	 * @param srcOffset the index of the first source vector
+	 * @param srcStride the distance between consecutive source vectors (at least 4)
+	 * @param dst where to write the transformed vectors
+	 * @param dstOffset the index of the first destination vector
+	 * @param dstStride the distance between consecutive destination vectors (at least 4)
+	 * @param count the number of vectors to transform
+	 */
+	public void transform(float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 4, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 4, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src[s], y = src[s + 1], z = src[s + 2], w = src[s + 3];
+			dst[d]     = m00 * x + m01 * y + m02 * z + m03 * w;
+			dst[d + 1] = m10 * x + m11 * y + m12 * z + m13 * w;
+			dst[d + 2] = m20 * x + m21 * y + m22 * z + m23 * w;
+			dst[d + 3] = m30 * x + m31 * y + m32 * z + m33 * w;
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 4-element vectors without allocating.
+	 * Offsets are absolute indices into the buffers, and neither buffer's position is changed.
+	 * @see #transform(float[], int, int, float[], int, int, int)
+	 */
+	public void transform(FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 4, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 4, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2), w = src.get(s + 3);
+			dst.put(d,     m00 * x + m01 * y + m02 * z + m03 * w);
+			dst.put(d + 1, m10 * x + m11 * y + m12 * z + m13 * w);
+			dst.put(d + 2, m20 * x + m21 * y + m22 * z + m23 * w);
+			dst.put(d + 3, m30 * x + m31 * y + m32 * z + m33 * w);
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 3-element points, treating each as the homogeneous coordinate {@code (x, y, z, 1)}.
+	 * If {@code perspectiveDivide} is set, the result is divided by its {@code w} component (as for a projection matrix).
+	 * Otherwise {@code w} is dropped, which is correct for affine matrices.
+	 * @param perspectiveDivide whether to divide by the transformed {@code w}
+	 * @see #transform(float[], int, int, float[], int, int, int)
+	 */
+	public void transformPoints(float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count, boolean perspectiveDivide)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 3, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src[s], y = src[s + 1], z = src[s + 2];
+			float tx = m00 * x + m01 * y + m02 * z + m03;
+			float ty = m10 * x + m11 * y + m12 * z + m13;
+			float tz = m20 * x + m21 * y + m22 * z + m23;
+			if(perspectiveDivide)
+			{
+				float invW = 1f / (m30 * x + m31 * y + m32 * z + m33);
+				tx *= invW;
+				ty *= invW;
+				tz *= invW;
+			}
+			dst[d] = tx;
+			dst[d + 1] = ty;
+			dst[d + 2] = tz;
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 3-element points, treating each as the homogeneous coordinate {@code (x, y, z, 1)}.
+	 * Offsets are absolute indices into the buffers, and neither buffer's position is changed.
+	 * @see #transformPoints(float[], int, int, float[], int, int, int, boolean)
+	 */
+	public void transformPoints(FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count, boolean perspectiveDivide)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 3, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2);
+			float tx = m00 * x + m01 * y + m02 * z + m03;
+			float ty = m10 * x + m11 * y + m12 * z + m13;
+			float tz = m20 * x + m21 * y + m22 * z + m23;
+			if(perspectiveDivide)
+			{
+				float invW = 1f / (m30 * x + m31 * y + m32 * z + m33);
+				tx *= invW;
+				ty *= invW;
+				tz *= invW;
+			}
+			dst.put(d, tx);
+			dst.put(d + 1, ty);
+			dst.put(d + 2, tz);
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 3-element directions, treating each as the homogeneous coordinate {@code (x, y, z, 0)}.
+	 * Translation therefore has no effect.
+	 * @see #transform(float[], int, int, float[], int, int, int)
+	 */
+	public void transformDirections(float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 3, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src[s], y = src[s + 1], z = src[s + 2];
+			dst[d]     = m00 * x + m01 * y + m02 * z;
+			dst[d + 1] = m10 * x + m11 * y + m12 * z;
+			dst[d + 2] = m20 * x + m21 * y + m22 * z;
+		}
+	}
+
+	/**
+	 * Transform {@code count} packed 3-element directions, treating each as the homogeneous coordinate {@code (x, y, z, 0)}.
+	 * Offsets are absolute indices into the buffers, and neither buffer's position is changed.
+	 * @see #transformDirections(float[], int, int, float[], int, int, int)
+	 */
+	public void transformDirections(FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 3, count);
+		for(int i = 0, s = srcOffset, d = dstOffset; i < count; i++, s += srcStride, d += dstStride)
+		{
+			float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2);
+			dst.put(d,     m00 * x + m01 * y + m02 * z);
+			dst.put(d + 1, m10 * x + m11 * y + m12 * z);
+			dst.put(d + 2, m20 * x + m21 * y + m22 * z);
+		}
+	}
+
 	@Override
 	public void store(FloatBuffer buf, Order order)
 	{
@@ -216,7 +420,7 @@ public final class Matrix4 implements Matrix<Matrix4>
 			case ROW_MAJOR:
 				buf.put(m00).put(m01).put(m02).put(m03)
 				   .put(m10).put(m11).put(m12).put(m13)
-				   .put(m20).put(m21).put(m21).put(m23)
+				   .put(m20).put(m21).put(m22).put(m23)
 				   .put(m30).put(m31).put(m32).put(m33);
 				break;
 			case COLUMN_MAJOR:
@@ -0,0 +1,216 @@
+package galu.matrix;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * A fixed number of 4x4 matrices ("slots") stored off-heap, in a native-order direct buffer. Each matrix takes 16
+ * consecutive floats in the {@link Matrix.Order} chosen at construction, so the whole buffer can be handed to OpenGL
+ * (for example as a uniform or instance buffer) as-is, without copying or converting anything.
+ * <p>
+ * Slot arithmetic gives the same results as the matching {@link Matrix4} methods. Operations that combine slots read all
+ * of their inputs before writing, so the destination may be one of the operands. A {@code Matrix4Buffer} keeps scratch
+ * matrices for its arithmetic, so it must not be used from several threads at once.
+ */
+public final class Matrix4Buffer
+{
+	private final ByteBuffer bytes;
+	private final FloatBuffer floats;
+	private final int capacity;
+	private final Matrix.Order order;
+
+	private final MutableMatrix4 left = new MutableMatrix4();
+	private final MutableMatrix4 right = new MutableMatrix4();
+
+	/**
+	 * Create a buffer of identity matrices.
+	 * @param capacity the number of matrices
+	 * @param order how each matrix is laid out in memory
+	 */
+	public Matrix4Buffer(int capacity, Matrix.Order order)
+	{
+		checkArgument(capacity >= 0, "Capacity must not be negative: %s", capacity);
+		checkArgument(capacity <= Integer.MAX_VALUE / 64, "Capacity is too large: %s", capacity);
+		this.capacity = capacity;
+		this.order = checkNotNull(order, "order");
+		this.bytes = ByteBuffer.allocateDirect(capacity * 64).order(ByteOrder.nativeOrder());
+		this.floats = bytes.asFloatBuffer();
+		for(int i = 0; i < capacity; i++)
+		{
+			write(i, left);
+		}
+	}
+
+	public int capacity()
+	{
+		return capacity;
+	}
+
+	public Matrix.Order order()
+	{
+		return order;
+	}
+
+	/**
+	 * @return a view of the whole buffer, from the first element of slot 0 to the last element of the last slot. The
+	 * view shares its contents with this buffer but has its own position and limit.
+	 */
+	public FloatBuffer asFloatBuffer()
+	{
+		return floats.duplicate();
+	}
+
+	/**
+	 * @return a native-order view of the whole buffer as bytes, for APIs that take a {@code ByteBuffer}
+	 * @see #asFloatBuffer()
+	 */
+	public ByteBuffer asByteBuffer()
+	{
+		return bytes.duplicate().order(ByteOrder.nativeOrder());
+	}
+
+	public Matrix4 get(int index)
+	{
+		checkElementIndex(index, capacity);
+		return read(index, left).toImmutable();
+	}
+
+	/**
+	 * Copy a slot without allocating.
+	 * @return {@code dest}
+	 */
+	public MutableMatrix4 get(int index, MutableMatrix4 dest)
+	{
+		checkElementIndex(index, capacity);
+		return read(index, dest);
+	}
+
+	public void set(int index, Matrix4 matrix)
+	{
+		checkElementIndex(index, capacity);
+		write(index, left.set(matrix));
+	}
+
+	public void set(int index, MutableMatrix4 matrix)
+	{
+		checkElementIndex(index, capacity);
+		write(index, matrix);
+	}
+
+	/**
+	 * Multiply two slots: {@code this[dest] = this[a] * this[b]}.
+	 */
+	public void multiply(int a, int b, int dest)
+	{
+		checkElementIndex(a, capacity);
+		checkElementIndex(b, capacity);
+		checkElementIndex(dest, capacity);
+		write(dest, MutableMatrix4.multiplyInto(read(a, left), read(b, right), left));
+	}
+
+	/**
+	 * Multiply a slot in place: {@code this[index] = this[index] * matrix}.
+	 */
+	public void multiply(int index, Matrix4 matrix)
+	{
+		checkElementIndex(index, capacity);
+		write(index, MutableMatrix4.multiplyInto(read(index, left), right.set(matrix), left));
+	}
+
+	/**
+	 * Multiply a range of slots, in order, by a range of slots of another buffer:
+	 * {@code dest[destFrom + i] = this[from + i] * other[otherFrom + i]} for {@code i} from 0 to {@code count - 1}.
+	 * The buffers may have different orders, and either may be {@code dest}.
+	 */
+	public void multiply(int from, Matrix4Buffer other, int otherFrom, Matrix4Buffer dest, int destFrom, int count)
+	{
+		checkArgument(count >= 0, "Negative matrix count: %s", count);
+		checkPositionIndexes(from, from + count, capacity);
+		checkPositionIndexes(otherFrom, otherFrom + count, other.capacity);
+		checkPositionIndexes(destFrom, destFrom + count, dest.capacity);
+		for(int i = 0; i < count; i++)
+		{
+			read(from + i, left);
+			other.read(otherFrom + i, right);
+			dest.write(destFrom + i, MutableMatrix4.multiplyInto(left, right, left));
+		}
+	}
+
+	/**
+	 * Invert a slot in place.
+	 * @throws IllegalStateException if the matrix has no inverse
+	 * @see Matrix4#inverse()
+	 */
+	public void invert(int index)
+	{
+		checkElementIndex(index, capacity);
+		write(index, MutableMatrix4.inverseInto(read(index, left), left));
+	}
+
+	/**
+	 * Invert an affine transformation in place.
+	 * @throws IllegalStateException if the matrix has no inverse
+	 * @see Matrix4#inverseAffine()
+	 */
+	public void invertAffine(int index)
+	{
+		checkElementIndex(index, capacity);
+		write(index, MutableMatrix4.inverseAffineInto(read(index, left), left));
+	}
+
+	/**
+	 * Invert a rigid-body transformation in place.
+	 * @see Matrix4#inverseRigid()
+	 */
+	public void invertRigid(int index)
+	{
+		checkElementIndex(index, capacity);
+		write(index, MutableMatrix4.inverseRigidInto(read(index, left), left));
+	}
+
+	private MutableMatrix4 read(int index, MutableMatrix4 dest)
+	{
+		FloatBuffer f = floats;
+		int i = index * 16;
+		if(order == Matrix.Order.ROW_MAJOR)
+		{
+			return dest.set(f.get(i),      f.get(i + 1),  f.get(i + 2),  f.get(i + 3),
+			                f.get(i + 4),  f.get(i + 5),  f.get(i + 6),  f.get(i + 7),
+			                f.get(i + 8),  f.get(i + 9),  f.get(i + 10), f.get(i + 11),
+			                f.get(i + 12), f.get(i + 13), f.get(i + 14), f.get(i + 15));
+		}
+		else
+		{
+			return dest.set(f.get(i),     f.get(i + 4), f.get(i + 8),  f.get(i + 12),
+			                f.get(i + 1), f.get(i + 5), f.get(i + 9),  f.get(i + 13),
+			                f.get(i + 2), f.get(i + 6), f.get(i + 10), f.get(i + 14),
+			                f.get(i + 3), f.get(i + 7), f.get(i + 11), f.get(i + 15));
+		}
+	}
+
+	private void write(int index, MutableMatrix4 m)
+	{
+		FloatBuffer f = floats;
+		int i = index * 16;
+		if(order == Matrix.Order.ROW_MAJOR)
+		{
+			f.put(i, m.m00).put(i + 1, m.m01).put(i + 2, m.m02).put(i + 3, m.m03)
+			 .put(i + 4, m.m10).put(i + 5, m.m11).put(i + 6, m.m12).put(i + 7, m.m13)
+			 .put(i + 8, m.m20).put(i + 9, m.m21).put(i + 10, m.m22).put(i + 11, m.m23)
+			 .put(i + 12, m.m30).put(i + 13, m.m31).put(i + 14, m.m32).put(i + 15, m.m33);
+		}
+		else
+		{
+			f.put(i, m.m00).put(i + 1, m.m10).put(i + 2, m.m20).put(i + 3, m.m30)
+			 .put(i + 4, m.m01).put(i + 5, m.m11).put(i + 6, m.m21).put(i + 7, m.m31)
+			 .put(i + 8, m.m02).put(i + 9, m.m12).put(i + 10, m.m22).put(i + 11, m.m32)
+			 .put(i + 12, m.m03).put(i + 13, m.m13).put(i + 14, m.m23).put(i + 15, m.m33);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package galu.matrix;
+
+/**
+ * Bulk 4x4 matrix arithmetic over packed {@code float[]}s.
+ * Matrices are stored as 16 consecutive floats in row-major order (as written by
+ * {@link Matrix4#store(float[], Matrix.Order)} with {@link Matrix.Order#ROW_MAJOR}), and vectors as 4 consecutive floats.
+ * <p>
+ * Use {@link Matrix4Kernels#get()} to get the fastest implementation available at runtime. All implementations give
+ * the same results as {@link Matrix4#multiply(Matrix4)} and {@link Matrix4#transform(galu.vector.Vector4)}, bit for bit.
+ * The destination may overlap a source only if it starts at exactly the same offset.
+ */
+public interface Matrix4Kernel
+{
+	/**
+	 * Multiply {@code count} pairs of matrices: {@code dst[i] = a[i] * b[i]}.
+	 * Matrix {@code i} of each array starts at {@code offset + 16*i}.
+	 */
+	public void multiply(float[] a, int aOffset, float[] b, int bOffset, float[] dst, int dstOffset, int count);
+
+	/**
+	 * Transform {@code count} packed 4-element vectors by a single matrix.
+	 * Vector {@code i} of each array starts at {@code offset + 4*i}.
+	 */
+	public void transform(float[] matrix, int matrixOffset, float[] src, int srcOffset, float[] dst, int dstOffset, int count);
+}
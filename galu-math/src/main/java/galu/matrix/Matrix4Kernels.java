@@ -0,0 +1,111 @@
+package galu.matrix;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Chooses a {@link Matrix4Kernel} at runtime.
+ * <p>
+ * Accelerated kernels (such as the SIMD kernel in {@code galu-simd}) register themselves as {@link ServiceLoader} providers.
+ * The first provider that can actually be loaded is used; a provider whose dependencies are missing (for example, when
+ * the JVM wasn't started with {@code --add-modules jdk.incubator.vector}) is skipped. If there are no usable providers,
+ * or the {@code galu.matrix.kernel} system property is set to {@code scalar}, the portable scalar kernel is used.
+ */
+public final class Matrix4Kernels
+{
+	/**
+	 * System property that can be set to {@code scalar} to disable accelerated kernels.
+	 */
+	public static final String KERNEL_PROPERTY = "galu.matrix.kernel";
+
+	private Matrix4Kernels() {}
+
+	/**
+	 * @return the fastest kernel available on this JVM
+	 */
+	public static Matrix4Kernel get()
+	{
+		return Holder.BEST;
+	}
+
+	/**
+	 * @return the portable scalar kernel
+	 */
+	public static Matrix4Kernel scalar()
+	{
+		return ScalarMatrix4Kernel.INSTANCE;
+	}
+
+	/**
+	 * @return whether {@link #get()} returns something other than the scalar kernel
+	 */
+	public static boolean isAccelerated()
+	{
+		return get() != scalar();
+	}
+
+	private static Matrix4Kernel load()
+	{
+		if("scalar".equals(System.getProperty(KERNEL_PROPERTY)))
+		{
+			return scalar();
+		}
+
+		Iterator<Matrix4Kernel> providers = ServiceLoader.load(Matrix4Kernel.class, Matrix4Kernels.class.getClassLoader()).iterator();
+		while(true)
+		{
+			try
+			{
+				if(!providers.hasNext())
+				{
+					return scalar();
+				}
+				Matrix4Kernel kernel = providers.next();
+				if(agreesWithScalar(kernel))
+				{
+					return kernel;
+				}
+			}
+			catch(ServiceConfigurationError | LinkageError e)
+			{
+				// The provider couldn't be loaded on this JVM, so try the next one
+			}
+		}
+	}
+
+	/**
+	 * Some classes are only linked when first used, so a provider that loaded fine can still fail on its first call.
+	 * Run it once on a small input and make sure it gives the same answer as the scalar kernel.
+	 */
+	private static boolean agreesWithScalar(Matrix4Kernel kernel)
+	{
+		float[] a = new float[16];
+		float[] b = new float[16];
+		for(int i = 0; i < 16; i++)
+		{
+			a[i] = i + 1;
+			b[i] = 0.5f * (16 - i);
+		}
+
+		float[] expected = new float[16];
+		float[] actual = new float[16];
+		scalar().multiply(a, 0, b, 0, expected, 0, 1);
+		kernel.multiply(a, 0, b, 0, actual, 0, 1);
+		if(!Arrays.equals(expected, actual))
+		{
+			return false;
+		}
+
+		scalar().transform(a, 0, b, 0, expected, 0, 4);
+		kernel.transform(a, 0, b, 0, actual, 0, 4);
+		return Arrays.equals(expected, actual);
+	}
+
+	// Initialization-on-demand holder, so the providers are only looked up once and only when needed
+	private static final class Holder
+	{
+		static final Matrix4Kernel BEST = load();
+	}
+}
@@ -0,0 +1,229 @@
+package galu.matrix;
+
+import galu.vector.MutableVector2;
+
+import java.nio.FloatBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A mutable 2x2 matrix, for hot loops that can't afford to allocate a {@link Matrix2} per operation.
+ * Operations are static {@code *Into} methods that write their result into a destination and return it.
+ * Every operation reads all of its inputs before writing, so the destination may be one of the operands.
+ * Mutable matrices use identity equality; convert to a {@link Matrix2} with {@link #toImmutable()} to compare values.
+ */
+public final class MutableMatrix2
+{
+	public float m00, m01,
+	             m10, m11;
+
+	/**
+	 * Create a new matrix, initialized to the identity matrix.
+	 */
+	public MutableMatrix2()
+	{
+		setIdentity();
+	}
+
+	public MutableMatrix2(Matrix2 mat)
+	{
+		set(mat);
+	}
+
+	public MutableMatrix2 set(float m00, float m01, float m10, float m11)
+	{
+		this.m00 = m00;
+		this.m01 = m01;
+		this.m10 = m10;
+		this.m11 = m11;
+		return this;
+	}
+
+	public MutableMatrix2 set(Matrix2 mat)
+	{
+		return set(mat.m00, mat.m01,
+		           mat.m10, mat.m11);
+	}
+
+	public MutableMatrix2 set(MutableMatrix2 mat)
+	{
+		return set(mat.m00, mat.m01,
+		           mat.m10, mat.m11);
+	}
+
+	public MutableMatrix2 setIdentity()
+	{
+		return set(1, 0,
+		           0, 1);
+	}
+
+	public Matrix2 toImmutable()
+	{
+		return new Matrix2(m00, m01, m10, m11);
+	}
+
+	public float determinant()
+	{
+		return m00 * m11 - m01 * m10;
+	}
+
+	public static MutableMatrix2 addInto(MutableMatrix2 a, MutableMatrix2 b, MutableMatrix2 dest)
+	{
+		return dest.set(
+			a.m00 + b.m00, a.m01 + b.m01,
+		    a.m10 + b.m10, a.m11 + b.m11
+		);
+	}
+
+	public static MutableMatrix2 subtractInto(MutableMatrix2 a, MutableMatrix2 b, MutableMatrix2 dest)
+	{
+		return dest.set(
+			a.m00 - b.m00, a.m01 - b.m01,
+		    a.m10 - b.m10, a.m11 - b.m11
+		);
+	}
+
+	public static MutableMatrix2 multiplyInto(MutableMatrix2 a, MutableMatrix2 b, MutableMatrix2 dest)
+	{
+		// All of the arguments are evaluated before set() writes anything, so dest may be a or b
+		return dest.set(
+			a.m00*b.m00 + a.m01*b.m10, a.m00*b.m01 + a.m01*b.m11,
+		    a.m10*b.m00 + a.m11*b.m10, a.m10*b.m01 + a.m11*b.m11
+		);
+	}
+
+	public static MutableMatrix2 multiplyInto(MutableMatrix2 a, float scalar, MutableMatrix2 dest)
+	{
+		return dest.set(
+			scalar*a.m00, scalar*a.m01,
+		    scalar*a.m10, scalar*a.m11
+		);
+	}
+
+	public static MutableMatrix2 negateInto(MutableMatrix2 a, MutableMatrix2 dest)
+	{
+		return dest.set(
+			-a.m00, -a.m01,
+		    -a.m10, -a.m11
+		);
+	}
+
+	public static MutableMatrix2 transposeInto(MutableMatrix2 a, MutableMatrix2 dest)
+	{
+		return dest.set(
+			a.m00, a.m10,
+		    a.m01, a.m11
+		);
+	}
+
+	// Same expansion as Matrix2.inverse()
+	public static MutableMatrix2 inverseInto(MutableMatrix2 a, MutableMatrix2 dest)
+	{
+		float det = a.determinant();
+		checkState(det != 0.0, "Matrix is not invertible: determinant is 0");
+		float factor = 1.0f / det;
+		float m00 = a.m00, m01 = a.m01,
+		      m10 = a.m10, m11 = a.m11;
+		return dest.set(
+			 m11 * factor, -m01 * factor,
+			-m10 * factor,  m00 * factor
+		);
+	}
+
+	public static MutableVector2 transformInto(MutableMatrix2 m, MutableVector2 vec, MutableVector2 dest)
+	{
+		return dest.set(
+			m.m00 * vec.x + m.m01 * vec.y,
+			m.m10 * vec.x + m.m11 * vec.y
+		);
+	}
+
+	public void store(FloatBuffer buf, Matrix.Order order)
+	{
+		checkArgument(buf.remaining() >= 4, "Buffer has fewer than 4 elements remaining (%s)", buf);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				buf.put(m00).put(m01)
+				   .put(m10).put(m11);
+				break;
+			case COLUMN_MAJOR:
+				buf.put(m00).put(m10)
+				   .put(m01).put(m11);
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	public void store(float[] array, Matrix.Order order)
+	{
+		checkArgument(array.length >= 4, "Array has fewer than 4 elements (%s)", array.length);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				array[0] = m00;
+				array[1] = m01;
+				array[2] = m10;
+				array[3] = m11;
+				break;
+			case COLUMN_MAJOR:
+				array[0] = m00;
+				array[1] = m10;
+				array[2] = m01;
+				array[3] = m11;
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	public MutableMatrix2 load(FloatBuffer buf, Matrix.Order order)
+	{
+		checkArgument(buf.remaining() >= 4, "Buffer has fewer than 4 elements remaining (%s)", buf);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				return set(
+				    buf.get(), buf.get(),
+				    buf.get(), buf.get()
+				);
+			case COLUMN_MAJOR:
+				set(
+				    buf.get(), buf.get(),
+				    buf.get(), buf.get()
+				);
+				return transposeInto(this, this);
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	public MutableMatrix2 load(float[] array, Matrix.Order order)
+	{
+		checkArgument(array.length >= 4, "Array has fewer than 4 elements (%s)", array.length);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				return set(
+				    array[0], array[1],
+				    array[2], array[3]
+				);
+			case COLUMN_MAJOR:
+				return set(
+				    array[0], array[2],
+				    array[1], array[3]
+				);
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("[%.4f %.4f\n%.4f %.4f]",
+		                     m00, m01, m10, m11);
+	}
+}
@@ -0,0 +1,271 @@
+package galu.matrix;
+
+import galu.vector.MutableVector3;
+
+import java.nio.FloatBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A mutable 3x3 matrix, for hot loops that can't afford to allocate a {@link Matrix3} per operation.
+ * Operations are static {@code *Into} methods that write their result into a destination and return it.
+ * Every operation reads all of its inputs before writing, so the destination may be one of the operands.
+ * Mutable matrices use identity equality; convert to a {@link Matrix3} with {@link #toImmutable()} to compare values.
+ */
+public final class MutableMatrix3
+{
+	public float m00, m01, m02,
+	             m10, m11, m12,
+	             m20, m21, m22;
+
+	/**
+	 * Create a new matrix, initialized to the identity matrix.
+	 */
+	public MutableMatrix3()
+	{
+		setIdentity();
+	}
+
+	public MutableMatrix3(Matrix3 mat)
+	{
+		set(mat);
+	}
+
+	public MutableMatrix3 set(float m00, float m01, float m02, float m10, float m11, float m12, float m20, float m21, float m22)
+	{
+		this.m00 = m00;
+		this.m01 = m01;
+		this.m02 = m02;
+		this.m10 = m10;
+		this.m11 = m11;
+		this.m12 = m12;
+		this.m20 = m20;
+		this.m21 = m21;
+		this.m22 = m22;
+		return this;
+	}
+
+	public MutableMatrix3 set(Matrix3 mat)
+	{
+		return set(mat.m00, mat.m01, mat.m02,
+		           mat.m10, mat.m11, mat.m12,
+		           mat.m20, mat.m21, mat.m22);
+	}
+
+	public MutableMatrix3 set(MutableMatrix3 mat)
+	{
+		return set(mat.m00, mat.m01, mat.m02,
+		           mat.m10, mat.m11, mat.m12,
+		           mat.m20, mat.m21, mat.m22);
+	}
+
+	public MutableMatrix3 setIdentity()
+	{
+		return set(1, 0, 0,
+		           0, 1, 0,
+		           0, 0, 1);
+	}
+
+	public Matrix3 toImmutable()
+	{
+		return new Matrix3(m00, m01, m02, m10, m11, m12, m20, m21, m22);
+	}
+
+	public float determinant()
+	{
+		return m00 * (m11 * m22 - m12 * m21)
+		     - m01 * (m10 * m22 - m12 * m20)
+		     + m02 * (m10 * m21 - m11 * m20);
+	}
+
+	public static MutableMatrix3 addInto(MutableMatrix3 a, MutableMatrix3 b, MutableMatrix3 dest)
+	{
+		return dest.set(
+			a.m00 + b.m00, a.m01 + b.m01, a.m02 + b.m02,
+		    a.m10 + b.m10, a.m11 + b.m11, a.m12 + b.m12,
+		    a.m20 + b.m20, a.m21 + b.m21, a.m22 + b.m22
+		);
+	}
+
+	public static MutableMatrix3 subtractInto(MutableMatrix3 a, MutableMatrix3 b, MutableMatrix3 dest)
+	{
+		return dest.set(
+			a.m00 - b.m00, a.m01 - b.m01, a.m02 - b.m02,
+		    a.m10 - b.m10, a.m11 - b.m11, a.m12 - b.m12,
+		    a.m20 - b.m20, a.m21 - b.m21, a.m22 - b.m22
+		);
+	}
+
+	public static MutableMatrix3 multiplyInto(MutableMatrix3 a, MutableMatrix3 b, MutableMatrix3 dest)
+	{
+		// All of the arguments are evaluated before set() writes anything, so dest may be a or b
+		return dest.set(
+			a.m00*b.m00 + a.m01*b.m10 + a.m02*b.m20, a.m00*b.m01 + a.m01*b.m11 + a.m02*b.m21, a.m00*b.m02 + a.m01*b.m12 + a.m02*b.m22,
+		    a.m10*b.m00 + a.m11*b.m10 + a.m12*b.m20, a.m10*b.m01 + a.m11*b.m11 + a.m12*b.m21, a.m10*b.m02 + a.m11*b.m12 + a.m12*b.m22,
+		    a.m20*b.m00 + a.m21*b.m10 + a.m22*b.m20, a.m20*b.m01 + a.m21*b.m11 + a.m22*b.m21, a.m20*b.m02 + a.m21*b.m12 + a.m22*b.m22
+		);
+	}
+
+	public static MutableMatrix3 multiplyInto(MutableMatrix3 a, float scalar, MutableMatrix3 dest)
+	{
+		return dest.set(
+			scalar*a.m00, scalar*a.m01, scalar*a.m02,
+		    scalar*a.m10, scalar*a.m11, scalar*a.m12,
+		    scalar*a.m20, scalar*a.m21, scalar*a.m22
+		);
+	}
+
+	public static MutableMatrix3 negateInto(MutableMatrix3 a, MutableMatrix3 dest)
+	{
+		return dest.set(
+			-a.m00, -a.m01, -a.m02,
+		    -a.m10, -a.m11, -a.m12,
+		    -a.m20, -a.m21, -a.m22
+		);
+	}
+
+	public static MutableMatrix3 transposeInto(MutableMatrix3 a, MutableMatrix3 dest)
+	{
+		return dest.set(
+			a.m00, a.m10, a.m20,
+		    a.m01, a.m11, a.m21,
+		    a.m02, a.m12, a.m22
+		);
+	}
+
+	// Same expansion as Matrix3.inverse()
+	public static MutableMatrix3 inverseInto(MutableMatrix3 a, MutableMatrix3 dest)
+	{
+		float det = a.determinant();
+		checkState(det != 0.0, "Matrix is not invertible: determinant is 0");
+		float factor = 1.0f / det;
+		float m00 = a.m00, m01 = a.m01, m02 = a.m02,
+		      m10 = a.m10, m11 = a.m11, m12 = a.m12,
+		      m20 = a.m20, m21 = a.m21, m22 = a.m22;
+		return dest.set(
+			 factor * (m11 * m22 - m12 * m21),
+		    -factor * (m01 * m22 - m21 * m02),
+		     factor * (m01 * m12 - m11 * m02),
+		    -factor * (m10 * m22 - m20 * m12),
+		     factor * (m00 * m22 - m20 * m02),
+		    -factor * (m00 * m12 - m10 * m02),
+		     factor * (m10 * m21 - m20 * m11),
+		    -factor * (m00 * m21 - m20 * m01),
+		     factor * (m00 * m11 - m10 * m01)
+		);
+	}
+
+	public static MutableVector3 transformInto(MutableMatrix3 m, MutableVector3 vec, MutableVector3 dest)
+	{
+		return dest.set(
+			m.m00 * vec.x + m.m01 * vec.y + m.m02 * vec.z,
+			m.m10 * vec.x + m.m11 * vec.y + m.m12 * vec.z,
+			m.m20 * vec.x + m.m21 * vec.y + m.m22 * vec.z
+		);
+	}
+
+	public void store(FloatBuffer buf, Matrix.Order order)
+	{
+		checkArgument(buf.remaining() >= 9, "Buffer has fewer than 9 elements remaining (%s)", buf);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				buf.put(m00).put(m01).put(m02)
+				   .put(m10).put(m11).put(m12)
+				   .put(m20).put(m21).put(m22);
+				break;
+			case COLUMN_MAJOR:
+				buf.put(m00).put(m10).put(m20)
+				   .put(m01).put(m11).put(m21)
+				   .put(m02).put(m12).put(m22);
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	public void store(float[] array, Matrix.Order order)
+	{
+		checkArgument(array.length >= 9, "Array has fewer than 9 elements (%s)", array.length);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				array[0] = m00;
+				array[1] = m01;
+				array[2] = m02;
+				array[3] = m10;
+				array[4] = m11;
+				array[5] = m12;
+				array[6] = m20;
+				array[7] = m21;
+				array[8] = m22;
+				break;
+			case COLUMN_MAJOR:
+				array[0] = m00;
+				array[1] = m10;
+				array[2] = m20;
+				array[3] = m01;
+				array[4] = m11;
+				array[5] = m21;
+				array[6] = m02;
+				array[7] = m12;
+				array[8] = m22;
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	public MutableMatrix3 load(FloatBuffer buf, Matrix.Order order)
+	{
+		checkArgument(buf.remaining() >= 9, "Buffer has fewer than 9 elements remaining (%s)", buf);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				return set(
+				    buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get()
+				);
+			case COLUMN_MAJOR:
+				set(
+				    buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get()
+				);
+				return transposeInto(this, this);
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	public MutableMatrix3 load(float[] array, Matrix.Order order)
+	{
+		checkArgument(array.length >= 9, "Array has fewer than 9 elements (%s)", array.length);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				return set(
+				    array[0], array[1], array[2],
+				    array[3], array[4], array[5],
+				    array[6], array[7], array[8]
+				);
+			case COLUMN_MAJOR:
+				return set(
+				    array[0], array[3], array[6],
+				    array[1], array[4], array[7],
+				    array[2], array[5], array[8]
+				);
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("[%.4f %.4f %.4f\n%.4f %.4f %.4f\n%.4f %.4f %.4f]",
+		                     m00, m01, m02, m10, m11, m12, m20, m21, m22);
+	}
+}
@@ -0,0 +1,394 @@
+package galu.matrix;
+
+import galu.vector.MutableVector4;
+
+import java.nio.FloatBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A mutable 4x4 matrix, for hot loops that can't afford to allocate a {@link Matrix4} per operation.
+ * Operations are static {@code *Into} methods that write their result into a destination and return it.
+ * Every operation reads all of its inputs before writing, so the destination may be one of the operands.
+ * Mutable matrices use identity equality; convert to a {@link Matrix4} with {@link #toImmutable()} to compare values.
+ */
+public final class MutableMatrix4
+{
+	public float m00, m01, m02, m03,
+	             m10, m11, m12, m13,
+	             m20, m21, m22, m23,
+	             m30, m31, m32, m33;
+
+	/**
+	 * Create a new matrix, initialized to the identity matrix.
+	 */
+	public MutableMatrix4()
+	{
+		setIdentity();
+	}
+
+	public MutableMatrix4(Matrix4 mat)
+	{
+		set(mat);
+	}
+
+	public MutableMatrix4 set(float m00, float m01, float m02, float m03, float m10, float m11, float m12, float m13, float m20, float m21, float m22, float m23, float m30, float m31, float m32, float m33)
+	{
+		this.m00 = m00;
+		this.m01 = m01;
+		this.m02 = m02;
+		this.m03 = m03;
+		this.m10 = m10;
+		this.m11 = m11;
+		this.m12 = m12;
+		this.m13 = m13;
+		this.m20 = m20;
+		this.m21 = m21;
+		this.m22 = m22;
+		this.m23 = m23;
+		this.m30 = m30;
+		this.m31 = m31;
+		this.m32 = m32;
+		this.m33 = m33;
+		return this;
+	}
+
+	public MutableMatrix4 set(Matrix4 mat)
+	{
+		return set(mat.m00, mat.m01, mat.m02, mat.m03,
+		           mat.m10, mat.m11, mat.m12, mat.m13,
+		           mat.m20, mat.m21, mat.m22, mat.m23,
+		           mat.m30, mat.m31, mat.m32, mat.m33);
+	}
+
+	public MutableMatrix4 set(MutableMatrix4 mat)
+	{
+		return set(mat.m00, mat.m01, mat.m02, mat.m03,
+		           mat.m10, mat.m11, mat.m12, mat.m13,
+		           mat.m20, mat.m21, mat.m22, mat.m23,
+		           mat.m30, mat.m31, mat.m32, mat.m33);
+	}
+
+	public MutableMatrix4 setIdentity()
+	{
+		return set(1, 0, 0, 0,
+		           0, 1, 0, 0,
+		           0, 0, 1, 0,
+		           0, 0, 0, 1);
+	}
+
+	public Matrix4 toImmutable()
+	{
+		return new Matrix4(m00, m01, m02, m03, m10, m11, m12, m13, m20, m21, m22, m23, m30, m31, m32, m33);
+	}
+
+	public float determinant()
+	{
+		return m00*(m11*(m22*m33-m32*m23) - m12*(m21*m33-m31*m23) + m13*(m21*m32-m31*m22))
+		     - m01*(m10*(m22*m33-m32*m23) - m12*(m20*m33-m30*m23) + m13*(m20*m32-m30*m22))
+		     + m02*(m10*(m21*m33-m31*m23) - m11*(m20*m33-m30*m23) + m13*(m20*m31-m30*m21))
+		     - m03*(m10*(m21*m32-m22*m31) - m11*(m20*m32-m30*m22) + m12*(m20*m31-m30*m21));
+	}
+
+	public static MutableMatrix4 addInto(MutableMatrix4 a, MutableMatrix4 b, MutableMatrix4 dest)
+	{
+		return dest.set(
+			a.m00 + b.m00, a.m01 + b.m01, a.m02 + b.m02, a.m03 + b.m03,
+		    a.m10 + b.m10, a.m11 + b.m11, a.m12 + b.m12, a.m13 + b.m13,
+		    a.m20 + b.m20, a.m21 + b.m21, a.m22 + b.m22, a.m23 + b.m23,
+		    a.m30 + b.m30, a.m31 + b.m31, a.m32 + b.m32, a.m33 + b.m33
+		);
+	}
+
+	public static MutableMatrix4 subtractInto(MutableMatrix4 a, MutableMatrix4 b, MutableMatrix4 dest)
+	{
+		return dest.set(
+			a.m00 - b.m00, a.m01 - b.m01, a.m02 - b.m02, a.m03 - b.m03,
+		    a.m10 - b.m10, a.m11 - b.m11, a.m12 - b.m12, a.m13 - b.m13,
+		    a.m20 - b.m20, a.m21 - b.m21, a.m22 - b.m22, a.m23 - b.m23,
+		    a.m30 - b.m30, a.m31 - b.m31, a.m32 - b.m32, a.m33 - b.m33
+		);
+	}
+
+	public static MutableMatrix4 multiplyInto(MutableMatrix4 a, MutableMatrix4 b, MutableMatrix4 dest)
+	{
+		// All of the arguments are evaluated before set() writes anything, so dest may be a or b
+		return dest.set(
+			a.m00*b.m00 + a.m01*b.m10 + a.m02*b.m20 + a.m03*b.m30,
+		    a.m00*b.m01 + a.m01*b.m11 + a.m02*b.m21 + a.m03*b.m31,
+		    a.m00*b.m02 + a.m01*b.m12 + a.m02*b.m22 + a.m03*b.m32,
+		    a.m00*b.m03 + a.m01*b.m13 + a.m02*b.m23 + a.m03*b.m33,
+
+		    a.m10*b.m00 + a.m11*b.m10 + a.m12*b.m20 + a.m13*b.m30,
+		    a.m10*b.m01 + a.m11*b.m11 + a.m12*b.m21 + a.m13*b.m31,
+		    a.m10*b.m02 + a.m11*b.m12 + a.m12*b.m22 + a.m13*b.m32,
+		    a.m10*b.m03 + a.m11*b.m13 + a.m12*b.m23 + a.m13*b.m33,
+
+		    a.m20*b.m00 + a.m21*b.m10 + a.m22*b.m20 + a.m23*b.m30,
+		    a.m20*b.m01 + a.m21*b.m11 + a.m22*b.m21 + a.m23*b.m31,
+		    a.m20*b.m02 + a.m21*b.m12 + a.m22*b.m22 + a.m23*b.m32,
+		    a.m20*b.m03 + a.m21*b.m13 + a.m22*b.m23 + a.m23*b.m33,
+
+		    a.m30*b.m00 + a.m31*b.m10 + a.m32*b.m20 + a.m33*b.m30,
+		    a.m30*b.m01 + a.m31*b.m11 + a.m32*b.m21 + a.m33*b.m31,
+		    a.m30*b.m02 + a.m31*b.m12 + a.m32*b.m22 + a.m33*b.m32,
+		    a.m30*b.m03 + a.m31*b.m13 + a.m32*b.m23 + a.m33*b.m33
+		);
+	}
+
+	public static MutableMatrix4 multiplyInto(MutableMatrix4 a, float scalar, MutableMatrix4 dest)
+	{
+		return dest.set(
+			scalar*a.m00, scalar*a.m01, scalar*a.m02, scalar*a.m03,
+		    scalar*a.m10, scalar*a.m11, scalar*a.m12, scalar*a.m13,
+		    scalar*a.m20, scalar*a.m21, scalar*a.m22, scalar*a.m23,
+		    scalar*a.m30, scalar*a.m31, scalar*a.m32, scalar*a.m33
+		);
+	}
+
+	public static MutableMatrix4 negateInto(MutableMatrix4 a, MutableMatrix4 dest)
+	{
+		return dest.set(
+		    -a.m00, -a.m01, -a.m02, -a.m03,
+		    -a.m10, -a.m11, -a.m12, -a.m13,
+		    -a.m20, -a.m21, -a.m22, -a.m23,
+		    -a.m30, -a.m31, -a.m32, -a.m33
+		);
+	}
+
+	public static MutableMatrix4 transposeInto(MutableMatrix4 a, MutableMatrix4 dest)
+	{
+		return dest.set(
+		    a.m00, a.m10, a.m20, a.m30,
+		    a.m01, a.m11, a.m21, a.m31,
+		    a.m02, a.m12, a.m22, a.m32,
+		    a.m03, a.m13, a.m23, a.m33
+		);
+	}
+
+	// Same cofactor expansion as Matrix4.inverse()
+	public static MutableMatrix4 inverseInto(MutableMatrix4 a, MutableMatrix4 dest)
+	{
+		float det = a.determinant();
+		checkState(det != 0.0, "Matrix is not invertible: determinant is 0");
+		float factor = 1.0f / det;
+		float m00 = a.m00, m01 = a.m01, m02 = a.m02, m03 = a.m03,
+		      m10 = a.m10, m11 = a.m11, m12 = a.m12, m13 = a.m13,
+		      m20 = a.m20, m21 = a.m21, m22 = a.m22, m23 = a.m23,
+		      m30 = a.m30, m31 = a.m31, m32 = a.m32, m33 = a.m33;
+		return dest.set(
+			factor * (m11*m22*m33 + m12*m23*m31 + m13*m21*m32 - m11*m23*m32 - m12*m21*m33 - m13*m22*m31),
+		    factor * (m01*m23*m32 + m02*m21*m33 + m03*m22*m31 - m01*m22*m33 - m02*m23*m31 - m03*m21*m32),
+		    factor * (m01*m12*m33 + m02*m13*m31 + m03*m11*m32 - m01*m13*m32 - m02*m11*m33 - m03*m12*m31),
+		    factor * (m01*m13*m22 + m02*m11*m23 + m03*m12*m21 - m01*m12*m23 - m02*m13*m21 - m03*m11*m22),
+		    factor * (m10*m23*m32 + m12*m20*m33 + m13*m22*m30 - m10*m22*m33 - m12*m23*m30 - m13*m20*m32),
+		    factor * (m00*m22*m33 + m02*m23*m30 + m03*m20*m32 - m00*m23*m32 - m02*m20*m33 - m03*m22*m30),
+		    factor * (m00*m13*m32 + m02*m10*m33 + m03*m12*m30 - m00*m12*m33 - m02*m13*m30 - m03*m10*m32),
+		    factor * (m00*m12*m23 + m02*m13*m20 + m03*m10*m22 - m00*m13*m22 - m02*m10*m23 - m03*m12*m20),
+		    factor * (m10*m21*m33 + m11*m23*m30 + m13*m20*m31 - m10*m23*m31 - m11*m20*m33 - m13*m21*m30),
+		    factor * (m00*m23*m31 + m01*m20*m33 + m03*m21*m30 - m00*m21*m33 - m01*m23*m30 - m03*m20*m31),
+		    factor * (m00*m11*m33 + m01*m13*m30 + m03*m10*m31 - m00*m13*m31 - m01*m10*m33 - m03*m11*m30),
+		    factor * (m00*m13*m21 + m01*m10*m23 + m03*m11*m20 - m00*m11*m23 - m01*m13*m20 - m03*m10*m21),
+		    factor * (m10*m22*m31 + m11*m20*m32 + m12*m21*m30 - m10*m21*m32 - m11*m22*m30 - m12*m20*m31),
+		    factor * (m00*m21*m32 + m01*m22*m30 + m02*m20*m31 - m00*m22*m31 - m01*m20*m32 - m02*m21*m30),
+		    factor * (m00*m12*m31 + m01*m10*m32 + m02*m11*m30 - m00*m11*m32 - m01*m12*m30 - m02*m10*m31),
+		    factor * (m00*m11*m22 + m01*m12*m20 + m02*m10*m21 - m00*m12*m21 - m01*m10*m22 - m02*m11*m20)
+		);
+	}
+
+	/**
+	 * @see Matrix4#inverseAffine()
+	 */
+	public static MutableMatrix4 inverseAffineInto(MutableMatrix4 a, MutableMatrix4 dest)
+	{
+		float m00 = a.m00, m01 = a.m01, m02 = a.m02, m03 = a.m03,
+		      m10 = a.m10, m11 = a.m11, m12 = a.m12, m13 = a.m13,
+		      m20 = a.m20, m21 = a.m21, m22 = a.m22, m23 = a.m23;
+		float c00 = m11*m22 - m12*m21, c01 = m12*m20 - m10*m22, c02 = m10*m21 - m11*m20;
+		float det = m00*c00 + m01*c01 + m02*c02;
+		checkState(det != 0.0, "Matrix is not invertible: determinant is 0");
+		float factor = 1.0f / det;
+
+		float i00 = factor * c00, i01 = factor * (m02*m21 - m01*m22), i02 = factor * (m01*m12 - m02*m11);
+		float i10 = factor * c01, i11 = factor * (m00*m22 - m02*m20), i12 = factor * (m02*m10 - m00*m12);
+		float i20 = factor * c02, i21 = factor * (m01*m20 - m00*m21), i22 = factor * (m00*m11 - m01*m10);
+
+		return dest.set(
+			i00, i01, i02, -(i00*m03 + i01*m13 + i02*m23),
+			i10, i11, i12, -(i10*m03 + i11*m13 + i12*m23),
+			i20, i21, i22, -(i20*m03 + i21*m13 + i22*m23),
+			0,   0,   0,   1
+		);
+	}
+
+	/**
+	 * @see Matrix4#inverseRigid()
+	 */
+	public static MutableMatrix4 inverseRigidInto(MutableMatrix4 a, MutableMatrix4 dest)
+	{
+		float m00 = a.m00, m01 = a.m01, m02 = a.m02, m03 = a.m03,
+		      m10 = a.m10, m11 = a.m11, m12 = a.m12, m13 = a.m13,
+		      m20 = a.m20, m21 = a.m21, m22 = a.m22, m23 = a.m23;
+		return dest.set(
+			m00, m10, m20, -(m00*m03 + m10*m13 + m20*m23),
+			m01, m11, m21, -(m01*m03 + m11*m13 + m21*m23),
+			m02, m12, m22, -(m02*m03 + m12*m13 + m22*m23),
+			0,   0,   0,   1
+		);
+	}
+
+	/**
+	 * @see Matrix4#normalMatrix()
+	 */
+	public static MutableMatrix3 normalMatrixInto(MutableMatrix4 a, MutableMatrix3 dest)
+	{
+		float m00 = a.m00, m01 = a.m01, m02 = a.m02,
+		      m10 = a.m10, m11 = a.m11, m12 = a.m12,
+		      m20 = a.m20, m21 = a.m21, m22 = a.m22;
+		float c00 = m11*m22 - m12*m21, c01 = m12*m20 - m10*m22, c02 = m10*m21 - m11*m20;
+		float det = m00*c00 + m01*c01 + m02*c02;
+		checkState(det != 0.0, "Matrix is not invertible: determinant is 0");
+		float factor = 1.0f / det;
+
+		return dest.set(
+			factor * c00,                   factor * c01,                   factor * c02,
+			factor * (m02*m21 - m01*m22),   factor * (m00*m22 - m02*m20),   factor * (m01*m20 - m00*m21),
+			factor * (m01*m12 - m02*m11),   factor * (m02*m10 - m00*m12),   factor * (m00*m11 - m01*m10)
+		);
+	}
+
+	public static MutableVector4 transformInto(MutableMatrix4 m, MutableVector4 vec, MutableVector4 dest)
+	{
+		return dest.set(
+			m.m00 * vec.x + m.m01 * vec.y + m.m02 * vec.z + m.m03 * vec.w,
+			m.m10 * vec.x + m.m11 * vec.y + m.m12 * vec.z + m.m13 * vec.w,
+			m.m20 * vec.x + m.m21 * vec.y + m.m22 * vec.z + m.m23 * vec.w,
+			m.m30 * vec.x + m.m31 * vec.y + m.m32 * vec.z + m.m33 * vec.w
+		);
+	}
+
+	public void store(FloatBuffer buf, Matrix.Order order)
+	{
+		checkArgument(buf.remaining() >= 16, "Buffer has fewer than 16 elements remaining (%s)", buf);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				buf.put(m00).put(m01).put(m02).put(m03)
+				   .put(m10).put(m11).put(m12).put(m13)
+				   .put(m20).put(m21).put(m22).put(m23)
+				   .put(m30).put(m31).put(m32).put(m33);
+				break;
+			case COLUMN_MAJOR:
+				buf.put(m00).put(m10).put(m20).put(m30)
+				   .put(m01).put(m11).put(m21).put(m31)
+				   .put(m02).put(m12).put(m22).put(m32)
+				   .put(m03).put(m13).put(m23).put(m33);
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	public MutableMatrix4 load(FloatBuffer buf, Matrix.Order order)
+	{
+		checkArgument(buf.remaining() >= 16, "Buffer has fewer than 16 elements remaining (%s)", buf);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				return set(
+				    buf.get(), buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get(), buf.get()
+				);
+			case COLUMN_MAJOR:
+				set(
+				    buf.get(), buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get(), buf.get(),
+				    buf.get(), buf.get(), buf.get(), buf.get()
+				);
+				return transposeInto(this, this);
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	public void store(float[] array, Matrix.Order order)
+	{
+		checkArgument(array.length >= 16, "Array has fewer than 16 elements (%s)", array.length);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				array[0] = m00;
+				array[1] = m01;
+				array[2] = m02;
+				array[3] = m03;
+				array[4] = m10;
+				array[5] = m11;
+				array[6] = m12;
+				array[7] = m13;
+				array[8] = m20;
+				array[9] = m21;
+				array[10] = m22;
+				array[11] = m23;
+				array[12] = m30;
+				array[13] = m31;
+				array[14] = m32;
+				array[15] = m33;
+				break;
+			case COLUMN_MAJOR:
+				array[0] = m00;
+				array[1] = m10;
+				array[2] = m20;
+				array[3] = m30;
+				array[4] = m01;
+				array[5] = m11;
+				array[6] = m21;
+				array[7] = m31;
+				array[8] = m02;
+				array[9] = m12;
+				array[10] = m22;
+				array[11] = m32;
+				array[12] = m03;
+				array[13] = m13;
+				array[14] = m23;
+				array[15] = m33;
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	public MutableMatrix4 load(float[] array, Matrix.Order order)
+	{
+		checkArgument(array.length >= 16, "Array has fewer than 16 elements (%s)", array.length);
+		switch(order)
+		{
+			case ROW_MAJOR:
+				return set(
+				    array[0], array[1], array[2], array[3],
+				    array[4], array[5], array[6], array[7],
+				    array[8], array[9], array[10], array[11],
+				    array[12], array[13], array[14], array[15]
+				);
+			case COLUMN_MAJOR:
+				return set(
+				    array[0], array[4], array[8], array[12],
+				    array[1], array[5], array[9], array[13],
+				    array[2], array[6], array[10], array[14],
+				    array[3], array[7], array[11], array[15]
+				);
+			default:
+				throw new IllegalArgumentException("Unsupported matrix ordering: " + order);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("[%.4f %.4f %.4f %.4f\n%.4f %.4f %.4f %.4f\n%.4f %.4f %.4f %.4f\n%.4f %.4f %.4f %.4f]",
+		                     m00, m01, m02, m03, m10, m11, m12, m13, m20, m21, m22, m23, m30, m31, m32, m33);
+	}
+}
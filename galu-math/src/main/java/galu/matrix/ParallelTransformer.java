@@ -0,0 +1,263 @@
+package galu.matrix;
+
+import galu.util.Checks;
+import galu.util.SharedPool;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs the bulk transform methods of {@link Matrix4} on a {@link ForkJoinPool}, for buffers with millions of vectors.
+ * <p>
+ * The vectors are split into chunks of at most {@code chunkSize} vectors, which are transformed in parallel. Each chunk
+ * is handed to the sequential method on {@code Matrix4}, so every vector goes through exactly the same arithmetic and
+ * the output is identical to the sequential path. Calls with fewer than {@code threshold} vectors aren't worth the
+ * overhead of splitting, and run sequentially on the calling thread.
+ * <p>
+ * Bounds are checked before any work starts, so a bad call throws on the calling thread without writing anything. As
+ * with the sequential methods, the source and destination may be the same only if the layouts are the same. Buffers are
+ * only accessed with absolute {@code get} and {@code put}, which don't change their position, so several threads can
+ * safely work on different parts of the same buffer.
+ */
+public final class ParallelTransformer
+{
+	/**
+	 * Calls with fewer vectors than this run sequentially by default.
+	 */
+	public static final int DEFAULT_THRESHOLD = 65536;
+
+	/**
+	 * The default number of vectors per chunk. At 16 bytes per 4-element vector, the source and destination of a chunk
+	 * (256 KB together) fit in a typical per-core L2 cache.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+	private final ForkJoinPool pool;
+	private final int threshold;
+	private final int chunkSize;
+
+	/**
+	 * Create a transformer that uses the {@link SharedPool shared pool}, and the default threshold and chunk size.
+	 */
+	public ParallelTransformer()
+	{
+		this(SharedPool.get(), DEFAULT_THRESHOLD, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param pool the pool to transform vectors on
+	 * @param threshold the number of vectors below which transforms run sequentially on the calling thread
+	 * @param chunkSize the maximum number of vectors transformed by a single task
+	 */
+	public ParallelTransformer(ForkJoinPool pool, int threshold, int chunkSize)
+	{
+		this.pool = checkNotNull(pool, "pool");
+		checkArgument(threshold >= 0, "Threshold must not be negative: %s", threshold);
+		checkArgument(chunkSize > 0, "Chunk size must be positive: %s", chunkSize);
+		this.threshold = threshold;
+		this.chunkSize = chunkSize;
+	}
+
+	public ForkJoinPool getPool()
+	{
+		return pool;
+	}
+
+	public int getThreshold()
+	{
+		return threshold;
+	}
+
+	public int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	/**
+	 * Transform {@code count} packed 4-element vectors, in parallel if there are enough of them.
+	 * @see Matrix4#transform(float[], int, int, float[], int, int, int)
+	 */
+	public void transform(Matrix4 matrix, float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 4, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 4, count);
+		run(new Chunk(Kind.VECTORS, matrix, src, null, srcOffset, srcStride, dst, null, dstOffset, dstStride, 0, count));
+	}
+
+	/**
+	 * Transform {@code count} packed 4-element vectors, in parallel if there are enough of them.
+	 * @see Matrix4#transform(FloatBuffer, int, int, FloatBuffer, int, int, int)
+	 */
+	public void transform(Matrix4 matrix, FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 4, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 4, count);
+		run(new Chunk(Kind.VECTORS, matrix, null, src, srcOffset, srcStride, null, dst, dstOffset, dstStride, 0, count));
+	}
+
+	/**
+	 * Transform {@code count} packed 3-element points, in parallel if there are enough of them.
+	 * @see Matrix4#transformPoints(float[], int, int, float[], int, int, int, boolean)
+	 */
+	public void transformPoints(Matrix4 matrix, float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count, boolean perspectiveDivide)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 3, count);
+		Kind kind = perspectiveDivide ? Kind.PROJECTED_POINTS : Kind.POINTS;
+		run(new Chunk(kind, matrix, src, null, srcOffset, srcStride, dst, null, dstOffset, dstStride, 0, count));
+	}
+
+	/**
+	 * Transform {@code count} packed 3-element points, in parallel if there are enough of them.
+	 * @see Matrix4#transformPoints(FloatBuffer, int, int, FloatBuffer, int, int, int, boolean)
+	 */
+	public void transformPoints(Matrix4 matrix, FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count, boolean perspectiveDivide)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 3, count);
+		Kind kind = perspectiveDivide ? Kind.PROJECTED_POINTS : Kind.POINTS;
+		run(new Chunk(kind, matrix, null, src, srcOffset, srcStride, null, dst, dstOffset, dstStride, 0, count));
+	}
+
+	/**
+	 * Transform {@code count} packed 3-element directions, in parallel if there are enough of them.
+	 * @see Matrix4#transformDirections(float[], int, int, float[], int, int, int)
+	 */
+	public void transformDirections(Matrix4 matrix, float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 3, count);
+		run(new Chunk(Kind.DIRECTIONS, matrix, src, null, srcOffset, srcStride, dst, null, dstOffset, dstStride, 0, count));
+	}
+
+	/**
+	 * Transform {@code count} packed 3-element directions, in parallel if there are enough of them.
+	 * @see Matrix4#transformDirections(FloatBuffer, int, int, FloatBuffer, int, int, int)
+	 */
+	public void transformDirections(Matrix4 matrix, FloatBuffer src, int srcOffset, int srcStride, FloatBuffer dst, int dstOffset, int dstStride, int count)
+	{
+		Checks.checkRange("Source", src.limit(), srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.limit(), dstOffset, dstStride, 3, count);
+		run(new Chunk(Kind.DIRECTIONS, matrix, null, src, srcOffset, srcStride, null, dst, dstOffset, dstStride, 0, count));
+	}
+
+	private void run(Chunk task)
+	{
+		if(task.to - task.from < threshold)
+		{
+			task.transformAll();
+		}
+		else
+		{
+			pool.invoke(task);
+		}
+	}
+
+	private enum Kind
+	{
+		VECTORS, POINTS, PROJECTED_POINTS, DIRECTIONS
+	}
+
+	/**
+	 * Transforms vectors {@code [from, to)}, splitting the range in half until it's no bigger than a chunk.
+	 * Exactly one of the array and buffer fields is set for each of the source and destination.
+	 */
+	@SuppressWarnings("serial")
+	private final class Chunk extends RecursiveAction
+	{
+		private final Kind kind;
+		private final Matrix4 matrix;
+		private final float[] srcArray;
+		private final FloatBuffer srcBuffer;
+		private final int srcOffset;
+		private final int srcStride;
+		private final float[] dstArray;
+		private final FloatBuffer dstBuffer;
+		private final int dstOffset;
+		private final int dstStride;
+		private final int from;
+		private final int to;
+
+		Chunk(Kind kind, Matrix4 matrix, float[] srcArray, FloatBuffer srcBuffer, int srcOffset, int srcStride,
+		      float[] dstArray, FloatBuffer dstBuffer, int dstOffset, int dstStride, int from, int to)
+		{
+			this.kind = kind;
+			this.matrix = matrix;
+			this.srcArray = srcArray;
+			this.srcBuffer = srcBuffer;
+			this.srcOffset = srcOffset;
+			this.srcStride = srcStride;
+			this.dstArray = dstArray;
+			this.dstBuffer = dstBuffer;
+			this.dstOffset = dstOffset;
+			this.dstStride = dstStride;
+			this.from = from;
+			this.to = to;
+		}
+
+		private Chunk slice(int from, int to)
+		{
+			return new Chunk(kind, matrix, srcArray, srcBuffer, srcOffset, srcStride, dstArray, dstBuffer, dstOffset, dstStride, from, to);
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to - from <= chunkSize)
+			{
+				transformAll();
+			}
+			else
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(slice(from, middle), slice(middle, to));
+			}
+		}
+
+		void transformAll()
+		{
+			int count = to - from;
+			// The offsets were range-checked for the whole call, so these can't overflow
+			int s = srcOffset + from * srcStride;
+			int d = dstOffset + from * dstStride;
+			switch(kind)
+			{
+				case VECTORS:
+					if(srcArray != null)
+					{
+						matrix.transform(srcArray, s, srcStride, dstArray, d, dstStride, count);
+					}
+					else
+					{
+						matrix.transform(srcBuffer, s, srcStride, dstBuffer, d, dstStride, count);
+					}
+					break;
+				case POINTS:
+				case PROJECTED_POINTS:
+					if(srcArray != null)
+					{
+						matrix.transformPoints(srcArray, s, srcStride, dstArray, d, dstStride, count, kind == Kind.PROJECTED_POINTS);
+					}
+					else
+					{
+						matrix.transformPoints(srcBuffer, s, srcStride, dstBuffer, d, dstStride, count, kind == Kind.PROJECTED_POINTS);
+					}
+					break;
+				case DIRECTIONS:
+					if(srcArray != null)
+					{
+						matrix.transformDirections(srcArray, s, srcStride, dstArray, d, dstStride, count);
+					}
+					else
+					{
+						matrix.transformDirections(srcBuffer, s, srcStride, dstBuffer, d, dstStride, count);
+					}
+					break;
+			}
+		}
+	}
+}
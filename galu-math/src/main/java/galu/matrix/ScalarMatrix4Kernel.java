@@ -0,0 +1,73 @@
+package galu.matrix;
+
+import galu.util.Checks;
+
+/**
+ * The portable {@link Matrix4Kernel}, using the same arithmetic (in the same order) as {@link Matrix4}.
+ */
+final class ScalarMatrix4Kernel implements Matrix4Kernel
+{
+	static final ScalarMatrix4Kernel INSTANCE = new ScalarMatrix4Kernel();
+
+	private ScalarMatrix4Kernel() {}
+
+	@Override
+	public void multiply(float[] a, int aOffset, float[] b, int bOffset, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRange("First operand", a.length, aOffset, 16, 16, count);
+		Checks.checkRange("Second operand", b.length, bOffset, 16, 16, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, 16, 16, count);
+		for(int n = 0, i = aOffset, j = bOffset, d = dstOffset; n < count; n++, i += 16, j += 16, d += 16)
+		{
+			float a00 = a[i],      a01 = a[i + 1],  a02 = a[i + 2],  a03 = a[i + 3],
+			      a10 = a[i + 4],  a11 = a[i + 5],  a12 = a[i + 6],  a13 = a[i + 7],
+			      a20 = a[i + 8],  a21 = a[i + 9],  a22 = a[i + 10], a23 = a[i + 11],
+			      a30 = a[i + 12], a31 = a[i + 13], a32 = a[i + 14], a33 = a[i + 15];
+			float b00 = b[j],      b01 = b[j + 1],  b02 = b[j + 2],  b03 = b[j + 3],
+			      b10 = b[j + 4],  b11 = b[j + 5],  b12 = b[j + 6],  b13 = b[j + 7],
+			      b20 = b[j + 8],  b21 = b[j + 9],  b22 = b[j + 10], b23 = b[j + 11],
+			      b30 = b[j + 12], b31 = b[j + 13], b32 = b[j + 14], b33 = b[j + 15];
+
+			dst[d]      = a00*b00 + a01*b10 + a02*b20 + a03*b30;
+			dst[d + 1]  = a00*b01 + a01*b11 + a02*b21 + a03*b31;
+			dst[d + 2]  = a00*b02 + a01*b12 + a02*b22 + a03*b32;
+			dst[d + 3]  = a00*b03 + a01*b13 + a02*b23 + a03*b33;
+
+			dst[d + 4]  = a10*b00 + a11*b10 + a12*b20 + a13*b30;
+			dst[d + 5]  = a10*b01 + a11*b11 + a12*b21 + a13*b31;
+			dst[d + 6]  = a10*b02 + a11*b12 + a12*b22 + a13*b32;
+			dst[d + 7]  = a10*b03 + a11*b13 + a12*b23 + a13*b33;
+
+			dst[d + 8]  = a20*b00 + a21*b10 + a22*b20 + a23*b30;
+			dst[d + 9]  = a20*b01 + a21*b11 + a22*b21 + a23*b31;
+			dst[d + 10] = a20*b02 + a21*b12 + a22*b22 + a23*b32;
+			dst[d + 11] = a20*b03 + a21*b13 + a22*b23 + a23*b33;
+
+			dst[d + 12] = a30*b00 + a31*b10 + a32*b20 + a33*b30;
+			dst[d + 13] = a30*b01 + a31*b11 + a32*b21 + a33*b31;
+			dst[d + 14] = a30*b02 + a31*b12 + a32*b22 + a33*b32;
+			dst[d + 15] = a30*b03 + a31*b13 + a32*b23 + a33*b33;
+		}
+	}
+
+	@Override
+	public void transform(float[] matrix, int matrixOffset, float[] src, int srcOffset, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRange("Matrix", matrix.length, matrixOffset, 16, 16, 1);
+		Checks.checkRange("Source", src.length, srcOffset, 4, 4, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, 4, 4, count);
+		int o = matrixOffset;
+		float m00 = matrix[o],      m01 = matrix[o + 1],  m02 = matrix[o + 2],  m03 = matrix[o + 3],
+		      m10 = matrix[o + 4],  m11 = matrix[o + 5],  m12 = matrix[o + 6],  m13 = matrix[o + 7],
+		      m20 = matrix[o + 8],  m21 = matrix[o + 9],  m22 = matrix[o + 10], m23 = matrix[o + 11],
+		      m30 = matrix[o + 12], m31 = matrix[o + 13], m32 = matrix[o + 14], m33 = matrix[o + 15];
+		for(int n = 0, s = srcOffset, d = dstOffset; n < count; n++, s += 4, d += 4)
+		{
+			float x = src[s], y = src[s + 1], z = src[s + 2], w = src[s + 3];
+			dst[d]     = m00 * x + m01 * y + m02 * z + m03 * w;
+			dst[d + 1] = m10 * x + m11 * y + m12 * z + m13 * w;
+			dst[d + 2] = m20 * x + m21 * y + m22 * z + m23 * w;
+			dst[d + 3] = m30 * x + m31 * y + m32 * z + m33 * w;
+		}
+	}
+}
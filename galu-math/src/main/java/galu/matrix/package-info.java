@@ -1,6 +1,7 @@
 /**
  * Contains implementations of 2x2, 3x3, and 4x4 matrices.
  * Matrices are implemented using primitives for performance and are immutable.
+ * Each matrix type has a mutable companion (such as {@link galu.matrix.MutableMatrix4}) for code that can't afford to allocate.
  * The value fields of matrices are of the form mRC where R is the row and C is the column.
  * @author ben
  *
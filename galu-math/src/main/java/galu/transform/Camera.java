@@ -0,0 +1,246 @@
+package galu.transform;
+
+import galu.geometry.Frustum;
+import galu.matrix.Matrix4;
+import galu.vector.Vector3;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A view and a projection, with every matrix derived from them cached.
+ * <p>
+ * Setting the view or the projection only records the change. Each derived matrix (the view-projection, the inverses,
+ * and the culling {@link Frustum}) is computed the first time it's asked for after a change, and the same object is
+ * returned until the next change, so picking, unprojecting, and shadow passes within a frame share one inversion. The
+ * inverses use the structure of the matrices instead of a general 4x4 inverse: the view is rigid, and perspective and
+ * orthographic projections have closed-form inverses.
+ * <p>
+ * A new camera has identity view and projection matrices. Cameras are not thread-safe.
+ * @see Transformations#lookAt(Vector3, Vector3, Vector3)
+ * @see Transformations#perspective(float, float, float, float)
+ */
+public final class Camera
+{
+	private static enum Projection
+	{
+		PERSPECTIVE, INFINITE_PERSPECTIVE, ORTHOGRAPHIC, OTHER;
+	}
+
+	private Matrix4 view = Matrix4.IDENTITY;
+	private Matrix4 projection = Matrix4.IDENTITY;
+	private Projection projectionType = Projection.ORTHOGRAPHIC;
+	// The parameters of a perspective projection, kept so the aspect ratio can be changed on its own
+	private float fovY, aspect, near, far;
+
+	// Derived from the above, or null if they need recomputing
+	private Matrix4 inverseView = Matrix4.IDENTITY;
+	private Matrix4 inverseProjection = Matrix4.IDENTITY;
+	private Matrix4 viewProjection = Matrix4.IDENTITY;
+	private Matrix4 inverseViewProjection = Matrix4.IDENTITY;
+	private Frustum frustum = null;
+
+	/**
+	 * Place the camera at {@code eye}, looking towards {@code target}.
+	 * @see Transformations#lookAt(Vector3, Vector3, Vector3)
+	 */
+	public void lookAt(Vector3 eye, Vector3 target, Vector3 up)
+	{
+		view = Transformations.lookAt(eye, target, up);
+		viewChanged();
+	}
+
+	/**
+	 * Set the view matrix directly. It must be a rigid transformation (a rotation and a translation), like those built by
+	 * {@link Transformations#lookAt}, because its inverse is computed with {@link Matrix4#inverseRigid()}.
+	 */
+	public void setView(Matrix4 view)
+	{
+		this.view = checkNotNull(view, "view");
+		viewChanged();
+	}
+
+	/**
+	 * @see Transformations#perspective(float, float, float, float)
+	 */
+	public void perspective(float fovY, float aspect, float near, float far)
+	{
+		setProjection(Transformations.perspective(fovY, aspect, near, far), Projection.PERSPECTIVE);
+		this.fovY = fovY;
+		this.aspect = aspect;
+		this.near = near;
+		this.far = far;
+	}
+
+	/**
+	 * @see Transformations#infinitePerspective(float, float, float)
+	 */
+	public void infinitePerspective(float fovY, float aspect, float near)
+	{
+		setProjection(Transformations.infinitePerspective(fovY, aspect, near), Projection.INFINITE_PERSPECTIVE);
+		this.fovY = fovY;
+		this.aspect = aspect;
+		this.near = near;
+	}
+
+	/**
+	 * @see Transformations#orthographic(float, float, float, float, float, float)
+	 */
+	public void orthographic(float left, float right, float bottom, float top, float near, float far)
+	{
+		setProjection(Transformations.orthographic(left, right, bottom, top, near, far), Projection.ORTHOGRAPHIC);
+	}
+
+	/**
+	 * Set the projection matrix directly. Its inverse is computed with {@link Matrix4#inverse()}.
+	 */
+	public void setProjection(Matrix4 projection)
+	{
+		setProjection(checkNotNull(projection, "projection"), Projection.OTHER);
+	}
+
+	/**
+	 * Change the aspect ratio of a perspective projection, as when the window is resized, keeping the other parameters.
+	 * @throws IllegalStateException if the projection isn't a perspective projection
+	 */
+	public void setAspect(float aspect)
+	{
+		if(projectionType == Projection.PERSPECTIVE)
+		{
+			perspective(fovY, aspect, near, far);
+		}
+		else
+		{
+			checkState(projectionType == Projection.INFINITE_PERSPECTIVE, "Projection is not a perspective projection");
+			infinitePerspective(fovY, aspect, near);
+		}
+	}
+
+	private void setProjection(Matrix4 projection, Projection type)
+	{
+		this.projection = projection;
+		this.projectionType = type;
+		inverseProjection = null;
+		projectionOrViewChanged();
+	}
+
+	private void viewChanged()
+	{
+		inverseView = null;
+		projectionOrViewChanged();
+	}
+
+	private void projectionOrViewChanged()
+	{
+		viewProjection = null;
+		inverseViewProjection = null;
+		frustum = null;
+	}
+
+	public Matrix4 view()
+	{
+		return view;
+	}
+
+	public Matrix4 projection()
+	{
+		return projection;
+	}
+
+	public Matrix4 viewProjection()
+	{
+		if(viewProjection == null)
+		{
+			viewProjection = projection.multiply(view);
+		}
+		return viewProjection;
+	}
+
+	/**
+	 * @return the inverse of the view matrix, which is the camera's transformation in world space
+	 */
+	public Matrix4 inverseView()
+	{
+		if(inverseView == null)
+		{
+			inverseView = view.inverseRigid();
+		}
+		return inverseView;
+	}
+
+	public Matrix4 inverseProjection()
+	{
+		if(inverseProjection == null)
+		{
+			inverseProjection = invertProjection();
+		}
+		return inverseProjection;
+	}
+
+	public Matrix4 inverseViewProjection()
+	{
+		if(inverseViewProjection == null)
+		{
+			inverseViewProjection = inverseView().multiply(inverseProjection());
+		}
+		return inverseViewProjection;
+	}
+
+	/**
+	 * @return the planes of the view-projection matrix, for culling in world space
+	 */
+	public Frustum frustum()
+	{
+		if(frustum == null)
+		{
+			frustum = Frustum.fromMatrix(viewProjection());
+		}
+		return frustum;
+	}
+
+	private Matrix4 invertProjection()
+	{
+		Matrix4 p = projection;
+		switch(projectionType)
+		{
+			case PERSPECTIVE:
+			case INFINITE_PERSPECTIVE:
+			{
+				// | a 0  0 0 |          | 1/a   0   0    0 |
+				// | 0 b  0 0 |  has the | 0   1/b   0    0 |
+				// | 0 0  c d |  inverse | 0     0   0   -1 |
+				// | 0 0 -1 0 |          | 0     0 1/d  c/d |
+				float c = p.m22, d = p.m23;
+				return new Matrix4(
+					1 / p.m00, 0,         0,     0,
+					0,         1 / p.m11, 0,     0,
+					0,         0,         0,     -1,
+					0,         0,         1 / d, c / d
+				);
+			}
+			case ORTHOGRAPHIC:
+				return p.inverseAffine();
+			default:
+				return p.inverse();
+		}
+	}
+
+	/**
+	 * Project {@code count} packed world-space points to normalized device coordinates (each component from -1 to 1
+	 * inside the view volume), in the same layout as {@link Matrix4#transformPoints}.
+	 */
+	public void project(float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		viewProjection().transformPoints(src, srcOffset, srcStride, dst, dstOffset, dstStride, count, true);
+	}
+
+	/**
+	 * Unproject {@code count} packed points from normalized device coordinates back to world space. A point with a depth
+	 * of -1 lands on the near plane and one with a depth of 1 on the far plane, so unprojecting both for a pixel gives
+	 * the pick ray through it. (With an infinite projection, the far plane is at infinity; use a depth just under 1.)
+	 */
+	public void unproject(float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		inverseViewProjection().transformPoints(src, srcOffset, srcStride, dst, dstOffset, dstStride, count, true);
+	}
+}
@@ -0,0 +1,137 @@
+package galu.transform;
+
+import galu.matrix.Matrix3;
+import galu.matrix.Matrix4;
+import galu.vector.Vector3;
+
+/**
+ * The translation, rotation, and scale that make up an affine transformation, as returned by
+ * {@link Transformations#decompose(Matrix4)}. The transformation scales first, then rotates, then translates.
+ */
+public final class Decomposition
+{
+	// Below this, sin(angle) is treated as 0 when recovering the rotation axis
+	private static final float AXIS_EPSILON = 1e-6f;
+
+	public final Vector3 translation;
+	public final Matrix3 rotation;
+	public final Vector3 scale;
+
+	public Decomposition(Vector3 translation, Matrix3 rotation, Vector3 scale)
+	{
+		this.translation = translation;
+		this.rotation = rotation;
+		this.scale = scale;
+	}
+
+	/**
+	 * @return the transformation matrix these components make up
+	 * @see Transformations#trs(Vector3, Matrix3, Vector3)
+	 */
+	public Matrix4 toMatrix()
+	{
+		return Transformations.trs(translation, rotation, scale);
+	}
+
+	/**
+	 * Convert the rotation to Euler angles, in the form accepted by {@link Transformations#rotate(Vector3)}.
+	 * When the y angle is &plusmn;90&deg; (gimbal lock), only the sum or difference of the x and z angles is known; the
+	 * z angle is then reported as 0.
+	 * @return the rotations about the x-, y-, and z-axes, in radians
+	 */
+	public Vector3 eulerAngles()
+	{
+		Matrix3 r = rotation;
+		float sinY = Math.max(-1f, Math.min(1f, r.m02));
+		float y = (float) Math.asin(sinY);
+		if(Math.abs(sinY) < 1f - AXIS_EPSILON)
+		{
+			return new Vector3((float) Math.atan2(-r.m12, r.m22), y, (float) Math.atan2(-r.m01, r.m00));
+		}
+		else
+		{
+			// With cos(y) = 0 and z = 0, m21 = sin(x) and m11 = cos(x)
+			return new Vector3((float) Math.atan2(r.m21, r.m11), y, 0);
+		}
+	}
+
+	/**
+	 * @return the angle of the rotation, in radians between 0 and &pi;
+	 * @see #rotationAxis()
+	 */
+	public float rotationAngle()
+	{
+		Matrix3 r = rotation;
+		float cos = (r.m00 + r.m11 + r.m22 - 1f) / 2f;
+		return (float) Math.acos(Math.max(-1f, Math.min(1f, cos)));
+	}
+
+	/**
+	 * Find the axis of the rotation, so that {@code Transformations.rotate(rotationAngle(), rotationAxis())} gives the
+	 * rotation back. If there is no rotation, any axis works, and the x-axis is returned.
+	 * @return the unit-length axis of the rotation
+	 */
+	public Vector3 rotationAxis()
+	{
+		Matrix3 r = rotation;
+
+		// The antisymmetric part of the matrix is 2 sin(angle) times the cross-product matrix of the axis
+		float x = r.m21 - r.m12;
+		float y = r.m02 - r.m20;
+		float z = r.m10 - r.m01;
+		float length = (float) Math.sqrt(x*x + y*y + z*z);
+		if(length > AXIS_EPSILON)
+		{
+			return new Vector3(x / length, y / length, z / length);
+		}
+
+		if(r.m00 + r.m11 + r.m22 > 1f)
+		{
+			// No rotation
+			return new Vector3(1, 0, 0);
+		}
+
+		// A half turn, where the matrix is 2uu' - I. Solve for the largest component first to avoid dividing by ~0.
+		if(r.m00 >= r.m11 && r.m00 >= r.m22)
+		{
+			float u = (float) Math.sqrt((r.m00 + 1f) / 2f);
+			return new Vector3(u, r.m01 / (2f * u), r.m02 / (2f * u));
+		}
+		else if(r.m11 >= r.m22)
+		{
+			float v = (float) Math.sqrt((r.m11 + 1f) / 2f);
+			return new Vector3(r.m01 / (2f * v), v, r.m12 / (2f * v));
+		}
+		else
+		{
+			float w = (float) Math.sqrt((r.m22 + 1f) / 2f);
+			return new Vector3(r.m02 / (2f * w), r.m12 / (2f * w), w);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Decomposition{translation=" + translation + ", rotation=" + rotation + ", scale=" + scale + "}";
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if(obj == null) return false;
+		if(obj == this) return true;
+		if(!(obj instanceof Decomposition)) return false;
+		Decomposition other = (Decomposition) obj;
+		return translation.equals(other.translation) && rotation.equals(other.rotation) && scale.equals(other.scale);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int result = 23;
+		result = 37 * result + translation.hashCode();
+		result = 37 * result + rotation.hashCode();
+		result = 37 * result + scale.hashCode();
+		return result;
+	}
+}
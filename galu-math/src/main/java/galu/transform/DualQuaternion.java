@@ -0,0 +1,212 @@
+package galu.transform;
+
+import galu.matrix.Matrix4;
+import galu.vector.Vector3;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A dual quaternion {@code real + &epsilon; dual}, used to represent a rigid transformation: a rotation followed by a
+ * translation. Unlike matrices, unit dual quaternions can be blended without the result shrinking or shearing, which
+ * makes them a good fit for skinning (see {@link DualQuaternionArray}).
+ * <p>
+ * The real part is the rotation, and the dual part is half the translation multiplied by the rotation.
+ * @see <a href="http://www.seas.upenn.edu/~ladislav/kavan08geometric/kavan08geometric.pdf">Kavan et al., Geometric
+ * Skinning with Approximate Dual Quaternion Blending</a>
+ */
+public final class DualQuaternion
+{
+	public static final DualQuaternion IDENTITY = new DualQuaternion(Quaternion.IDENTITY, new Quaternion(0, 0, 0, 0));
+
+	private static final Vector3 UNIT_SCALE = new Vector3(1, 1, 1);
+
+	public final Quaternion real;
+	public final Quaternion dual;
+
+	public DualQuaternion(Quaternion real, Quaternion dual)
+	{
+		this.real = real;
+		this.dual = dual;
+	}
+
+	/**
+	 * Create a transformation that rotates and then translates.
+	 * @param rotation a unit quaternion
+	 * @param translation the amounts to translate by along each axis
+	 * @return a unit dual quaternion
+	 */
+	public static DualQuaternion fromRotationTranslation(Quaternion rotation, Vector3 translation)
+	{
+		float tx = translation.x, ty = translation.y, tz = translation.z;
+		float rx = rotation.x, ry = rotation.y, rz = rotation.z, rw = rotation.w;
+
+		// 0.5 * (tx, ty, tz, 0) * rotation
+		return new DualQuaternion(rotation, new Quaternion(
+			0.5f * ( tx*rw + ty*rz - tz*ry),
+			0.5f * (-tx*rz + ty*rw + tz*rx),
+			0.5f * ( tx*ry - ty*rx + tz*rw),
+			0.5f * -(tx*rx + ty*ry + tz*rz)
+		));
+	}
+
+	/**
+	 * Convert a rigid transformation matrix. The upper-left 3x3 block must be a rotation (no scaling or shearing) and
+	 * the bottom row must be (0, 0, 0, 1).
+	 * @param m a rigid transformation matrix
+	 * @return a unit dual quaternion
+	 */
+	public static DualQuaternion fromMatrix(Matrix4 m)
+	{
+		return fromRotationTranslation(Quaternion.fromMatrix(m), new Vector3(m.m03, m.m13, m.m23));
+	}
+
+	/**
+	 * Blend rigid transformations with dual quaternion linear blending. Each transformation is flipped, if necessary,
+	 * to be in the same hemisphere as the first one (so the blend takes the shorter path), and the weighted sum is
+	 * normalized.
+	 * @param transforms unit dual quaternions
+	 * @param weights the weight of each transformation; they don't need to add up to 1
+	 * @return a unit dual quaternion
+	 */
+	public static DualQuaternion blend(DualQuaternion[] transforms, float[] weights)
+	{
+		checkArgument(transforms.length > 0, "Nothing to blend");
+		checkArgument(transforms.length == weights.length, "%s transforms but %s weights", transforms.length, weights.length);
+
+		Quaternion pivot = transforms[0].real;
+		float rx = 0, ry = 0, rz = 0, rw = 0;
+		float dx = 0, dy = 0, dz = 0, dw = 0;
+		for(int i = 0; i < transforms.length; i++)
+		{
+			Quaternion r = transforms[i].real;
+			Quaternion d = transforms[i].dual;
+			float w = pivot.dot(r) < 0 ? -weights[i] : weights[i];
+			rx += w * r.x;
+			ry += w * r.y;
+			rz += w * r.z;
+			rw += w * r.w;
+			dx += w * d.x;
+			dy += w * d.y;
+			dz += w * d.z;
+			dw += w * d.w;
+		}
+		return new DualQuaternion(new Quaternion(rx, ry, rz, rw), new Quaternion(dx, dy, dz, dw)).normalize();
+	}
+
+	/**
+	 * @return the rotation part of this (unit) dual quaternion
+	 */
+	public Quaternion rotation()
+	{
+		return real;
+	}
+
+	/**
+	 * @return the translation part of this (unit) dual quaternion
+	 */
+	public Vector3 translation()
+	{
+		// The vector part of 2 * dual * conjugate(real)
+		Quaternion r = real, d = dual;
+		return new Vector3(
+			2 * (r.w*d.x - d.w*r.x + r.y*d.z - r.z*d.y),
+			2 * (r.w*d.y - d.w*r.y + r.z*d.x - r.x*d.z),
+			2 * (r.w*d.z - d.w*r.z + r.x*d.y - r.y*d.x)
+		);
+	}
+
+	/**
+	 * Compose two transformations. Like matrix multiplication, {@code a.multiply(b)} applies {@code b} first and then
+	 * {@code a}.
+	 * @param other the transformation to apply first
+	 * @return the combined transformation
+	 */
+	public DualQuaternion multiply(DualQuaternion other)
+	{
+		Quaternion dual1 = real.multiply(other.dual);
+		Quaternion dual2 = dual.multiply(other.real);
+		return new DualQuaternion(real.multiply(other.real),
+				new Quaternion(dual1.x + dual2.x, dual1.y + dual2.y, dual1.z + dual2.z, dual1.w + dual2.w));
+	}
+
+	/**
+	 * For unit dual quaternions, the conjugate (of both parts) is the inverse transformation.
+	 */
+	public DualQuaternion conjugate()
+	{
+		return new DualQuaternion(real.conjugate(), dual.conjugate());
+	}
+
+	/**
+	 * Scale to unit length and make the dual part orthogonal to the real part, so that this represents a rigid
+	 * transformation again.
+	 * @throws IllegalStateException if the real part is 0
+	 */
+	public DualQuaternion normalize()
+	{
+		float length = real.length();
+		checkState(length != 0, "Dual quaternion can't be normalized: real part is 0");
+		float factor = 1f / length;
+		float rx = real.x * factor, ry = real.y * factor, rz = real.z * factor, rw = real.w * factor;
+		float dx = dual.x * factor, dy = dual.y * factor, dz = dual.z * factor, dw = dual.w * factor;
+		float dot = rx*dx + ry*dy + rz*dz + rw*dw;
+		return new DualQuaternion(new Quaternion(rx, ry, rz, rw),
+				new Quaternion(dx - rx*dot, dy - ry*dot, dz - rz*dot, dw - rw*dot));
+	}
+
+	/**
+	 * Rotate and translate a point.
+	 * @param point a point
+	 * @return the transformed point
+	 */
+	public Vector3 transformPoint(Vector3 point)
+	{
+		Vector3 rotated = real.rotate(point);
+		Vector3 translation = translation();
+		return new Vector3(rotated.x + translation.x, rotated.y + translation.y, rotated.z + translation.z);
+	}
+
+	/**
+	 * Rotate a direction. Directions aren't affected by translation.
+	 * @param direction a direction
+	 * @return the transformed direction
+	 */
+	public Vector3 transformDirection(Vector3 direction)
+	{
+		return real.rotate(direction);
+	}
+
+	/**
+	 * @return the matrix for this (unit) dual quaternion's transformation
+	 */
+	public Matrix4 toMatrix4()
+	{
+		return Transformations.trs(translation(), real, UNIT_SCALE);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[" + real + " + e" + dual + "]";
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if(obj == null) return false;
+		if(obj == this) return true;
+		if(!(obj instanceof DualQuaternion)) return false;
+		DualQuaternion other = (DualQuaternion) obj;
+		return real.equals(other.real) && dual.equals(other.dual);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int result = 23;
+		result = 37 * result + real.hashCode();
+		result = 37 * result + dual.hashCode();
+		return result;
+	}
+}
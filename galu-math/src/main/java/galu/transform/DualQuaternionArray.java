@@ -0,0 +1,229 @@
+package galu.transform;
+
+import galu.util.Checks;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * A fixed-size batch of dual quaternions, stored as a structure of arrays (one array per component). Like
+ * {@link QuaternionArray}, bulk operations work on the index range {@code [from, to)} and write their results into a
+ * destination, so no objects are allocated per element.
+ * <p>
+ * The skinning kernels treat this array as a palette of bone transformations. Each vertex is influenced by a fixed
+ * number of bones: the bone indices for vertex {@code v} are {@code joints[v*influences]} through
+ * {@code joints[v*influences + influences - 1]}, with the matching weights in {@code weights}. Unused influences can be
+ * given a weight of 0.
+ */
+public final class DualQuaternionArray
+{
+	public final float[] rxs;
+	public final float[] rys;
+	public final float[] rzs;
+	public final float[] rws;
+	public final float[] dxs;
+	public final float[] dys;
+	public final float[] dzs;
+	public final float[] dws;
+
+	public DualQuaternionArray(int size)
+	{
+		rxs = new float[size];
+		rys = new float[size];
+		rzs = new float[size];
+		rws = new float[size];
+		dxs = new float[size];
+		dys = new float[size];
+		dzs = new float[size];
+		dws = new float[size];
+	}
+
+	public int size()
+	{
+		return rxs.length;
+	}
+
+	public DualQuaternion get(int idx)
+	{
+		return new DualQuaternion(new Quaternion(rxs[idx], rys[idx], rzs[idx], rws[idx]),
+				new Quaternion(dxs[idx], dys[idx], dzs[idx], dws[idx]));
+	}
+
+	public void set(int idx, DualQuaternion dq)
+	{
+		rxs[idx] = dq.real.x;
+		rys[idx] = dq.real.y;
+		rzs[idx] = dq.real.z;
+		rws[idx] = dq.real.w;
+		dxs[idx] = dq.dual.x;
+		dys[idx] = dq.dual.y;
+		dzs[idx] = dq.dual.z;
+		dws[idx] = dq.dual.w;
+	}
+
+	/**
+	 * Compose each pair of transformations: {@code dest[i] = this[i] * other[i]}.
+	 * @see DualQuaternion#multiply(DualQuaternion)
+	 */
+	public void multiply(DualQuaternionArray other, DualQuaternionArray dest, int from, int to)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, other.size());
+		checkPositionIndexes(from, to, dest.size());
+		for(int i = from; i < to; i++)
+		{
+			// Read everything first in case dest is one of the operands
+			float ax = rxs[i], ay = rys[i], az = rzs[i], aw = rws[i];
+			float aex = dxs[i], aey = dys[i], aez = dzs[i], aew = dws[i];
+			float bx = other.rxs[i], by = other.rys[i], bz = other.rzs[i], bw = other.rws[i];
+			float bex = other.dxs[i], bey = other.dys[i], bez = other.dzs[i], bew = other.dws[i];
+
+			dest.rxs[i] = aw*bx + ax*bw + ay*bz - az*by;
+			dest.rys[i] = aw*by - ax*bz + ay*bw + az*bx;
+			dest.rzs[i] = aw*bz + ax*by - ay*bx + az*bw;
+			dest.rws[i] = aw*bw - ax*bx - ay*by - az*bz;
+
+			// real * other.dual + dual * other.real
+			dest.dxs[i] = (aw*bex + ax*bew + ay*bez - az*bey) + (aew*bx + aex*bw + aey*bz - aez*by);
+			dest.dys[i] = (aw*bey - ax*bez + ay*bew + az*bex) + (aew*by - aex*bz + aey*bw + aez*bx);
+			dest.dzs[i] = (aw*bez + ax*bey - ay*bex + az*bew) + (aew*bz + aex*by - aey*bx + aez*bw);
+			dest.dws[i] = (aw*bew - ax*bex - ay*bey - az*bez) + (aew*bw - aex*bx - aey*by - aez*bz);
+		}
+	}
+
+	/**
+	 * Blend the bone transformations influencing each vertex, writing the normalized result for vertex {@code v} into
+	 * {@code dest[v]}. This is useful for uploading per-vertex transformations, or for skinning on the GPU.
+	 * @see DualQuaternion#blend(DualQuaternion[], float[])
+	 */
+	public void blend(int[] joints, float[] weights, int influences, DualQuaternionArray dest, int from, int to)
+	{
+		checkInfluences(joints, weights, influences, to);
+		checkPositionIndexes(from, to, dest.size());
+		float[] blended = new float[8];
+		for(int v = from; v < to; v++)
+		{
+			blend(joints, weights, influences, v, blended);
+			dest.rxs[v] = blended[0];
+			dest.rys[v] = blended[1];
+			dest.rzs[v] = blended[2];
+			dest.rws[v] = blended[3];
+			dest.dxs[v] = blended[4];
+			dest.dys[v] = blended[5];
+			dest.dzs[v] = blended[6];
+			dest.dws[v] = blended[7];
+		}
+	}
+
+	/**
+	 * Skin {@code count} packed 3-element points: blend the bone transformations influencing each vertex, then rotate
+	 * and translate the point by the result. Vertex {@code v} (counting from 0) is read from
+	 * {@code src[srcOffset + v*srcStride]} and written to {@code dst[dstOffset + v*dstStride]}.
+	 * @see DualQuaternion#transformPoint(galu.vector.Vector3)
+	 */
+	public void skinPoints(int[] joints, float[] weights, int influences,
+	                       float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		skin(joints, weights, influences, src, srcOffset, srcStride, dst, dstOffset, dstStride, count, true);
+	}
+
+	/**
+	 * Skin {@code count} packed 3-element directions (such as normals or tangents): blend the bone transformations
+	 * influencing each vertex, then rotate the direction by the result.
+	 * @see #skinPoints(int[], float[], int, float[], int, int, float[], int, int, int)
+	 * @see DualQuaternion#transformDirection(galu.vector.Vector3)
+	 */
+	public void skinDirections(int[] joints, float[] weights, int influences,
+	                           float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count)
+	{
+		skin(joints, weights, influences, src, srcOffset, srcStride, dst, dstOffset, dstStride, count, false);
+	}
+
+	private void skin(int[] joints, float[] weights, int influences,
+	                  float[] src, int srcOffset, int srcStride, float[] dst, int dstOffset, int dstStride, int count,
+	                  boolean translate)
+	{
+		checkInfluences(joints, weights, influences, count);
+		Checks.checkRange("Source", src.length, srcOffset, srcStride, 3, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, dstStride, 3, count);
+		float[] blended = new float[8];
+		for(int v = 0, s = srcOffset, d = dstOffset; v < count; v++, s += srcStride, d += dstStride)
+		{
+			blend(joints, weights, influences, v, blended);
+			float rx = blended[0], ry = blended[1], rz = blended[2], rw = blended[3];
+			float px = src[s], py = src[s + 1], pz = src[s + 2];
+
+			// Same as Quaternion.rotate
+			float tx = 2 * (ry*pz - rz*py);
+			float ty = 2 * (rz*px - rx*pz);
+			float tz = 2 * (rx*py - ry*px);
+			float x = px + rw*tx + (ry*tz - rz*ty);
+			float y = py + rw*ty + (rz*tx - rx*tz);
+			float z = pz + rw*tz + (rx*ty - ry*tx);
+
+			if(translate)
+			{
+				// Same as DualQuaternion.translation
+				float ex = blended[4], ey = blended[5], ez = blended[6], ew = blended[7];
+				x += 2 * (rw*ex - ew*rx + ry*ez - rz*ey);
+				y += 2 * (rw*ey - ew*ry + rz*ex - rx*ez);
+				z += 2 * (rw*ez - ew*rz + rx*ey - ry*ex);
+			}
+
+			dst[d] = x;
+			dst[d + 1] = y;
+			dst[d + 2] = z;
+		}
+	}
+
+	// Dual quaternion linear blending for one vertex, the same way as DualQuaternion.blend followed by normalize
+	private void blend(int[] joints, float[] weights, int influences, int v, float[] out)
+	{
+		int first = v * influences;
+		int pivot = joints[first];
+		float px = rxs[pivot], py = rys[pivot], pz = rzs[pivot], pw = rws[pivot];
+
+		float rx = 0, ry = 0, rz = 0, rw = 0;
+		float dx = 0, dy = 0, dz = 0, dw = 0;
+		for(int k = first; k < first + influences; k++)
+		{
+			int j = joints[k];
+			float jx = rxs[j], jy = rys[j], jz = rzs[j], jw = rws[j];
+			float w = px*jx + py*jy + pz*jz + pw*jw < 0 ? -weights[k] : weights[k];
+			rx += w * jx;
+			ry += w * jy;
+			rz += w * jz;
+			rw += w * jw;
+			dx += w * dxs[j];
+			dy += w * dys[j];
+			dz += w * dzs[j];
+			dw += w * dws[j];
+		}
+
+		float factor = 1f / (float) Math.sqrt(rx*rx + ry*ry + rz*rz + rw*rw);
+		rx *= factor;
+		ry *= factor;
+		rz *= factor;
+		rw *= factor;
+		dx *= factor;
+		dy *= factor;
+		dz *= factor;
+		dw *= factor;
+		float dot = rx*dx + ry*dy + rz*dz + rw*dw;
+
+		out[0] = rx;
+		out[1] = ry;
+		out[2] = rz;
+		out[3] = rw;
+		out[4] = dx - rx*dot;
+		out[5] = dy - ry*dot;
+		out[6] = dz - rz*dot;
+		out[7] = dw - rw*dot;
+	}
+
+	private static void checkInfluences(int[] joints, float[] weights, int influences, int vertices)
+	{
+		Checks.checkArgument(influences >= 1, "Each vertex needs at least one influence, not %d", influences);
+		Checks.checkRange("Joint array", joints.length, 0, influences, influences, vertices);
+		Checks.checkRange("Weight array", weights.length, 0, influences, influences, vertices);
+	}
+}
@@ -0,0 +1,337 @@
+package galu.transform;
+
+import galu.matrix.Matrix3;
+import galu.matrix.Matrix4;
+import galu.vector.Vector3;
+
+import java.nio.FloatBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A quaternion {@code w + xi + yj + zk}. Unit quaternions represent rotations, and compose with 16 multiplies instead of
+ * the 64 needed for {@link Matrix4#multiply(Matrix4)}. Their rotations follow the same conventions as
+ * {@link Transformations#rotate(float, Vector3)}.
+ * @see <a href="http://www.cs.princeton.edu/~gewang/projects/darth/stuff/quat_faq.html">The Matrix and Quaternions FAQ</a>
+ */
+public final class Quaternion
+{
+	public static final Quaternion IDENTITY = new Quaternion(0, 0, 0, 1);
+
+	// Above this cosine, slerp falls back to nlerp, since sin(angle) is too small to divide by
+	private static final float SLERP_THRESHOLD = 0.9995f;
+
+	public final float x;
+	public final float y;
+	public final float z;
+	public final float w;
+
+	public Quaternion(float x, float y, float z, float w)
+	{
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.w = w;
+	}
+
+	/**
+	 * Create a rotation by an angle through an axis.
+	 * @param angle the angle to rotate by (radians)
+	 * @param axis the axis to rotate through (it doesn't need to be normalized)
+	 * @return a unit quaternion
+	 */
+	public static Quaternion fromAxisAngle(float angle, Vector3 axis)
+	{
+		float length = axis.length();
+		checkArgument(length != 0, "Rotation axis has length 0");
+		float s = (float) Math.sin(angle / 2) / length;
+		return new Quaternion(axis.x * s, axis.y * s, axis.z * s, (float) Math.cos(angle / 2));
+	}
+
+	/**
+	 * Convert a rotation matrix to a quaternion. The matrix is assumed to be orthonormal.
+	 * @param m a rotation matrix
+	 * @return a unit quaternion
+	 */
+	public static Quaternion fromMatrix(Matrix3 m)
+	{
+		return fromMatrix(m.m00, m.m01, m.m02, m.m10, m.m11, m.m12, m.m20, m.m21, m.m22);
+	}
+
+	/**
+	 * Convert the rotation in the upper-left 3x3 block of a matrix to a quaternion. The block is assumed to be
+	 * orthonormal, so any scaling should be removed first (see {@link Transformations#decompose(Matrix4)}).
+	 * @param m a transformation matrix
+	 * @return a unit quaternion
+	 */
+	public static Quaternion fromMatrix(Matrix4 m)
+	{
+		return fromMatrix(m.m00, m.m01, m.m02, m.m10, m.m11, m.m12, m.m20, m.m21, m.m22);
+	}
+
+	// Shepperd's method: take the square root of whichever of 4w^2, 4x^2, 4y^2, and 4z^2 is largest, so it's never near 0
+	static Quaternion fromMatrix(float m00, float m01, float m02,
+	                             float m10, float m11, float m12,
+	                             float m20, float m21, float m22)
+	{
+		float trace = m00 + m11 + m22;
+		if(trace > 0)
+		{
+			float s = (float) Math.sqrt(trace + 1f) * 2f; // 4w
+			return new Quaternion((m21 - m12) / s, (m02 - m20) / s, (m10 - m01) / s, 0.25f * s);
+		}
+		else if(m00 > m11 && m00 > m22)
+		{
+			float s = (float) Math.sqrt(1f + m00 - m11 - m22) * 2f; // 4x
+			return new Quaternion(0.25f * s, (m01 + m10) / s, (m02 + m20) / s, (m21 - m12) / s);
+		}
+		else if(m11 > m22)
+		{
+			float s = (float) Math.sqrt(1f + m11 - m00 - m22) * 2f; // 4y
+			return new Quaternion((m01 + m10) / s, 0.25f * s, (m12 + m21) / s, (m02 - m20) / s);
+		}
+		else
+		{
+			float s = (float) Math.sqrt(1f + m22 - m00 - m11) * 2f; // 4z
+			return new Quaternion((m02 + m20) / s, (m12 + m21) / s, 0.25f * s, (m10 - m01) / s);
+		}
+	}
+
+	public float length()
+	{
+		return (float) Math.sqrt(lengthSquared());
+	}
+
+	public float lengthSquared()
+	{
+		return x*x + y*y + z*z + w*w;
+	}
+
+	public float dot(Quaternion other)
+	{
+		return x*other.x + y*other.y + z*other.z + w*other.w;
+	}
+
+	public Quaternion normalize()
+	{
+		float length = length();
+		return new Quaternion(x / length, y / length, z / length, w / length);
+	}
+
+	/**
+	 * For unit quaternions, the conjugate is the inverse rotation.
+	 */
+	public Quaternion conjugate()
+	{
+		return new Quaternion(-x, -y, -z, w);
+	}
+
+	public Quaternion inverse()
+	{
+		float lengthSquared = lengthSquared();
+		checkState(lengthSquared != 0, "Quaternion is not invertible: length is 0");
+		float factor = 1f / lengthSquared;
+		return new Quaternion(-x * factor, -y * factor, -z * factor, w * factor);
+	}
+
+	public Quaternion negate()
+	{
+		return new Quaternion(-x, -y, -z, -w);
+	}
+
+	/**
+	 * Compose two rotations. Like matrix multiplication, {@code a.multiply(b)} rotates by {@code b} first and then by
+	 * {@code a}.
+	 * @param other the rotation to apply first
+	 * @return the Hamilton product {@code this * other}
+	 */
+	public Quaternion multiply(Quaternion other)
+	{
+		return new Quaternion(
+			w*other.x + x*other.w + y*other.z - z*other.y,
+			w*other.y - x*other.z + y*other.w + z*other.x,
+			w*other.z + x*other.y - y*other.x + z*other.w,
+			w*other.w - x*other.x - y*other.y - z*other.z
+		);
+	}
+
+	/**
+	 * Rotate a vector by this (unit) quaternion. This computes {@code v + 2w(q x v) + 2q x (q x v)}, which is cheaper than
+	 * the full {@code q v q*} product.
+	 * @param vec the vector to rotate
+	 * @return the rotated vector
+	 */
+	public Vector3 rotate(Vector3 vec)
+	{
+		float tx = 2 * (y*vec.z - z*vec.y);
+		float ty = 2 * (z*vec.x - x*vec.z);
+		float tz = 2 * (x*vec.y - y*vec.x);
+		return new Vector3(
+			vec.x + w*tx + (y*tz - z*ty),
+			vec.y + w*ty + (z*tx - x*tz),
+			vec.z + w*tz + (x*ty - y*tx)
+		);
+	}
+
+	/**
+	 * Normalized linear interpolation. This is cheap and needs no trigonometry, but the angular speed isn't constant:
+	 * it's faster in the middle of the arc. The shorter path between the rotations is taken.
+	 * @param other the rotation at {@code t = 1}
+	 * @param t the interpolation parameter, from 0 to 1
+	 * @return a unit quaternion
+	 */
+	public Quaternion nlerp(Quaternion other, float t)
+	{
+		float s = dot(other) < 0 ? -t : t;
+		float u = 1f - t;
+		float rx = u*x + s*other.x;
+		float ry = u*y + s*other.y;
+		float rz = u*z + s*other.z;
+		float rw = u*w + s*other.w;
+		float factor = 1f / (float) Math.sqrt(rx*rx + ry*ry + rz*rz + rw*rw);
+		return new Quaternion(rx * factor, ry * factor, rz * factor, rw * factor);
+	}
+
+	/**
+	 * Spherical linear interpolation, at constant angular speed along the shorter path between the rotations.
+	 * This needs an {@code acos} and two {@code sin}s; see {@link #fastSlerp(Quaternion, float)} for a cheaper
+	 * approximation.
+	 * @param other the rotation at {@code t = 1}
+	 * @param t the interpolation parameter, from 0 to 1
+	 * @return a unit quaternion
+	 */
+	public Quaternion slerp(Quaternion other, float t)
+	{
+		float cos = dot(other);
+		float sign = 1;
+		if(cos < 0)
+		{
+			cos = -cos;
+			sign = -1;
+		}
+		if(cos > SLERP_THRESHOLD)
+		{
+			return nlerp(other, t);
+		}
+
+		double angle = Math.acos(cos);
+		double sin = Math.sin(angle);
+		float a = (float) (Math.sin((1 - t) * angle) / sin);
+		float b = sign * (float) (Math.sin(t * angle) / sin);
+		return new Quaternion(a*x + b*other.x, a*y + b*other.y, a*z + b*other.z, a*w + b*other.w);
+	}
+
+	/**
+	 * Approximate {@link #slerp(Quaternion, float)} without any trigonometry. This nudges {@code t} with a polynomial (in
+	 * {@code t} and the cosine of the angle between the rotations) that corrects for {@link #nlerp(Quaternion, float)}'s
+	 * uneven speed, then uses nlerp. The result is within 0.001 radians of slerp, which is far below what's visible in
+	 * animation.
+	 * @param other the rotation at {@code t = 1}
+	 * @param t the interpolation parameter, from 0 to 1
+	 * @return a unit quaternion
+	 * @see <a href="http://zeux.io/2015/07/23/approximating-slerp/">Approximating slerp</a>
+	 */
+	public Quaternion fastSlerp(Quaternion other, float t)
+	{
+		return nlerp(other, adjust(t, Math.abs(dot(other))));
+	}
+
+	// Fitted so that nlerp with the adjusted t stays within 0.001 radians of slerp over all inputs
+	static float adjust(float t, float cos)
+	{
+		float a = 1.0904f + cos * (-3.2452f + cos * (3.55645f - cos * 1.43519f));
+		float b = 0.848013f + cos * (-1.06021f + cos * 0.215638f);
+		float h = t - 0.5f;
+		float k = a * h * h + b;
+		return t + t * h * (t - 1f) * k;
+	}
+
+	/**
+	 * @return the rotation matrix for this (unit) quaternion
+	 */
+	public Matrix3 toMatrix3()
+	{
+		float xx = x*x, yy = y*y, zz = z*z;
+		float xy = x*y, xz = x*z, yz = y*z;
+		float wx = w*x, wy = w*y, wz = w*z;
+		return new Matrix3(
+			1 - 2*(yy + zz),     2*(xy - wz),     2*(xz + wy),
+			    2*(xy + wz), 1 - 2*(xx + zz),     2*(yz - wx),
+			    2*(xz - wy),     2*(yz + wx), 1 - 2*(xx + yy)
+		);
+	}
+
+	/**
+	 * @return the homogeneous rotation matrix for this (unit) quaternion
+	 */
+	public Matrix4 toMatrix4()
+	{
+		float xx = x*x, yy = y*y, zz = z*z;
+		float xy = x*y, xz = x*z, yz = y*z;
+		float wx = w*x, wy = w*y, wz = w*z;
+		return new Matrix4(
+			1 - 2*(yy + zz),     2*(xy - wz),     2*(xz + wy), 0,
+			    2*(xy + wz), 1 - 2*(xx + zz),     2*(yz - wx), 0,
+			    2*(xz - wy),     2*(yz + wx), 1 - 2*(xx + yy), 0,
+			              0,               0,               0, 1
+		);
+	}
+
+	public void store(FloatBuffer buf)
+	{
+		checkArgument(buf.remaining() >= 4, "Buffer has fewer than 4 elements remaining (%s)", buf);
+		buf.put(x).put(y).put(z).put(w);
+	}
+
+	public void store(float[] array)
+	{
+		checkArgument(array.length >= 4, "Array has fewer than 4 elements (%s)", array.length);
+		array[0] = x;
+		array[1] = y;
+		array[2] = z;
+		array[3] = w;
+	}
+
+	public static Quaternion load(FloatBuffer buffer)
+	{
+		checkArgument(buffer.remaining() >= 4, "Buffer has fewer than 4 elements remaining (%s)", buffer);
+		return new Quaternion(buffer.get(), buffer.get(), buffer.get(), buffer.get());
+	}
+
+	public static Quaternion load(float[] array)
+	{
+		checkArgument(array.length >= 4, "Array has fewer than 4 elements (%s)", array.length);
+		return new Quaternion(array[0], array[1], array[2], array[3]);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("(%.4f, %.4f, %.4f, %.4f)", x, y, z, w);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if(obj == null) return false;
+		if(obj == this) return true;
+		if(!(obj instanceof Quaternion)) return false;
+		Quaternion other = (Quaternion) obj;
+		return Float.floatToIntBits(x) == Float.floatToIntBits(other.x) &&
+				Float.floatToIntBits(y) == Float.floatToIntBits(other.y) &&
+				Float.floatToIntBits(z) == Float.floatToIntBits(other.z) &&
+				Float.floatToIntBits(w) == Float.floatToIntBits(other.w);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int result = 23;
+		result = 37 * result + Float.floatToIntBits(x);
+		result = 37 * result + Float.floatToIntBits(y);
+		result = 37 * result + Float.floatToIntBits(z);
+		result = 37 * result + Float.floatToIntBits(w);
+		return result;
+	}
+}
@@ -0,0 +1,223 @@
+package galu.transform;
+
+import galu.util.Checks;
+import galu.vector.Vector3Array;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * A fixed-size batch of quaternions, stored as a structure of arrays (one array per component).
+ * Like {@link galu.vector.Vector3Array}, bulk operations work on the index range {@code [from, to)} and write their
+ * results into a destination array, so no objects are allocated per element. The results are the same as applying the
+ * corresponding {@link Quaternion} operation to each element. The destination may be the same array as either operand.
+ */
+public final class QuaternionArray
+{
+	public final float[] xs;
+	public final float[] ys;
+	public final float[] zs;
+	public final float[] ws;
+
+	public QuaternionArray(int size)
+	{
+		this(new float[size], new float[size], new float[size], new float[size]);
+	}
+
+	public QuaternionArray(float[] xs, float[] ys, float[] zs, float[] ws)
+	{
+		checkArgument(xs.length == ys.length && xs.length == zs.length && xs.length == ws.length,
+		              "Component arrays differ in length (%s, %s, %s, %s)", xs.length, ys.length, zs.length, ws.length);
+		this.xs = xs;
+		this.ys = ys;
+		this.zs = zs;
+		this.ws = ws;
+	}
+
+	public int size()
+	{
+		return xs.length;
+	}
+
+	public Quaternion get(int idx)
+	{
+		return new Quaternion(xs[idx], ys[idx], zs[idx], ws[idx]);
+	}
+
+	public void set(int idx, float x, float y, float z, float w)
+	{
+		xs[idx] = x;
+		ys[idx] = y;
+		zs[idx] = z;
+		ws[idx] = w;
+	}
+
+	public void set(int idx, Quaternion quat)
+	{
+		set(idx, quat.x, quat.y, quat.z, quat.w);
+	}
+
+	/**
+	 * Compose each pair of rotations: {@code dest[i] = this[i] * other[i]}.
+	 * @see Quaternion#multiply(Quaternion)
+	 */
+	public void multiply(QuaternionArray other, QuaternionArray dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] bx = other.xs, by = other.ys, bz = other.zs, bw = other.ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			// Read everything first in case dest is one of the operands
+			float x1 = ax[i], y1 = ay[i], z1 = az[i], w1 = aw[i];
+			float x2 = bx[i], y2 = by[i], z2 = bz[i], w2 = bw[i];
+			dx[i] = w1*x2 + x1*w2 + y1*z2 - z1*y2;
+			dy[i] = w1*y2 - x1*z2 + y1*w2 + z1*x2;
+			dz[i] = w1*z2 + x1*y2 - y1*x2 + z1*w2;
+			dw[i] = w1*w2 - x1*x2 - y1*y2 - z1*z2;
+		}
+	}
+
+	public void conjugate(QuaternionArray dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = -ax[i];
+			dy[i] = -ay[i];
+			dz[i] = -az[i];
+			dw[i] = aw[i];
+		}
+	}
+
+	public void normalize(QuaternionArray dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			float x = ax[i], y = ay[i], z = az[i], w = aw[i];
+			float length = (float) Math.sqrt(x*x + y*y + z*z + w*w);
+			dx[i] = x / length;
+			dy[i] = y / length;
+			dz[i] = z / length;
+			dw[i] = w / length;
+		}
+	}
+
+	/**
+	 * Interpolate each pair of rotations by the same amount.
+	 * @see Quaternion#nlerp(Quaternion, float)
+	 */
+	public void nlerp(QuaternionArray other, float t, QuaternionArray dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		interpolate(other, t, false, dest, from, to);
+	}
+
+	/**
+	 * Interpolate each pair of rotations by the same amount, without any trigonometry.
+	 * @see Quaternion#fastSlerp(Quaternion, float)
+	 */
+	public void fastSlerp(QuaternionArray other, float t, QuaternionArray dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		interpolate(other, t, true, dest, from, to);
+	}
+
+	private void interpolate(QuaternionArray other, float t, boolean adjust, QuaternionArray dest, int from, int to)
+	{
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] bx = other.xs, by = other.ys, bz = other.zs, bw = other.ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			float x1 = ax[i], y1 = ay[i], z1 = az[i], w1 = aw[i];
+			float x2 = bx[i], y2 = by[i], z2 = bz[i], w2 = bw[i];
+			float dot = x1*x2 + y1*y2 + z1*z2 + w1*w2;
+			float ti = adjust ? Quaternion.adjust(t, Math.abs(dot)) : t;
+			float s = dot < 0 ? -ti : ti;
+			float u = 1f - ti;
+			float rx = u*x1 + s*x2;
+			float ry = u*y1 + s*y2;
+			float rz = u*z1 + s*z2;
+			float rw = u*w1 + s*w2;
+			float factor = 1f / (float) Math.sqrt(rx*rx + ry*ry + rz*rz + rw*rw);
+			dx[i] = rx * factor;
+			dy[i] = ry * factor;
+			dz[i] = rz * factor;
+			dw[i] = rw * factor;
+		}
+	}
+
+	/**
+	 * Rotate each vector by the corresponding (unit) quaternion: {@code dest[i] = this[i].rotate(src[i])}.
+	 * @see Quaternion#rotate(galu.vector.Vector3)
+	 */
+	public void rotate(Vector3Array src, Vector3Array dest, int from, int to)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, src.size());
+		checkPositionIndexes(from, to, dest.size());
+		float[] qx = xs, qy = ys, qz = zs, qw = ws;
+		float[] sx = src.xs, sy = src.ys, sz = src.zs;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs;
+		for(int i = from; i < to; i++)
+		{
+			float x = qx[i], y = qy[i], z = qz[i], w = qw[i];
+			float vx = sx[i], vy = sy[i], vz = sz[i];
+			float tx = 2 * (y*vz - z*vy);
+			float ty = 2 * (z*vx - x*vz);
+			float tz = 2 * (x*vy - y*vx);
+			dx[i] = vx + w*tx + (y*tz - z*ty);
+			dy[i] = vy + w*ty + (z*tx - x*tz);
+			dz[i] = vz + w*tz + (x*ty - y*tx);
+		}
+	}
+
+	/**
+	 * Write the rotation matrix for each (unit) quaternion into {@code dst}, as 16 consecutive floats in row-major order
+	 * starting at {@code dstOffset + 16*(i - from)}. This is the layout used by {@link galu.matrix.Matrix4Kernel}.
+	 * @see Quaternion#toMatrix4()
+	 */
+	public void toMatrices(float[] dst, int dstOffset, int from, int to)
+	{
+		checkPositionIndexes(from, to, size());
+		Checks.checkRange("Destination", dst.length, dstOffset, 16, 16, to - from);
+		float[] qx = xs, qy = ys, qz = zs, qw = ws;
+		for(int i = from, d = dstOffset; i < to; i++, d += 16)
+		{
+			float x = qx[i], y = qy[i], z = qz[i], w = qw[i];
+			float xx = x*x, yy = y*y, zz = z*z;
+			float xy = x*y, xz = x*z, yz = y*z;
+			float wx = w*x, wy = w*y, wz = w*z;
+			dst[d]      = 1 - 2*(yy + zz);
+			dst[d + 1]  = 2*(xy - wz);
+			dst[d + 2]  = 2*(xz + wy);
+			dst[d + 3]  = 0;
+			dst[d + 4]  = 2*(xy + wz);
+			dst[d + 5]  = 1 - 2*(xx + zz);
+			dst[d + 6]  = 2*(yz - wx);
+			dst[d + 7]  = 0;
+			dst[d + 8]  = 2*(xz - wy);
+			dst[d + 9]  = 2*(yz + wx);
+			dst[d + 10] = 1 - 2*(xx + yy);
+			dst[d + 11] = 0;
+			dst[d + 12] = 0;
+			dst[d + 13] = 0;
+			dst[d + 14] = 0;
+			dst[d + 15] = 1;
+		}
+	}
+
+	private void checkRange(int from, int to, QuaternionArray other, QuaternionArray dest)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, other.size());
+		checkPositionIndexes(from, to, dest.size());
+	}
+}
@@ -0,0 +1,460 @@
+package galu.transform;
+
+import galu.matrix.Matrix4;
+import galu.vector.Vector3;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A scene graph's transforms, stored in flat arrays, with world matrices that are only recomputed when something above
+ * them changed.
+ * <p>
+ * Each node has a parent index, a local translation, rotation, and scale, and a world matrix. Nodes are added with
+ * {@link #add(int)} after their parent, so the arrays are always sorted parent-before-child and a single forward pass
+ * sees every parent before its children. Setting a node's local transform marks it dirty; {@link #update()} recomputes
+ * the world matrix ({@code parentWorld * translate * rotate * scale}) of every dirty node and of everything below one,
+ * and leaves the rest alone.
+ * <p>
+ * {@link #update(ForkJoinPool)} does the same in parallel. The subtrees under each root's children can't affect each
+ * other, so after the roots are updated, the subtrees are split among tasks by size. Each subtree is updated by a single
+ * task in the same order as the sequential pass, so the results are identical.
+ * <p>
+ * World matrices are stored column-major, 16 floats per node, in {@link #worldMatrices()}, ready to be copied into a
+ * uniform or instance buffer. {@link #updated(int)} says which ones the last update changed.
+ */
+public final class TransformHierarchy
+{
+	/**
+	 * The parent of a root node.
+	 */
+	public static final int NO_PARENT = -1;
+
+	// Subtrees are split among tasks until a task has fewer nodes than this
+	private static final int PARALLEL_THRESHOLD = 1024;
+
+	private static final int LOCAL_SIZE = 10;
+	private static final int MATRIX_SIZE = 16;
+
+	private final int capacity;
+	private int size = 0;
+
+	private final int[] parents;
+	// Per node: translation (x, y, z), rotation quaternion (x, y, z, w), scale (x, y, z)
+	private final float[] locals;
+	private final float[] worlds;
+	private final boolean[] dirty;
+	private final boolean[] updated;
+	private int lastUpdateCount = 0;
+
+	// The nodes below depth 0, grouped by subtree of a root's child, each group in index order. Rebuilt when nodes are
+	// added.
+	private final int[] depths;
+	private int[] groupOrder = new int[0];
+	private int[] groupStarts = new int[1];
+	private boolean groupsValid = true;
+
+	/**
+	 * @param capacity the maximum number of nodes
+	 */
+	public TransformHierarchy(int capacity)
+	{
+		checkArgument(capacity >= 0, "Capacity must not be negative: %s", capacity);
+		this.capacity = capacity;
+		parents = new int[capacity];
+		locals = new float[LOCAL_SIZE * capacity];
+		worlds = new float[MATRIX_SIZE * capacity];
+		dirty = new boolean[capacity];
+		updated = new boolean[capacity];
+		depths = new int[capacity];
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int capacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Add a node with an identity local transform. It's dirty until the next update.
+	 * @param parent the index of an existing node, or {@link #NO_PARENT} for a root
+	 * @return the new node's index
+	 * @throws IllegalStateException if the hierarchy is full
+	 */
+	public int add(int parent)
+	{
+		if(size == capacity)
+		{
+			throw new IllegalStateException("Hierarchy is full (capacity " + capacity + ")");
+		}
+		checkArgument(parent == NO_PARENT || (parent >= 0 && parent < size), "Parent %s is not an existing node", parent);
+		int node = size++;
+		parents[node] = parent;
+		depths[node] = parent == NO_PARENT ? 0 : depths[parent] + 1;
+		setLocal(node, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1);
+		groupsValid = false;
+		return node;
+	}
+
+	/**
+	 * @return the index of a node's parent, or {@link #NO_PARENT}
+	 */
+	public int parent(int node)
+	{
+		checkElementIndex(node, size);
+		return parents[node];
+	}
+
+	public void setTranslation(int node, float x, float y, float z)
+	{
+		int l = local(node);
+		locals[l] = x;
+		locals[l + 1] = y;
+		locals[l + 2] = z;
+		dirty[node] = true;
+	}
+
+	/**
+	 * Set a node's rotation, as the components of a unit quaternion.
+	 */
+	public void setRotation(int node, float x, float y, float z, float w)
+	{
+		int l = local(node) + 3;
+		locals[l] = x;
+		locals[l + 1] = y;
+		locals[l + 2] = z;
+		locals[l + 3] = w;
+		dirty[node] = true;
+	}
+
+	public void setScale(int node, float x, float y, float z)
+	{
+		int l = local(node) + 7;
+		locals[l] = x;
+		locals[l + 1] = y;
+		locals[l + 2] = z;
+		dirty[node] = true;
+	}
+
+	public void setLocal(int node, Vector3 translation, Quaternion rotation, Vector3 scale)
+	{
+		setTranslation(node, translation.x, translation.y, translation.z);
+		setRotation(node, rotation.x, rotation.y, rotation.z, rotation.w);
+		setScale(node, scale.x, scale.y, scale.z);
+	}
+
+	private void setLocal(int node, float tx, float ty, float tz, float rx, float ry, float rz, float rw, float sx, float sy, float sz)
+	{
+		int l = LOCAL_SIZE * node;
+		locals[l] = tx;
+		locals[l + 1] = ty;
+		locals[l + 2] = tz;
+		locals[l + 3] = rx;
+		locals[l + 4] = ry;
+		locals[l + 5] = rz;
+		locals[l + 6] = rw;
+		locals[l + 7] = sx;
+		locals[l + 8] = sy;
+		locals[l + 9] = sz;
+		dirty[node] = true;
+	}
+
+	public Vector3 translation(int node)
+	{
+		int l = local(node);
+		return new Vector3(locals[l], locals[l + 1], locals[l + 2]);
+	}
+
+	public Quaternion rotation(int node)
+	{
+		int l = local(node) + 3;
+		return new Quaternion(locals[l], locals[l + 1], locals[l + 2], locals[l + 3]);
+	}
+
+	public Vector3 scale(int node)
+	{
+		int l = local(node) + 7;
+		return new Vector3(locals[l], locals[l + 1], locals[l + 2]);
+	}
+
+	private int local(int node)
+	{
+		checkElementIndex(node, size);
+		return LOCAL_SIZE * node;
+	}
+
+	/**
+	 * @return whether a node's local transform changed since the last update
+	 */
+	public boolean isDirty(int node)
+	{
+		checkElementIndex(node, size);
+		return dirty[node];
+	}
+
+	/**
+	 * @return a node's world matrix as of the last update
+	 */
+	public Matrix4 world(int node)
+	{
+		checkElementIndex(node, size);
+		float[] w = worlds;
+		int m = MATRIX_SIZE * node;
+		return new Matrix4(w[m], w[m + 4], w[m + 8], w[m + 12],
+		                   w[m + 1], w[m + 5], w[m + 9], w[m + 13],
+		                   w[m + 2], w[m + 6], w[m + 10], w[m + 14],
+		                   w[m + 3], w[m + 7], w[m + 11], w[m + 15]);
+	}
+
+	/**
+	 * @return every node's world matrix as of the last update, column-major, 16 floats per node. This is the hierarchy's
+	 * own array, so it must not be modified.
+	 */
+	public float[] worldMatrices()
+	{
+		return worlds;
+	}
+
+	/**
+	 * @return whether the last update recomputed a node's world matrix
+	 */
+	public boolean updated(int node)
+	{
+		checkElementIndex(node, size);
+		return updated[node];
+	}
+
+	/**
+	 * @return the number of world matrices the last update recomputed
+	 */
+	public int lastUpdateCount()
+	{
+		return lastUpdateCount;
+	}
+
+	/**
+	 * Recompute the world matrices of dirty nodes and their descendants, on the calling thread.
+	 * @return the number of world matrices recomputed
+	 */
+	public int update()
+	{
+		int count = 0;
+		for(int node = 0; node < size; node++)
+		{
+			if(updateNode(node))
+			{
+				count++;
+			}
+		}
+		lastUpdateCount = count;
+		return count;
+	}
+
+	/**
+	 * Recompute the world matrices of dirty nodes and their descendants, updating independent subtrees in parallel.
+	 * @param pool the pool to update subtrees on
+	 * @return the number of world matrices recomputed
+	 */
+	public int update(ForkJoinPool pool)
+	{
+		checkNotNull(pool, "pool");
+		if(!groupsValid)
+		{
+			buildGroups();
+		}
+
+		// Roots first, since every subtree depends on one
+		int count = 0;
+		for(int node = 0; node < size; node++)
+		{
+			if(depths[node] == 0 && updateNode(node))
+			{
+				count++;
+			}
+		}
+
+		int groups = groupStarts.length - 1;
+		if(groups > 0)
+		{
+			UpdateTask task = new UpdateTask(0, groups);
+			pool.invoke(task);
+			count += task.count;
+		}
+		lastUpdateCount = count;
+		return count;
+	}
+
+	/**
+	 * Sort the non-root nodes by the subtree they're in (identified by the root's child at the top of it), keeping index
+	 * order within each subtree, with a counting sort.
+	 */
+	private void buildGroups()
+	{
+		int[] group = new int[size];
+		int groups = 0;
+		for(int node = 0; node < size; node++)
+		{
+			int depth = depths[node];
+			group[node] = depth == 0 ? -1 : depth == 1 ? groups++ : group[parents[node]];
+		}
+
+		int[] starts = new int[groups + 1];
+		for(int node = 0; node < size; node++)
+		{
+			if(group[node] >= 0)
+			{
+				starts[group[node] + 1]++;
+			}
+		}
+		for(int g = 0; g < groups; g++)
+		{
+			starts[g + 1] += starts[g];
+		}
+		int[] order = new int[starts[groups]];
+		int[] next = Arrays.copyOf(starts, groups);
+		for(int node = 0; node < size; node++)
+		{
+			if(group[node] >= 0)
+			{
+				order[next[group[node]]++] = node;
+			}
+		}
+
+		groupOrder = order;
+		groupStarts = starts;
+		groupsValid = true;
+	}
+
+	/**
+	 * Updates the subtrees in groups {@code [from, to)}, splitting them in two while there are enough nodes.
+	 */
+	@SuppressWarnings("serial")
+	private final class UpdateTask extends RecursiveAction
+	{
+		private final int from;
+		private final int to;
+		int count = 0;
+
+		UpdateTask(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			int start = groupStarts[from], end = groupStarts[to];
+			if(to - from > 1 && end - start > PARALLEL_THRESHOLD)
+			{
+				// Split at the group boundary closest to the middle node
+				int middle = Arrays.binarySearch(groupStarts, from, to + 1, start + (end - start) / 2);
+				if(middle < 0)
+				{
+					middle = -middle - 1;
+				}
+				middle = Math.max(from + 1, Math.min(to - 1, middle));
+				UpdateTask left = new UpdateTask(from, middle);
+				UpdateTask right = new UpdateTask(middle, to);
+				invokeAll(left, right);
+				count = left.count + right.count;
+				return;
+			}
+
+			int recomputed = 0;
+			for(int i = start; i < end; i++)
+			{
+				if(updateNode(groupOrder[i]))
+				{
+					recomputed++;
+				}
+			}
+			count = recomputed;
+		}
+	}
+
+	/**
+	 * Recompute a node's world matrix if it or its parent changed. The parent must already be up to date.
+	 * @return whether the node was recomputed
+	 */
+	private boolean updateNode(int node)
+	{
+		int parent = parents[node];
+		boolean changed = dirty[node] || (parent != NO_PARENT && updated[parent]);
+		updated[node] = changed;
+		if(!changed)
+		{
+			return false;
+		}
+		dirty[node] = false;
+
+		// The local matrix's upper 3x3 is the rotation matrix with its columns scaled
+		float[] l = locals;
+		int b = LOCAL_SIZE * node;
+		float tx = l[b], ty = l[b + 1], tz = l[b + 2];
+		float x = l[b + 3], y = l[b + 4], z = l[b + 5], w = l[b + 6];
+		float sx = l[b + 7], sy = l[b + 8], sz = l[b + 9];
+		float xx = x*x, yy = y*y, zz = z*z;
+		float xy = x*y, xz = x*z, yz = y*z;
+		float wx = w*x, wy = w*y, wz = w*z;
+		float a00 = (1 - 2*(yy + zz)) * sx, a01 = 2*(xy - wz) * sy,       a02 = 2*(xz + wy) * sz;
+		float a10 = 2*(xy + wz) * sx,       a11 = (1 - 2*(xx + zz)) * sy, a12 = 2*(yz - wx) * sz;
+		float a20 = 2*(xz - wy) * sx,       a21 = 2*(yz + wx) * sy,       a22 = (1 - 2*(xx + yy)) * sz;
+
+		float[] m = worlds;
+		int d = MATRIX_SIZE * node;
+		if(parent == NO_PARENT)
+		{
+			store(m, d, a00, a01, a02, tx, a10, a11, a12, ty, a20, a21, a22, tz);
+			return true;
+		}
+
+		// Both matrices are affine, so only the top three rows of the product need computing
+		int p = MATRIX_SIZE * parent;
+		float p00 = m[p], p10 = m[p + 1], p20 = m[p + 2];
+		float p01 = m[p + 4], p11 = m[p + 5], p21 = m[p + 6];
+		float p02 = m[p + 8], p12 = m[p + 9], p22 = m[p + 10];
+		float p03 = m[p + 12], p13 = m[p + 13], p23 = m[p + 14];
+		store(m, d,
+		      p00*a00 + p01*a10 + p02*a20, p00*a01 + p01*a11 + p02*a21, p00*a02 + p01*a12 + p02*a22, p00*tx + p01*ty + p02*tz + p03,
+		      p10*a00 + p11*a10 + p12*a20, p10*a01 + p11*a11 + p12*a21, p10*a02 + p11*a12 + p12*a22, p10*tx + p11*ty + p12*tz + p13,
+		      p20*a00 + p21*a10 + p22*a20, p20*a01 + p21*a11 + p22*a21, p20*a02 + p21*a12 + p22*a22, p20*tx + p21*ty + p22*tz + p23);
+		return true;
+	}
+
+	/**
+	 * Store the top three rows of an affine matrix, given in row-major order, column-major with a bottom row of
+	 * (0, 0, 0, 1).
+	 */
+	private static void store(float[] m, int d,
+	                          float m00, float m01, float m02, float m03,
+	                          float m10, float m11, float m12, float m13,
+	                          float m20, float m21, float m22, float m23)
+	{
+		m[d] = m00;
+		m[d + 1] = m10;
+		m[d + 2] = m20;
+		m[d + 3] = 0;
+		m[d + 4] = m01;
+		m[d + 5] = m11;
+		m[d + 6] = m21;
+		m[d + 7] = 0;
+		m[d + 8] = m02;
+		m[d + 9] = m12;
+		m[d + 10] = m22;
+		m[d + 11] = 0;
+		m[d + 12] = m03;
+		m[d + 13] = m13;
+		m[d + 14] = m23;
+		m[d + 15] = 1;
+	}
+}
@@ -6,6 +6,8 @@ import galu.matrix.Matrix4;
 import galu.vector.Vector2;
 import galu.vector.Vector3;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * @see <a href="http://en.wikipedia.org/wiki/Transformation_matrix">Transformation matrix on Wikipedia</a>
  * @see <a href="http://www.cs.princeton.edu/~gewang/projects/darth/stuff/quat_faq.html">The Matrix and Quaternions FAQ</a>
@@ -314,6 +316,246 @@ public final class Transformations
 		return result;
 	}
 
+	/**
+	 * Build a transformation that scales, then rotates, then translates. This gives the same matrix as
+	 * {@code combine(scale(scale), rotation, translate(translation))}, but writes it directly instead of multiplying:
+	 * <pre>
+	 *     | r00*sx r01*sy r02*sz tx |
+	 *     | r10*sx r11*sy r12*sz ty |
+	 *     | r20*sx r21*sy r22*sz tz |
+	 *     |      0      0      0  1 |
+	 * </pre>
+	 * @param translation the amounts to translate by along each axis
+	 * @param rotation a rotation matrix
+	 * @param scale the scaling factors
+	 * @return a transformation matrix
+	 */
+	public static Matrix4 trs(Vector3 translation, Matrix3 rotation, Vector3 scale)
+	{
+		return trs(translation,
+				rotation.m00, rotation.m01, rotation.m02,
+				rotation.m10, rotation.m11, rotation.m12,
+				rotation.m20, rotation.m21, rotation.m22,
+				scale);
+	}
+
+	/**
+	 * Build a transformation that scales, then rotates by an angle through an axis, then translates.
+	 * @param translation the amounts to translate by along each axis
+	 * @param angle the angle to rotate by (radians)
+	 * @param axis the axis to rotate through
+	 * @param scale the scaling factors
+	 * @return a transformation matrix
+	 * @see #trs(Vector3, Matrix3, Vector3)
+	 * @see #rotate(float, Vector3)
+	 */
+	public static Matrix4 trs(Vector3 translation, float angle, Vector3 axis, Vector3 scale)
+	{
+		float rcos = (float) Math.cos(angle);
+		float rsin = (float) Math.sin(angle);
+
+		// Same as rotate(float, Vector3), but normalizing without allocating a Vector3
+		float length = axis.length();
+		float u = axis.x / length;
+		float v = axis.y / length;
+		float w = axis.z / length;
+
+		return trs(translation,
+				     rcos + u * u * (1f-rcos), -w * rsin + u * v * (1f-rcos),  v * rsin + u * w * (1f-rcos),
+				 w * rsin + v * u * (1f-rcos),      rcos + v * v * (1f-rcos), -u * rsin + v * w * (1f-rcos),
+				-v * rsin + w * u * (1f-rcos),  u * rsin + w * v * (1f-rcos),      rcos + w * w * (1f-rcos),
+				scale);
+	}
+
+	/**
+	 * Build a transformation that scales, then rotates by Euler angles, then translates.
+	 * @param translation the amounts to translate by along each axis
+	 * @param angles the angles to rotate by (in radians)
+	 * @param scale the scaling factors
+	 * @return a transformation matrix
+	 * @see #trs(Vector3, Matrix3, Vector3)
+	 * @see #rotate(Vector3)
+	 */
+	public static Matrix4 trs(Vector3 translation, Vector3 angles, Vector3 scale)
+	{
+		float a = (float) Math.cos(angles.x);
+		float b = (float) Math.sin(angles.x);
+		float c = (float) Math.cos(angles.y);
+		float d = (float) Math.sin(angles.y);
+		float e = (float) Math.cos(angles.z);
+		float f = (float) Math.sin(angles.z);
+
+		float ad = a * d;
+		float bd = b * d;
+
+		return trs(translation,
+				      c*e,      -c*f,    d,
+				 bd*e+a*f, -bd*f+a*e, -b*c,
+				-ad*e+b*f,  ad*f+b*e,  a*c,
+				scale);
+	}
+
+	/**
+	 * Build a transformation that scales, then rotates by a (unit) quaternion, then translates.
+	 * @param translation the amounts to translate by along each axis
+	 * @param rotation the rotation
+	 * @param scale the scaling factors
+	 * @return a transformation matrix
+	 * @see #trs(Vector3, Matrix3, Vector3)
+	 * @see Quaternion#toMatrix3()
+	 */
+	public static Matrix4 trs(Vector3 translation, Quaternion rotation, Vector3 scale)
+	{
+		float x = rotation.x, y = rotation.y, z = rotation.z, w = rotation.w;
+		float xx = x*x, yy = y*y, zz = z*z;
+		float xy = x*y, xz = x*z, yz = y*z;
+		float wx = w*x, wy = w*y, wz = w*z;
+
+		return trs(translation,
+				1 - 2*(yy + zz),     2*(xy - wz),     2*(xz + wy),
+				    2*(xy + wz), 1 - 2*(xx + zz),     2*(yz - wx),
+				    2*(xz - wy),     2*(yz + wx), 1 - 2*(xx + yy),
+				scale);
+	}
+
+	private static Matrix4 trs(Vector3 t,
+	                           float r00, float r01, float r02,
+	                           float r10, float r11, float r12,
+	                           float r20, float r21, float r22,
+	                           Vector3 s)
+	{
+		return new Matrix4(
+				r00 * s.x, r01 * s.y, r02 * s.z, t.x,
+				r10 * s.x, r11 * s.y, r12 * s.z, t.y,
+				r20 * s.x, r21 * s.y, r22 * s.z, t.z,
+				0,         0,         0,         1
+		);
+	}
+
+	/*
+	 * Projections and views, following the OpenGL conventions: eye space is right-handed, looking down -z with +y up,
+	 * and clip space has z from -1 (near) to 1 (far).
+	 */
+
+	/**
+	 * Build a perspective projection, like {@code gluPerspective}.
+	 * @param fovY the vertical field of view in radians
+	 * @param aspect the width of the view divided by its height
+	 * @param near the distance to the near clipping plane, which must be positive
+	 * @param far the distance to the far clipping plane, which must be greater than {@code near}
+	 * @return a projection matrix
+	 */
+	public static Matrix4 perspective(float fovY, float aspect, float near, float far)
+	{
+		checkArgument(near > 0 && far > near, "Clipping planes must satisfy 0 < near < far (near = %s, far = %s)", near, far);
+		float f = 1 / (float) Math.tan(fovY / 2);
+		return new Matrix4(
+				f / aspect, 0,                            0,                                0,
+				0,          f,                            0,                                0,
+				0,          0, (far + near) / (near - far), 2 * far * near / (near - far),
+				0,          0,                           -1,                                0
+		);
+	}
+
+	/**
+	 * Build a perspective projection with the far clipping plane at infinity. This is the limit of
+	 * {@link #perspective(float, float, float, float)} as {@code far} grows, so nothing beyond the near plane is ever
+	 * clipped by depth, which is what shadow volumes and very large scenes want.
+	 * @param fovY the vertical field of view in radians
+	 * @param aspect the width of the view divided by its height
+	 * @param near the distance to the near clipping plane, which must be positive
+	 * @return a projection matrix
+	 */
+	public static Matrix4 infinitePerspective(float fovY, float aspect, float near)
+	{
+		checkArgument(near > 0, "Near clipping plane must be positive: %s", near);
+		float f = 1 / (float) Math.tan(fovY / 2);
+		return new Matrix4(
+				f / aspect, 0,  0,         0,
+				0,          f,  0,         0,
+				0,          0, -1, -2 * near,
+				0,          0, -1,         0
+		);
+	}
+
+	/**
+	 * Build an orthographic projection, like {@code glOrtho}, which maps the box bounded by the six planes to the
+	 * clip-space cube.
+	 * @param near the distance to the near clipping plane (negative if it's behind the viewer)
+	 * @param far the distance to the far clipping plane
+	 * @return a projection matrix
+	 */
+	public static Matrix4 orthographic(float left, float right, float bottom, float top, float near, float far)
+	{
+		checkArgument(left != right && bottom != top && near != far, "Clipping volume is empty");
+		return new Matrix4(
+				2 / (right - left), 0,                  0,                 -(right + left) / (right - left),
+				0,                  2 / (top - bottom), 0,                 -(top + bottom) / (top - bottom),
+				0,                  0,                  -2 / (far - near), -(far + near) / (far - near),
+				0,                  0,                  0,                 1
+		);
+	}
+
+	/**
+	 * Build a view matrix for a viewer at {@code eye} looking towards {@code target}, like {@code gluLookAt}. The result
+	 * is a rigid transformation, so {@link Matrix4#inverseRigid()} inverts it.
+	 * @param eye the position of the viewer
+	 * @param target the point to look at, which must not be {@code eye}
+	 * @param up the direction that should be up in the view, which must not be parallel to the view direction
+	 * @return a view matrix
+	 */
+	public static Matrix4 lookAt(Vector3 eye, Vector3 target, Vector3 up)
+	{
+		Vector3 forward = target.subtract(eye);
+		checkArgument(forward.lengthSquared() > 0, "Eye and target are the same point");
+		forward = forward.normalize();
+		Vector3 side = forward.cross(up);
+		checkArgument(side.lengthSquared() > 0, "Up vector is parallel to the view direction");
+		side = side.normalize();
+		Vector3 trueUp = side.cross(forward);
+		return new Matrix4(
+				side.x,     side.y,     side.z,     -side.dot(eye),
+				trueUp.x,   trueUp.y,   trueUp.z,   -trueUp.dot(eye),
+				-forward.x, -forward.y, -forward.z, forward.dot(eye),
+				0,          0,          0,          1
+		);
+	}
+
+	/**
+	 * Split an affine transformation into a translation, a rotation, and a scale, so that
+	 * {@code trs(result.translation, result.rotation, result.scale)} gives back the original matrix.
+	 * Shear can't be represented, so a sheared matrix won't decompose exactly. If the matrix flips handedness (its
+	 * determinant is negative), the flip is put in the x scale factor so that the rotation stays a proper rotation.
+	 * @param matrix an affine transformation matrix (its bottom row is assumed to be (0, 0, 0, 1))
+	 * @return the matrix's components
+	 * @throws IllegalArgumentException if one of the scale factors is 0
+	 */
+	public static Decomposition decompose(Matrix4 matrix)
+	{
+		float sx = (float) Math.sqrt(matrix.m00*matrix.m00 + matrix.m10*matrix.m10 + matrix.m20*matrix.m20);
+		float sy = (float) Math.sqrt(matrix.m01*matrix.m01 + matrix.m11*matrix.m11 + matrix.m21*matrix.m21);
+		float sz = (float) Math.sqrt(matrix.m02*matrix.m02 + matrix.m12*matrix.m12 + matrix.m22*matrix.m22);
+		checkArgument(sx != 0 && sy != 0 && sz != 0, "Matrix has a zero scale factor");
+
+		float det = matrix.m00 * (matrix.m11*matrix.m22 - matrix.m12*matrix.m21)
+		          - matrix.m01 * (matrix.m10*matrix.m22 - matrix.m12*matrix.m20)
+		          + matrix.m02 * (matrix.m10*matrix.m21 - matrix.m11*matrix.m20);
+		if(det < 0)
+		{
+			sx = -sx;
+		}
+
+		float ix = 1f / sx, iy = 1f / sy, iz = 1f / sz;
+		return new Decomposition(
+				new Vector3(matrix.m03, matrix.m13, matrix.m23),
+				new Matrix3(
+						matrix.m00 * ix, matrix.m01 * iy, matrix.m02 * iz,
+						matrix.m10 * ix, matrix.m11 * iy, matrix.m12 * iz,
+						matrix.m20 * ix, matrix.m21 * iy, matrix.m22 * iz
+				),
+				new Vector3(sx, sy, sz));
+	}
+
 	/**
 	 * Convert a 3x3 transformation matrix to a 4x4 transformation matrix that can be used with homogeneous coordinates.
 	 * The conversion is as follows:
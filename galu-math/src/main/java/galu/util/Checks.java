@@ -0,0 +1,98 @@
+package galu.util;
+
+/**
+ * Argument checks for the batch methods, which run once per call on hot paths. Unlike Guava's {@code checkArgument},
+ * these take primitive arguments and only build their messages if the check fails, so nothing (not even a varargs
+ * array) is allocated when it passes.
+ */
+public final class Checks
+{
+	private Checks() {}
+
+	/**
+	 * Check that {@code count} items of {@code size} elements each, starting at {@code offset} and spaced {@code stride}
+	 * elements apart, fit in something of length {@code length}.
+	 * @param name what's being checked, such as "Source", for the message
+	 * @throws IllegalArgumentException if they don't
+	 */
+	public static void checkRange(String name, int length, int offset, int stride, int size, int count)
+	{
+		if(count < 0)
+		{
+			throw new IllegalArgumentException(String.format("Negative %s count: %d", name.toLowerCase(), count));
+		}
+		if(stride < size)
+		{
+			throw new IllegalArgumentException(String.format("%s stride (%d) is less than the item size (%d)", name, stride, size));
+		}
+		if(offset < 0)
+		{
+			throw new IllegalArgumentException(String.format("%s offset (%d) is negative", name, offset));
+		}
+		if(count > 0 && offset + (long) (count - 1) * stride + size > length)
+		{
+			throw new IllegalArgumentException(String.format("%s has fewer than %d elements (%d) for %d items at offset %d and stride %d",
+			                                                 name, offset + (long) (count - 1) * stride + size, length, count, offset, stride));
+		}
+	}
+
+	/**
+	 * Check that {@code [offset, offset + count)} is inside something of length {@code length}.
+	 * @throws IllegalArgumentException if it isn't
+	 */
+	public static void checkArray(String name, int length, int offset, int count)
+	{
+		if(offset < 0 || count < 0 || (long) offset + count > length)
+		{
+			throw new IllegalArgumentException(String.format("%s of length %d can't hold %d elements starting at %d", name, length, count, offset));
+		}
+	}
+
+	/**
+	 * Check that a buffer has at least {@code count} elements remaining.
+	 * @throws IllegalArgumentException if it doesn't
+	 */
+	public static void checkRemaining(String name, int remaining, int count)
+	{
+		if(count < 0 || remaining < count)
+		{
+			throw new IllegalArgumentException(String.format("%s has %d elements remaining, but %d are needed", name, remaining, count));
+		}
+	}
+
+	/**
+	 * Check that {@code index} is in {@code [0, size)}.
+	 * @throws IndexOutOfBoundsException if it isn't
+	 */
+	public static void checkIndex(String name, int index, int size)
+	{
+		if(index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds for %s, which has size %d", index, name, size));
+		}
+	}
+
+	/**
+	 * @param template a {@link String#format} template for the message, with a {@code %d} for {@code value}
+	 * @throws IllegalArgumentException if {@code expression} is false
+	 */
+	public static void checkArgument(boolean expression, String template, int value)
+	{
+		if(!expression)
+		{
+			throw new IllegalArgumentException(String.format(template, value));
+		}
+	}
+
+	/**
+	 * @param template a {@link String#format} template for the message, with a {@code %d} for each value
+	 * @throws IllegalArgumentException if {@code expression} is false
+	 */
+	public static void checkArgument(boolean expression, String template, int first, int second)
+	{
+		if(!expression)
+		{
+			throw new IllegalArgumentException(String.format(template, first, second));
+		}
+	}
+}
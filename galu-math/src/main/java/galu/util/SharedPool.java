@@ -0,0 +1,26 @@
+package galu.util;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The fork/join pool that Galu's parallel methods run on when they aren't given one, with one thread per processor.
+ * Every module uses this one pool, so using several parallel features doesn't start a pool's worth of threads for each.
+ */
+public final class SharedPool
+{
+	private SharedPool() {}
+
+	/**
+	 * @return the shared pool, which is started the first time it's asked for
+	 */
+	public static ForkJoinPool get()
+	{
+		return Holder.POOL;
+	}
+
+	// Initialization-on-demand holder, so the pool is only started if it's used
+	private static final class Holder
+	{
+		static final ForkJoinPool POOL = new ForkJoinPool();
+	}
+}
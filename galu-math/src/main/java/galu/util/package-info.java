@@ -0,0 +1,5 @@
+/**
+ * Contains helpers shared by Galu's own packages and modules. They aren't meant for use outside Galu, and may change
+ * without notice.
+ */
+package galu.util;
@@ -0,0 +1,131 @@
+package galu.vector;
+
+import java.nio.FloatBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A mutable 2-element vector, for hot loops that can't afford to allocate a {@link Vector2} per operation.
+ * Operations are static {@code *Into} methods that write their result into a destination vector and return it.
+ * Every operation reads all of its inputs before writing, so the destination may be one of the operands.
+ * Mutable vectors use identity equality; convert to a {@link Vector2} with {@link #toImmutable()} to compare values.
+ */
+public final class MutableVector2
+{
+	public float x;
+	public float y;
+
+	public MutableVector2()
+	{
+	}
+
+	public MutableVector2(float x, float y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	public MutableVector2(Vector2 vec)
+	{
+		this(vec.x, vec.y);
+	}
+
+	public MutableVector2 set(float x, float y)
+	{
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	public MutableVector2 set(Vector2 vec)
+	{
+		return set(vec.x, vec.y);
+	}
+
+	public MutableVector2 set(MutableVector2 vec)
+	{
+		return set(vec.x, vec.y);
+	}
+
+	public Vector2 toImmutable()
+	{
+		return new Vector2(x, y);
+	}
+
+	public float length()
+	{
+		return (float) Math.sqrt(x*x + y*y);
+	}
+
+	public float lengthSquared()
+	{
+		return x*x + y*y;
+	}
+
+	public float dot(MutableVector2 other)
+	{
+		return x * other.x + y * other.y;
+	}
+
+	public static MutableVector2 addInto(MutableVector2 a, MutableVector2 b, MutableVector2 dest)
+	{
+		return dest.set(a.x + b.x, a.y + b.y);
+	}
+
+	public static MutableVector2 subtractInto(MutableVector2 a, MutableVector2 b, MutableVector2 dest)
+	{
+		return dest.set(a.x - b.x, a.y - b.y);
+	}
+
+	public static MutableVector2 multiplyInto(MutableVector2 a, float factor, MutableVector2 dest)
+	{
+		return dest.set(a.x * factor, a.y * factor);
+	}
+
+	public static MutableVector2 multiplyInto(MutableVector2 a, MutableVector2 b, MutableVector2 dest)
+	{
+		return dest.set(a.x * b.x, a.y * b.y);
+	}
+
+	public static MutableVector2 negateInto(MutableVector2 a, MutableVector2 dest)
+	{
+		return dest.set(-a.x, -a.y);
+	}
+
+	public static MutableVector2 normalizeInto(MutableVector2 a, MutableVector2 dest)
+	{
+		float magnitude = a.length();
+		return dest.set(a.x / magnitude, a.y / magnitude);
+	}
+
+	public void store(FloatBuffer buf)
+	{
+		checkArgument(buf.remaining() >= 2, "Buffer has fewer than 2 elements remaining (%s)", buf);
+		buf.put(x).put(y);
+	}
+
+	public void store(float[] array)
+	{
+		checkArgument(array.length >= 2, "Array has fewer than 2 elements (%s)", array.length);
+		array[0] = x;
+		array[1] = y;
+	}
+
+	public MutableVector2 load(FloatBuffer buf)
+	{
+		checkArgument(buf.remaining() >= 2, "Buffer has fewer than 2 elements remaining (%s)", buf);
+		return set(buf.get(), buf.get());
+	}
+
+	public MutableVector2 load(float[] array)
+	{
+		checkArgument(array.length >= 2, "Array has fewer than 2 elements (%s)", array.length);
+		return set(array[0], array[1]);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("(%.4f, %.4f)", x, y);
+	}
+}
@@ -0,0 +1,140 @@
+package galu.vector;
+
+import java.nio.FloatBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A mutable 3-element vector, for hot loops that can't afford to allocate a {@link Vector3} per operation.
+ * Operations are static {@code *Into} methods that write their result into a destination vector and return it.
+ * Every operation reads all of its inputs before writing, so the destination may be one of the operands.
+ * Mutable vectors use identity equality; convert to a {@link Vector3} with {@link #toImmutable()} to compare values.
+ */
+public final class MutableVector3
+{
+	public float x;
+	public float y;
+	public float z;
+
+	public MutableVector3()
+	{
+	}
+
+	public MutableVector3(float x, float y, float z)
+	{
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	public MutableVector3(Vector3 vec)
+	{
+		this(vec.x, vec.y, vec.z);
+	}
+
+	public MutableVector3 set(float x, float y, float z)
+	{
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return this;
+	}
+
+	public MutableVector3 set(Vector3 vec)
+	{
+		return set(vec.x, vec.y, vec.z);
+	}
+
+	public MutableVector3 set(MutableVector3 vec)
+	{
+		return set(vec.x, vec.y, vec.z);
+	}
+
+	public Vector3 toImmutable()
+	{
+		return new Vector3(x, y, z);
+	}
+
+	public float length()
+	{
+		return (float) Math.sqrt(x*x + y*y + z*z);
+	}
+
+	public float lengthSquared()
+	{
+		return x*x + y*y + z*z;
+	}
+
+	public float dot(MutableVector3 other)
+	{
+		return x * other.x + y * other.y + z * other.z;
+	}
+
+	public static MutableVector3 addInto(MutableVector3 a, MutableVector3 b, MutableVector3 dest)
+	{
+		return dest.set(a.x + b.x, a.y + b.y, a.z + b.z);
+	}
+
+	public static MutableVector3 subtractInto(MutableVector3 a, MutableVector3 b, MutableVector3 dest)
+	{
+		return dest.set(a.x - b.x, a.y - b.y, a.z - b.z);
+	}
+
+	public static MutableVector3 multiplyInto(MutableVector3 a, float factor, MutableVector3 dest)
+	{
+		return dest.set(a.x * factor, a.y * factor, a.z * factor);
+	}
+
+	public static MutableVector3 multiplyInto(MutableVector3 a, MutableVector3 b, MutableVector3 dest)
+	{
+		return dest.set(a.x * b.x, a.y * b.y, a.z * b.z);
+	}
+
+	public static MutableVector3 negateInto(MutableVector3 a, MutableVector3 dest)
+	{
+		return dest.set(-a.x, -a.y, -a.z);
+	}
+
+	public static MutableVector3 normalizeInto(MutableVector3 a, MutableVector3 dest)
+	{
+		float magnitude = a.length();
+		return dest.set(a.x / magnitude, a.y / magnitude, a.z / magnitude);
+	}
+
+	public static MutableVector3 crossInto(MutableVector3 a, MutableVector3 b, MutableVector3 dest)
+	{
+		return dest.set(a.y * b.z - a.z * b.y, a.z * b.x - a.x * b.z, a.x * b.y - a.y * b.x);
+	}
+
+	public void store(FloatBuffer buf)
+	{
+		checkArgument(buf.remaining() >= 3, "Buffer has fewer than 3 elements remaining (%s)", buf);
+		buf.put(x).put(y).put(z);
+	}
+
+	public void store(float[] array)
+	{
+		checkArgument(array.length >= 3, "Array has fewer than 3 elements (%s)", array.length);
+		array[0] = x;
+		array[1] = y;
+		array[2] = z;
+	}
+
+	public MutableVector3 load(FloatBuffer buf)
+	{
+		checkArgument(buf.remaining() >= 3, "Buffer has fewer than 3 elements remaining (%s)", buf);
+		return set(buf.get(), buf.get(), buf.get());
+	}
+
+	public MutableVector3 load(float[] array)
+	{
+		checkArgument(array.length >= 3, "Array has fewer than 3 elements (%s)", array.length);
+		return set(array[0], array[1], array[2]);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("(%.4f, %.4f, %.4f)", x, y, z);
+	}
+}
@@ -0,0 +1,139 @@
+package galu.vector;
+
+import java.nio.FloatBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A mutable 4-element vector, for hot loops that can't afford to allocate a {@link Vector4} per operation.
+ * Operations are static {@code *Into} methods that write their result into a destination vector and return it.
+ * Every operation reads all of its inputs before writing, so the destination may be one of the operands.
+ * Mutable vectors use identity equality; convert to a {@link Vector4} with {@link #toImmutable()} to compare values.
+ */
+public final class MutableVector4
+{
+	public float x;
+	public float y;
+	public float z;
+	public float w;
+
+	public MutableVector4()
+	{
+	}
+
+	public MutableVector4(float x, float y, float z, float w)
+	{
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.w = w;
+	}
+
+	public MutableVector4(Vector4 vec)
+	{
+		this(vec.x, vec.y, vec.z, vec.w);
+	}
+
+	public MutableVector4 set(float x, float y, float z, float w)
+	{
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.w = w;
+		return this;
+	}
+
+	public MutableVector4 set(Vector4 vec)
+	{
+		return set(vec.x, vec.y, vec.z, vec.w);
+	}
+
+	public MutableVector4 set(MutableVector4 vec)
+	{
+		return set(vec.x, vec.y, vec.z, vec.w);
+	}
+
+	public Vector4 toImmutable()
+	{
+		return new Vector4(x, y, z, w);
+	}
+
+	public float length()
+	{
+		return (float) Math.sqrt(x*x + y*y + z*z + w*w);
+	}
+
+	public float lengthSquared()
+	{
+		return x*x + y*y + z*z + w*w;
+	}
+
+	public float dot(MutableVector4 other)
+	{
+		return x * other.x + y * other.y + z * other.z + w * other.w;
+	}
+
+	public static MutableVector4 addInto(MutableVector4 a, MutableVector4 b, MutableVector4 dest)
+	{
+		return dest.set(a.x + b.x, a.y + b.y, a.z + b.z, a.w + b.w);
+	}
+
+	public static MutableVector4 subtractInto(MutableVector4 a, MutableVector4 b, MutableVector4 dest)
+	{
+		return dest.set(a.x - b.x, a.y - b.y, a.z - b.z, a.w - b.w);
+	}
+
+	public static MutableVector4 multiplyInto(MutableVector4 a, float factor, MutableVector4 dest)
+	{
+		return dest.set(a.x * factor, a.y * factor, a.z * factor, a.w * factor);
+	}
+
+	public static MutableVector4 multiplyInto(MutableVector4 a, MutableVector4 b, MutableVector4 dest)
+	{
+		return dest.set(a.x * b.x, a.y * b.y, a.z * b.z, a.w * b.w);
+	}
+
+	public static MutableVector4 negateInto(MutableVector4 a, MutableVector4 dest)
+	{
+		return dest.set(-a.x, -a.y, -a.z, -a.w);
+	}
+
+	public static MutableVector4 normalizeInto(MutableVector4 a, MutableVector4 dest)
+	{
+		float magnitude = a.length();
+		return dest.set(a.x / magnitude, a.y / magnitude, a.z / magnitude, a.w / magnitude);
+	}
+
+	public void store(FloatBuffer buf)
+	{
+		checkArgument(buf.remaining() >= 4, "Buffer has fewer than 4 elements remaining (%s)", buf);
+		buf.put(x).put(y).put(z).put(w);
+	}
+
+	public void store(float[] array)
+	{
+		checkArgument(array.length >= 4, "Array has fewer than 4 elements (%s)", array.length);
+		array[0] = x;
+		array[1] = y;
+		array[2] = z;
+		array[3] = w;
+	}
+
+	public MutableVector4 load(FloatBuffer buf)
+	{
+		checkArgument(buf.remaining() >= 4, "Buffer has fewer than 4 elements remaining (%s)", buf);
+		return set(buf.get(), buf.get(), buf.get(), buf.get());
+	}
+
+	public MutableVector4 load(float[] array)
+	{
+		checkArgument(array.length >= 4, "Array has fewer than 4 elements (%s)", array.length);
+		return set(array[0], array[1], array[2], array[3]);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("(%.4f, %.4f, %.4f, %.4f)", x, y, z, w);
+	}
+}
@@ -0,0 +1,177 @@
+package galu.vector;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * A fixed-size batch of 2-element vectors, stored as a structure of arrays (one array per component).
+ * Unlike {@link Vector2}, a {@code Vector2Array} is mutable: bulk operations work on the index range {@code [from, to)}
+ * and write their results into a destination array, so no objects are allocated per element.
+ * The results are the same as applying the corresponding {@link Vector2} operation to each element.
+ * The destination may be the same array as either operand.
+ */
+public final class Vector2Array
+{
+	public final float[] xs;
+	public final float[] ys;
+
+	public Vector2Array(int size)
+	{
+		this(new float[size], new float[size]);
+	}
+
+	public Vector2Array(float[] xs, float[] ys)
+	{
+		checkArgument(xs.length == ys.length, "Component arrays differ in length (%s, %s)", xs.length, ys.length);
+		this.xs = xs;
+		this.ys = ys;
+	}
+
+	public int size()
+	{
+		return xs.length;
+	}
+
+	public Vector2 get(int idx)
+	{
+		return new Vector2(xs[idx], ys[idx]);
+	}
+
+	public void set(int idx, float x, float y)
+	{
+		xs[idx] = x;
+		ys[idx] = y;
+	}
+
+	public void set(int idx, Vector2 vec)
+	{
+		set(idx, vec.x, vec.y);
+	}
+
+	public void add(Vector2Array other, Vector2Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys;
+		float[] bx = other.xs, by = other.ys;
+		float[] dx = dest.xs, dy = dest.ys;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] + bx[i];
+			dy[i] = ay[i] + by[i];
+		}
+	}
+
+	public void subtract(Vector2Array other, Vector2Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys;
+		float[] bx = other.xs, by = other.ys;
+		float[] dx = dest.xs, dy = dest.ys;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] - bx[i];
+			dy[i] = ay[i] - by[i];
+		}
+	}
+
+	public void multiply(float factor, Vector2Array dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys;
+		float[] dx = dest.xs, dy = dest.ys;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] * factor;
+			dy[i] = ay[i] * factor;
+		}
+	}
+
+	public void multiply(Vector2Array other, Vector2Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys;
+		float[] bx = other.xs, by = other.ys;
+		float[] dx = dest.xs, dy = dest.ys;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] * bx[i];
+			dy[i] = ay[i] * by[i];
+		}
+	}
+
+	public void negate(Vector2Array dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys;
+		float[] dx = dest.xs, dy = dest.ys;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = -ax[i];
+			dy[i] = -ay[i];
+		}
+	}
+
+	/**
+	 * Compute the dot product of each pair of vectors, storing the result for element {@code i} in {@code dest[i]}.
+	 */
+	public void dot(Vector2Array other, float[] dest, int from, int to)
+	{
+		checkRange(from, to, other, this);
+		checkPositionIndexes(from, to, dest.length);
+		float[] ax = xs, ay = ys;
+		float[] bx = other.xs, by = other.ys;
+		for(int i = from; i < to; i++)
+		{
+			dest[i] = ax[i] * bx[i] + ay[i] * by[i];
+		}
+	}
+
+	/**
+	 * Compute the squared length of each vector, storing the result for element {@code i} in {@code dest[i]}.
+	 */
+	public void lengthSquared(float[] dest, int from, int to)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, dest.length);
+		float[] ax = xs, ay = ys;
+		for(int i = from; i < to; i++)
+		{
+			dest[i] = ax[i] * ax[i] + ay[i] * ay[i];
+		}
+	}
+
+	/**
+	 * Compute the length of each vector, storing the result for element {@code i} in {@code dest[i]}.
+	 */
+	public void length(float[] dest, int from, int to)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, dest.length);
+		float[] ax = xs, ay = ys;
+		for(int i = from; i < to; i++)
+		{
+			dest[i] = (float) Math.sqrt(ax[i] * ax[i] + ay[i] * ay[i]);
+		}
+	}
+
+	public void normalize(Vector2Array dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys;
+		float[] dx = dest.xs, dy = dest.ys;
+		for(int i = from; i < to; i++)
+		{
+			float x = ax[i], y = ay[i];
+			float magnitude = (float) Math.sqrt(x * x + y * y);
+			dx[i] = x / magnitude;
+			dy[i] = y / magnitude;
+		}
+	}
+
+	private void checkRange(int from, int to, Vector2Array other, Vector2Array dest)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, other.size());
+		checkPositionIndexes(from, to, dest.size());
+	}
+}
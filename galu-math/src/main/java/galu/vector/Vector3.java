@@ -70,6 +70,11 @@ public final class Vector3 implements Vector<Vector3>
 		return x * other.x + y * other.y + z * other.z;
 	}
 
+	public Vector3 cross(Vector3 other)
+	{
+		return new Vector3(y * other.z - z * other.y, z * other.x - x * other.z, x * other.y - y * other.x);
+	}
+
 	public float angleBetween(Vector3 other)
 	{
 		return (float) Math.acos(dot(other) / length() / other.length());
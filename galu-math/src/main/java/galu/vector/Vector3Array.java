@@ -0,0 +1,204 @@
+package galu.vector;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * A fixed-size batch of 3-element vectors, stored as a structure of arrays (one array per component).
+ * Unlike {@link Vector3}, a {@code Vector3Array} is mutable: bulk operations work on the index range {@code [from, to)}
+ * and write their results into a destination array, so no objects are allocated per element.
+ * The results are the same as applying the corresponding {@link Vector3} operation to each element.
+ * The destination may be the same array as either operand.
+ */
+public final class Vector3Array
+{
+	public final float[] xs;
+	public final float[] ys;
+	public final float[] zs;
+
+	public Vector3Array(int size)
+	{
+		this(new float[size], new float[size], new float[size]);
+	}
+
+	public Vector3Array(float[] xs, float[] ys, float[] zs)
+	{
+		checkArgument(xs.length == ys.length && xs.length == zs.length,
+		              "Component arrays differ in length (%s, %s, %s)", xs.length, ys.length, zs.length);
+		this.xs = xs;
+		this.ys = ys;
+		this.zs = zs;
+	}
+
+	public int size()
+	{
+		return xs.length;
+	}
+
+	public Vector3 get(int idx)
+	{
+		return new Vector3(xs[idx], ys[idx], zs[idx]);
+	}
+
+	public void set(int idx, float x, float y, float z)
+	{
+		xs[idx] = x;
+		ys[idx] = y;
+		zs[idx] = z;
+	}
+
+	public void set(int idx, Vector3 vec)
+	{
+		set(idx, vec.x, vec.y, vec.z);
+	}
+
+	public void add(Vector3Array other, Vector3Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys, az = zs;
+		float[] bx = other.xs, by = other.ys, bz = other.zs;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] + bx[i];
+			dy[i] = ay[i] + by[i];
+			dz[i] = az[i] + bz[i];
+		}
+	}
+
+	public void subtract(Vector3Array other, Vector3Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys, az = zs;
+		float[] bx = other.xs, by = other.ys, bz = other.zs;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] - bx[i];
+			dy[i] = ay[i] - by[i];
+			dz[i] = az[i] - bz[i];
+		}
+	}
+
+	public void multiply(float factor, Vector3Array dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys, az = zs;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] * factor;
+			dy[i] = ay[i] * factor;
+			dz[i] = az[i] * factor;
+		}
+	}
+
+	public void multiply(Vector3Array other, Vector3Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys, az = zs;
+		float[] bx = other.xs, by = other.ys, bz = other.zs;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] * bx[i];
+			dy[i] = ay[i] * by[i];
+			dz[i] = az[i] * bz[i];
+		}
+	}
+
+	public void negate(Vector3Array dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys, az = zs;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = -ax[i];
+			dy[i] = -ay[i];
+			dz[i] = -az[i];
+		}
+	}
+
+	public void cross(Vector3Array other, Vector3Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys, az = zs;
+		float[] bx = other.xs, by = other.ys, bz = other.zs;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs;
+		for(int i = from; i < to; i++)
+		{
+			// Read everything first in case dest is one of the operands
+			float x1 = ax[i], y1 = ay[i], z1 = az[i];
+			float x2 = bx[i], y2 = by[i], z2 = bz[i];
+			dx[i] = y1 * z2 - z1 * y2;
+			dy[i] = z1 * x2 - x1 * z2;
+			dz[i] = x1 * y2 - y1 * x2;
+		}
+	}
+
+	/**
+	 * Compute the dot product of each pair of vectors, storing the result for element {@code i} in {@code dest[i]}.
+	 */
+	public void dot(Vector3Array other, float[] dest, int from, int to)
+	{
+		checkRange(from, to, other, this);
+		checkPositionIndexes(from, to, dest.length);
+		float[] ax = xs, ay = ys, az = zs;
+		float[] bx = other.xs, by = other.ys, bz = other.zs;
+		for(int i = from; i < to; i++)
+		{
+			dest[i] = ax[i] * bx[i] + ay[i] * by[i] + az[i] * bz[i];
+		}
+	}
+
+	/**
+	 * Compute the squared length of each vector, storing the result for element {@code i} in {@code dest[i]}.
+	 */
+	public void lengthSquared(float[] dest, int from, int to)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, dest.length);
+		float[] ax = xs, ay = ys, az = zs;
+		for(int i = from; i < to; i++)
+		{
+			dest[i] = ax[i] * ax[i] + ay[i] * ay[i] + az[i] * az[i];
+		}
+	}
+
+	/**
+	 * Compute the length of each vector, storing the result for element {@code i} in {@code dest[i]}.
+	 */
+	public void length(float[] dest, int from, int to)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, dest.length);
+		float[] ax = xs, ay = ys, az = zs;
+		for(int i = from; i < to; i++)
+		{
+			dest[i] = (float) Math.sqrt(ax[i] * ax[i] + ay[i] * ay[i] + az[i] * az[i]);
+		}
+	}
+
+	public void normalize(Vector3Array dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys, az = zs;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs;
+		for(int i = from; i < to; i++)
+		{
+			float x = ax[i], y = ay[i], z = az[i];
+			float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+			dx[i] = x / magnitude;
+			dy[i] = y / magnitude;
+			dz[i] = z / magnitude;
+		}
+	}
+
+	private void checkRange(int from, int to, Vector3Array other, Vector3Array dest)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, other.size());
+		checkPositionIndexes(from, to, dest.size());
+	}
+}
@@ -0,0 +1,196 @@
+package galu.vector;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * A fixed-size batch of 4-element vectors, stored as a structure of arrays (one array per component).
+ * Unlike {@link Vector4}, a {@code Vector4Array} is mutable: bulk operations work on the index range {@code [from, to)}
+ * and write their results into a destination array, so no objects are allocated per element.
+ * The results are the same as applying the corresponding {@link Vector4} operation to each element.
+ * The destination may be the same array as either operand.
+ */
+public final class Vector4Array
+{
+	public final float[] xs;
+	public final float[] ys;
+	public final float[] zs;
+	public final float[] ws;
+
+	public Vector4Array(int size)
+	{
+		this(new float[size], new float[size], new float[size], new float[size]);
+	}
+
+	public Vector4Array(float[] xs, float[] ys, float[] zs, float[] ws)
+	{
+		checkArgument(xs.length == ys.length && xs.length == zs.length && xs.length == ws.length,
+		              "Component arrays differ in length (%s, %s, %s, %s)", xs.length, ys.length, zs.length, ws.length);
+		this.xs = xs;
+		this.ys = ys;
+		this.zs = zs;
+		this.ws = ws;
+	}
+
+	public int size()
+	{
+		return xs.length;
+	}
+
+	public Vector4 get(int idx)
+	{
+		return new Vector4(xs[idx], ys[idx], zs[idx], ws[idx]);
+	}
+
+	public void set(int idx, float x, float y, float z, float w)
+	{
+		xs[idx] = x;
+		ys[idx] = y;
+		zs[idx] = z;
+		ws[idx] = w;
+	}
+
+	public void set(int idx, Vector4 vec)
+	{
+		set(idx, vec.x, vec.y, vec.z, vec.w);
+	}
+
+	public void add(Vector4Array other, Vector4Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] bx = other.xs, by = other.ys, bz = other.zs, bw = other.ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] + bx[i];
+			dy[i] = ay[i] + by[i];
+			dz[i] = az[i] + bz[i];
+			dw[i] = aw[i] + bw[i];
+		}
+	}
+
+	public void subtract(Vector4Array other, Vector4Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] bx = other.xs, by = other.ys, bz = other.zs, bw = other.ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] - bx[i];
+			dy[i] = ay[i] - by[i];
+			dz[i] = az[i] - bz[i];
+			dw[i] = aw[i] - bw[i];
+		}
+	}
+
+	public void multiply(float factor, Vector4Array dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] * factor;
+			dy[i] = ay[i] * factor;
+			dz[i] = az[i] * factor;
+			dw[i] = aw[i] * factor;
+		}
+	}
+
+	public void multiply(Vector4Array other, Vector4Array dest, int from, int to)
+	{
+		checkRange(from, to, other, dest);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] bx = other.xs, by = other.ys, bz = other.zs, bw = other.ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = ax[i] * bx[i];
+			dy[i] = ay[i] * by[i];
+			dz[i] = az[i] * bz[i];
+			dw[i] = aw[i] * bw[i];
+		}
+	}
+
+	public void negate(Vector4Array dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			dx[i] = -ax[i];
+			dy[i] = -ay[i];
+			dz[i] = -az[i];
+			dw[i] = -aw[i];
+		}
+	}
+
+	/**
+	 * Compute the dot product of each pair of vectors, storing the result for element {@code i} in {@code dest[i]}.
+	 */
+	public void dot(Vector4Array other, float[] dest, int from, int to)
+	{
+		checkRange(from, to, other, this);
+		checkPositionIndexes(from, to, dest.length);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] bx = other.xs, by = other.ys, bz = other.zs, bw = other.ws;
+		for(int i = from; i < to; i++)
+		{
+			dest[i] = ax[i] * bx[i] + ay[i] * by[i] + az[i] * bz[i] + aw[i] * bw[i];
+		}
+	}
+
+	/**
+	 * Compute the squared length of each vector, storing the result for element {@code i} in {@code dest[i]}.
+	 */
+	public void lengthSquared(float[] dest, int from, int to)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, dest.length);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		for(int i = from; i < to; i++)
+		{
+			dest[i] = ax[i] * ax[i] + ay[i] * ay[i] + az[i] * az[i] + aw[i] * aw[i];
+		}
+	}
+
+	/**
+	 * Compute the length of each vector, storing the result for element {@code i} in {@code dest[i]}.
+	 */
+	public void length(float[] dest, int from, int to)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, dest.length);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		for(int i = from; i < to; i++)
+		{
+			dest[i] = (float) Math.sqrt(ax[i] * ax[i] + ay[i] * ay[i] + az[i] * az[i] + aw[i] * aw[i]);
+		}
+	}
+
+	public void normalize(Vector4Array dest, int from, int to)
+	{
+		checkRange(from, to, this, dest);
+		float[] ax = xs, ay = ys, az = zs, aw = ws;
+		float[] dx = dest.xs, dy = dest.ys, dz = dest.zs, dw = dest.ws;
+		for(int i = from; i < to; i++)
+		{
+			float x = ax[i], y = ay[i], z = az[i], w = aw[i];
+			float magnitude = (float) Math.sqrt(x * x + y * y + z * z + w * w);
+			dx[i] = x / magnitude;
+			dy[i] = y / magnitude;
+			dz[i] = z / magnitude;
+			dw[i] = w / magnitude;
+		}
+	}
+
+	private void checkRange(int from, int to, Vector4Array other, Vector4Array dest)
+	{
+		checkPositionIndexes(from, to, size());
+		checkPositionIndexes(from, to, other.size());
+		checkPositionIndexes(from, to, dest.size());
+	}
+}
@@ -1,6 +1,7 @@
 /**
  * Contains implementations of 2, 3, and 4 element vectors.
  * Vectors are implemented using primitives for performance and are immutable. 
+ * Each vector type has a mutable companion (such as {@link galu.vector.MutableVector3}) for code that can't afford to allocate.
  * @author ben
  *
  */
@@ -0,0 +1,131 @@
+package galu.encoding
+
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+import java.nio.ShortBuffer
+
+class HalfFloatSpec extends Specification
+{
+	def random = new Random(1234)
+
+	static float pow2(int exponent)
+	{
+		Math.scalb(1f, exponent)
+	}
+
+	def "converts exactly representable values"()
+	{
+		expect:
+			HalfFloat.fromFloat(value) == (short) bits
+			HalfFloat.toFloat((short) bits) == value
+		where:
+			value                  | bits
+			0f                     | 0x0000
+			Math.copySign(0f, -1f) | 0x8000
+			1f                     | 0x3c00
+			-2f                    | 0xc000
+			0.5f                   | 0x3800
+			65504f                 | 0x7bff
+			pow2(-14)              | 0x0400
+			pow2(-24)              | 0x0001
+			Math.scalb(1023f, -24) | 0x03ff
+			1.0009765625f          | 0x3c01
+	}
+
+	def "keeps infinities and NaN"()
+	{
+		expect:
+			HalfFloat.fromFloat(Float.POSITIVE_INFINITY) == (short) 0x7c00
+			HalfFloat.fromFloat(Float.NEGATIVE_INFINITY) == (short) 0xfc00
+			HalfFloat.toFloat((short) 0x7c00) == Float.POSITIVE_INFINITY
+			Float.isNaN(HalfFloat.toFloat(HalfFloat.fromFloat(Float.NaN)))
+	}
+
+	def "overflows to infinity and underflows to zero"()
+	{
+		expect:
+			HalfFloat.fromFloat(65519f) == (short) 0x7bff
+			HalfFloat.fromFloat(65520f) == (short) 0x7c00
+			HalfFloat.fromFloat(-1e10f) == (short) 0xfc00
+			HalfFloat.fromFloat(pow2(-26)) == (short) 0
+			HalfFloat.fromFloat(Math.scalb(-1f, -26)) == (short) 0x8000
+			HalfFloat.fromFloat(Math.scalb(3f, -26)) == (short) 1
+	}
+
+	def "rounds ties to even"()
+	{
+		expect:
+			// Halfway between 1 and the next half rounds down to the even 1; halfway above that rounds up
+			HalfFloat.fromFloat((float) (1f + pow2(-11))) == (short) 0x3c00
+			HalfFloat.fromFloat((float) (1f + 3 * pow2(-11))) == (short) 0x3c02
+			HalfFloat.fromFloat((float) (1f + pow2(-11) + pow2(-20))) == (short) 0x3c01
+			// The same for subnormals
+			HalfFloat.fromFloat(pow2(-25)) == (short) 0
+			HalfFloat.fromFloat(Math.scalb(3f, -25)) == (short) 2
+			// And rounding can carry into the exponent
+			HalfFloat.fromFloat((float) (1f - pow2(-13))) == (short) 0x3c00
+	}
+
+	def "every finite half survives a round trip"()
+	{
+		expect:
+			(0..0xffff).every { int bits ->
+				def half = (short) bits
+				def value = HalfFloat.toFloat(half)
+				Float.isNaN(value) ? (bits & 0x7fff) > 0x7c00 : HalfFloat.fromFloat(value) == half
+			}
+	}
+
+	def "round trips stay within the documented error"()
+	{
+		given:
+			float[] values = new float[10000]
+			for(int i = 0; i < values.length; i++)
+			{
+				values[i] = (float) ((random.nextBoolean() ? 1 : -1) * Math.pow(2, random.nextDouble() * 40 - 24))
+				values[i] = Math.max(-HalfFloat.MAX_VALUE, Math.min(HalfFloat.MAX_VALUE, values[i]))
+			}
+			def encoded = ShortBuffer.allocate(values.length)
+			float[] decoded = new float[values.length]
+		when:
+			HalfFloat.encode(values, 0, values.length, encoded)
+			encoded.flip()
+			HalfFloat.decode(encoded, decoded, 0, values.length)
+		then:
+			(0..<values.length).every { int i ->
+				def error = Math.abs(decoded[i] - values[i])
+				Math.abs(values[i]) >= pow2(-14) ? error <= Math.abs(values[i]) * pow2(-11) : error <= pow2(-25)
+			}
+	}
+
+	def "buffer overloads match the array ones"()
+	{
+		given:
+			float[] values = [1.5f, -3.25f, 1000f, 0.001f]
+			def fromArray = ShortBuffer.allocate(4)
+			def fromBuffer = ShortBuffer.allocate(4)
+			def decoded = FloatBuffer.allocate(4)
+		when:
+			HalfFloat.encode(values, 0, 4, fromArray)
+			HalfFloat.encode(FloatBuffer.wrap(values), 4, fromBuffer)
+			fromBuffer.flip()
+			HalfFloat.decode(fromBuffer, decoded, 4)
+		then:
+			fromArray.array() == fromBuffer.array()
+			decoded.position() == 4
+			(0..3).every { Math.abs(decoded.get(it) - values[it]) <= Math.abs(values[it]) * pow2(-11) }
+	}
+
+	def "batch methods check their bounds"()
+	{
+		when:
+			HalfFloat.encode(new float[4], 2, 3, ShortBuffer.allocate(3))
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			HalfFloat.encode(new float[4], 0, 4, ShortBuffer.allocate(3))
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
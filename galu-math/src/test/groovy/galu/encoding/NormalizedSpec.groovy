@@ -0,0 +1,123 @@
+package galu.encoding
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.FloatBuffer
+import java.nio.ShortBuffer
+
+class NormalizedSpec extends Specification
+{
+	def random = new Random(1234)
+
+	float[] randomValues(int count, float min)
+	{
+		float[] values = new float[count]
+		for(int i = 0; i < count; i++)
+		{
+			values[i] = min + (1 - min) * random.nextFloat()
+		}
+		return values
+	}
+
+	def "ends of the range are exact"()
+	{
+		expect:
+			Normalized.encodeSnorm8(1f) == (byte) 127
+			Normalized.encodeSnorm8(-1f) == (byte) -127
+			Normalized.decodeSnorm8((byte) -128) == -1f
+			Normalized.decodeSnorm8((byte) 0) == 0f
+			Normalized.encodeUnorm8(1f) == (byte) 255
+			Normalized.decodeUnorm8((byte) 255) == 1f
+			Normalized.encodeSnorm16(-1f) == (short) -32767
+			Normalized.decodeSnorm16((short) -32768) == -1f
+			Normalized.encodeUnorm16(1f) == (short) 65535
+			Normalized.decodeUnorm16((short) 65535) == 1f
+	}
+
+	def "out of range values are clamped and NaN becomes 0"()
+	{
+		expect:
+			Normalized.encodeSnorm8(3f) == (byte) 127
+			Normalized.encodeSnorm8(-3f) == (byte) -127
+			Normalized.encodeUnorm8(-0.5f) == (byte) 0
+			Normalized.encodeUnorm16(2f) == (short) 65535
+			Normalized.encodeSnorm16(Float.NaN) == (short) 0
+			Normalized.encodeUnorm8(Float.NaN) == (byte) 0
+	}
+
+	def "8-bit round trips stay within the documented error"()
+	{
+		given:
+			float[] values = randomValues(1000, signed ? -1f : 0f)
+			def encoded = ByteBuffer.allocate(values.length)
+			float[] decoded = new float[values.length]
+		when:
+			if(signed)
+			{
+				Normalized.encodeSnorm8(values, 0, values.length, encoded)
+				encoded.flip()
+				Normalized.decodeSnorm8(encoded, decoded, 0, values.length)
+			}
+			else
+			{
+				Normalized.encodeUnorm8(values, 0, values.length, encoded)
+				encoded.flip()
+				Normalized.decodeUnorm8(encoded, decoded, 0, values.length)
+			}
+		then:
+			(0..<values.length).every { Math.abs(decoded[it] - values[it]) <= bound }
+		where:
+			signed | bound
+			true   | 1 / 254f + 1e-6f
+			false  | 1 / 510f + 1e-6f
+	}
+
+	def "16-bit round trips stay within the documented error"()
+	{
+		given:
+			float[] values = randomValues(1000, signed ? -1f : 0f)
+			def encoded = ShortBuffer.allocate(values.length)
+			def decoded = FloatBuffer.allocate(values.length)
+		when:
+			if(signed)
+			{
+				Normalized.encodeSnorm16(FloatBuffer.wrap(values), values.length, encoded)
+				encoded.flip()
+				Normalized.decodeSnorm16(encoded, decoded, values.length)
+			}
+			else
+			{
+				Normalized.encodeUnorm16(FloatBuffer.wrap(values), values.length, encoded)
+				encoded.flip()
+				Normalized.decodeUnorm16(encoded, decoded, values.length)
+			}
+		then:
+			(0..<values.length).every { Math.abs(decoded.get(it) - values[it]) <= bound }
+		where:
+			signed | bound
+			true   | 1 / 65534f + 1e-7f
+			false  | 1 / 131070f + 1e-7f
+	}
+
+	def "every code survives a round trip"()
+	{
+		expect:
+			(-127..127).every { Normalized.encodeSnorm8(Normalized.decodeSnorm8((byte) it)) == (byte) it }
+			(0..255).every { Normalized.encodeUnorm8(Normalized.decodeUnorm8((byte) it)) == (byte) it }
+			(-32767..32767).every { Normalized.encodeSnorm16(Normalized.decodeSnorm16((short) it)) == (short) it }
+			(0..65535).every { Normalized.encodeUnorm16(Normalized.decodeUnorm16((short) it)) == (short) it }
+	}
+
+	def "batch methods check their bounds"()
+	{
+		when:
+			Normalized.encodeUnorm8(new float[4], 0, 4, ByteBuffer.allocate(3))
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			Normalized.decodeSnorm16(ShortBuffer.allocate(4), new float[4], 1, 4)
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
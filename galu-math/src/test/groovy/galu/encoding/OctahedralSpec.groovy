@@ -0,0 +1,135 @@
+package galu.encoding
+
+import galu.vector.Vector3
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.ShortBuffer
+
+import static galu.test.Helpers.*
+import static spock.util.matcher.HamcrestSupport.that
+
+class OctahedralSpec extends Specification
+{
+	def random = new Random(1234)
+
+	Vector3 randomDirection()
+	{
+		double z = random.nextDouble() * 2 - 1
+		double phi = random.nextDouble() * 2 * Math.PI
+		double r = Math.sqrt(1 - z * z)
+		return new Vector3((float) (r * Math.cos(phi)), (float) (r * Math.sin(phi)), (float) z)
+	}
+
+	/**
+	 * The angle between two vectors in degrees, in double precision so that it resolves the 16-bit errors.
+	 */
+	static double degrees(Vector3 a, Vector3 b)
+	{
+		double cx = (double) a.y * b.z - (double) a.z * b.y
+		double cy = (double) a.z * b.x - (double) a.x * b.z
+		double cz = (double) a.x * b.y - (double) a.y * b.x
+		double dot = (double) a.x * b.x + (double) a.y * b.y + (double) a.z * b.z
+		return Math.toDegrees(Math.atan2(Math.sqrt(cx * cx + cy * cy + cz * cz), dot))
+	}
+
+	def "axes survive a round trip exactly"()
+	{
+		expect:
+			that Octahedral.decode8(Octahedral.encode8(axis)), closeTo(axis, 0.000001)
+			that Octahedral.decode8(Octahedral.encode8Precise(axis)), closeTo(axis, 0.000001)
+			that Octahedral.decode16(Octahedral.encode16(axis)), closeTo(axis, 0.000001)
+			that Octahedral.decode16(Octahedral.encode16Precise(axis)), closeTo(axis, 0.000001)
+		where:
+			axis << [
+				new Vector3(1, 0, 0), new Vector3(-1, 0, 0),
+				new Vector3(0, 1, 0), new Vector3(0, -1, 0),
+				new Vector3(0, 0, 1), new Vector3(0, 0, -1)
+			]
+	}
+
+	def "only the direction is encoded"()
+	{
+		expect:
+			Octahedral.encode16(new Vector3(3, -4, 12)) == Octahedral.encode16(new Vector3(3, -4, 12).normalize())
+			that Octahedral.decode8(Octahedral.encode8(new Vector3(0, 0, 0))), closeTo(new Vector3(0, 0, 1), 0.000001)
+	}
+
+	def "round trips stay within the documented error"()
+	{
+		given:
+			double plainMax = 0
+			double preciseMax = 0
+			boolean preciseNeverWorse = true
+		when:
+			10000.times {
+				def v = randomDirection()
+				def plain = degrees(v, bits == 8 ? Octahedral.decode8(Octahedral.encode8(v)) : Octahedral.decode16(Octahedral.encode16(v)))
+				def precise = degrees(v, bits == 8 ? Octahedral.decode8(Octahedral.encode8Precise(v)) : Octahedral.decode16(Octahedral.encode16Precise(v)))
+				plainMax = Math.max(plainMax, plain)
+				preciseMax = Math.max(preciseMax, precise)
+				preciseNeverWorse &= precise <= plain + 1e-5
+			}
+		then:
+			plainMax <= plainBound
+			preciseMax <= preciseBound
+			preciseNeverWorse
+		where:
+			bits | plainBound | preciseBound
+			8    | 0.96       | 0.64
+			16   | 0.0037     | 0.0025
+	}
+
+	def "decoded vectors are normalized"()
+	{
+		expect:
+			(0..0xffff).every { close(Octahedral.decode8((short) it).length(), 1f, 0.000001f) }
+	}
+
+	def "batches match single vectors"()
+	{
+		given:
+			int count = 100
+			float[] src = new float[3 * count]
+			for(int i = 0; i < count; i++)
+			{
+				def v = randomDirection()
+				src[3 * i] = v.x
+				src[3 * i + 1] = v.y
+				src[3 * i + 2] = v.z
+			}
+			def bytes = ByteBuffer.allocate(2 * count)
+			def shorts = ShortBuffer.allocate(2 * count)
+			float[] decoded8 = new float[3 * count]
+			float[] decoded16 = new float[3 * count]
+		when:
+			Octahedral.encode8Precise(src, 0, count, bytes)
+			Octahedral.encode16(src, 0, count, shorts)
+			bytes.flip()
+			shorts.flip()
+			Octahedral.decode8(bytes.duplicate(), decoded8, 0, count)
+			Octahedral.decode16(shorts.duplicate(), decoded16, 0, count)
+		then:
+			(0..<count).every {
+				def v = new Vector3(src[3 * it], src[3 * it + 1], src[3 * it + 2])
+				short packed8 = Octahedral.encode8Precise(v)
+				int packed16 = Octahedral.encode16(v)
+				bytes.get(2 * it) == (byte) packed8 && bytes.get(2 * it + 1) == (byte) (packed8 >> 8) &&
+					shorts.get(2 * it) == (short) packed16 && shorts.get(2 * it + 1) == (short) (packed16 >> 16) &&
+					new Vector3(decoded8[3 * it], decoded8[3 * it + 1], decoded8[3 * it + 2]) == Octahedral.decode8(packed8) &&
+					new Vector3(decoded16[3 * it], decoded16[3 * it + 1], decoded16[3 * it + 2]) == Octahedral.decode16(packed16)
+			}
+	}
+
+	def "batch methods check their bounds"()
+	{
+		when:
+			Octahedral.encode16(new float[9], 0, 3, ShortBuffer.allocate(5))
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			Octahedral.decode8(ByteBuffer.allocate(6), new float[8], 0, 3)
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
@@ -0,0 +1,94 @@
+package galu.encoding
+
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+import java.nio.IntBuffer
+
+class Packed1010102Spec extends Specification
+{
+	def random = new Random(1234)
+
+	def "components are laid out from the lowest bits"()
+	{
+		expect:
+			Packed1010102.packUnorm(1f, 0f, 0f, 0f) == 0x3ff
+			Packed1010102.packUnorm(0f, 1f, 0f, 0f) == 0x3ff << 10
+			Packed1010102.packUnorm(0f, 0f, 1f, 0f) == 0x3ff << 20
+			Packed1010102.packUnorm(0f, 0f, 0f, 1f) == 3 << 30
+			Packed1010102.packSnorm(-1f, 0f, 0f, 0f) == 0x201
+			Packed1010102.packSnorm(0f, 0f, 0f, -1f) == 3 << 30
+	}
+
+	def "signed components sign-extend"()
+	{
+		given:
+			def packed = Packed1010102.packSnorm(-1f, 1f, -0.5f, -1f)
+		expect:
+			Packed1010102.unpackSnorm(packed, 0) == -1f
+			Packed1010102.unpackSnorm(packed, 1) == 1f
+			Math.abs(Packed1010102.unpackSnorm(packed, 2) + 0.5f) <= 1 / 1022f
+			Packed1010102.unpackSnorm(packed, 3) == -1f
+			// The most negative codes decode to -1 too
+			Packed1010102.unpackSnorm(0x200, 0) == -1f
+			Packed1010102.unpackSnorm(2 << 30, 3) == -1f
+	}
+
+	def "round trips stay within the documented error"()
+	{
+		given:
+			int count = 1000
+			float min = signed ? -1f : 0f
+			float[] values = new float[4 * count]
+			for(int i = 0; i < values.length; i++)
+			{
+				values[i] = min + (1 - min) * random.nextFloat()
+			}
+			def encoded = IntBuffer.allocate(count)
+			float[] decoded = new float[4 * count]
+		when:
+			if(signed)
+			{
+				Packed1010102.encodeSnorm(values, 0, 4, count, encoded)
+				encoded.flip()
+				Packed1010102.decodeSnorm(encoded, decoded, 0, 4, count)
+			}
+			else
+			{
+				Packed1010102.encodeUnorm(values, 0, 4, count, encoded)
+				encoded.flip()
+				Packed1010102.decodeUnorm(encoded, decoded, 0, 4, count)
+			}
+		then:
+			(0..<values.length).every { Math.abs(decoded[it] - values[it]) <= (it % 4 == 3 ? wBound : bound) }
+		where:
+			signed | bound          | wBound
+			true   | 1 / 1022f + 1e-6f | 0.5f
+			false  | 1 / 2046f + 1e-6f | 1 / 6f + 1e-6f
+	}
+
+	def "three-component vectors leave w at zero"()
+	{
+		given:
+			float[] values = [0.25f, -0.5f, 1f, -1f, 0f, 0.75f]
+			def encoded = IntBuffer.allocate(2)
+			def decoded = FloatBuffer.allocate(6)
+		when:
+			Packed1010102.encodeSnorm(FloatBuffer.wrap(values), 3, 2, encoded)
+			encoded.flip()
+			Packed1010102.decodeSnorm(encoded.duplicate(), decoded, 3, 2)
+		then:
+			encoded.get(0) >>> 30 == 0
+			encoded.get(1) >>> 30 == 0
+			decoded.position() == 6
+			(0..5).every { Math.abs(decoded.get(it) - values[it]) <= 1 / 1022f }
+	}
+
+	def "rejects other component counts"()
+	{
+		when:
+			Packed1010102.encodeUnorm(new float[8], 0, 2, 4, IntBuffer.allocate(4))
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
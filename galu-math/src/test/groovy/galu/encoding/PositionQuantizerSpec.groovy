@@ -0,0 +1,131 @@
+package galu.encoding
+
+import galu.vector.Vector3
+import galu.vector.Vector4
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+import java.nio.ShortBuffer
+
+import static galu.test.Helpers.*
+import static spock.util.matcher.HamcrestSupport.that
+
+class PositionQuantizerSpec extends Specification
+{
+	def random = new Random(1234)
+
+	float[] randomPoints(int count)
+	{
+		float[] points = new float[3 * count]
+		for(int i = 0; i < points.length; i += 3)
+		{
+			points[i] = random.nextFloat() * 200 - 100
+			points[i + 1] = random.nextFloat() * 2 + 5
+			points[i + 2] = random.nextFloat() * 0.01f
+		}
+		return points
+	}
+
+	def "bounds come from the points"()
+	{
+		given:
+			float[] points = [1, 2, 3, -1, 5, 0, 4, -2, 1]
+			def quantizer = PositionQuantizer.fromPoints(points, 0, 3)
+		expect:
+			that quantizer.min(), closeTo(new Vector3(-1, -2, 0), 0.0001)
+			that quantizer.max(), closeTo(new Vector3(4, 5, 3), 0.0001)
+			that quantizer.maxError(), closeTo(new Vector3(5 / 131070f as float, 7 / 131070f as float, 3 / 131070f as float), 0.0000001)
+	}
+
+	def "round trips stay within the documented error"()
+	{
+		given:
+			int count = 1000
+			float[] points = randomPoints(count)
+			def quantizer = PositionQuantizer.fromPoints(points, 0, count)
+			def encoded = ShortBuffer.allocate(3 * count)
+			float[] decoded = new float[3 * count]
+			def error = quantizer.maxError()
+			// Allow for the rounding of the float arithmetic as well
+			float[] bounds = [error.x * 1.01f + 1e-5f, error.y * 1.01f + 1e-6f, error.z * 1.01f + 1e-8f]
+		when:
+			quantizer.encode(points, 0, count, encoded)
+			encoded.flip()
+			quantizer.decode(encoded, decoded, 0, count)
+		then:
+			(0..<points.length).every { Math.abs(decoded[it] - points[it]) <= bounds[it % 3] }
+	}
+
+	def "the corners of the box use the whole range"()
+	{
+		given:
+			def quantizer = new PositionQuantizer(new Vector3(-1, 0, 2), new Vector3(1, 4, 3))
+			float[] corners = [-1, 0, 2, 1, 4, 3]
+			def encoded = ShortBuffer.allocate(6)
+		when:
+			quantizer.encode(FloatBuffer.wrap(corners), 2, encoded)
+		then:
+			encoded.array() == [0, 0, 0, -1, -1, -1] as short[]
+	}
+
+	def "positions outside the box are clamped"()
+	{
+		given:
+			def quantizer = new PositionQuantizer(new Vector3(0, 0, 0), new Vector3(1, 1, 1))
+			float[] points = [-5, 0.5f, 7]
+			def encoded = ShortBuffer.allocate(3)
+			float[] decoded = new float[3]
+		when:
+			quantizer.encode(points, 0, 1, encoded)
+			encoded.flip()
+			quantizer.decode(encoded, decoded, 0, 1)
+		then:
+			decoded[0] == 0f
+			close(decoded[1], 0.5f, 0.0001f)
+			decoded[2] == 1f
+	}
+
+	def "flat boxes quantize to the minimum"()
+	{
+		given:
+			float[] points = [1, 2, 3, 4, 2, 5]
+			def quantizer = PositionQuantizer.fromPoints(points, 0, 2)
+			def encoded = ShortBuffer.allocate(6)
+			float[] decoded = new float[6]
+		when:
+			quantizer.encode(points, 0, 2, encoded)
+			encoded.flip()
+			quantizer.decode(encoded, decoded, 0, 2)
+		then:
+			decoded[1] == 2f
+			decoded[4] == 2f
+			close(decoded[3], 4f, 0.0001f)
+	}
+
+	def "the dequantization matrix decodes like decode"()
+	{
+		given:
+			float[] points = randomPoints(10)
+			def quantizer = PositionQuantizer.fromPoints(points, 0, 10)
+			def encoded = ShortBuffer.allocate(30)
+			float[] decoded = new float[30]
+			quantizer.encode(points, 0, 10, encoded)
+			encoded.flip()
+			quantizer.decode(encoded.duplicate(), decoded, 0, 10)
+			def matrix = quantizer.dequantization()
+		expect:
+			(0..<10).every {
+				def q = new Vector4(encoded.get(3 * it) & 0xffff, encoded.get(3 * it + 1) & 0xffff, encoded.get(3 * it + 2) & 0xffff, 1)
+				def p = matrix.transform(q)
+				close(p.x, decoded[3 * it], 0.001f) && close(p.y, decoded[3 * it + 1], 0.0001f) && close(p.z, decoded[3 * it + 2], 0.000001f)
+			}
+	}
+
+	def "rejects inverted boxes"()
+	{
+		when:
+			new PositionQuantizer(new Vector3(1, 0, 0), new Vector3(0, 1, 1))
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
@@ -0,0 +1,320 @@
+package galu.geometry
+
+import spock.lang.Specification
+
+import java.util.concurrent.ForkJoinPool
+
+import static galu.test.Helpers.*
+
+class BvhSpec extends Specification
+{
+	def random = new Random(1234)
+
+	def "closest hits match brute force"()
+	{
+		given:
+			def (positions, indices) = randomTriangles(500)
+			def bvh = Bvh.fromTriangles(positions, indices)
+			def hit = new RayHit()
+		expect:
+			200.times {
+				def ray = randomRay()
+				def expected = bruteForce(positions, indices, ray, 100)
+				def found = bvh.closestHit(*ray, 100f, hit)
+				assert found == (expected != null)
+				if(found)
+				{
+					assert hit.primitive == expected[0]
+					assert Math.abs(hit.t - expected[1]) < 0.001
+				}
+			}
+	}
+
+	def "hits report barycentric coordinates"()
+	{
+		given:
+			float[] positions = [0, 0, 0, 1, 0, 0, 0, 1, 0]
+			int[] indices = [0, 1, 2]
+			def bvh = Bvh.fromTriangles(positions, indices)
+			def hit = new RayHit()
+		when:
+			def found = bvh.closestHit(0.25f, 0.5f, 3f, 0f, 0f, -2f, 10f, hit)
+		then:
+			found
+			hit.primitive == 0
+			close(hit.t, 1.5, 0.0001)
+			close(hit.u, 0.25, 0.0001)
+			close(hit.v, 0.5, 0.0001)
+		and: "triangles are double-sided, and hits past tMax don't count"
+			bvh.closestHit(0.25f, 0.5f, -3f, 0f, 0f, 1f, 10f, hit)
+			!bvh.closestHit(0.25f, 0.5f, 3f, 0f, 0f, -1f, 2.9f, hit)
+	}
+
+	def "any hit agrees with closest hit"()
+	{
+		given:
+			def (positions, indices) = randomTriangles(500)
+			def bvh = Bvh.fromTriangles(positions, indices)
+			def hit = new RayHit()
+		expect:
+			200.times {
+				def ray = randomRay()
+				assert bvh.anyHit(*ray, 30f) == bvh.closestHit(*ray, 30f, hit)
+			}
+	}
+
+	def "rays hit boxes where they enter them"()
+	{
+		given: "a row of unit boxes along x, starting at x = 2"
+			float[] boxes = new float[6 * 10]
+			10.times {
+				boxes[6 * it] = 2 * it + 2
+				boxes[6 * it + 3] = 2 * it + 3
+				boxes[6 * it + 4] = boxes[6 * it + 5] = 1
+			}
+			def bvh = Bvh.fromBoxes(boxes, 10)
+			def hit = new RayHit()
+		expect:
+			bvh.closestHit(0f, 0.5f, 0.5f, 1f, 0f, 0f, 100f, hit)
+			hit.primitive == 0
+			close(hit.t, 2, 0.0001)
+			bvh.closestHit(100f, 0.5f, 0.5f, -2f, 0f, 0f, 100f, hit)
+			hit.primitive == 9
+			close(hit.t, 39.5, 0.0001)
+		and: "rays that start inside a box hit it at 0"
+			bvh.closestHit(10.5f, 0.5f, 0.5f, 0f, 1f, 0f, 100f, hit)
+			hit.primitive == 4
+			hit.t == 0
+		and:
+			!bvh.anyHit(0f, 2f, 0.5f, 1f, 0f, 0f, 100f)
+	}
+
+	def "overlap queries match brute force"()
+	{
+		given:
+			def boxes = randomBoxes(1000)
+			def bvh = Bvh.fromBoxes(boxes, 1000)
+			def results = new int[1000]
+		expect:
+			50.times {
+				float[] query = randomBox()
+				def expected = (0..<1000).findAll { overlaps(boxes, it, query) } as Set
+				int found = bvh.overlapping(*query, results)
+				assert found == expected.size()
+				assert (results[0..<found] as Set) == expected
+			}
+	}
+
+	def "overlap queries count past the end of the results"()
+	{
+		given:
+			def boxes = randomBoxes(100)
+			def bvh = Bvh.fromBoxes(boxes, 100)
+			def results = new int[3]
+		expect:
+			bvh.overlapping(-100f, -100f, -100f, 100f, 100f, 100f, results) == 100
+	}
+
+	def "packets match single rays"()
+	{
+		given: "more rays than fit in one packet, in a rough bundle"
+			def (positions, indices) = randomTriangles(2000)
+			def bvh = Bvh.fromTriangles(positions, indices)
+			int count = 150
+			float[] ox = new float[count], oy = new float[count], oz = new float[count]
+			float[] dx = new float[count], dy = new float[count], dz = new float[count]
+			count.times {
+				ox[it] = -15; oy[it] = random.nextFloat() * 4 - 2; oz[it] = random.nextFloat() * 4 - 2
+				dx[it] = 1; dy[it] = random.nextFloat() - 0.5f; dz[it] = random.nextFloat() - 0.5f
+			}
+			float[] hitT = new float[count]
+			int[] hitPrimitives = new int[count]
+			def anyHits = new BitSet()
+			def hit = new RayHit()
+		when:
+			bvh.closestHits(ox, oy, oz, dx, dy, dz, count, 40f, hitT, hitPrimitives)
+			bvh.anyHits(ox, oy, oz, dx, dy, dz, count, 40f, anyHits)
+		then:
+			hitPrimitives.any { it >= 0 }
+			hitPrimitives.any { it < 0 }
+			count.times {
+				boolean found = bvh.closestHit(ox[it], oy[it], oz[it], dx[it], dy[it], dz[it], 40f, hit)
+				assert anyHits.get(it) == found
+				assert hitPrimitives[it] == (found ? hit.primitive : -1)
+				assert hitT[it] == (found ? hit.t : 40f)
+			}
+	}
+
+	def "queries can share a traversal stack"()
+	{
+		given:
+			def (positions, indices) = randomTriangles(500)
+			def bvh = Bvh.fromTriangles(positions, indices)
+			def boxes = randomBoxes(500)
+			def boxBvh = Bvh.fromBoxes(boxes, 500)
+			int[] stack = new int[Math.max(bvh.stackSize(), boxBvh.stackSize())]
+			def a = new RayHit(), b = new RayHit()
+			def results = new int[500], stackResults = new int[500]
+		expect:
+			bvh.stackSize() == bvh.depth() + 1
+			100.times {
+				def ray = randomRay()
+				assert bvh.closestHit(*ray, 100f, a, stack) == bvh.closestHit(*ray, 100f, b)
+				assert a.primitive == b.primitive && a.t == b.t && a.u == b.u && a.v == b.v
+				assert bvh.anyHit(*ray, 30f, stack) == bvh.anyHit(*ray, 30f)
+				float[] query = randomBox()
+				int found = boxBvh.overlapping(*query, stackResults, stack)
+				assert found == boxBvh.overlapping(*query, results)
+				assert (stackResults[0..<Math.min(found, 500)] as Set) == (results[0..<Math.min(found, 500)] as Set)
+			}
+	}
+
+	def "short traversal stacks are rejected"()
+	{
+		given:
+			def (positions, indices) = randomTriangles(500)
+			def bvh = Bvh.fromTriangles(positions, indices)
+			int[] stack = new int[bvh.depth()]
+		when:
+			bvh.closestHit(0f, 0f, 0f, 1f, 0f, 0f, 100f, new RayHit(), stack)
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			bvh.anyHit(0f, 0f, 0f, 1f, 0f, 0f, 100f, stack)
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			bvh.overlapping(-1f, -1f, -1f, 1f, 1f, 1f, new int[1], stack)
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	def "parallel builds find the same hits"()
+	{
+		given:
+			def (positions, indices) = randomTriangles(3000)
+			def pool = new ForkJoinPool(4)
+			def sequential = Bvh.fromTriangles(positions, indices, pool, Integer.MAX_VALUE)
+			def parallel = Bvh.fromTriangles(positions, indices, pool, 16)
+			def a = new RayHit(), b = new RayHit()
+		expect:
+			parallel.nodeCount() == sequential.nodeCount()
+			parallel.nodeCount() <= 2 * 3000 - 1
+			200.times {
+				def ray = randomRay()
+				assert sequential.closestHit(*ray, 100f, a) == parallel.closestHit(*ray, 100f, b)
+				assert a.primitive == b.primitive
+			}
+		cleanup:
+			pool.shutdown()
+	}
+
+	def "primitives in the same place are still split into small leaves"()
+	{
+		given:
+			float[] boxes = new float[6 * 100]
+			100.times { boxes[6 * it + 3] = boxes[6 * it + 4] = boxes[6 * it + 5] = 1 }
+		when:
+			def bvh = Bvh.fromBoxes(boxes, 100)
+		then:
+			bvh.depth() <= 7
+			bvh.overlapping(0.5f, 0.5f, 0.5f, 2f, 2f, 2f, new int[100]) == 100
+	}
+
+	def "empty trees have no hits"()
+	{
+		given:
+			def bvh = Bvh.fromTriangles(new float[0], new int[0])
+		expect:
+			bvh.primitiveCount() == 0
+			!bvh.closestHit(0f, 0f, 0f, 1f, 0f, 0f, 100f, new RayHit())
+			!bvh.anyHit(0f, 0f, 0f, 1f, 0f, 0f, 100f)
+			bvh.overlapping(-1f, -1f, -1f, 1f, 1f, 1f, new int[1]) == 0
+	}
+
+	def "bad meshes are rejected"()
+	{
+		when:
+			Bvh.fromTriangles(new float[9], [0, 1] as int[])
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			Bvh.fromTriangles(new float[9], [0, 1, 3] as int[])
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	// Small triangles scattered through a 20-unit cube
+	private List randomTriangles(int count)
+	{
+		float[] positions = new float[9 * count]
+		int[] indices = new int[3 * count]
+		count.times { t ->
+			float cx = random.nextFloat() * 20 - 10, cy = random.nextFloat() * 20 - 10, cz = random.nextFloat() * 20 - 10
+			3.times { v ->
+				positions[9 * t + 3 * v] = cx + random.nextFloat() * 2 - 1
+				positions[9 * t + 3 * v + 1] = cy + random.nextFloat() * 2 - 1
+				positions[9 * t + 3 * v + 2] = cz + random.nextFloat() * 2 - 1
+				indices[3 * t + v] = 3 * t + v
+			}
+		}
+		[positions, indices]
+	}
+
+	private List randomRay()
+	{
+		[random.nextFloat() * 30 - 15, random.nextFloat() * 30 - 15, random.nextFloat() * 30 - 15,
+		 random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1].collect { it as float }
+	}
+
+	private float[] randomBoxes(int count)
+	{
+		float[] boxes = new float[6 * count]
+		count.times {
+			float[] box = randomBox()
+			System.arraycopy(box, 0, boxes, 6 * it, 6)
+		}
+		boxes
+	}
+
+	private float[] randomBox()
+	{
+		float x = random.nextFloat() * 20 - 10, y = random.nextFloat() * 20 - 10, z = random.nextFloat() * 20 - 10
+		[x, y, z, x + random.nextFloat() * 3, y + random.nextFloat() * 3, z + random.nextFloat() * 3] as float[]
+	}
+
+	private static boolean overlaps(float[] boxes, int i, float[] q)
+	{
+		(0..<3).every { boxes[6 * i + it] <= q[3 + it] && boxes[6 * i + 3 + it] >= q[it] }
+	}
+
+	// Moller-Trumbore in doubles over every triangle; returns [primitive, t] or null
+	private static List bruteForce(float[] p, int[] indices, List ray, double tMax)
+	{
+		def (ox, oy, oz, dx, dy, dz) = ray.collect { it as double }
+		def best = null
+		for(int t = 0; t < indices.length / 3; t++)
+		{
+			def v = (0..<3).collect { k -> (0..<3).collect { c -> p[3 * indices[3 * t + k] + c] as double } }
+			def e1 = (0..<3).collect { v[1][it] - v[0][it] }
+			def e2 = (0..<3).collect { v[2][it] - v[0][it] }
+			def d = [dx, dy, dz]
+			def pv = [d[1] * e2[2] - d[2] * e2[1], d[2] * e2[0] - d[0] * e2[2], d[0] * e2[1] - d[1] * e2[0]]
+			double det = (0..<3).sum { e1[it] * pv[it] }
+			if(det == 0)
+			{
+				continue
+			}
+			def s = [ox - v[0][0], oy - v[0][1], oz - v[0][2]]
+			double u = (0..<3).sum { s[it] * pv[it] } / det
+			def q = [s[1] * e1[2] - s[2] * e1[1], s[2] * e1[0] - s[0] * e1[2], s[0] * e1[1] - s[1] * e1[0]]
+			double w = (0..<3).sum { d[it] * q[it] } / det
+			double dist = (0..<3).sum { e2[it] * q[it] } / det
+			if(u >= 0 && w >= 0 && u + w <= 1 && dist >= 0 && dist < tMax && (best == null || dist < best[1]))
+			{
+				best = [t, dist]
+			}
+		}
+		best
+	}
+}
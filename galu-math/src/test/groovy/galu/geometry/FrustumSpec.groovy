@@ -0,0 +1,245 @@
+package galu.geometry
+
+import galu.matrix.Matrix4
+import galu.transform.Transformations
+import galu.vector.Vector3
+import galu.vector.Vector4
+import spock.lang.Specification
+
+import static galu.test.Helpers.*
+import static spock.util.matcher.HamcrestSupport.that
+
+class FrustumSpec extends Specification
+{
+	// A 90 degree perspective projection with near = 1 and far = 100, looking down -z from (0, 0, 5)
+	static final Matrix4 VIEW_PROJECTION = perspective(1, 100).multiply(Transformations.translate(new Vector3(0, 0, -5)))
+
+	def random = new Random(1234)
+
+	def "planes of the identity matrix are the clip cube"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(Matrix4.IDENTITY)
+		expect:
+			that frustum.plane(Frustum.LEFT), closeTo(new Vector4(1, 0, 0, 1))
+			that frustum.plane(Frustum.RIGHT), closeTo(new Vector4(-1, 0, 0, 1))
+			that frustum.plane(Frustum.BOTTOM), closeTo(new Vector4(0, 1, 0, 1))
+			that frustum.plane(Frustum.TOP), closeTo(new Vector4(0, -1, 0, 1))
+			that frustum.plane(Frustum.NEAR), closeTo(new Vector4(0, 0, 1, 1))
+			that frustum.plane(Frustum.FAR), closeTo(new Vector4(0, 0, -1, 1))
+	}
+
+	def "planes are normalized"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(VIEW_PROJECTION)
+		expect:
+			(0..<6).every {
+				def p = frustum.plane(it)
+				close(new Vector3(p.x, p.y, p.z).length(), 1, 0.0001)
+			}
+			close(frustum.plane(Frustum.NEAR).w, 4, 0.0001) // the near plane is at z = 4
+	}
+
+	def "sphere tests"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(VIEW_PROJECTION)
+		expect:
+			frustum.intersectsSphere(x, y, z, r) == visible
+		where:
+			x    | y   | z     | r   || visible
+			0    | 0   | 0     | 1   || true
+			0    | 0   | 10    | 1   || false  // behind the camera
+			0    | 0   | 4.5   | 1   || true   // crosses the near plane
+			0    | 0   | -200  | 1   || false  // past the far plane
+			20   | 0   | -10   | 1   || false  // off to the right
+			15.5 | 0   | -10   | 1   || true   // touching the right plane
+			0    | -30 | -10   | 2   || false
+	}
+
+	def "box tests"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(VIEW_PROJECTION)
+		expect:
+			frustum.intersectsBox(minX, minY, minZ, maxX, maxY, maxZ) == visible
+		where:
+			minX | minY | minZ | maxX | maxY | maxZ || visible
+			-1   | -1   | -1   | 1    | 1    | 1    || true
+			-1   | -1   | 6    | 1    | 1    | 8    || false
+			18   | -1   | -11  | 20   | 1    | -9   || false
+			14   | -1   | -11  | 18   | 1    | -9   || true
+			-500 | -500 | -500 | 500  | 500  | 500  || true   // contains the whole frustum
+	}
+
+	def "points inside the frustum are never culled"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(VIEW_PROJECTION)
+		expect:
+			(0..<500).every {
+				def p = new Vector3(next(40), next(40), next(120) - 50 as float)
+				def clip = VIEW_PROJECTION.transform(new Vector4(p.x, p.y, p.z, 1))
+				def inside = [clip.x, clip.y, clip.z].every { Math.abs(it) <= clip.w }
+				!inside || (frustum.intersectsSphere(p.x, p.y, p.z, 0.01) && frustum.intersectsBox(p.x, p.y, p.z, p.x, p.y, p.z))
+			}
+	}
+
+	def "masks report straddled planes"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(VIEW_PROJECTION)
+		expect:
+			frustum.classifySphere(0, 0, -10, 1, Frustum.ALL_PLANES, 0) == 0
+			frustum.classifySphere(0, 0, 4, 0.5, Frustum.ALL_PLANES, 0) == 1 << Frustum.NEAR
+			frustum.classifyBox(14, -1, -11, 18, 1, -9, Frustum.ALL_PLANES, 0) == 1 << Frustum.RIGHT
+			Frustum.rejectingPlane(frustum.classifySphere(0, 0, -200, 1, Frustum.ALL_PLANES, 0)) == Frustum.FAR
+			Frustum.rejectingPlane(frustum.classifyBox(-1, -1, -201, 1, 1, -200, Frustum.ALL_PLANES, 2)) == Frustum.FAR
+	}
+
+	def "masked tests of nested volumes agree with full tests"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(VIEW_PROJECTION)
+		expect:
+			(0..<300).every {
+				float cx = next(60), cy = next(60), cz = next(150) - 50
+				float half = random.nextFloat() * 10 + 1
+				int parent = frustum.classifyBox((cx - half) as float, (cy - half) as float, (cz - half) as float,
+				                                 (cx + half) as float, (cy + half) as float, (cz + half) as float, Frustum.ALL_PLANES, 0)
+				float x = cx + next(half), y = cy + next(half), z = cz + next(half)
+				float r = random.nextFloat() * (half - [x - cx, y - cy, z - cz]*.abs().max())
+				boolean full = frustum.intersectsSphere(x, y, z, r)
+				parent < 0 ? !full : (frustum.classifySphere(x, y, z, r, parent, 0) >= 0) == full
+			}
+	}
+
+	def "batch sphere culling matches single tests, with and without coherency"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(VIEW_PROJECTION)
+			int count = 1000
+			def spheres = new float[count * 5 + 1]
+			for(int i = 0; i < count; i++)
+			{
+				spheres[1 + i * 5] = next(100)
+				spheres[2 + i * 5] = next(100)
+				spheres[3 + i * 5] = next(150)
+				spheres[4 + i * 5] = random.nextFloat() * 5
+			}
+			def expected = (0..<count).findAll { frustum.intersectsSphere(spheres[1 + it*5], spheres[2 + it*5], spheres[3 + it*5], spheres[4 + it*5]) }
+			def cache = new byte[count]
+			def bits = new BitSet()
+			def indices = new int[count]
+		when:
+			frustum.cullSpheres(spheres, 1, 5, count, null, bits)
+			def n = frustum.cullSpheres(spheres, 1, 5, count, null, indices)
+		then:
+			bits.stream().toArray() as List == expected
+			indices[0..<n] == expected
+		when: // twice, so the second pass starts with the cached planes
+			2.times { n = frustum.cullSpheres(spheres, 1, 5, count, cache, indices) }
+			frustum.cullSpheres(spheres, 1, 5, count, cache, bits)
+		then:
+			indices[0..<n] == expected
+			bits.stream().toArray() as List == expected
+			(0..<count).every { expected.contains(it) || frustum.classifySphere(spheres[1 + it*5], spheres[2 + it*5], spheres[3 + it*5], spheres[4 + it*5], 1 << cache[it], 0) < 0 }
+	}
+
+	def "batch box culling matches single tests"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(VIEW_PROJECTION)
+			int count = 1000
+			def boxes = new float[count * 6]
+			for(int i = 0; i < count; i++)
+			{
+				float x = next(100), y = next(100), z = next(150)
+				boxes[i * 6] = x
+				boxes[i * 6 + 1] = y
+				boxes[i * 6 + 2] = z
+				boxes[i * 6 + 3] = x + random.nextFloat() * 5
+				boxes[i * 6 + 4] = y + random.nextFloat() * 5
+				boxes[i * 6 + 5] = z + random.nextFloat() * 5
+			}
+			def expected = (0..<count).findAll { frustum.intersectsBox(*(boxes[(it*6)..<(it*6 + 6)])) }
+			def cache = new byte[count]
+			def bits = new BitSet()
+			def indices = new int[count]
+		when:
+			frustum.cullBoxes(boxes, 0, 6, count, cache, bits)
+			def n = frustum.cullBoxes(boxes, 0, 6, count, cache, indices)
+		then:
+			bits.stream().toArray() as List == expected
+			indices[0..<n] == expected
+			n > 0 && n < count
+	}
+
+	def "batch ranges are checked"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(Matrix4.IDENTITY)
+		when:
+			frustum.cullSpheres(new float[15], 0, 4, 4, null, new BitSet())
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			frustum.cullBoxes(new float[24], 0, 6, 4, new byte[3], new BitSet())
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			frustum.cullBoxes(new float[24], 0, 6, 4, null, new int[3])
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	def "plane caches with values this class didn't write are tested from the first plane"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(Matrix4.IDENTITY)
+			// Inside, past the right plane, and inside
+			float[] spheres = [0, 0, 0, 0.5f, 3, 0, 0, 0.5f, 0, 0, 0, 0.5f]
+			float[] boxes = [0, 0, 0, 0.5f, 0.5f, 0.5f, 3, 0, 0, 4, 1, 1, 0, 0, 0, 0.5f, 0.5f, 0.5f]
+			byte[] sphereCache = [9, -1, 127]
+			byte[] boxCache = [9, -1, 127]
+			def sphereBits = new BitSet()
+			def boxIndices = new int[3]
+		when:
+			frustum.cullSpheres(spheres, 0, 4, 3, sphereCache, sphereBits)
+			int boxCount = frustum.cullBoxes(boxes, 0, 6, 3, boxCache, boxIndices)
+		then:
+			sphereBits.stream().toArray() as List == [0, 2]
+			boxIndices[0..<boxCount] == [0, 2]
+			sphereCache[1] == Frustum.RIGHT
+			boxCache[1] == Frustum.RIGHT
+	}
+
+	def "first planes outside the frustum are rejected"()
+	{
+		given:
+			def frustum = Frustum.fromMatrix(Matrix4.IDENTITY)
+		when:
+			frustum.classifySphere(0, 0, 0, 1, Frustum.ALL_PLANES, 6)
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			frustum.classifyBox(0, 0, 0, 1, 1, 1, Frustum.ALL_PLANES, -1)
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	private float next(float range)
+	{
+		return (random.nextFloat() * 2 - 1) * range as float
+	}
+
+	private static Matrix4 perspective(float near, float far)
+	{
+		return new Matrix4(
+			1, 0, 0, 0,
+			0, 1, 0, 0,
+			0, 0, (far + near) / (near - far) as float, 2 * far * near / (near - far) as float,
+			0, 0, -1, 0)
+	}
+}
@@ -0,0 +1,154 @@
+package galu.geometry
+
+import spock.lang.Specification
+
+import static galu.test.Helpers.*
+
+class RayTriangleSpec extends Specification
+{
+	// One counterclockwise triangle facing +z, in the z = 0 plane
+	static final float[] TRIANGLE = [0, 0, 0, 1, 0, 0, 0, 1, 0]
+
+	def random = new Random(1234)
+
+	def "hits report distance and barycentric coordinates"()
+	{
+		given:
+			def hit = new RayHit()
+		when:
+			def found = RayTriangle.closestHit(0.25f, 0.5f, 3f, 0f, 0f, -2f, 10f, TRIANGLE, 0, 1, cull, hit)
+		then:
+			found
+			hit.primitive == 0
+			close(hit.t, 1.5, 0.0001)
+			close(hit.u, 0.25, 0.0001)
+			close(hit.v, 0.5, 0.0001)
+		where:
+			cull << [false, true]
+	}
+
+	def "back faces are only hit without culling"()
+	{
+		given:
+			def hit = new RayHit()
+		expect:
+			RayTriangle.closestHit(0.25f, 0.25f, -1f, 0f, 0f, 1f, 10f, TRIANGLE, 0, 1, false, hit)
+			!RayTriangle.closestHit(0.25f, 0.25f, -1f, 0f, 0f, 1f, 10f, TRIANGLE, 0, 1, true, hit)
+	}
+
+	def "misses leave the hit alone"()
+	{
+		given:
+			def hit = new RayHit(t: 7, u: 0.1, v: 0.2, primitive: 3)
+		when:
+			def found = RayTriangle.closestHit(2f, 2f, 1f, 0f, 0f, -1f, 10f, TRIANGLE, 0, 1, false, hit)
+		then:
+			!found
+			hit.t == 7f
+			hit.u == 0.1f
+			hit.v == 0.2f
+			hit.primitive == 3
+	}
+
+	def "hits past tMax and behind the origin don't count"()
+	{
+		given:
+			def hit = new RayHit()
+		expect:
+			!RayTriangle.closestHit(0.25f, 0.25f, 3f, 0f, 0f, -1f, 2.9f, TRIANGLE, 0, 1, false, hit)
+			!RayTriangle.closestHit(0.25f, 0.25f, 3f, 0f, 0f, 1f, 10f, TRIANGLE, 0, 1, false, hit)
+	}
+
+	def "packed, indexed, and batched queries agree"()
+	{
+		given: "small triangles around the origin, and an indexed copy that skips the first vertex"
+			int count = 300
+			float[] packed = new float[9 * count]
+			count.times { i ->
+				float[] center = [random.nextFloat() * 10 - 5, random.nextFloat() * 10 - 5, random.nextFloat() * 10 - 5]
+				9.times { packed[9 * i + it] = center[it % 3] + random.nextFloat() * 2 - 1 }
+			}
+			float[] positions = new float[3 + packed.length]
+			System.arraycopy(packed, 0, positions, 3, packed.length)
+			int[] indices = new int[2 + 3 * count]
+			for(int i = 0; i < 3 * count; i++)
+			{
+				indices[2 + i] = i + 1
+			}
+
+			int rays = 100
+			float[] ox = new float[rays], oy = new float[rays], oz = new float[rays]
+			float[] dx = new float[rays], dy = new float[rays], dz = new float[rays]
+			rays.times {
+				ox[it] = random.nextFloat() * 20 - 10; oy[it] = random.nextFloat() * 20 - 10; oz[it] = random.nextFloat() * 20 - 10
+				dx[it] = -ox[it] + random.nextFloat() * 4 - 2; dy[it] = -oy[it] + random.nextFloat() * 4 - 2; dz[it] = -oz[it]
+			}
+			float[] t = new float[rays], u = new float[rays], v = new float[rays]
+			int[] triangles = new int[rays]
+			float[] it2 = new float[rays], iu = new float[rays], iv = new float[rays]
+			int[] itriangles = new int[rays]
+			def hit = new RayHit(), indexedHit = new RayHit()
+		when:
+			RayTriangle.closestHits(ox, oy, oz, dx, dy, dz, rays, 0.9f, packed, 0, count, cull, t, u, v, triangles)
+			RayTriangle.closestHits(ox, oy, oz, dx, dy, dz, rays, 0.9f, positions, indices, 2, count, cull, it2, iu, iv, itriangles)
+		then:
+			triangles.any { it >= 0 }
+			triangles.any { it < 0 }
+			rays.times {
+				boolean found = RayTriangle.closestHit(ox[it], oy[it], oz[it], dx[it], dy[it], dz[it], 0.9f, packed, 0, count, cull, hit)
+				boolean indexedFound = RayTriangle.closestHit(ox[it], oy[it], oz[it], dx[it], dy[it], dz[it], 0.9f, positions, indices, 2, count, cull, indexedHit)
+				assert indexedFound == found
+				assert triangles[it] == (found ? hit.primitive : -1)
+				assert itriangles[it] == triangles[it]
+				if(found)
+				{
+					assert indexedHit.primitive == hit.primitive
+					assert t[it] == hit.t && u[it] == hit.u && v[it] == hit.v
+					assert it2[it] == t[it]
+				}
+				else
+				{
+					assert t[it] == 0.9f
+				}
+			}
+		where:
+			cull << [false, true]
+	}
+
+	def "culling only drops back faces"()
+	{
+		given: "a ray through two stacked triangles, the nearer one facing away"
+			float[] triangles = [0, 0, 1, 0, 1, 1, 1, 0, 1,
+			                     0, 0, 0, 1, 0, 0, 0, 1, 0]
+			float[] o = [0.2f], oz = [5f], d = [0f], dz = [-1f]
+			float[] t = new float[1], u = new float[1], v = new float[1]
+			int[] hits = new int[1]
+		when:
+			RayTriangle.closestHits(o, o, oz, d, d, dz, 1, 100f, triangles, 0, 2, false, t, u, v, hits)
+		then:
+			hits[0] == 0
+			close(t[0], 4, 0.0001)
+		when:
+			RayTriangle.closestHits(o, o, oz, d, d, dz, 1, 100f, triangles, 0, 2, true, t, u, v, hits)
+		then:
+			hits[0] == 1
+			close(t[0], 5, 0.0001)
+	}
+
+	def "ranges outside the arrays are rejected"()
+	{
+		when:
+			RayTriangle.closestHit(0f, 0f, 0f, 0f, 0f, 1f, 1f, new float[17], 0, 2, false, new RayHit())
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			RayTriangle.closestHit(0f, 0f, 0f, 0f, 0f, 1f, 1f, new float[9], new int[5], 3, 1, false, new RayHit())
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			RayTriangle.closestHits(new float[1], new float[1], new float[1], new float[1], new float[1], new float[1], 2, 1f,
+			                        new float[9], 0, 1, false, new float[2], new float[2], new float[2], new int[2])
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
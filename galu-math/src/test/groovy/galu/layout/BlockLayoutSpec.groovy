@@ -0,0 +1,194 @@
+package galu.layout
+
+import galu.matrix.Matrix2
+import galu.matrix.Matrix3
+import galu.matrix.Matrix4
+import galu.vector.Vector2
+import galu.vector.Vector3
+import galu.vector.Vector4
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+import static galu.layout.BlockLayout.Rules.STD140
+import static galu.layout.BlockLayout.Rules.STD430
+import static galu.layout.BlockLayout.Type.*
+
+class BlockLayoutSpec extends Specification
+{
+	def "member offsets follow the layout rules"()
+	{
+		given:
+			def builder = BlockLayout.builder(rules)
+			builder.add("a", FLOAT)
+			builder.add("b", VEC2)
+			builder.add("c", VEC3)
+			builder.add("d", FLOAT)
+			builder.addArray("f", FLOAT, 2)
+			builder.add("g", MAT3)
+			builder.addArray("h", VEC3, 2)
+			builder.add("i", MAT2)
+			builder.add("j", INT)
+			def layout = builder.build()
+		expect:
+			layout.members()*.offset() == offsets
+			layout.member("f").arrayStride() == floatStride
+			layout.member("g").matrixStride() == 16
+			layout.member("h").arrayStride() == 16
+			layout.member("i").matrixStride() == mat2Stride
+			layout.size() == size
+		where:
+			rules  | offsets                                 | floatStride | mat2Stride | size
+			STD140 | [0, 8, 16, 28, 32, 64, 112, 144, 176]   | 16          | 16         | 192
+			STD430 | [0, 8, 16, 28, 32, 48, 96, 128, 144]    | 4           | 8          | 160
+	}
+
+	def "arrays of vectors and matrices"()
+	{
+		given:
+			def builder = BlockLayout.builder(rules)
+			def vectors = builder.addArray("vectors", VEC2, 3)
+			def matrices = builder.addArray("matrices", MAT2, 2)
+			def last = builder.add("last", FLOAT)
+			def layout = builder.build()
+		expect:
+			vectors.arrayStride() == vec2Stride
+			matrices.offset() == 3 * vec2Stride
+			matrices.arrayStride() == mat2Stride
+			last.offset() == 3 * vec2Stride + 2 * mat2Stride
+			layout.size() == size
+		where:
+			rules  | vec2Stride | mat2Stride | size
+			STD140 | 16         | 32         | 128
+			STD430 | 8          | 16         | 64
+	}
+
+	def "a struct of scalars is padded to a vec4 only in std140"()
+	{
+		given:
+			def builder = BlockLayout.builder(rules)
+			builder.add("a", FLOAT)
+			builder.add("b", FLOAT)
+		expect:
+			builder.build().size() == size
+		where:
+			rules  | size
+			STD140 | 16
+			STD430 | 8
+	}
+
+	def "values are written at their padded positions"()
+	{
+		given:
+			def builder = BlockLayout.builder(STD140)
+			def scale = builder.add("scale", FLOAT)
+			def normal = builder.add("normal", MAT3)
+			def model = builder.add("model", MAT4)
+			def colors = builder.addArray("colors", VEC4, 2)
+			def offset = builder.add("offset", VEC2)
+			def light = builder.add("light", VEC3)
+			def count = builder.add("count", INT)
+			def rotation = builder.add("rotation", MAT2)
+			def layout = builder.build()
+			def buf = ByteBuffer.allocate(8 + layout.size()).order(ByteOrder.nativeOrder())
+			buf.position(8)
+		when:
+			scale.putFloat(buf, 2.5f)
+			normal.put(buf, new Matrix3(1, 2, 3, 4, 5, 6, 7, 8, 9))
+			model.put(buf, new Matrix4(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16))
+			colors.put(buf, 1, new Vector4(0.1f, 0.2f, 0.3f, 0.4f))
+			offset.put(buf, new Vector2(-1, -2))
+			light.put(buf, new Vector3(7, 8, 9))
+			count.putInt(buf, 42)
+			rotation.put(buf, new Matrix2(1, 2, 3, 4))
+		then:
+			buf.position() == 8
+			floatsAt(buf, 8 + scale.offset(), 1) == [2.5f]
+			floatsAt(buf, 8 + normal.offset(), 12) == [1, 4, 7, 0, 2, 5, 8, 0, 3, 6, 9, 0] as List<Float>
+			floatsAt(buf, 8 + model.offset(), 16) == [1, 5, 9, 13, 2, 6, 10, 14, 3, 7, 11, 15, 4, 8, 12, 16] as List<Float>
+			floatsAt(buf, 8 + colors.offset() + 16, 4) == [0.1f, 0.2f, 0.3f, 0.4f]
+			floatsAt(buf, 8 + offset.offset(), 2) == [-1, -2] as List<Float>
+			floatsAt(buf, 8 + light.offset(), 3) == [7, 8, 9] as List<Float>
+			buf.getInt(8 + count.offset()) == 42
+			floatsAt(buf, 8 + rotation.offset(), 6) == [1, 3, 0, 0, 2, 4] as List<Float>
+	}
+
+	def "tightly packed std430 matrix columns"()
+	{
+		given:
+			def builder = BlockLayout.builder(STD430)
+			def rotation = builder.addArray("rotation", MAT2, 2)
+			builder.build()
+			def buf = ByteBuffer.allocate(32).order(ByteOrder.nativeOrder())
+		when:
+			rotation.put(buf, 1, new Matrix2(1, 2, 3, 4))
+		then:
+			floatsAt(buf, 16, 4) == [1, 3, 2, 4] as List<Float>
+	}
+
+	def "writes are checked against the declared type and length"()
+	{
+		given:
+			def builder = BlockLayout.builder(STD140)
+			def vector = builder.add("vector", VEC3)
+			def array = builder.addArray("array", FLOAT, 2)
+			def buf = ByteBuffer.allocate(builder.build().size())
+		when:
+			vector.put(buf, new Vector4(1, 2, 3, 4))
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			array.putFloat(buf, 2, 1)
+		then:
+			thrown(IndexOutOfBoundsException)
+		when:
+			vector.put(buf, 1, new Vector3(1, 2, 3))
+		then:
+			thrown(IndexOutOfBoundsException)
+	}
+
+	def "declaration errors"()
+	{
+		given:
+			def builder = BlockLayout.builder(STD430)
+			builder.add("a", FLOAT)
+		when:
+			builder.add("a", VEC2)
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			builder.addArray("b", VEC2, 0)
+		then:
+			thrown(IllegalArgumentException)
+		when:
+			builder.build()
+			builder.add("c", FLOAT)
+		then:
+			thrown(IllegalStateException)
+		when:
+			BlockLayout.builder(STD430).build().member("missing")
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	def "member lookup by name"()
+	{
+		given:
+			def builder = BlockLayout.builder(STD140)
+			def member = builder.addArray("lights", VEC4, 4)
+			def layout = builder.build()
+		expect:
+			layout.member("lights").is(member)
+			member.isArray()
+			member.length() == 4
+			member.type() == VEC4
+			member.name() == "lights"
+			layout.rules() == STD140
+	}
+
+	private static List<Float> floatsAt(ByteBuffer buf, int offset, int count)
+	{
+		return (0..<count).collect { buf.getFloat(offset + 4 * it) }
+	}
+}
@@ -0,0 +1,139 @@
+package galu.layout
+
+import galu.matrix.Matrix4
+import galu.vector.Vector4
+import spock.lang.Specification
+
+import static galu.layout.BlockLayout.Rules.STD430
+import static galu.layout.BlockLayout.Type.MAT4
+import static galu.layout.BlockLayout.Type.VEC4
+
+class InstanceBufferSpec extends Specification
+{
+	BlockLayout.Member model
+	BlockLayout.Member color
+	BlockLayout layout
+
+	def setup()
+	{
+		def builder = BlockLayout.builder(STD430)
+		model = builder.add("model", MAT4)
+		color = builder.add("color", VEC4)
+		layout = builder.build()
+	}
+
+	def "instances are packed at the layout's stride"()
+	{
+		given:
+			def instances = new InstanceBuffer(layout, 10)
+		when:
+			def buf = instances.edit(3)
+			model.put(buf, Matrix4.IDENTITY)
+			color.put(buf, new Vector4(1, 0.5f, 0.25f, 1))
+			instances.swap()
+			def front = instances.front()
+		then:
+			instances.stride() == 80
+			front.isDirect()
+			front.remaining() == 800
+			front.getFloat(3 * 80) == 1f
+			front.getFloat(3 * 80 + 64 + 4) == 0.5f
+	}
+
+	def "dirty instances are coalesced into contiguous ranges"()
+	{
+		given:
+			def instances = new InstanceBuffer(layout, 20)
+		when:
+			[2, 3, 4, 9, 11, 12, 19, 3].each { color.put(instances.edit(it), new Vector4(it, 0, 0, 1)) }
+			instances.swap()
+		then:
+			ranges(instances) == [[160, 240], [720, 80], [880, 160], [1520, 80]]
+			instances.uploadBytes() == 560
+			instances.packedBytes() == 640
+	}
+
+	def "short gaps can be merged"()
+	{
+		given:
+			def instances = new InstanceBuffer(layout, 20, 1)
+		when:
+			[2, 3, 4, 9, 11, 12, 19].each { instances.edit(it) }
+			instances.swap()
+		then:
+			ranges(instances) == [[160, 240], [720, 320], [1520, 80]]
+	}
+
+	def "clean frames upload nothing"()
+	{
+		given:
+			def instances = new InstanceBuffer(layout, 5)
+			instances.edit(1)
+			instances.swap()
+		when:
+			instances.swap()
+		then:
+			instances.dirtyRangeCount() == 0
+			instances.uploadBytes() == 0
+			instances.packedBytes() == 0
+			instances.totalUploadBytes() == 80
+			instances.totalPackedBytes() == 80
+	}
+
+	def "each front buffer has every earlier change"()
+	{
+		given:
+			def instances = new InstanceBuffer(layout, 8)
+			def random = new Random(1234)
+			def expected = new float[8]
+		when:
+			50.times {
+				random.nextInt(4).times {
+					int instance = random.nextInt(8)
+					expected[instance] = random.nextFloat()
+					color.put(instances.edit(instance), new Vector4(expected[instance], 0, 0, 1))
+				}
+				instances.swap()
+				def front = instances.front()
+				8.times { assert front.getFloat(it * 80 + 64) == expected[it] }
+			}
+		then:
+			notThrown(AssertionError)
+	}
+
+	def "the producer never writes into the front buffer"()
+	{
+		given:
+			def instances = new InstanceBuffer(layout, 4)
+			color.put(instances.edit(0), new Vector4(1, 1, 1, 1))
+			instances.swap()
+		when:
+			color.put(instances.edit(0), new Vector4(2, 2, 2, 2))
+		then:
+			instances.front().getFloat(64) == 1f
+			instances.pendingPackedBytes() == 80
+		when:
+			instances.swap()
+		then:
+			instances.front().getFloat(64) == 2f
+	}
+
+	def "indices are checked"()
+	{
+		given:
+			def instances = new InstanceBuffer(layout, 4)
+		when:
+			instances.edit(4)
+		then:
+			thrown(IndexOutOfBoundsException)
+		when:
+			instances.dirtyRangeOffset(0)
+		then:
+			thrown(IndexOutOfBoundsException)
+	}
+
+	private static List<List<Integer>> ranges(InstanceBuffer instances)
+	{
+		return (0..<instances.dirtyRangeCount()).collect { [instances.dirtyRangeOffset(it), instances.dirtyRangeLength(it)] }
+	}
+}
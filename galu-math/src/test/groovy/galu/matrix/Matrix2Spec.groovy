@@ -299,6 +299,22 @@ class Matrix2Spec extends Specification
 			]
 	}
 
+	def "bulk transform matches transform"()
+	{
+		given:
+			def matrix = new Matrix2(0, -5, 7, 0)
+			def src = [4, 3, 1, 2] as float[]
+			def dst = new float[4]
+			def buffer = FloatBuffer.allocate(4)
+		when:
+			matrix.transform(src, 0, 2, dst, 0, 2, 2)
+			matrix.transform(FloatBuffer.wrap(src), 0, 2, buffer, 0, 2, 2)
+		then:
+			Vector2.load(Arrays.copyOfRange(dst, 0, 2)) == matrix.transform(new Vector2(4, 3))
+			Vector2.load(Arrays.copyOfRange(dst, 2, 4)) == matrix.transform(new Vector2(1, 2))
+			Arrays.equals(buffer.array(), dst)
+	}
+
 	def "identity matrix has no effect"()
 	{
 		expect:
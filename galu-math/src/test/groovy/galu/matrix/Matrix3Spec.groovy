@@ -146,6 +146,48 @@ class Matrix3Spec extends Specification
 			assertClose(matrix.transform(vector), product)
 	}
 
+	def "bulk transform matches transform vector3"()
+	{
+		given:
+			def matrix = new Matrix3(2, 5.5, 7.09, 4.443, 2.1123, 9.676, 6.798, 42, 13)
+			def src = [3.752, 23.43, 16, 0, 1, -2, 0.5, 0] as float[]
+			def dst = new float[6]
+			def buffer = FloatBuffer.allocate(7)
+		when:
+			matrix.transform(src, 0, 4, dst, 0, 3, 2)
+			matrix.transform(FloatBuffer.wrap(src), 0, 4, buffer, 1, 3, 2)
+		then:
+			Vector3.load(Arrays.copyOfRange(dst, 0, 3)) == matrix.transform(new Vector3(3.752, 23.43, 16))
+			Vector3.load(Arrays.copyOfRange(dst, 3, 6)) == matrix.transform(new Vector3(1, -2, 0.5))
+			Arrays.equals(Arrays.copyOfRange(buffer.array(), 1, 7), dst)
+	}
+
+	def "bulk transform 2-D points and directions"()
+	{
+		given:
+			def matrix = new Matrix3(2, 0, 5, 0, 3, 7, 0, 1, 1)
+			def src = [1, 2] as float[]
+			def affine = new float[2]
+			def projected = new float[2]
+			def direction = new float[2]
+		when:
+			matrix.transformPoints(src, 0, 2, affine, 0, 2, 1, false)
+			matrix.transformPoints(src, 0, 2, projected, 0, 2, 1, true)
+			matrix.transformDirections(src, 0, 2, direction, 0, 2, 1)
+		then:
+			Arrays.equals(affine, [7, 13] as float[])
+			[projected, [7 / 3, 13 / 3]].transpose().every { actual, expected -> Math.abs(actual - expected) < 1e-6 }
+			Arrays.equals(direction, [2, 6] as float[])
+	}
+
+	def "bulk transform from too-small buffer"()
+	{
+		when:
+			Matrix3.IDENTITY.transform(FloatBuffer.allocate(5), 0, 3, FloatBuffer.allocate(6), 0, 3, 2)
+		then:
+			thrown(IllegalArgumentException)
+	}
+
 	def "row-major storage"()
 	{
 		given:
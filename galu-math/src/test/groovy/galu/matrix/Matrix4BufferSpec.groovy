@@ -0,0 +1,177 @@
+package galu.matrix
+
+import galu.transform.Transformations
+import galu.vector.Vector3
+import spock.lang.Specification
+
+import java.nio.ByteOrder
+
+class Matrix4BufferSpec extends Specification
+{
+	def random = new Random(1234)
+
+	def "starts out as identity matrices"()
+	{
+		given:
+			def buffer = new Matrix4Buffer(3, order)
+		expect:
+			buffer.capacity() == 3
+			buffer.order() == order
+			(0..<3).every { buffer.get(it) == Matrix4.IDENTITY }
+		where:
+			order << Matrix.Order.values()
+	}
+
+	def "layout matches Matrix4.store"()
+	{
+		given:
+			def matrix = randomMatrix()
+			def buffer = new Matrix4Buffer(2, order)
+			def expected = new float[16]
+			def actual = new float[16]
+		when:
+			buffer.set(1, matrix)
+			matrix.store(expected, order)
+			def floats = buffer.asFloatBuffer()
+			floats.position(16)
+			floats.get(actual)
+		then:
+			Arrays.equals(expected, actual)
+			buffer.asFloatBuffer().isDirect()
+			buffer.asFloatBuffer().remaining() == 32
+			buffer.asByteBuffer().order() == ByteOrder.nativeOrder()
+			buffer.asByteBuffer().remaining() == 128
+		where:
+			order << Matrix.Order.values()
+	}
+
+	def "get and set round trip"()
+	{
+		given:
+			def matrix = randomMatrix()
+			def buffer = new Matrix4Buffer(4, order)
+			def mutable = new MutableMatrix4()
+		when:
+			buffer.set(2, matrix)
+			buffer.set(3, new MutableMatrix4(matrix))
+		then:
+			buffer.get(2) == matrix
+			buffer.get(3) == matrix
+			buffer.get(2, mutable).toImmutable() == matrix
+			buffer.get(1) == Matrix4.IDENTITY
+		where:
+			order << Matrix.Order.values()
+	}
+
+	def "slot multiply matches Matrix4"()
+	{
+		given:
+			def a = randomMatrix()
+			def b = randomMatrix()
+			def buffer = new Matrix4Buffer(3, order)
+			buffer.set(0, a)
+			buffer.set(1, b)
+		when:
+			buffer.multiply(0, 1, 2)
+			buffer.multiply(1, a)
+			buffer.multiply(0, 0, 0)
+		then:
+			buffer.get(2) == a.multiply(b)
+			buffer.get(1) == b.multiply(a)
+			buffer.get(0) == a.multiply(a)
+		where:
+			order << Matrix.Order.values()
+	}
+
+	def "bulk multiply across buffers with different orders"()
+	{
+		given:
+			def a = new Matrix4Buffer(10, Matrix.Order.ROW_MAJOR)
+			def b = new Matrix4Buffer(6, Matrix.Order.COLUMN_MAJOR)
+			def dest = new Matrix4Buffer(5, Matrix.Order.COLUMN_MAJOR)
+			10.times { a.set(it, randomMatrix()) }
+			6.times { b.set(it, randomMatrix()) }
+			def expected = (0..<5).collect { a.get(it + 3).multiply(b.get(it + 1)) }
+		when:
+			a.multiply(3, b, 1, dest, 0, 5)
+		then:
+			(0..<5).every { dest.get(it) == expected[it] }
+		when: // in place
+			a.multiply(3, b, 1, a, 3, 5)
+		then:
+			(0..<5).every { a.get(it + 3) == expected[it] }
+	}
+
+	def "bulk multiply checks its ranges"()
+	{
+		given:
+			def a = new Matrix4Buffer(4, Matrix.Order.ROW_MAJOR)
+		when:
+			a.multiply(from, a, otherFrom, a, destFrom, count)
+		then:
+			thrown(IndexOutOfBoundsException)
+		where:
+			from | otherFrom | destFrom | count
+			1    | 0         | 0        | 4
+			0    | 2         | 0        | 3
+			0    | 0         | 4        | 1
+			-1   | 0         | 0        | 1
+	}
+
+	def "in-place inverses match Matrix4"()
+	{
+		given:
+			def general = randomMatrix()
+			def affine = Transformations.trs(new Vector3(1, -2, 3), 0.8f, new Vector3(1, 2, 3), new Vector3(2, 0.5f, 3))
+			def rigid = Transformations.trs(new Vector3(4, 5, -6), -1.3f, new Vector3(0, 1, 1), new Vector3(1, 1, 1))
+			def buffer = new Matrix4Buffer(3, order)
+			buffer.set(0, general)
+			buffer.set(1, affine)
+			buffer.set(2, rigid)
+		when:
+			buffer.invert(0)
+			buffer.invertAffine(1)
+			buffer.invertRigid(2)
+		then:
+			buffer.get(0) == general.inverse()
+			buffer.get(1) == affine.inverseAffine()
+			buffer.get(2) == rigid.inverseRigid()
+		where:
+			order << Matrix.Order.values()
+	}
+
+	def "singular slot can't be inverted"()
+	{
+		given:
+			def buffer = new Matrix4Buffer(1, Matrix.Order.ROW_MAJOR)
+			buffer.set(0, new Matrix4(1, 2, 3, 4, 2, 4, 6, 8, 0, 0, 1, 0, 0, 0, 0, 1))
+		when:
+			buffer.invert(0)
+		then:
+			thrown(IllegalStateException)
+	}
+
+	def "indices are checked"()
+	{
+		given:
+			def buffer = new Matrix4Buffer(2, Matrix.Order.ROW_MAJOR)
+		when:
+			buffer.get(2)
+		then:
+			thrown(IndexOutOfBoundsException)
+		when:
+			buffer.set(-1, Matrix4.IDENTITY)
+		then:
+			thrown(IndexOutOfBoundsException)
+		when:
+			buffer.multiply(0, 1, 2)
+		then:
+			thrown(IndexOutOfBoundsException)
+	}
+
+	private Matrix4 randomMatrix()
+	{
+		def values = (0..<16).collect { (random.nextFloat() * 4 - 2) as float }
+		return new Matrix4(*values)
+	}
+}
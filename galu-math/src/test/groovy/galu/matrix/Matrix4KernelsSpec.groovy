@@ -0,0 +1,78 @@
+package galu.matrix
+
+import galu.vector.Vector4
+import spock.lang.Specification
+
+class Matrix4KernelsSpec extends Specification
+{
+	def random = new Random(1234)
+
+	def "falls back to the scalar kernel without any providers"()
+	{
+		expect:
+			Matrix4Kernels.get().is(Matrix4Kernels.scalar())
+			!Matrix4Kernels.isAccelerated()
+	}
+
+	def "scalar multiply matches Matrix4 multiply"()
+	{
+		given:
+			def a = randomArray(16 * 5 + 3)
+			def b = randomArray(16 * 5)
+			def dst = new float[16 * 5]
+		when:
+			Matrix4Kernels.scalar().multiply(a, 3, b, 0, dst, 0, 5)
+		then:
+			5.times {
+				def expected = matrix(a, 3 + 16 * it).multiply(matrix(b, 16 * it))
+				assert matrix(dst, 16 * it) == expected
+			}
+	}
+
+	def "scalar multiply into the first operand"()
+	{
+		given:
+			def a = randomArray(16)
+			def b = randomArray(16)
+			def expected = matrix(a, 0).multiply(matrix(b, 0))
+		when:
+			Matrix4Kernels.scalar().multiply(a, 0, b, 0, a, 0, 1)
+		then:
+			matrix(a, 0) == expected
+	}
+
+	def "scalar transform matches Matrix4 transform"()
+	{
+		given:
+			def m = randomArray(16)
+			def src = randomArray(4 * 7)
+			def dst = new float[4 * 7 + 1]
+		when:
+			Matrix4Kernels.scalar().transform(m, 0, src, 0, dst, 1, 7)
+		then:
+			7.times {
+				def expected = matrix(m, 0).transform(new Vector4(src[4 * it], src[4 * it + 1], src[4 * it + 2], src[4 * it + 3]))
+				assert new Vector4(dst[1 + 4 * it], dst[2 + 4 * it], dst[3 + 4 * it], dst[4 + 4 * it]) == expected
+			}
+	}
+
+	def "scalar multiply past the end of an array"()
+	{
+		when:
+			Matrix4Kernels.scalar().multiply(new float[32], 0, new float[32], 0, new float[31], 0, 2)
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	private float[] randomArray(int size)
+	{
+		def array = new float[size]
+		size.times { array[it] = (random.nextFloat() * 20 - 10) as float }
+		return array
+	}
+
+	private static Matrix4 matrix(float[] array, int offset)
+	{
+		return Matrix4.load(Arrays.copyOfRange(array, offset, offset + 16), Matrix.Order.ROW_MAJOR)
+	}
+}
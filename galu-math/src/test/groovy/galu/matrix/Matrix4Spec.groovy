@@ -1,8 +1,12 @@
 package galu.matrix
 
+import galu.transform.Transformations
+import galu.vector.Vector3
 import galu.vector.Vector4
 import spock.lang.Specification
 
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
 import java.nio.FloatBuffer
 
 import static spock.util.matcher.HamcrestSupport.that
@@ -48,6 +52,60 @@ class Matrix4Spec extends Specification
 			thrown(IllegalStateException)
 	}
 
+	def "affine inverse matches inverse"()
+	{
+		expect:
+			assertClose(matrix.inverseAffine(), matrix.inverse(), 0.0001)
+		where:
+			matrix << [
+				Matrix4.IDENTITY,
+				Transformations.translate(new Vector3(3, -2, 7)),
+				Transformations.combine(Transformations.scale(new Vector3(2, 0.5, 3)), Transformations.rotate(1.2, new Vector3(1, 2, 3).normalize()), Transformations.translate(new Vector3(-4, 1, 9))),
+				Transformations.combine(Transformations.shear(0.5, 0, 0.25, 1, 0, 0.75), Transformations.rotate(new Vector3(0.3, -1.1, 2.5)), Transformations.translate(new Vector3(1, 2, 3)))
+			]
+	}
+
+	def "affine inverse of a singular matrix"()
+	{
+		when:
+			Transformations.scale(new Vector3(1, 0, 1)).inverseAffine()
+		then:
+			thrown(IllegalStateException)
+	}
+
+	def "rigid inverse matches inverse"()
+	{
+		expect:
+			assertClose(matrix.inverseRigid(), matrix.inverse(), 0.0001)
+		where:
+			matrix << [
+				Matrix4.IDENTITY,
+				Transformations.translate(new Vector3(3, -2, 7)),
+				Transformations.combine(Transformations.rotateX(0.7), Transformations.translate(new Vector3(5, 6, -1))),
+				Transformations.combine(Transformations.rotate(2.1, new Vector3(-1, 0.5, 2).normalize()), Transformations.translate(new Vector3(-4, 1, 9)))
+			]
+	}
+
+	def "normal matrix is the inverse transpose"()
+	{
+		expect:
+			assertClose(matrix.normalMatrix(), Transformations.fromHomogeneous(matrix.inverse().transpose()), 0.0001)
+		where:
+			matrix << [
+				Matrix4.IDENTITY,
+				Transformations.combine(Transformations.scale(new Vector3(2, 0.5, 3)), Transformations.rotate(1.2, new Vector3(1, 2, 3).normalize()), Transformations.translate(new Vector3(-4, 1, 9))),
+				Transformations.combine(Transformations.shear(0.5, 0, 0.25, 1, 0, 0.75), Transformations.rotate(new Vector3(0.3, -1.1, 2.5)), Transformations.translate(new Vector3(1, 2, 3)))
+			]
+	}
+
+	def "normal matrix of a singular matrix"()
+	{
+		when:
+			Transformations.scale(new Vector3(1, 1, 0)).normalMatrix()
+		then:
+			thrown(IllegalStateException)
+	}
+
 	def "4 x 4 matrix negation"()
 	{
 		given:
@@ -157,6 +215,88 @@ class Matrix4Spec extends Specification
 			assertClose(matrix.transform(vector), transformed)
 	}
 
+	def "bulk transform matches transform vector4"()
+	{
+		given:
+			def matrix = new Matrix4(1, 6, 2, 7, 5, 9, 4, 3, 2, 8, 1, 6, 0, 5, 3, 1)
+			def vectors = [new Vector4(1, 2, 3, 4), new Vector4(-5, 0.5, 7, 1), new Vector4(0, 0, 0, 0)]
+			// Interleaved with an extra attribute: offset 1, stride 5
+			def src = [9, 1, 2, 3, 4, 9, -5, 0.5, 7, 1, 9, 0, 0, 0, 0] as float[]
+			def dst = new float[16]
+			def buffer = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer()
+		when:
+			matrix.transform(src, 1, 5, dst, 0, 4, 3)
+			matrix.transform(FloatBuffer.wrap(src), 1, 5, buffer, 4, 4, 3)
+		then:
+			3.times {
+				def expected = matrix.transform(vectors[it])
+				assert Vector4.load(Arrays.copyOfRange(dst, it * 4, it * 4 + 4)) == expected
+				assert new Vector4(buffer.get(4 + it * 4), buffer.get(5 + it * 4), buffer.get(6 + it * 4), buffer.get(7 + it * 4)) == expected
+			}
+			buffer.position() == 0
+	}
+
+	def "bulk transform in place"()
+	{
+		given:
+			def matrix = new Matrix4(1, 6, 2, 7, 5, 9, 4, 3, 2, 8, 1, 6, 0, 5, 3, 1)
+			def data = [1, 2, 3, 4, 5, 6, 7, 8] as float[]
+		when:
+			matrix.transform(data, 0, 4, data, 0, 4, 2)
+		then:
+			Vector4.load(Arrays.copyOfRange(data, 0, 4)) == matrix.transform(new Vector4(1, 2, 3, 4))
+			Vector4.load(Arrays.copyOfRange(data, 4, 8)) == matrix.transform(new Vector4(5, 6, 7, 8))
+	}
+
+	def "bulk transform points"()
+	{
+		given:
+			def matrix = new Matrix4(2, 0, 0, 1, 0, 3, 0, 2, 0, 0, 4, 3, 0, 0, 1, 1)
+			def src = [1, 2, 3, 0, 1, 2] as float[]
+			def affine = new float[6]
+			def projected = new float[6]
+			def buffer = FloatBuffer.allocate(6)
+		when:
+			matrix.transformPoints(src, 0, 3, affine, 0, 3, 2, false)
+			matrix.transformPoints(src, 0, 3, projected, 0, 3, 2, true)
+			matrix.transformPoints(FloatBuffer.wrap(src), 0, 3, buffer, 0, 3, 2, true)
+		then:
+			Arrays.equals(affine, [3, 8, 15, 1, 5, 11] as float[])
+			[projected, [3 / 4, 8 / 4, 15 / 4, 1 / 3, 5 / 3, 11 / 3]].transpose().every { actual, expected -> Math.abs(actual - expected) < 1e-6 }
+			Arrays.equals(buffer.array(), projected)
+	}
+
+	def "bulk transform directions ignores translation"()
+	{
+		given:
+			def matrix = new Matrix4(2, 0, 0, 1, 0, 3, 0, 2, 0, 0, 4, 3, 0, 0, 0, 1)
+			def src = [1, 2, 3] as float[]
+			def dst = new float[3]
+			def buffer = FloatBuffer.allocate(3)
+		when:
+			matrix.transformDirections(src, 0, 3, dst, 0, 3, 1)
+			matrix.transformDirections(FloatBuffer.wrap(src), 0, 3, buffer, 0, 3, 1)
+		then:
+			Arrays.equals(dst, [2, 6, 12] as float[])
+			Arrays.equals(buffer.array(), dst)
+	}
+
+	def "bulk transform into too-small array"()
+	{
+		when:
+			Matrix4.IDENTITY.transform(new float[8], 0, 4, new float[7], 0, 4, 2)
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	def "bulk transform with stride smaller than a vector"()
+	{
+		when:
+			Matrix4.IDENTITY.transformPoints(new float[8], 0, 2, new float[8], 0, 3, 2, false)
+		then:
+			thrown(IllegalArgumentException)
+	}
+
 	def "row-major storage"()
 	{
 		given:
@@ -169,8 +309,8 @@ class Matrix4Spec extends Specification
 			buffer.flip()
 		then:
 		    16.times {
-			    array[it] == it + 1
-			    buffer.get() == it + 1
+			    assert array[it] == it + 1
+			    assert buffer.get() == it + 1
 		    }
 	}
 
@@ -302,6 +442,19 @@ class Matrix4Spec extends Specification
 		assert that(a.m33, closeTo(b.m33, delta))
 	}
 
+	void assertClose(Matrix3 a, Matrix3 b, float delta = 0.01)
+	{
+		assert that(a.m00, closeTo(b.m00, delta))
+		assert that(a.m01, closeTo(b.m01, delta))
+		assert that(a.m02, closeTo(b.m02, delta))
+		assert that(a.m10, closeTo(b.m10, delta))
+		assert that(a.m11, closeTo(b.m11, delta))
+		assert that(a.m12, closeTo(b.m12, delta))
+		assert that(a.m20, closeTo(b.m20, delta))
+		assert that(a.m21, closeTo(b.m21, delta))
+		assert that(a.m22, closeTo(b.m22, delta))
+	}
+
 	void assertClose(Vector4 a, Vector4 b, float delta = 0.01)
 	{
 		assert that(a.x, closeTo(b.x, delta))
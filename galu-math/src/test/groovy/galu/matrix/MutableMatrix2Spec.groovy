@@ -0,0 +1,115 @@
+package galu.matrix
+
+import galu.vector.MutableVector2
+import galu.vector.Vector2
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+
+class MutableMatrix2Spec extends Specification
+{
+	def a = new Matrix2(6, 1, 4325, 234)
+	def b = new Matrix2(2, 4, 1, 2)
+
+	def "new matrices are the identity"()
+	{
+		expect:
+			new MutableMatrix2().toImmutable() == Matrix2.IDENTITY
+	}
+
+	def "conversion to and from Matrix2"()
+	{
+		expect:
+			new MutableMatrix2(a).toImmutable() == a
+			new MutableMatrix2().set(a).toImmutable() == a
+			new MutableMatrix2().set(new MutableMatrix2(a)).toImmutable() == a
+	}
+
+	def "operations match Matrix2"()
+	{
+		given:
+			def ma = new MutableMatrix2(a)
+			def mb = new MutableMatrix2(b)
+			def dest = new MutableMatrix2()
+		expect:
+			MutableMatrix2.addInto(ma, mb, dest).toImmutable() == a.add(b)
+			MutableMatrix2.subtractInto(ma, mb, dest).toImmutable() == a.subtract(b)
+			MutableMatrix2.multiplyInto(ma, mb, dest).toImmutable() == a.multiply(b)
+			MutableMatrix2.multiplyInto(ma, 3, dest).toImmutable() == a.multiply(3)
+			MutableMatrix2.negateInto(ma, dest).toImmutable() == a.negate()
+			MutableMatrix2.transposeInto(ma, dest).toImmutable() == a.transpose()
+			MutableMatrix2.inverseInto(ma, dest).toImmutable() == a.inverse()
+			ma.determinant() == a.determinant()
+	}
+
+	def "transform vector"()
+	{
+		given:
+			def vec = new Vector2(1, -2)
+			def dest = new MutableVector2()
+		expect:
+			MutableMatrix2.transformInto(new MutableMatrix2(a), new MutableVector2(vec), dest).toImmutable() == a.transform(vec)
+	}
+
+	def "destination may be an operand"()
+	{
+		given:
+			def ma = new MutableMatrix2(a)
+			def mb = new MutableMatrix2(b)
+			def vec = new MutableVector2(1, 2)
+		when:
+			MutableMatrix2.multiplyInto(ma, mb, ma)
+			MutableMatrix2.multiplyInto(mb, mb, mb)
+			MutableMatrix2.transformInto(mb, vec, vec)
+		then:
+			ma.toImmutable() == a.multiply(b)
+			mb.toImmutable() == b.multiply(b)
+			vec.toImmutable() == b.multiply(b).transform(new Vector2(1, 2))
+	}
+
+	def "inverse into itself"()
+	{
+		given:
+			def ma = new MutableMatrix2(a)
+		when:
+			MutableMatrix2.inverseInto(ma, ma)
+		then:
+			ma.toImmutable() == a.inverse()
+	}
+
+	def "singular matrix is not invertible"()
+	{
+		when:
+			MutableMatrix2.inverseInto(new MutableMatrix2(b), new MutableMatrix2())
+		then:
+			thrown(IllegalStateException)
+	}
+
+	def "store and load round trip"()
+	{
+		given:
+			def array = new float[4]
+			def buffer = FloatBuffer.allocate(4)
+			def expected = new float[4]
+			a.store(expected, order)
+		when:
+			new MutableMatrix2(a).store(array, order)
+			new MutableMatrix2(a).store(buffer, order)
+			buffer.flip()
+		then:
+			Arrays.equals(array, expected)
+			Arrays.equals(buffer.array(), expected)
+			new MutableMatrix2().load(array, order).toImmutable() == a
+			new MutableMatrix2().load(buffer, order).toImmutable() == a
+		where:
+			order << Matrix.Order.values()
+	}
+
+	def "store into too-small buffer"()
+	{
+		when:
+			new MutableMatrix2().store(FloatBuffer.allocate(3), Matrix.Order.ROW_MAJOR)
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
@@ -0,0 +1,115 @@
+package galu.matrix
+
+import galu.vector.MutableVector3
+import galu.vector.Vector3
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+
+class MutableMatrix3Spec extends Specification
+{
+	def a = new Matrix3(2, 5.5, 7.09, 4.443, 2.1123, 9.676, 6.798, 42, 13)
+	def b = new Matrix3(*(1..9))
+
+	def "new matrices are the identity"()
+	{
+		expect:
+			new MutableMatrix3().toImmutable() == Matrix3.IDENTITY
+	}
+
+	def "conversion to and from Matrix3"()
+	{
+		expect:
+			new MutableMatrix3(a).toImmutable() == a
+			new MutableMatrix3().set(a).toImmutable() == a
+			new MutableMatrix3().set(new MutableMatrix3(a)).toImmutable() == a
+	}
+
+	def "operations match Matrix3"()
+	{
+		given:
+			def ma = new MutableMatrix3(a)
+			def mb = new MutableMatrix3(b)
+			def dest = new MutableMatrix3()
+		expect:
+			MutableMatrix3.addInto(ma, mb, dest).toImmutable() == a.add(b)
+			MutableMatrix3.subtractInto(ma, mb, dest).toImmutable() == a.subtract(b)
+			MutableMatrix3.multiplyInto(ma, mb, dest).toImmutable() == a.multiply(b)
+			MutableMatrix3.multiplyInto(ma, 3, dest).toImmutable() == a.multiply(3)
+			MutableMatrix3.negateInto(ma, dest).toImmutable() == a.negate()
+			MutableMatrix3.transposeInto(ma, dest).toImmutable() == a.transpose()
+			MutableMatrix3.inverseInto(ma, dest).toImmutable() == a.inverse()
+			ma.determinant() == a.determinant()
+	}
+
+	def "transform vector"()
+	{
+		given:
+			def vec = new Vector3(1, -2, 3.5)
+			def dest = new MutableVector3()
+		expect:
+			MutableMatrix3.transformInto(new MutableMatrix3(a), new MutableVector3(vec), dest).toImmutable() == a.transform(vec)
+	}
+
+	def "destination may be an operand"()
+	{
+		given:
+			def ma = new MutableMatrix3(a)
+			def mb = new MutableMatrix3(b)
+			def vec = new MutableVector3(1, 2, 3)
+		when:
+			MutableMatrix3.multiplyInto(ma, mb, ma)
+			MutableMatrix3.multiplyInto(mb, mb, mb)
+			MutableMatrix3.transformInto(mb, vec, vec)
+		then:
+			ma.toImmutable() == a.multiply(b)
+			mb.toImmutable() == b.multiply(b)
+			vec.toImmutable() == b.multiply(b).transform(new Vector3(1, 2, 3))
+	}
+
+	def "inverse into itself"()
+	{
+		given:
+			def ma = new MutableMatrix3(a)
+		when:
+			MutableMatrix3.inverseInto(ma, ma)
+		then:
+			ma.toImmutable() == a.inverse()
+	}
+
+	def "singular matrix is not invertible"()
+	{
+		when:
+			MutableMatrix3.inverseInto(new MutableMatrix3(b), new MutableMatrix3())
+		then:
+			thrown(IllegalStateException)
+	}
+
+	def "store and load round trip"()
+	{
+		given:
+			def array = new float[9]
+			def buffer = FloatBuffer.allocate(9)
+			def expected = new float[9]
+			a.store(expected, order)
+		when:
+			new MutableMatrix3(a).store(array, order)
+			new MutableMatrix3(a).store(buffer, order)
+			buffer.flip()
+		then:
+			Arrays.equals(array, expected)
+			Arrays.equals(buffer.array(), expected)
+			new MutableMatrix3().load(array, order).toImmutable() == a
+			new MutableMatrix3().load(buffer, order).toImmutable() == a
+		where:
+			order << Matrix.Order.values()
+	}
+
+	def "store into too-small buffer"()
+	{
+		when:
+			new MutableMatrix3().store(FloatBuffer.allocate(8), Matrix.Order.ROW_MAJOR)
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
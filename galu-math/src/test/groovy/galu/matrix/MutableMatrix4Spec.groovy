@@ -0,0 +1,118 @@
+package galu.matrix
+
+import galu.vector.MutableVector4
+import galu.vector.Vector4
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+
+class MutableMatrix4Spec extends Specification
+{
+	def a = new Matrix4(1, 6, 2, 7, 5, 9, 4, 3, 2, 8, 1, 6, 0, 5, 3, 1)
+	def b = new Matrix4(*(1..16))
+
+	def "new matrices are the identity"()
+	{
+		expect:
+			new MutableMatrix4().toImmutable() == Matrix4.IDENTITY
+	}
+
+	def "conversion to and from Matrix4"()
+	{
+		expect:
+			new MutableMatrix4(a).toImmutable() == a
+			new MutableMatrix4().set(a).toImmutable() == a
+			new MutableMatrix4().set(new MutableMatrix4(a)).toImmutable() == a
+	}
+
+	def "operations match Matrix4"()
+	{
+		given:
+			def ma = new MutableMatrix4(a)
+			def mb = new MutableMatrix4(b)
+			def dest = new MutableMatrix4()
+		expect:
+			MutableMatrix4.addInto(ma, mb, dest).toImmutable() == a.add(b)
+			MutableMatrix4.subtractInto(ma, mb, dest).toImmutable() == a.subtract(b)
+			MutableMatrix4.multiplyInto(ma, mb, dest).toImmutable() == a.multiply(b)
+			MutableMatrix4.multiplyInto(ma, 3, dest).toImmutable() == a.multiply(3)
+			MutableMatrix4.negateInto(ma, dest).toImmutable() == a.negate()
+			MutableMatrix4.transposeInto(ma, dest).toImmutable() == a.transpose()
+			MutableMatrix4.inverseInto(ma, dest).toImmutable() == a.inverse()
+			MutableMatrix4.inverseAffineInto(ma, dest).toImmutable() == a.inverseAffine()
+			MutableMatrix4.inverseRigidInto(ma, dest).toImmutable() == a.inverseRigid()
+			MutableMatrix4.normalMatrixInto(ma, new MutableMatrix3()).toImmutable() == a.normalMatrix()
+			ma.determinant() == a.determinant()
+	}
+
+	def "transform vector"()
+	{
+		given:
+			def vec = new Vector4(1, -2, 3.5, 1)
+			def dest = new MutableVector4()
+		expect:
+			MutableMatrix4.transformInto(new MutableMatrix4(a), new MutableVector4(vec), dest).toImmutable() == a.transform(vec)
+	}
+
+	def "destination may be an operand"()
+	{
+		given:
+			def ma = new MutableMatrix4(a)
+			def mb = new MutableMatrix4(b)
+			def vec = new MutableVector4(1, 2, 3, 4)
+		when:
+			MutableMatrix4.multiplyInto(ma, mb, ma)
+			MutableMatrix4.multiplyInto(mb, mb, mb)
+			MutableMatrix4.transformInto(mb, vec, vec)
+		then:
+			ma.toImmutable() == a.multiply(b)
+			mb.toImmutable() == b.multiply(b)
+			vec.toImmutable() == b.multiply(b).transform(new Vector4(1, 2, 3, 4))
+	}
+
+	def "inverse into itself"()
+	{
+		given:
+			def ma = new MutableMatrix4(a)
+		when:
+			MutableMatrix4.inverseInto(ma, ma)
+		then:
+			ma.toImmutable() == a.inverse()
+	}
+
+	def "singular matrix is not invertible"()
+	{
+		when:
+			MutableMatrix4.inverseInto(new MutableMatrix4(b), new MutableMatrix4())
+		then:
+			thrown(IllegalStateException)
+	}
+
+	def "store and load round trip"()
+	{
+		given:
+			def array = new float[16]
+			def buffer = FloatBuffer.allocate(16)
+			def expected = new float[16]
+			a.store(expected, order)
+		when:
+			new MutableMatrix4(a).store(array, order)
+			new MutableMatrix4(a).store(buffer, order)
+			buffer.flip()
+		then:
+			Arrays.equals(array, expected)
+			Arrays.equals(buffer.array(), expected)
+			new MutableMatrix4().load(array, order).toImmutable() == a
+			new MutableMatrix4().load(buffer, order).toImmutable() == a
+		where:
+			order << Matrix.Order.values()
+	}
+
+	def "store into too-small buffer"()
+	{
+		when:
+			new MutableMatrix4().store(FloatBuffer.allocate(15), Matrix.Order.ROW_MAJOR)
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
@@ -0,0 +1,167 @@
+package galu.matrix
+
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.FloatBuffer
+import java.util.concurrent.ForkJoinPool
+
+class ParallelTransformerSpec extends Specification
+{
+	static final int COUNT = 10007
+
+	@Shared ForkJoinPool pool = new ForkJoinPool(4)
+
+	def random = new Random(1234)
+	def matrix = new Matrix4(
+		0.9f, -0.2f, 0.1f, 3f,
+		0.3f, 1.1f, -0.4f, -2f,
+		-0.1f, 0.5f, 0.8f, 7f,
+		0.01f, 0.02f, 0.03f, 1f)
+	// Tiny chunks so that every call is split many times
+	def transformer = new ParallelTransformer(pool, 0, 37)
+
+	def cleanupSpec()
+	{
+		pool.shutdown()
+	}
+
+	def "parallel transform is identical to the sequential one"()
+	{
+		given:
+			def src = randomArray(COUNT * 6 + 2)
+			def expected = new float[COUNT * 5 + 1]
+			def actual = new float[COUNT * 5 + 1]
+		when:
+			matrix.transform(src, 2, 6, expected, 1, 5, COUNT)
+			transformer.transform(matrix, src, 2, 6, actual, 1, 5, COUNT)
+		then:
+			Arrays.equals(expected, actual)
+	}
+
+	def "parallel point and direction transforms are identical to the sequential ones"()
+	{
+		given:
+			def src = randomArray(COUNT * 3)
+			def expected = new float[COUNT * 4]
+			def actual = new float[COUNT * 4]
+		when:
+			matrix.transformPoints(src, 0, 3, expected, 0, 4, COUNT, perspectiveDivide)
+			transformer.transformPoints(matrix, src, 0, 3, actual, 0, 4, COUNT, perspectiveDivide)
+		then:
+			Arrays.equals(expected, actual)
+		when:
+			matrix.transformDirections(src, 0, 3, expected, 0, 4, COUNT)
+			transformer.transformDirections(matrix, src, 0, 3, actual, 0, 4, COUNT)
+		then:
+			Arrays.equals(expected, actual)
+		where:
+			perspectiveDivide << [false, true]
+	}
+
+	def "parallel buffer transforms are identical to the sequential ones"()
+	{
+		given:
+			def src = directBuffer(randomArray(COUNT * 4))
+			def expected = directBuffer(new float[COUNT * 4])
+			def actual = directBuffer(new float[COUNT * 4])
+		when:
+			matrix.transform(src, 0, 4, expected, 0, 4, COUNT)
+			transformer.transform(matrix, src, 0, 4, actual, 0, 4, COUNT)
+		then:
+			expected == actual
+		when:
+			matrix.transformPoints(src, 0, 4, expected, 0, 4, COUNT, true)
+			transformer.transformPoints(matrix, src, 0, 4, actual, 0, 4, COUNT, true)
+		then:
+			expected == actual
+		when:
+			matrix.transformDirections(src, 1, 4, expected, 0, 4, COUNT - 1)
+			transformer.transformDirections(matrix, src, 1, 4, actual, 0, 4, COUNT - 1)
+		then:
+			expected == actual
+			actual.position() == 0
+	}
+
+	def "parallel transform in place"()
+	{
+		given:
+			def data = randomArray(COUNT * 4)
+			def expected = new float[COUNT * 4]
+			matrix.transform(data, 0, 4, expected, 0, 4, COUNT)
+		when:
+			transformer.transform(matrix, data, 0, 4, data, 0, 4, COUNT)
+		then:
+			Arrays.equals(expected, data)
+	}
+
+	def "small transforms stay sequential on the calling thread"()
+	{
+		given:
+			def idle = new ForkJoinPool(1)
+			def sequential = new ParallelTransformer(idle, COUNT + 1, 1)
+			def src = randomArray(COUNT * 4)
+			def expected = new float[COUNT * 4]
+			def actual = new float[COUNT * 4]
+		when:
+			matrix.transform(src, 0, 4, expected, 0, 4, COUNT)
+			sequential.transform(matrix, src, 0, 4, actual, 0, 4, COUNT)
+		then:
+			Arrays.equals(expected, actual)
+			idle.stealCount == 0 && idle.poolSize == 0
+		cleanup:
+			idle.shutdown()
+	}
+
+	def "ranges are checked before any work starts"()
+	{
+		given:
+			def dst = new float[COUNT * 4 - 1]
+		when:
+			transformer.transform(matrix, new float[COUNT * 4], 0, 4, dst, 0, 4, COUNT)
+		then:
+			thrown(IllegalArgumentException)
+			dst.every { it == 0 }
+	}
+
+	def "invalid settings are rejected"()
+	{
+		when:
+			new ParallelTransformer(pool, threshold, chunkSize)
+		then:
+			thrown(IllegalArgumentException)
+		where:
+			threshold | chunkSize
+			-1        | 100
+			100       | 0
+	}
+
+	def "default settings"()
+	{
+		given:
+			def defaults = new ParallelTransformer()
+		expect:
+			defaults.threshold == ParallelTransformer.DEFAULT_THRESHOLD
+			defaults.chunkSize == ParallelTransformer.DEFAULT_CHUNK_SIZE
+			defaults.pool.is(new ParallelTransformer().pool)
+	}
+
+	private float[] randomArray(int length)
+	{
+		def array = new float[length]
+		for(int i = 0; i < length; i++)
+		{
+			array[i] = (random.nextFloat() * 20 - 10) as float
+		}
+		return array
+	}
+
+	private static FloatBuffer directBuffer(float[] contents)
+	{
+		def buffer = ByteBuffer.allocateDirect(contents.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer()
+		buffer.put(contents).flip()
+		return buffer
+	}
+}
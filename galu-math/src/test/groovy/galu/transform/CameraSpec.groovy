@@ -0,0 +1,139 @@
+package galu.transform
+
+import galu.geometry.Frustum
+import galu.matrix.Matrix4
+import galu.vector.Vector3
+import spock.lang.Specification
+
+import static galu.test.Helpers.*
+import static spock.util.matcher.HamcrestSupport.that
+
+class CameraSpec extends Specification
+{
+	Camera camera = new Camera()
+
+	def setup()
+	{
+		camera.lookAt(new Vector3(2, 3, 10), new Vector3(0, 1, 0), new Vector3(0, 1, 0))
+		camera.perspective(1, 1.5, 0.5, 50)
+	}
+
+	def "derived matrices match the general formulas"()
+	{
+		expect:
+		that camera.viewProjection(), closeTo(camera.projection().multiply(camera.view()), 0.0001)
+		that camera.inverseView(), closeTo(camera.view().inverse(), 0.0001)
+		that camera.inverseProjection(), closeTo(camera.projection().inverse(), 0.001)
+		that camera.inverseViewProjection(), closeTo(camera.viewProjection().inverse(), 0.001)
+	}
+
+	def "inverses of other projections"()
+	{
+		when:
+		projection(camera)
+
+		then:
+		that camera.inverseProjection().multiply(camera.projection()), closeTo(Matrix4.IDENTITY, 0.0001)
+
+		where:
+		projection << [
+			{ it.infinitePerspective(1.2f, 0.75f, 0.1f) },
+			{ it.orthographic(-3, 5, -2, 2, -1, 30) },
+			{ it.setProjection(Transformations.perspective(0.5f, 1, 1, 10).multiply(Transformations.scale(new Vector3(1, 2, 3)))) }
+		]
+	}
+
+	def "derived matrices are cached until something changes"()
+	{
+		given:
+		def viewProjection = camera.viewProjection()
+		def inverseView = camera.inverseView()
+		def inverse = camera.inverseViewProjection()
+		def frustum = camera.frustum()
+
+		expect:
+		camera.viewProjection().is(viewProjection)
+		camera.inverseViewProjection().is(inverse)
+		camera.frustum().is(frustum)
+
+		when:
+		camera.setAspect(2)
+
+		then: "changing the projection doesn't touch the view"
+		camera.inverseView().is(inverseView)
+		!camera.viewProjection().is(viewProjection)
+		!camera.inverseViewProjection().is(inverse)
+		!camera.frustum().is(frustum)
+		that camera.projection(), closeTo(Transformations.perspective(1, 2, 0.5, 50), 0.0001)
+
+		when:
+		inverseView = camera.inverseView()
+		camera.lookAt(new Vector3(0, 0, 0), new Vector3(1, 0, 0), new Vector3(0, 1, 0))
+
+		then:
+		!camera.inverseView().is(inverseView)
+	}
+
+	def "the aspect ratio can only be changed for perspective projections"()
+	{
+		given:
+		camera.orthographic(-1, 1, -1, 1, 1, 10)
+
+		when:
+		camera.setAspect(2)
+
+		then:
+		thrown(IllegalStateException)
+	}
+
+	def "unproject undoes project"()
+	{
+		given:
+		def random = new Random(42)
+		float[] points = new float[3 * 20]
+		for(int i = 0; i < points.length; i++)
+		{
+			points[i] = random.nextFloat() * 4 - 2
+		}
+		float[] ndc = new float[points.length]
+		float[] back = new float[points.length]
+
+		when:
+		camera.project(points, 0, 3, ndc, 0, 3, 20)
+		camera.unproject(ndc, 0, 3, back, 0, 3, 20)
+
+		then:
+		(0..<points.length).every { close(back[it], points[it], 0.001) }
+	}
+
+	def "unprojecting the near and far planes gives the pick ray"()
+	{
+		given:
+		float[] ndc = [0, 0, -1, 0, 0, 1]
+		float[] world = new float[6]
+
+		when:
+		camera.unproject(ndc, 0, 3, world, 0, 3, 2)
+		def near = new Vector3(world[0], world[1], world[2])
+		def far = new Vector3(world[3], world[4], world[5])
+		def eye = new Vector3(2, 3, 10)
+		def direction = new Vector3(0, 1, 0).subtract(eye).normalize()
+
+		then:
+		close(near.subtract(eye).dot(direction), 0.5, 0.0001)
+		that near.subtract(eye).normalize(), closeTo(direction, 0.0001)
+		that far.subtract(eye).normalize(), closeTo(direction, 0.0001)
+		close(far.subtract(eye).dot(direction), 50, 0.05)
+	}
+
+	def "the frustum culls in world space"()
+	{
+		when:
+		Frustum frustum = camera.frustum()
+
+		then:
+		frustum.intersectsSphere(0, 1, 0, 0.1)
+		!frustum.intersectsSphere(2, 3, 11, 0.1)
+		!frustum.intersectsSphere(0, 1, -100, 1)
+	}
+}
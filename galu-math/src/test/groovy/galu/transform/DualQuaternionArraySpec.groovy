@@ -0,0 +1,149 @@
+package galu.transform
+
+import galu.vector.Vector3
+import spock.lang.Specification
+
+import static galu.test.Helpers.*
+import static spock.util.matcher.HamcrestSupport.that
+
+class DualQuaternionArraySpec extends Specification
+{
+	static final int BONES = 12
+	static final int VERTICES = 41
+	static final int INFLUENCES = 4
+
+	Random random = new Random(42)
+	DualQuaternionArray palette = randomPalette(BONES)
+	int[] joints = new int[VERTICES * INFLUENCES]
+	float[] weights = new float[VERTICES * INFLUENCES]
+
+	def setup()
+	{
+		for(int i = 0; i < joints.length; i++)
+		{
+			joints[i] = random.nextInt(BONES)
+			weights[i] = random.nextFloat()
+		}
+	}
+
+	def "size and element access"()
+	{
+		given:
+		def array = new DualQuaternionArray(4)
+		def dq = DualQuaternion.fromRotationTranslation(Quaternion.fromAxisAngle(1, new Vector3(0, 1, 0)), new Vector3(1, 2, 3))
+
+		when:
+		array.set(2, dq)
+
+		then:
+		array.size() == 4
+		array.get(2) == dq
+	}
+
+	def "bulk multiply matches scalar multiply"()
+	{
+		given:
+		def other = randomPalette(BONES)
+		def expected = (0..<BONES).collect { palette.get(it).multiply(other.get(it)) }
+
+		when:
+		palette.multiply(other, palette, 0, BONES)
+
+		then:
+		(0..<BONES).every { palette.get(it) == expected[it] }
+	}
+
+	def "batch blend matches scalar blend"()
+	{
+		given:
+		def dest = new DualQuaternionArray(VERTICES)
+
+		when:
+		palette.blend(joints, weights, INFLUENCES, dest, 0, VERTICES)
+
+		then:
+		(0..<VERTICES).every { v ->
+			def expected = scalarBlend(v)
+			closeTo(expected.real.toMatrix4()).matches(dest.get(v).real.toMatrix4()) &&
+				closeTo(expected.translation()).matches(dest.get(v).translation())
+		}
+	}
+
+	def "skinning points and directions matches the scalar version"()
+	{
+		given:
+		def src = new float[VERTICES * 5 + 2]
+		def points = new float[VERTICES * 3]
+		def directions = new float[VERTICES * 3]
+		for(int i = 0; i < src.length; i++)
+		{
+			src[i] = (random.nextFloat() * 20 - 10) as float
+		}
+
+		when:
+		palette.skinPoints(joints, weights, INFLUENCES, src, 2, 5, points, 0, 3, VERTICES)
+		palette.skinDirections(joints, weights, INFLUENCES, src, 2, 5, directions, 0, 3, VERTICES)
+
+		then:
+		(0..<VERTICES).every { v ->
+			def dq = scalarBlend(v)
+			def p = new Vector3(src[2 + v*5], src[3 + v*5], src[4 + v*5])
+			closeTo(dq.transformPoint(p)).matches(new Vector3(points[v*3], points[v*3 + 1], points[v*3 + 2])) &&
+				closeTo(dq.transformDirection(p)).matches(new Vector3(directions[v*3], directions[v*3 + 1], directions[v*3 + 2]))
+		}
+	}
+
+	def "single influence skinning is a plain transformation"()
+	{
+		given:
+		def dq = palette.get(3)
+		def src = [1, 2, 3] as float[]
+		def dst = new float[3]
+
+		when:
+		palette.skinPoints([3] as int[], [1] as float[], 1, src, 0, 3, dst, 0, 3, 1)
+
+		then:
+		that new Vector3(dst[0], dst[1], dst[2]), closeTo(dq.transformPoint(new Vector3(1, 2, 3)))
+	}
+
+	def "skinning checks its ranges"()
+	{
+		when:
+		palette.skinPoints(joints, weights, INFLUENCES, new float[VERTICES * 3], 0, 3, new float[VERTICES * 3 - 1], 0, 3, VERTICES)
+
+		then:
+		thrown(IllegalArgumentException)
+
+		when:
+		palette.skinPoints(joints, weights, INFLUENCES, new float[VERTICES * 3], 0, 3, new float[VERTICES * 3], 0, 3, VERTICES + 1)
+
+		then:
+		thrown(IllegalArgumentException)
+
+		when:
+		palette.skinPoints(joints, weights, 0, new float[3], 0, 3, new float[3], 0, 3, 1)
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+
+	private DualQuaternion scalarBlend(int v)
+	{
+		def transforms = (0..<INFLUENCES).collect { palette.get(joints[v*INFLUENCES + it]) } as DualQuaternion[]
+		def vertexWeights = (0..<INFLUENCES).collect { weights[v*INFLUENCES + it] } as float[]
+		return DualQuaternion.blend(transforms, vertexWeights)
+	}
+
+	private DualQuaternionArray randomPalette(int size)
+	{
+		def array = new DualQuaternionArray(size)
+		def next = { (random.nextFloat() * 2 - 1) as float }
+		for(int i = 0; i < size; i++)
+		{
+			def rotation = new Quaternion(next(), next(), next(), next()).normalize()
+			array.set(i, DualQuaternion.fromRotationTranslation(rotation, new Vector3(next() * 5 as float, next() * 5 as float, next() * 5 as float)))
+		}
+		return array
+	}
+}
@@ -0,0 +1,132 @@
+package galu.transform
+
+import galu.vector.Vector3
+import galu.vector.Vector4
+import spock.lang.Specification
+
+import static galu.test.Helpers.*
+import static spock.util.matcher.HamcrestSupport.that
+
+class DualQuaternionSpec extends Specification
+{
+	static final Quaternion ROTATION = Quaternion.fromAxisAngle(1.2, new Vector3(1, -1, 2))
+	static final Vector3 TRANSLATION = new Vector3(3, -4, 5)
+
+	def "conversion to and from a rigid transformation matrix"()
+	{
+		given:
+		def matrix = Transformations.combine(Transformations.rotate(angle, axis), Transformations.translate(translation))
+		def dq = DualQuaternion.fromMatrix(matrix)
+
+		expect:
+		that dq.toMatrix4(), closeTo(matrix)
+		that dq.translation(), closeTo(translation)
+		that dq.rotation().toMatrix4(), closeTo(Transformations.rotate(angle, axis))
+
+		where:
+		angle | axis                  | translation
+		0     | new Vector3(1, 0, 0)  | new Vector3(0, 0, 0)
+		0.7   | new Vector3(1, 2, 3)  | new Vector3(1, 2, 3)
+		-2.5  | new Vector3(0, 1, 0)  | new Vector3(-10, 0, 4)
+		3.1   | new Vector3(0.1, 0.2, 1) | new Vector3(0.5, 0.5, -0.5)
+	}
+
+	def "transforming points and directions matches the matrix"()
+	{
+		given:
+		def dq = DualQuaternion.fromRotationTranslation(ROTATION, TRANSLATION)
+		def matrix = dq.toMatrix4()
+		def p = new Vector3(1, 2, -3)
+		def point = matrix.transform(new Vector4(p.x, p.y, p.z, 1))
+		def direction = matrix.transform(new Vector4(p.x, p.y, p.z, 0))
+
+		expect:
+		that dq.transformPoint(p), closeTo(new Vector3(point.x, point.y, point.z))
+		that dq.transformDirection(p), closeTo(new Vector3(direction.x, direction.y, direction.z))
+	}
+
+	def "multiplication composes transformations like matrices"()
+	{
+		given:
+		def a = DualQuaternion.fromRotationTranslation(ROTATION, TRANSLATION)
+		def b = DualQuaternion.fromRotationTranslation(Quaternion.fromAxisAngle(-1.9, new Vector3(-2, 0.5, 1)), new Vector3(-1, 0, 2))
+
+		expect:
+		that a.multiply(b).toMatrix4(), closeTo(a.toMatrix4().multiply(b.toMatrix4()))
+		that a.multiply(DualQuaternion.IDENTITY).toMatrix4(), closeTo(a.toMatrix4())
+	}
+
+	def "conjugate is the inverse transformation"()
+	{
+		given:
+		def dq = DualQuaternion.fromRotationTranslation(ROTATION, TRANSLATION)
+
+		expect:
+		that dq.conjugate().transformPoint(dq.transformPoint(new Vector3(1, 2, 3))), closeTo(new Vector3(1, 2, 3))
+		that dq.multiply(dq.conjugate()).toMatrix4(), closeTo(DualQuaternion.IDENTITY.toMatrix4())
+	}
+
+	def "normalization restores a rigid transformation"()
+	{
+		given:
+		def dq = DualQuaternion.fromRotationTranslation(ROTATION, TRANSLATION)
+		def scaled = new DualQuaternion(new Quaternion(dq.real.x * 3 as float, dq.real.y * 3 as float, dq.real.z * 3 as float, dq.real.w * 3 as float),
+		                                new Quaternion(dq.dual.x * 3 + 0.1 as float, dq.dual.y * 3 as float, dq.dual.z * 3 as float, dq.dual.w * 3 as float))
+		def normalized = scaled.normalize()
+
+		expect:
+		close(normalized.real.length(), 1, 0.0001)
+		close(normalized.real.dot(normalized.dual), 0, 0.0001)
+		that normalized.rotation().toMatrix4(), closeTo(ROTATION.toMatrix4())
+	}
+
+	def "zero dual quaternion can't be normalized"()
+	{
+		when:
+		new DualQuaternion(new Quaternion(0, 0, 0, 0), new Quaternion(1, 2, 3, 4)).normalize()
+
+		then:
+		thrown(IllegalStateException)
+	}
+
+	def "blending keeps the transformation rigid"()
+	{
+		given: // Linear blend skinning would nearly collapse this joint to a point
+		def a = DualQuaternion.fromRotationTranslation(Quaternion.IDENTITY, new Vector3(0, 0, 0))
+		def b = DualQuaternion.fromRotationTranslation(Quaternion.fromAxisAngle(3, new Vector3(1, 0, 0)), new Vector3(0, 0, 0))
+		def blended = DualQuaternion.blend([a, b] as DualQuaternion[], [0.5, 0.5] as float[])
+
+		expect:
+		close(blended.real.length(), 1, 0.0001)
+		close(blended.transformPoint(new Vector3(0, 1, 0)).length(), 1, 0.0001)
+		that blended.rotation().toMatrix4(), closeTo(Transformations.rotateX(1.5))
+	}
+
+	def "blending takes the shorter path"()
+	{
+		given:
+		def a = DualQuaternion.fromRotationTranslation(Quaternion.fromAxisAngle(0.3, new Vector3(1, 0, 0)), new Vector3(1, 0, 0))
+		def b = DualQuaternion.fromRotationTranslation(Quaternion.fromAxisAngle(0.5, new Vector3(1, 0, 0)), new Vector3(3, 0, 0))
+		def flipped = new DualQuaternion(b.real.negate(), b.dual.negate())
+		def blended = DualQuaternion.blend([a, flipped] as DualQuaternion[], [1, 1] as float[])
+
+		expect:
+		that blended.rotation().toMatrix4(), closeTo(Transformations.rotateX(0.4))
+		that blended.transformPoint(new Vector3(0, 0, 0)), closeTo(new Vector3(2, 0, 0))
+	}
+
+	def "blend needs one weight per transformation"()
+	{
+		when:
+		DualQuaternion.blend([DualQuaternion.IDENTITY] as DualQuaternion[], [0.5, 0.5] as float[])
+
+		then:
+		thrown(IllegalArgumentException)
+
+		when:
+		DualQuaternion.blend([] as DualQuaternion[], [] as float[])
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+}
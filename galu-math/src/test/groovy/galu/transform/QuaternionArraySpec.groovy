@@ -0,0 +1,146 @@
+package galu.transform
+
+import galu.matrix.Matrix
+import galu.vector.Vector3
+import galu.vector.Vector3Array
+import spock.lang.Specification
+
+class QuaternionArraySpec extends Specification
+{
+	static final int SIZE = 37
+
+	QuaternionArray a = random(SIZE, 1)
+	QuaternionArray b = random(SIZE, 2)
+	QuaternionArray dest = new QuaternionArray(SIZE)
+
+	def "size and element access"()
+	{
+		given:
+		def array = new QuaternionArray(4)
+
+		when:
+		array.set(2, new Quaternion(1, 2, 3, 4))
+
+		then:
+		array.size() == 4
+		array.get(2) == new Quaternion(1, 2, 3, 4)
+		array.get(0) == new Quaternion(0, 0, 0, 0)
+	}
+
+	def "component arrays must be the same length"()
+	{
+		when:
+		new QuaternionArray(new float[3], new float[3], new float[3], new float[2])
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+
+	def "bulk multiply matches scalar multiply"()
+	{
+		when:
+		a.multiply(b, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).multiply(b.get(it)) }
+	}
+
+	def "bulk multiply into an operand"()
+	{
+		given:
+		def expected = (0..<SIZE).collect { a.get(it).multiply(b.get(it)) }
+
+		when:
+		a.multiply(b, a, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { a.get(it) == expected[it] }
+	}
+
+	def "bulk conjugate and normalize match scalar versions"()
+	{
+		given:
+		def normalized = new QuaternionArray(SIZE)
+
+		when:
+		a.conjugate(dest, 0, SIZE)
+		a.normalize(normalized, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).conjugate() }
+		(0..<SIZE).every { normalized.get(it) == a.get(it).normalize() }
+	}
+
+	def "bulk interpolation matches scalar interpolation"()
+	{
+		given:
+		def fast = new QuaternionArray(SIZE)
+
+		when:
+		a.nlerp(b, 0.3, dest, 0, SIZE)
+		a.fastSlerp(b, 0.3, fast, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).nlerp(b.get(it), 0.3) }
+		(0..<SIZE).every { fast.get(it) == a.get(it).fastSlerp(b.get(it), 0.3) }
+	}
+
+	def "bulk rotate matches scalar rotate"()
+	{
+		given:
+		def random = new Random(3)
+		def vectors = new Vector3Array(SIZE)
+		def rotated = new Vector3Array(SIZE)
+		SIZE.times { vectors.set(it, random.nextFloat(), random.nextFloat(), random.nextFloat()) }
+
+		when:
+		a.rotate(vectors, rotated, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { rotated.get(it) == a.get(it).rotate(vectors.get(it)) }
+	}
+
+	def "bulk conversion to matrices"()
+	{
+		given:
+		def matrices = new float[16 * 10 + 2]
+		def expected = new float[16]
+
+		when:
+		a.toMatrices(matrices, 2, 5, 15)
+
+		then:
+		(5..<15).every {
+			a.get(it).toMatrix4().store(expected, Matrix.Order.ROW_MAJOR)
+			Arrays.equals(Arrays.copyOfRange(matrices, 2 + 16 * (it - 5), 2 + 16 * (it - 4)), expected)
+		}
+	}
+
+	def "bulk conversion past the end of the array"()
+	{
+		when:
+		a.toMatrices(new float[16 * 10], 1, 0, 10)
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+
+	def "operations only touch the given range"()
+	{
+		when:
+		a.multiply(b, dest, 5, 10)
+
+		then:
+		dest.get(4) == new Quaternion(0, 0, 0, 0)
+		dest.get(10) == new Quaternion(0, 0, 0, 0)
+	}
+
+	private static QuaternionArray random(int size, long seed)
+	{
+		def random = new Random(seed)
+		def next = { (random.nextFloat() * 2 - 1) as float }
+		def array = new QuaternionArray(size)
+		size.times { array.set(it, new Quaternion(next(), next(), next(), next()).normalize()) }
+		return array
+	}
+}
@@ -0,0 +1,188 @@
+package galu.transform
+
+import galu.vector.Vector3
+import galu.vector.Vector4
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+
+import static galu.test.Helpers.*
+import static spock.util.matcher.HamcrestSupport.that
+
+class QuaternionSpec extends Specification
+{
+	def "axis-angle rotation matches Transformations"()
+	{
+		expect:
+		that Quaternion.fromAxisAngle(angle, axis).toMatrix4(), closeTo(Transformations.rotate(angle, axis))
+		that Quaternion.fromAxisAngle(angle, axis).toMatrix3(), closeTo(Transformations.rotation3(angle, axis.normalize()))
+
+		where:
+		angle                  | axis
+		0                      | new Vector3(1, 0, 0)
+		0.7                    | new Vector3(1, 2, 3)
+		-2.5                   | new Vector3(0, 1, 0)
+		Math.PI as float       | new Vector3(-1, 2, 1)
+	}
+
+	def "axis must not be zero"()
+	{
+		when:
+		Quaternion.fromAxisAngle(1, new Vector3(0, 0, 0))
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+
+	def "conversion from a rotation matrix"()
+	{
+		given:
+		def matrix = Transformations.rotate(angle, axis)
+
+		expect:
+		that Quaternion.fromMatrix(matrix).toMatrix4(), closeTo(matrix)
+		that Quaternion.fromMatrix(Transformations.fromHomogeneous(matrix)).toMatrix4(), closeTo(matrix)
+		close(Quaternion.fromMatrix(matrix).length(), 1, 0.0001)
+
+		where: // near a half turn, each axis makes a different diagonal element the largest
+		angle                  | axis
+		0                      | new Vector3(1, 0, 0)
+		0.7                    | new Vector3(1, 2, 3)
+		3.1                    | new Vector3(1, 0.1, 0.2)
+		3.1                    | new Vector3(0.1, 1, 0.2)
+		3.1                    | new Vector3(0.1, 0.2, 1)
+	}
+
+	def "multiplication composes rotations like matrices"()
+	{
+		given:
+		def a = Quaternion.fromAxisAngle(0.7, new Vector3(1, 2, 3))
+		def b = Quaternion.fromAxisAngle(-1.9, new Vector3(-2, 0.5, 1))
+
+		expect:
+		that a.multiply(b).toMatrix4(), closeTo(a.toMatrix4().multiply(b.toMatrix4()))
+		that b.multiply(a).toMatrix4(), closeTo(Transformations.combine(a.toMatrix4(), b.toMatrix4()))
+	}
+
+	def "rotating a vector matches the rotation matrix"()
+	{
+		given:
+		def q = Quaternion.fromAxisAngle(1.2, new Vector3(1, -1, 2))
+		def v = new Vector3(3, -4, 5)
+		def expected = q.toMatrix4().transform(new Vector4(v.x, v.y, v.z, 0))
+
+		expect:
+		that q.rotate(v), closeTo(new Vector3(expected.x, expected.y, expected.z))
+	}
+
+	def "conjugate undoes a rotation"()
+	{
+		given:
+		def q = Quaternion.fromAxisAngle(1.2, new Vector3(1, -1, 2))
+
+		expect:
+		that q.multiply(q.conjugate()).toMatrix4(), closeTo(Quaternion.IDENTITY.toMatrix4())
+		that q.conjugate().rotate(q.rotate(new Vector3(1, 2, 3))), closeTo(new Vector3(1, 2, 3))
+	}
+
+	def "inverse of a non-unit quaternion"()
+	{
+		given:
+		def q = new Quaternion(1, 2, 3, 4)
+		def product = q.multiply(q.inverse())
+
+		expect:
+		close(product.x, 0, 0.0001) && close(product.y, 0, 0.0001) && close(product.z, 0, 0.0001) && close(product.w, 1, 0.0001)
+	}
+
+	def "zero quaternion has no inverse"()
+	{
+		when:
+		new Quaternion(0, 0, 0, 0).inverse()
+
+		then:
+		thrown(IllegalStateException)
+	}
+
+	def "normalization"()
+	{
+		expect:
+		close(new Quaternion(1, 2, 3, 4).normalize().length(), 1, 0.0001)
+		new Quaternion(1, 2, 3, 4).lengthSquared() == 30
+		new Quaternion(1, 2, 3, 4).dot(new Quaternion(5, 6, 7, 8)) == 70
+		new Quaternion(1, 2, 3, 4).negate() == new Quaternion(-1, -2, -3, -4)
+	}
+
+	def "slerp moves at constant angular speed"()
+	{
+		given:
+		def a = Quaternion.fromAxisAngle(0.3, new Vector3(1, 0, 0))
+		def b = Quaternion.fromAxisAngle(2.5, new Vector3(0, 1, 1))
+		def total = angleBetween(a, b)
+
+		expect:
+		close(angleBetween(a, a.slerp(b, t)), t * total as float, 0.0001)
+
+		where:
+		t << [0, 0.1, 0.25, 0.5, 0.9, 1].collect { it as float }
+	}
+
+	def "interpolation takes the shorter path"()
+	{
+		given:
+		def a = Quaternion.fromAxisAngle(0.3, new Vector3(1, 0, 0))
+		def b = Quaternion.fromAxisAngle(0.5, new Vector3(1, 0, 0))
+
+		expect:
+		that a.slerp(b.negate(), 0.5).toMatrix4(), closeTo(Transformations.rotateX(0.4))
+		that a.nlerp(b.negate(), 0.5).toMatrix4(), closeTo(Transformations.rotateX(0.4))
+		that a.fastSlerp(b.negate(), 0.5).toMatrix4(), closeTo(Transformations.rotateX(0.4))
+	}
+
+	def "slerp between nearly identical rotations"()
+	{
+		given:
+		def a = Quaternion.fromAxisAngle(0.3, new Vector3(1, 0, 0))
+		def b = Quaternion.fromAxisAngle(0.3001, new Vector3(1, 0, 0))
+
+		expect:
+		close(a.slerp(b, 0.5).length(), 1, 0.0001)
+	}
+
+	def "fast slerp stays close to slerp"()
+	{
+		given:
+		def random = new Random(42)
+		def next = { (random.nextFloat() * 2 - 1) as float }
+
+		expect:
+		(0..<200).every {
+			def a = new Quaternion(next(), next(), next(), next()).normalize()
+			def b = new Quaternion(next(), next(), next(), next()).normalize()
+			def t = random.nextFloat()
+			angleBetween(a.fastSlerp(b, t), a.slerp(b, t)) < 0.002
+		}
+	}
+
+	def "store and load round trip"()
+	{
+		given:
+		def q = new Quaternion(1, 2, 3, 4)
+		def array = new float[4]
+		def buffer = FloatBuffer.allocate(4)
+
+		when:
+		q.store(array)
+		q.store(buffer)
+		buffer.flip()
+
+		then:
+		Quaternion.load(array) == q
+		Quaternion.load(buffer) == q
+	}
+
+	private static float angleBetween(Quaternion a, Quaternion b)
+	{
+		return 2 * Math.acos(Math.min(1, Math.abs(a.dot(b)))) as float
+	}
+}
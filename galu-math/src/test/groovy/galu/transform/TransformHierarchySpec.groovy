@@ -0,0 +1,187 @@
+package galu.transform
+
+import galu.matrix.Matrix
+import galu.matrix.Matrix4
+import galu.vector.Vector3
+import spock.lang.Specification
+
+import java.util.concurrent.ForkJoinPool
+
+import static galu.test.Helpers.*
+import static spock.util.matcher.HamcrestSupport.that
+
+class TransformHierarchySpec extends Specification
+{
+	Random random = new Random(42)
+
+	def "world matrices combine the local transforms from the root down"()
+	{
+		given:
+		def hierarchy = new TransformHierarchy(3)
+		int root = hierarchy.add(TransformHierarchy.NO_PARENT)
+		int child = hierarchy.add(root)
+		int grandchild = hierarchy.add(child)
+		def locals = (0..<3).collect { randomLocal() }
+		locals.eachWithIndex { local, i -> hierarchy.setLocal(i, *local) }
+
+		when:
+		int count = hierarchy.update()
+
+		then:
+		count == 3
+		def matrices = locals.collect { Transformations.trs(*it) }
+		that hierarchy.world(root), closeTo(matrices[0], 0.001)
+		that hierarchy.world(child), closeTo(Transformations.combine(matrices[1], matrices[0]), 0.001)
+		that hierarchy.world(grandchild), closeTo(Transformations.combine(matrices[2], matrices[1], matrices[0]), 0.001)
+	}
+
+	def "world matrices are stored column-major"()
+	{
+		given:
+		def hierarchy = new TransformHierarchy(1)
+		hierarchy.add(TransformHierarchy.NO_PARENT)
+		hierarchy.setLocal(0, *randomLocal())
+
+		when:
+		hierarchy.update()
+
+		then:
+		Matrix4.load(Arrays.copyOf(hierarchy.worldMatrices(), 16), Matrix.Order.COLUMN_MAJOR) == hierarchy.world(0)
+	}
+
+	def "only dirty subtrees are recomputed"()
+	{
+		given: "two roots with a chain of three nodes under each"
+		def hierarchy = new TransformHierarchy(8)
+		int a = hierarchy.add(TransformHierarchy.NO_PARENT)
+		int b = hierarchy.add(TransformHierarchy.NO_PARENT)
+		int a1 = hierarchy.add(a), b1 = hierarchy.add(b)
+		int a2 = hierarchy.add(a1), b2 = hierarchy.add(b1)
+		int a3 = hierarchy.add(a2), b3 = hierarchy.add(b2)
+		hierarchy.update()
+		def before = hierarchy.world(a3)
+
+		expect: "a clean hierarchy does nothing"
+		hierarchy.update() == 0
+		hierarchy.lastUpdateCount() == 0
+
+		when:
+		hierarchy.setTranslation(b1, 1, 2, 3)
+
+		then:
+		hierarchy.isDirty(b1)
+		hierarchy.update() == 3
+		[b1, b2, b3].every { hierarchy.updated(it) }
+		![a, b, a1, a2, a3].any { hierarchy.updated(it) }
+		!hierarchy.isDirty(b1)
+		hierarchy.world(a3) == before
+		that hierarchy.world(b3), closeTo(Transformations.translate(new Vector3(1, 2, 3)))
+	}
+
+	def "parallel updates match sequential updates"()
+	{
+		given:
+		def pool = new ForkJoinPool(4)
+		def sequential = new TransformHierarchy(5000)
+		def parallel = new TransformHierarchy(5000)
+		[sequential, parallel].each { h ->
+			h.add(TransformHierarchy.NO_PARENT)
+		}
+		def rng = new Random(7)
+		for(int i = 1; i < 5000; i++)
+		{
+			// A scene root with a few dozen deep subtrees under it
+			int parent = i < 40 ? 0 : rng.nextInt(i - 1) + 1
+			sequential.add(parent)
+			parallel.add(parent)
+		}
+		5000.times {
+			def local = randomLocal()
+			sequential.setLocal(it, *local)
+			parallel.setLocal(it, *local)
+		}
+
+		when:
+		int sequentialCount = sequential.update()
+		int parallelCount = parallel.update(pool)
+
+		then:
+		sequentialCount == 5000
+		parallelCount == 5000
+		Arrays.equals(sequential.worldMatrices(), parallel.worldMatrices())
+
+		when: "some nodes move"
+		[17, 600, 4321].each {
+			def local = randomLocal()
+			sequential.setLocal(it, *local)
+			parallel.setLocal(it, *local)
+		}
+		sequentialCount = sequential.update()
+		parallelCount = parallel.update(pool)
+
+		then:
+		parallelCount == sequentialCount
+		sequentialCount < 5000
+		(0..<5000).every { sequential.updated(it) == parallel.updated(it) }
+		Arrays.equals(sequential.worldMatrices(), parallel.worldMatrices())
+
+		cleanup:
+		pool.shutdown()
+	}
+
+	def "nodes are added after their parents"()
+	{
+		given:
+		def hierarchy = new TransformHierarchy(2)
+		hierarchy.add(TransformHierarchy.NO_PARENT)
+
+		when:
+		hierarchy.add(1)
+
+		then:
+		thrown(IllegalArgumentException)
+
+		when:
+		hierarchy.add(0)
+		hierarchy.add(0)
+
+		then:
+		thrown(IllegalStateException)
+		hierarchy.size() == 2
+		hierarchy.parent(1) == 0
+	}
+
+	def "local transforms can be read back"()
+	{
+		given:
+		def hierarchy = new TransformHierarchy(1)
+		hierarchy.add(TransformHierarchy.NO_PARENT)
+
+		expect: "new nodes have the identity transform"
+		hierarchy.translation(0) == new Vector3(0, 0, 0)
+		hierarchy.rotation(0) == Quaternion.IDENTITY
+		hierarchy.scale(0) == new Vector3(1, 1, 1)
+
+		when:
+		hierarchy.setTranslation(0, 1, 2, 3)
+		hierarchy.setScale(0, 4, 5, 6)
+
+		then:
+		hierarchy.translation(0) == new Vector3(1, 2, 3)
+		hierarchy.scale(0) == new Vector3(4, 5, 6)
+	}
+
+	private List randomLocal()
+	{
+		def translation = new Vector3(nextFloat(-5, 5), nextFloat(-5, 5), nextFloat(-5, 5))
+		def axis = new Vector3(nextFloat(-1, 1), nextFloat(-1, 1), nextFloat(-1, 1)).normalize()
+		def rotation = Quaternion.fromAxisAngle(nextFloat(0, 6), axis)
+		def scale = new Vector3(nextFloat(0.5, 1.5), nextFloat(0.5, 1.5), nextFloat(0.5, 1.5))
+		[translation, rotation, scale]
+	}
+
+	private float nextFloat(float min, float max)
+	{
+		min + random.nextFloat() * (max - min)
+	}
+}
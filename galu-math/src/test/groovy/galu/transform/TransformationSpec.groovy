@@ -303,4 +303,209 @@ class TransformationSpec extends Specification
 		expect:
 		that Transformations.fromHomogeneous(matrix), closeTo(expected)
 	}
+
+	def "fused TRS with an axis and angle"()
+	{
+		given:
+		def translation = new Vector3(3, -2, 7)
+		def axis = new Vector3(1, 2, 3)
+		def scale = new Vector3(2, 0.5, -3)
+		def expected = Transformations.combine(Transformations.scale(scale), Transformations.rotate(angle, axis), Transformations.translate(translation))
+
+		expect:
+		that Transformations.trs(translation, angle, axis, scale), closeTo(expected)
+
+		where:
+		angle << [0, 0.7, Math.PI, -2.5].collect { it as float }
+	}
+
+	def "fused TRS with Euler angles"()
+	{
+		given:
+		def translation = new Vector3(-1, 4, 0.5)
+		def angles = new Vector3(0.3, -1.1, 2.5)
+		def scale = new Vector3(1.5, 2, 0.25)
+		def expected = Transformations.combine(Transformations.scale(scale), Transformations.rotate(angles), Transformations.translate(translation))
+
+		expect:
+		that Transformations.trs(translation, angles, scale), closeTo(expected)
+	}
+
+	def "fused TRS with a rotation matrix"()
+	{
+		given:
+		def translation = new Vector3(5, 6, -1)
+		def rotation = Transformations.rotation3(1.2, new Vector3(0, 0.6, 0.8))
+		def scale = new Vector3(3, 3, 3)
+		def expected = Transformations.combine(Transformations.scale(scale), Transformations.toHomogeneous(rotation), Transformations.translate(translation))
+
+		expect:
+		that Transformations.trs(translation, rotation, scale), closeTo(expected)
+	}
+
+	def "fused TRS with a quaternion"()
+	{
+		given:
+		def translation = new Vector3(5, 6, -1)
+		def rotation = Quaternion.fromAxisAngle(1.2, new Vector3(0, 0.6, 0.8))
+		def scale = new Vector3(3, 1, 2)
+
+		expect:
+		that Transformations.trs(translation, rotation, scale), closeTo(Transformations.trs(translation, rotation.toMatrix3(), scale))
+	}
+
+	def "decompose a TRS matrix"()
+	{
+		given:
+		def matrix = Transformations.trs(translation, 1.2, new Vector3(1, 2, 3), scale)
+
+		when:
+		def result = Transformations.decompose(matrix)
+
+		then:
+		that result.translation, closeTo(translation)
+		that result.scale, closeTo(scale)
+		that Transformations.toHomogeneous(result.rotation), closeTo(Transformations.rotate(1.2, new Vector3(1, 2, 3)))
+		that result.toMatrix(), closeTo(matrix)
+
+		where:
+		translation            | scale
+		new Vector3(0, 0, 0)   | new Vector3(1, 1, 1)
+		new Vector3(3, -2, 7)  | new Vector3(2, 0.5, 3)
+		new Vector3(-4, 1, 9)  | new Vector3(0.1, 10, 1)
+	}
+
+	def "decompose a mirroring matrix"()
+	{
+		given:
+		def matrix = Transformations.trs(new Vector3(1, 2, 3), new Vector3(0.4, 0.5, 0.6), new Vector3(2, -3, 4))
+
+		when:
+		def result = Transformations.decompose(matrix)
+
+		then:
+		result.scale.x < 0
+		that result.rotation.determinant(), closeTo(1.0, 0.0001)
+		that result.toMatrix(), closeTo(matrix)
+	}
+
+	def "decompose a matrix without scale"()
+	{
+		when:
+		Transformations.decompose(Transformations.scale(new Vector3(1, 0, 1)))
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+
+	def "Euler angles from a decomposition"()
+	{
+		given:
+		def matrix = Transformations.rotate(angles)
+
+		when:
+		def result = Transformations.decompose(matrix).eulerAngles()
+
+		then:
+		that Transformations.rotate(result), closeTo(matrix)
+
+		where:
+		angles << [
+			new Vector3(0, 0, 0),
+			new Vector3(0.3, -1.1, 2.5),
+			new Vector3(-2, 0.2, -0.7),
+			new Vector3(0.5, Math.PI / 2 as float, 0.25),
+			new Vector3(0.5, -Math.PI / 2 as float, 0.25)
+		]
+	}
+
+	def "axis and angle from a decomposition"()
+	{
+		given:
+		def matrix = Transformations.rotate(angle, axis)
+
+		when:
+		def result = Transformations.decompose(matrix)
+
+		then:
+		that Transformations.rotate(result.rotationAngle(), result.rotationAxis()), closeTo(matrix)
+
+		where:
+		angle                  | axis
+		0                      | new Vector3(1, 2, 3)
+		0.7                    | new Vector3(1, 2, 3)
+		-2.5                   | new Vector3(0, 1, 0)
+		Math.PI as float       | new Vector3(1, 0, 0)
+		Math.PI as float       | new Vector3(0, 0.6, 0.8)
+		Math.PI as float       | new Vector3(-1, 2, 1)
+	}
+
+	def "perspective maps the near and far planes to the ends of clip space"()
+	{
+		given:
+		def projection = Transformations.perspective(Math.PI / 2 as float, 2, 1, 100)
+
+		expect:
+		that project(projection, new Vector4(0, 0, -1, 1)), closeTo(new Vector3(0, 0, -1))
+		that project(projection, new Vector4(0, 0, -100, 1)), closeTo(new Vector3(0, 0, 1))
+		// A 90 degree field of view is 1 unit up at a distance of 1, and twice as wide
+		that project(projection, new Vector4(2, 1, -1, 1)), closeTo(new Vector3(1, 1, -1))
+	}
+
+	def "infinite perspective is the limit of perspective"()
+	{
+		given:
+		def infinite = Transformations.infinitePerspective(1, 1.5, 0.1)
+		def far = Transformations.perspective(1, 1.5, 0.1, 1e7 as float)
+
+		expect:
+		that infinite, closeTo(far)
+		project(infinite, new Vector4(0, 0, -1e6 as float, 1)).z < 1
+	}
+
+	def "orthographic maps its box to the clip cube"()
+	{
+		given:
+		def projection = Transformations.orthographic(-4, 2, -1, 3, 0.5, 10)
+
+		expect:
+		that projection.transform(new Vector4(-4, -1, -0.5, 1)), closeTo(new Vector4(-1, -1, -1, 1))
+		that projection.transform(new Vector4(2, 3, -10, 1)), closeTo(new Vector4(1, 1, 1, 1))
+	}
+
+	def "lookAt moves the eye to the origin looking down -z"()
+	{
+		given:
+		def eye = new Vector3(3, 4, 5)
+		def target = new Vector3(-1, 2, 0)
+		def view = Transformations.lookAt(eye, target, new Vector3(0, 1, 0))
+		def distance = target.subtract(eye).length()
+
+		expect:
+		that view.transform(new Vector4(eye.x, eye.y, eye.z, 1)), closeTo(new Vector4(0, 0, 0, 1))
+		that view.transform(new Vector4(target.x, target.y, target.z, 1)), closeTo(new Vector4(0, 0, -distance, 1))
+		view.transform(new Vector4(0, 10, 0, 0)).y > 0
+		that view.multiply(view.inverseRigid()), closeTo(Matrix4.IDENTITY)
+	}
+
+	def "bad projections are rejected"()
+	{
+		when:
+		Transformations.perspective(1, 1, 0, 10)
+
+		then:
+		thrown(IllegalArgumentException)
+
+		when:
+		Transformations.lookAt(new Vector3(0, 0, 0), new Vector3(0, 5, 0), new Vector3(0, 1, 0))
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+
+	private static Vector3 project(Matrix4 projection, Vector4 point)
+	{
+		def clip = projection.transform(point)
+		new Vector3(clip.x / clip.w as float, clip.y / clip.w as float, clip.z / clip.w as float)
+	}
 }
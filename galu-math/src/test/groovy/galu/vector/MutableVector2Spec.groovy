@@ -0,0 +1,89 @@
+package galu.vector
+
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+
+class MutableVector2Spec extends Specification
+{
+	def a = new Vector2(1, 2)
+	def b = new Vector2(-4, 5.5)
+
+	def "conversion to and from Vector2"()
+	{
+		expect:
+		new MutableVector2(a).toImmutable() == a
+		new MutableVector2().set(a).toImmutable() == a
+		new MutableVector2().set(new MutableVector2(a)).toImmutable() == a
+		new MutableVector2().toImmutable() == new Vector2(0, 0)
+	}
+
+	def "operations match Vector2"()
+	{
+		given:
+		def ma = new MutableVector2(a)
+		def mb = new MutableVector2(b)
+		def dest = new MutableVector2()
+
+		expect:
+		MutableVector2.addInto(ma, mb, dest).toImmutable() == a.add(b)
+		MutableVector2.subtractInto(ma, mb, dest).toImmutable() == a.subtract(b)
+		MutableVector2.multiplyInto(ma, 3, dest).toImmutable() == a.multiply(3)
+		MutableVector2.multiplyInto(ma, mb, dest).toImmutable() == a.multiply(b)
+		MutableVector2.negateInto(ma, dest).toImmutable() == a.negate()
+		MutableVector2.normalizeInto(ma, dest).toImmutable() == a.normalize()
+		ma.dot(mb) == a.dot(b)
+		ma.length() == a.length()
+		ma.lengthSquared() == a.lengthSquared()
+	}
+
+	def "operations return the destination"()
+	{
+		given:
+		def dest = new MutableVector2()
+
+		expect:
+		MutableVector2.addInto(new MutableVector2(a), new MutableVector2(b), dest).is(dest)
+	}
+
+	def "destination may be an operand"()
+	{
+		given:
+		def ma = new MutableVector2(a)
+		def mb = new MutableVector2(b)
+
+		when:
+		MutableVector2.subtractInto(mb, ma, ma)
+		MutableVector2.multiplyInto(mb, mb, mb)
+
+		then:
+		ma.toImmutable() == b.subtract(a)
+		mb.toImmutable() == b.multiply(b)
+	}
+
+	def "store and load"()
+	{
+		given:
+		def array = new float[2]
+		def buffer = FloatBuffer.allocate(2)
+
+		when:
+		new MutableVector2(a).store(array)
+		new MutableVector2(a).store(buffer)
+		buffer.flip()
+
+		then:
+		Arrays.equals(array, [1, 2] as float[])
+		new MutableVector2().load(buffer).toImmutable() == a
+		new MutableVector2().load(array).toImmutable() == a
+	}
+
+	def "store into too-small array"()
+	{
+		when:
+		new MutableVector2(a).store(new float[1])
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+}
@@ -0,0 +1,90 @@
+package galu.vector
+
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+
+class MutableVector3Spec extends Specification
+{
+	def a = new Vector3(1, 2, 3)
+	def b = new Vector3(-4, 5.5, 6)
+
+	def "conversion to and from Vector3"()
+	{
+		expect:
+		new MutableVector3(a).toImmutable() == a
+		new MutableVector3().set(a).toImmutable() == a
+		new MutableVector3().set(new MutableVector3(a)).toImmutable() == a
+		new MutableVector3().toImmutable() == new Vector3(0, 0, 0)
+	}
+
+	def "operations match Vector3"()
+	{
+		given:
+		def ma = new MutableVector3(a)
+		def mb = new MutableVector3(b)
+		def dest = new MutableVector3()
+
+		expect:
+		MutableVector3.addInto(ma, mb, dest).toImmutable() == a.add(b)
+		MutableVector3.subtractInto(ma, mb, dest).toImmutable() == a.subtract(b)
+		MutableVector3.multiplyInto(ma, 3, dest).toImmutable() == a.multiply(3)
+		MutableVector3.multiplyInto(ma, mb, dest).toImmutable() == a.multiply(b)
+		MutableVector3.negateInto(ma, dest).toImmutable() == a.negate()
+		MutableVector3.normalizeInto(ma, dest).toImmutable() == a.normalize()
+		MutableVector3.crossInto(ma, mb, dest).toImmutable() == a.cross(b)
+		ma.dot(mb) == a.dot(b)
+		ma.length() == a.length()
+		ma.lengthSquared() == a.lengthSquared()
+	}
+
+	def "operations return the destination"()
+	{
+		given:
+		def dest = new MutableVector3()
+
+		expect:
+		MutableVector3.addInto(new MutableVector3(a), new MutableVector3(b), dest).is(dest)
+	}
+
+	def "destination may be an operand"()
+	{
+		given:
+		def ma = new MutableVector3(a)
+		def mb = new MutableVector3(b)
+
+		when:
+		MutableVector3.crossInto(ma, mb, ma)
+		MutableVector3.crossInto(mb, mb, mb)
+
+		then:
+		ma.toImmutable() == a.cross(b)
+		mb.toImmutable() == b.cross(b)
+	}
+
+	def "store and load"()
+	{
+		given:
+		def array = new float[3]
+		def buffer = FloatBuffer.allocate(3)
+
+		when:
+		new MutableVector3(a).store(array)
+		new MutableVector3(a).store(buffer)
+		buffer.flip()
+
+		then:
+		Arrays.equals(array, [1, 2, 3] as float[])
+		new MutableVector3().load(buffer).toImmutable() == a
+		new MutableVector3().load(array).toImmutable() == a
+	}
+
+	def "store into too-small array"()
+	{
+		when:
+		new MutableVector3(a).store(new float[2])
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+}
@@ -0,0 +1,89 @@
+package galu.vector
+
+import spock.lang.Specification
+
+import java.nio.FloatBuffer
+
+class MutableVector4Spec extends Specification
+{
+	def a = new Vector4(1, 2, 3, 4)
+	def b = new Vector4(-4, 5.5, 6, -7)
+
+	def "conversion to and from Vector4"()
+	{
+		expect:
+		new MutableVector4(a).toImmutable() == a
+		new MutableVector4().set(a).toImmutable() == a
+		new MutableVector4().set(new MutableVector4(a)).toImmutable() == a
+		new MutableVector4().toImmutable() == new Vector4(0, 0, 0, 0)
+	}
+
+	def "operations match Vector4"()
+	{
+		given:
+		def ma = new MutableVector4(a)
+		def mb = new MutableVector4(b)
+		def dest = new MutableVector4()
+
+		expect:
+		MutableVector4.addInto(ma, mb, dest).toImmutable() == a.add(b)
+		MutableVector4.subtractInto(ma, mb, dest).toImmutable() == a.subtract(b)
+		MutableVector4.multiplyInto(ma, 3, dest).toImmutable() == a.multiply(3)
+		MutableVector4.multiplyInto(ma, mb, dest).toImmutable() == a.multiply(b)
+		MutableVector4.negateInto(ma, dest).toImmutable() == a.negate()
+		MutableVector4.normalizeInto(ma, dest).toImmutable() == a.normalize()
+		ma.dot(mb) == a.dot(b)
+		ma.length() == a.length()
+		ma.lengthSquared() == a.lengthSquared()
+	}
+
+	def "operations return the destination"()
+	{
+		given:
+		def dest = new MutableVector4()
+
+		expect:
+		MutableVector4.addInto(new MutableVector4(a), new MutableVector4(b), dest).is(dest)
+	}
+
+	def "destination may be an operand"()
+	{
+		given:
+		def ma = new MutableVector4(a)
+		def mb = new MutableVector4(b)
+
+		when:
+		MutableVector4.subtractInto(mb, ma, ma)
+		MutableVector4.multiplyInto(mb, mb, mb)
+
+		then:
+		ma.toImmutable() == b.subtract(a)
+		mb.toImmutable() == b.multiply(b)
+	}
+
+	def "store and load"()
+	{
+		given:
+		def array = new float[4]
+		def buffer = FloatBuffer.allocate(4)
+
+		when:
+		new MutableVector4(a).store(array)
+		new MutableVector4(a).store(buffer)
+		buffer.flip()
+
+		then:
+		Arrays.equals(array, [1, 2, 3, 4] as float[])
+		new MutableVector4().load(buffer).toImmutable() == a
+		new MutableVector4().load(array).toImmutable() == a
+	}
+
+	def "store into too-small array"()
+	{
+		when:
+		new MutableVector4(a).store(new float[3])
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+}
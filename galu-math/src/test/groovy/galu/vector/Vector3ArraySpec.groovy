@@ -0,0 +1,165 @@
+package galu.vector
+
+import spock.lang.Specification
+
+class Vector3ArraySpec extends Specification
+{
+	static final int SIZE = 37
+
+	Vector3Array a = random(SIZE, 1)
+	Vector3Array b = random(SIZE, 2)
+	Vector3Array dest = new Vector3Array(SIZE)
+
+	def "size and element access"()
+	{
+		given:
+		def array = new Vector3Array(4)
+
+		when:
+		array.set(2, new Vector3(1, 2, 3))
+
+		then:
+		array.size() == 4
+		array.get(2) == new Vector3(1, 2, 3)
+		array.get(0) == new Vector3(0, 0, 0)
+	}
+
+	def "component arrays must be the same length"()
+	{
+		when:
+		new Vector3Array(new float[3], new float[3], new float[2])
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+
+	def "bulk add matches scalar add"()
+	{
+		when:
+		a.add(b, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).add(b.get(it)) }
+	}
+
+	def "bulk subtract matches scalar subtract"()
+	{
+		when:
+		a.subtract(b, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).subtract(b.get(it)) }
+	}
+
+	def "bulk scalar multiplication matches scalar multiply"()
+	{
+		when:
+		a.multiply(2.5f, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).multiply(2.5f) }
+	}
+
+	def "bulk element-wise multiplication matches scalar multiply"()
+	{
+		when:
+		a.multiply(b, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).multiply(b.get(it)) }
+	}
+
+	def "bulk negate matches scalar negate"()
+	{
+		when:
+		a.negate(dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).negate() }
+	}
+
+	def "bulk cross product matches scalar cross product"()
+	{
+		when:
+		a.cross(b, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).cross(b.get(it)) }
+	}
+
+	def "bulk cross product into one of its operands"()
+	{
+		given:
+		def expected = (0..<SIZE).collect { a.get(it).cross(b.get(it)) }
+
+		when:
+		a.cross(b, a, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { a.get(it) == expected[it] }
+	}
+
+	def "bulk dot product matches scalar dot product"()
+	{
+		given:
+		def products = new float[SIZE]
+
+		when:
+		a.dot(b, products, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { products[it] == a.get(it).dot(b.get(it)) }
+	}
+
+	def "bulk length matches scalar length"()
+	{
+		given:
+		def lengths = new float[SIZE]
+		def squares = new float[SIZE]
+
+		when:
+		a.length(lengths, 0, SIZE)
+		a.lengthSquared(squares, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { lengths[it] == a.get(it).length() && squares[it] == a.get(it).lengthSquared() }
+	}
+
+	def "bulk normalize matches scalar normalize"()
+	{
+		when:
+		a.normalize(dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).normalize() }
+	}
+
+	def "operations only touch the given range"()
+	{
+		when:
+		a.add(b, dest, 5, 10)
+
+		then:
+		(0..<5).every { dest.get(it) == new Vector3(0, 0, 0) }
+		(5..<10).every { dest.get(it) == a.get(it).add(b.get(it)) }
+		(10..<SIZE).every { dest.get(it) == new Vector3(0, 0, 0) }
+	}
+
+	def "range outside the array"()
+	{
+		when:
+		a.add(b, new Vector3Array(SIZE - 1), 0, SIZE)
+
+		then:
+		thrown(IndexOutOfBoundsException)
+	}
+
+	private static Vector3Array random(int size, long seed)
+	{
+		def random = new Random(seed)
+		def next = { (random.nextFloat() * 10 - 5) as float }
+		def array = new Vector3Array(size)
+		size.times { array.set(it, next(), next(), next()) }
+		return array
+	}
+}
@@ -131,6 +131,18 @@ class Vector3Spec extends Specification
 		that a.dot(b), closeTo(product, 0.01)
 	}
 
+	def "vector cross product"()
+	{
+		given:
+		def a = new Vector3(1, 2, 3)
+		def b = new Vector3(4, 5, 6)
+		def product = new Vector3(-3, 6, -3)
+
+		expect:
+		that a.cross(b), closeTo(product)
+		that b.cross(a), closeTo(product.negate())
+	}
+
 	def "vector negate"()
 	{
 		given:
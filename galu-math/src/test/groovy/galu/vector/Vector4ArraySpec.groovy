@@ -0,0 +1,144 @@
+package galu.vector
+
+import spock.lang.Specification
+
+class Vector4ArraySpec extends Specification
+{
+	static final int SIZE = 37
+
+	Vector4Array a = random(SIZE, 1)
+	Vector4Array b = random(SIZE, 2)
+	Vector4Array dest = new Vector4Array(SIZE)
+
+	def "size and element access"()
+	{
+		given:
+		def array = new Vector4Array(4)
+
+		when:
+		array.set(2, new Vector4(1, 2, 3, 4))
+
+		then:
+		array.size() == 4
+		array.get(2) == new Vector4(1, 2, 3, 4)
+		array.get(0) == new Vector4(0, 0, 0, 0)
+	}
+
+	def "component arrays must be the same length"()
+	{
+		when:
+		new Vector4Array(new float[3], new float[3], new float[3], new float[2])
+
+		then:
+		thrown(IllegalArgumentException)
+	}
+
+	def "bulk add matches scalar add"()
+	{
+		when:
+		a.add(b, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).add(b.get(it)) }
+	}
+
+	def "bulk subtract matches scalar subtract"()
+	{
+		when:
+		a.subtract(b, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).subtract(b.get(it)) }
+	}
+
+	def "bulk scalar multiplication matches scalar multiply"()
+	{
+		when:
+		a.multiply(2.5f, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).multiply(2.5f) }
+	}
+
+	def "bulk element-wise multiplication matches scalar multiply"()
+	{
+		when:
+		a.multiply(b, dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).multiply(b.get(it)) }
+	}
+
+	def "bulk negate matches scalar negate"()
+	{
+		when:
+		a.negate(dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).negate() }
+	}
+
+	def "bulk dot product matches scalar dot product"()
+	{
+		given:
+		def products = new float[SIZE]
+
+		when:
+		a.dot(b, products, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { products[it] == a.get(it).dot(b.get(it)) }
+	}
+
+	def "bulk length matches scalar length"()
+	{
+		given:
+		def lengths = new float[SIZE]
+		def squares = new float[SIZE]
+
+		when:
+		a.length(lengths, 0, SIZE)
+		a.lengthSquared(squares, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { lengths[it] == a.get(it).length() && squares[it] == a.get(it).lengthSquared() }
+	}
+
+	def "bulk normalize matches scalar normalize"()
+	{
+		when:
+		a.normalize(dest, 0, SIZE)
+
+		then:
+		(0..<SIZE).every { dest.get(it) == a.get(it).normalize() }
+	}
+
+	def "operations only touch the given range"()
+	{
+		when:
+		a.add(b, dest, 5, 10)
+
+		then:
+		(0..<5).every { dest.get(it) == new Vector4(0, 0, 0, 0) }
+		(5..<10).every { dest.get(it) == a.get(it).add(b.get(it)) }
+		(10..<SIZE).every { dest.get(it) == new Vector4(0, 0, 0, 0) }
+	}
+
+	def "range outside the array"()
+	{
+		when:
+		a.add(b, new Vector4Array(SIZE - 1), 0, SIZE)
+
+		then:
+		thrown(IndexOutOfBoundsException)
+	}
+
+	private static Vector4Array random(int size, long seed)
+	{
+		def random = new Random(seed)
+		def next = { (random.nextFloat() * 10 - 5) as float }
+		def array = new Vector4Array(size)
+		size.times { array.set(it, next(), next(), next(), next()) }
+		return array
+	}
+}
@@ -0,0 +1,72 @@
+package galu.mesh;
+
+import galu.util.Checks;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Checks and buffer copies shared by the index buffer optimizers. Index buffers are read and written with absolute
+ * gets and puts, from the buffer's position to its limit, so an optimized buffer is still ready to upload.
+ */
+final class Indices
+{
+	private Indices() {}
+
+	/**
+	 * Check that {@code count} indices starting at {@code offset} form whole triangles over {@code vertexCount} vertices.
+	 * @throws IllegalArgumentException if they don't
+	 */
+	static void checkTriangles(int[] indices, int offset, int count, int vertexCount)
+	{
+		Checks.checkArray("Index array", indices.length, offset, count);
+		Checks.checkArgument(count % 3 == 0, "%d indices is not a whole number of triangles", count);
+		for(int i = offset; i < offset + count; i++)
+		{
+			if(indices[i] < 0 || indices[i] >= vertexCount)
+			{
+				throw new IllegalArgumentException(String.format(
+					"Index %d at %d is out of range for %d vertices", indices[i], i, vertexCount));
+			}
+		}
+	}
+
+	static int[] read(IntBuffer buffer)
+	{
+		int[] indices = new int[buffer.remaining()];
+		for(int i = 0; i < indices.length; i++)
+		{
+			indices[i] = buffer.get(buffer.position() + i);
+		}
+		return indices;
+	}
+
+	/**
+	 * Read 16-bit indices, which are unsigned.
+	 */
+	static int[] read(ShortBuffer buffer)
+	{
+		int[] indices = new int[buffer.remaining()];
+		for(int i = 0; i < indices.length; i++)
+		{
+			indices[i] = buffer.get(buffer.position() + i) & 0xffff;
+		}
+		return indices;
+	}
+
+	static void write(int[] indices, IntBuffer buffer)
+	{
+		for(int i = 0; i < indices.length; i++)
+		{
+			buffer.put(buffer.position() + i, indices[i]);
+		}
+	}
+
+	static void write(int[] indices, ShortBuffer buffer)
+	{
+		for(int i = 0; i < indices.length; i++)
+		{
+			buffer.put(buffer.position() + i, (short) indices[i]);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package galu.mesh;
+
+/**
+ * One level of detail of a simplified mesh: its triangles, which index the original vertices, and the simplification
+ * error it was reached with.
+ * @see Simplifier
+ */
+public final class Lod
+{
+	private final int[] indices;
+	private final float error;
+
+	Lod(int[] indices, float error)
+	{
+		this.indices = indices;
+		this.error = error;
+	}
+
+	/**
+	 * @return a copy of the indices, three per triangle
+	 */
+	public int[] indices()
+	{
+		return indices.clone();
+	}
+
+	public int triangleCount()
+	{
+		return indices.length / 3;
+	}
+
+	/**
+	 * @return the largest error of any collapse made to reach this level, in the same units as {@link Simplifier}'s error
+	 * budget
+	 */
+	public float error()
+	{
+		return error;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Lod[" + triangleCount() + " triangles, error " + error + "]";
+	}
+}
@@ -0,0 +1,247 @@
+package galu.mesh;
+
+import galu.vector.Vector3;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Reordering of triangle lists to reduce overdraw, without giving up much vertex cache efficiency.
+ * <p>
+ * This follows Sander, Nehab, and Barczak's "Fast Triangle Reordering for Vertex Locality and Reduced Overdraw". The
+ * triangles, which should already be in vertex cache order (see {@link VertexCache}), are split into clusters: first
+ * wherever the simulated cache starts over anyway, and then further wherever a cluster has become at least as cache
+ * efficient as its surroundings, give or take {@code threshold}. Each cluster gets an area-weighted face normal and
+ * centroid, and the clusters are sorted by how far their centroid lies out from the mesh's centroid along their
+ * normal. Clusters on the outside of the mesh, facing away from it, are drawn first, so they tend to occlude the
+ * clusters behind them from most viewpoints and the depth test rejects those pixels before they're shaded.
+ * <p>
+ * Reordering whole clusters keeps most of the vertex reuse: the ACMR grows by about {@code threshold}, plus a little
+ * at each cluster boundary.
+ */
+public final class Overdraw
+{
+	// The FIFO cache simulated to find cluster boundaries
+	private static final int CACHE_SIZE = 16;
+
+	private Overdraw() {}
+
+	private static final class FifoCache
+	{
+		private final int[] missedAt;
+		private int clock = 0;
+
+		FifoCache(int vertexCount)
+		{
+			missedAt = new int[vertexCount];
+			Arrays.fill(missedAt, -CACHE_SIZE - 1);
+		}
+
+		/**
+		 * @return 1 if the vertex missed the cache, or 0 if it hit
+		 */
+		int access(int vertex)
+		{
+			if(clock - missedAt[vertex] > CACHE_SIZE)
+			{
+				missedAt[vertex] = clock++;
+				return 1;
+			}
+			return 0;
+		}
+
+		void clear()
+		{
+			clock += CACHE_SIZE + 1;
+		}
+
+		int access(int[] indices, int triangle)
+		{
+			return access(indices[3 * triangle]) + access(indices[3 * triangle + 1]) + access(indices[3 * triangle + 2]);
+		}
+	}
+
+	/**
+	 * Reorder {@code count / 3} triangles in place to reduce overdraw.
+	 * @param positions vertex positions, with {@code positionStride} floats from the start of one to the next
+	 * @param vertexCount the number of vertices the indices refer to
+	 * @param threshold how much worse than the original a cluster's ACMR may be, as a factor of at least 1. Higher
+	 *                  values give smaller clusters, which can be sorted more precisely; 1.05 is a good start.
+	 * @throws IllegalArgumentException if the indices aren't whole triangles or are out of range
+	 */
+	public static void optimize(int[] indices, int offset, int count, float[] positions, int positionOffset,
+	                            int positionStride, int vertexCount, float threshold)
+	{
+		Indices.checkTriangles(indices, offset, count, vertexCount);
+		checkArgument(threshold >= 1, "Threshold must be at least 1");
+		checkArgument(positionStride >= 3, "Position stride must be at least 3");
+		checkArgument(vertexCount == 0 || positionOffset >= 0 &&
+			(long) positionOffset + (long) (vertexCount - 1) * positionStride + 3 <= positions.length,
+			"Positions can't hold %s vertices", vertexCount);
+		int triangleCount = count / 3;
+		if(triangleCount == 0)
+		{
+			return;
+		}
+		int[] triangles = Arrays.copyOfRange(indices, offset, offset + count);
+
+		int[] clusterStarts = clusters(triangles, triangleCount, vertexCount, threshold);
+		int clusterCount = clusterStarts.length - 1;
+
+		// Area-weighted normals and centroids, first per cluster and then for the whole mesh
+		Vector3[] normals = new Vector3[clusterCount];
+		Vector3[] centroids = new Vector3[clusterCount];
+		float[] areas = new float[clusterCount];
+		float meshX = 0, meshY = 0, meshZ = 0, meshArea = 0;
+		for(int cluster = 0; cluster < clusterCount; cluster++)
+		{
+			float normalX = 0, normalY = 0, normalZ = 0;
+			float centroidX = 0, centroidY = 0, centroidZ = 0, area = 0;
+			for(int t = clusterStarts[cluster]; t < clusterStarts[cluster + 1]; t++)
+			{
+				int a = positionOffset + triangles[3 * t] * positionStride;
+				int b = positionOffset + triangles[3 * t + 1] * positionStride;
+				int c = positionOffset + triangles[3 * t + 2] * positionStride;
+				float abX = positions[b] - positions[a], abY = positions[b + 1] - positions[a + 1], abZ = positions[b + 2] - positions[a + 2];
+				float acX = positions[c] - positions[a], acY = positions[c + 1] - positions[a + 1], acZ = positions[c + 2] - positions[a + 2];
+				// The cross product's length is twice the triangle's area
+				float crossX = abY * acZ - abZ * acY;
+				float crossY = abZ * acX - abX * acZ;
+				float crossZ = abX * acY - abY * acX;
+				float triangleArea = (float) Math.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ);
+				normalX += crossX;
+				normalY += crossY;
+				normalZ += crossZ;
+				centroidX += triangleArea * (positions[a] + positions[b] + positions[c]) / 3;
+				centroidY += triangleArea * (positions[a + 1] + positions[b + 1] + positions[c + 1]) / 3;
+				centroidZ += triangleArea * (positions[a + 2] + positions[b + 2] + positions[c + 2]) / 3;
+				area += triangleArea;
+			}
+			meshX += centroidX;
+			meshY += centroidY;
+			meshZ += centroidZ;
+			meshArea += area;
+			normals[cluster] = new Vector3(normalX, normalY, normalZ);
+			centroids[cluster] = area > 0 ? new Vector3(centroidX / area, centroidY / area, centroidZ / area) : null;
+			areas[cluster] = area;
+		}
+		Vector3 meshCentroid = meshArea > 0 ? new Vector3(meshX / meshArea, meshY / meshArea, meshZ / meshArea) :
+			new Vector3(0, 0, 0);
+
+		final float[] keys = new float[clusterCount];
+		Integer[] order = new Integer[clusterCount];
+		for(int cluster = 0; cluster < clusterCount; cluster++)
+		{
+			order[cluster] = cluster;
+			// Degenerate clusters (no area, or normals that cancel out) have nothing to occlude, so they go last
+			float normalLength = normals[cluster].length();
+			keys[cluster] = areas[cluster] > 0 && normalLength > 0 ?
+				centroids[cluster].subtract(meshCentroid).dot(normals[cluster]) / normalLength :
+				Float.NEGATIVE_INFINITY;
+		}
+		// The sort is stable, so clusters that tie keep their cache-friendly order
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer a, Integer b)
+			{
+				return Float.compare(keys[b], keys[a]);
+			}
+		});
+
+		int out = offset;
+		for(int cluster : order)
+		{
+			int start = 3 * clusterStarts[cluster];
+			int length = 3 * clusterStarts[cluster + 1] - start;
+			System.arraycopy(triangles, start, indices, out, length);
+			out += length;
+		}
+	}
+
+	/**
+	 * Split the triangles into clusters.
+	 * @return the first triangle of each cluster, followed by the triangle count
+	 */
+	private static int[] clusters(int[] triangles, int triangleCount, int vertexCount, float threshold)
+	{
+		FifoCache cache = new FifoCache(vertexCount);
+
+		// Hard boundaries, where the cache missed all three vertices and so effectively started over. The first triangle
+		// always starts one, even if it's degenerate and can't miss three times.
+		int[] hard = new int[triangleCount + 1];
+		int hardCount = 0;
+		hard[hardCount++] = 0;
+		cache.access(triangles, 0);
+		for(int t = 1; t < triangleCount; t++)
+		{
+			if(cache.access(triangles, t) == 3)
+			{
+				hard[hardCount++] = t;
+			}
+		}
+		hard[hardCount] = triangleCount;
+
+		// Soft boundaries, wherever the cluster so far is already about as efficient as the whole hard cluster
+		int[] starts = new int[triangleCount + 1];
+		int clusterCount = 0;
+		for(int h = 0; h < hardCount; h++)
+		{
+			int start = hard[h], end = hard[h + 1];
+			cache.clear();
+			int clusterMisses = 0;
+			for(int t = start; t < end; t++)
+			{
+				clusterMisses += cache.access(triangles, t);
+			}
+			float clusterThreshold = threshold * clusterMisses / (end - start);
+
+			cache.clear();
+			starts[clusterCount++] = start;
+			int misses = 0, faces = 0;
+			for(int t = start; t < end; t++)
+			{
+				misses += cache.access(triangles, t);
+				faces++;
+				if(misses <= clusterThreshold * faces && t + 1 < end)
+				{
+					starts[clusterCount++] = t + 1;
+					cache.clear();
+					misses = 0;
+					faces = 0;
+				}
+			}
+		}
+		starts[clusterCount] = triangleCount;
+		return Arrays.copyOf(starts, clusterCount + 1);
+	}
+
+	/**
+	 * Reorder the triangles from the buffer's position to its limit in place, leaving the position where it is.
+	 * @see #optimize(int[], int, int, float[], int, int, int, float)
+	 */
+	public static void optimize(IntBuffer indices, float[] positions, int positionOffset, int positionStride,
+	                            int vertexCount, float threshold)
+	{
+		int[] array = Indices.read(indices);
+		optimize(array, 0, array.length, positions, positionOffset, positionStride, vertexCount, threshold);
+		Indices.write(array, indices);
+	}
+
+	/**
+	 * Reorder the triangles from the buffer's position to its limit in place, leaving the position where it is. The
+	 * indices are unsigned.
+	 * @see #optimize(int[], int, int, float[], int, int, int, float)
+	 */
+	public static void optimize(ShortBuffer indices, float[] positions, int positionOffset, int positionStride,
+	                            int vertexCount, float threshold)
+	{
+		int[] array = Indices.read(indices);
+		optimize(array, 0, array.length, positions, positionOffset, positionStride, vertexCount, threshold);
+		Indices.write(array, indices);
+	}
+}
@@ -0,0 +1,770 @@
+package galu.mesh;
+
+import galu.matrix.Matrix4;
+import galu.util.SharedPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Simplifies indexed triangle meshes by collapsing edges, ordered by Garland and Heckbert's quadric error metric, to
+ * build levels of detail.
+ * <p>
+ * Every vertex starts with a quadric: the sum of the 4x4 matrices {@code p p^T} of the planes {@code p} of its
+ * triangles, weighted by their areas, so that {@code (x, y, z, 1) Q (x, y, z, 1)^T} is the weighted sum of squared
+ * distances from {@code (x, y, z)} to those planes (see {@link #quadric(int)}). Collapsing an edge moves one vertex onto
+ * the other and adds their quadrics. Collapses are half-edge collapses: the remaining vertex keeps its position and
+ * attributes, so the simplified triangles index the original vertex buffer and no new vertices are made. Candidate
+ * collapses are kept in a heap and the cheapest one is made first; ones that would flip a triangle over are skipped.
+ * <p>
+ * The error of a collapse is the root of the area-weighted mean of its squared distances, so it's in the mesh's units
+ * of length. Vertices can carry attributes after their position, such as normals and texture coordinates, and each
+ * attribute component can be given a weight. Then each triangle also adds, for every weighted component, a quadric of
+ * how far the component's value strays from its linear interpolation over the triangle, as in Hoppe's "New quadric
+ * metric for simplifying meshes with appearance attributes", and the weighted deviation counts towards the error.
+ * <p>
+ * By default, vertices on the mesh's borders and on attribute seams (vertices split because they share a position but
+ * not their attributes) are locked, so the outline of an open mesh doesn't shrink and seams don't crack open.
+ * <p>
+ * Simplification stops at a target triangle count or when the next collapse would cost more than an error budget,
+ * whichever comes first. {@link #lodChain} emits a whole chain of levels in one pass, snapshotting the mesh as it passes
+ * each target, and {@link #lodChains} does that for many meshes in parallel. Each run starts over from the original
+ * mesh, so a simplifier can be reused, and even run on several threads at once as long as its settings aren't changed
+ * meanwhile.
+ */
+public final class Simplifier
+{
+	// The unique elements of a symmetric quadric, a00 a01 a02 a11 a12 a22 b0 b1 b2 c, for the quadratic form
+	// p^T A p + 2 b.p + c. That's the 4x4 matrix [A b; b^T c].
+	private static final int QUADRIC_SIZE = 10;
+
+	// Per attribute component, a quadric plus the area-weighted gradient (3) and offset (1) of the component's linear
+	// interpolation, which are needed to account for the value the component is collapsed to
+	private static final int ATTRIBUTE_SIZE = QUADRIC_SIZE + 4;
+
+	private final float[] vertices;
+	private final int stride;
+	private final int vertexCount;
+	private final int[] indices;
+	private final int attributeCount;
+
+	// Per vertex: the total area weight, the position quadric, and then the attribute quadrics
+	private final int recordSize;
+	private final double[] quadrics;
+	private final boolean[] border;
+	private final boolean[] seam;
+
+	private float[] attributeWeights;
+	private boolean lockBorders = true;
+	private boolean lockSeams = true;
+
+	/**
+	 * Prepare to simplify {@code count / 3} triangles.
+	 * @param vertices the vertex buffer, with a position in the first three floats of each vertex and attributes after it
+	 * @param stride the number of floats per vertex, at least 3
+	 * @throws IllegalArgumentException if the indices aren't whole triangles or are out of range
+	 */
+	public Simplifier(float[] vertices, int stride, int vertexCount, int[] indices, int offset, int count)
+	{
+		checkNotNull(vertices, "vertices");
+		checkArgument(stride >= 3, "Stride must be at least 3");
+		checkArgument(vertexCount >= 0 && (long) vertexCount * stride <= vertices.length,
+			"Vertex buffer can't hold %s vertices", vertexCount);
+		Indices.checkTriangles(indices, offset, count, vertexCount);
+		this.vertices = vertices;
+		this.stride = stride;
+		this.vertexCount = vertexCount;
+		this.indices = Arrays.copyOfRange(indices, offset, offset + count);
+		this.attributeCount = stride - 3;
+		this.attributeWeights = new float[attributeCount];
+		this.recordSize = 1 + QUADRIC_SIZE + attributeCount * ATTRIBUTE_SIZE;
+		this.quadrics = new double[vertexCount * recordSize];
+		this.border = new boolean[vertexCount];
+		this.seam = new boolean[vertexCount];
+		computeQuadrics();
+		findBorders();
+		findSeams();
+	}
+
+	/**
+	 * Set how much each attribute component counts towards the error, in units of length per unit of the attribute. For
+	 * example, a weight of 0.5 for a texture coordinate makes straying by 0.1 cost as much as moving by 0.05. Components
+	 * without a weight (including all of them, by default) are ignored.
+	 */
+	public void setAttributeWeights(float... weights)
+	{
+		checkArgument(weights.length <= attributeCount, "Vertices only have %s attribute components", attributeCount);
+		attributeWeights = Arrays.copyOf(weights, attributeCount);
+	}
+
+	/**
+	 * Set whether vertices on the mesh's open borders are kept in place. They are by default; without this, the borders
+	 * of an open mesh tend to shrink.
+	 */
+	public void setLockBorders(boolean lockBorders)
+	{
+		this.lockBorders = lockBorders;
+	}
+
+	/**
+	 * Set whether vertices on attribute seams are kept in place. They are by default; without this, simplifying one side
+	 * of a seam differently from the other opens cracks in the mesh.
+	 */
+	public void setLockSeams(boolean lockSeams)
+	{
+		this.lockSeams = lockSeams;
+	}
+
+	public int triangleCount()
+	{
+		return indices.length / 3;
+	}
+
+	/**
+	 * @return the position quadric of a vertex in the original mesh, as a 4x4 matrix
+	 */
+	public Matrix4 quadric(int vertex)
+	{
+		checkElementIndex(vertex, vertexCount);
+		int q = vertex * recordSize + 1;
+		return new Matrix4(
+			(float) quadrics[q],     (float) quadrics[q + 1], (float) quadrics[q + 2], (float) quadrics[q + 6],
+			(float) quadrics[q + 1], (float) quadrics[q + 3], (float) quadrics[q + 4], (float) quadrics[q + 7],
+			(float) quadrics[q + 2], (float) quadrics[q + 4], (float) quadrics[q + 5], (float) quadrics[q + 8],
+			(float) quadrics[q + 6], (float) quadrics[q + 7], (float) quadrics[q + 8], (float) quadrics[q + 9]
+		);
+	}
+
+	/**
+	 * Simplify the mesh down to {@code targetTriangles}, or as far as possible within {@code maxError}.
+	 */
+	public Lod simplify(int targetTriangles, float maxError)
+	{
+		checkArgument(targetTriangles >= 0, "Target triangle count must not be negative");
+		checkArgument(maxError >= 0, "Error budget must not be negative");
+		List<Lod> lods = new Collapser().run(new int[] {targetTriangles}, maxError);
+		return lods.get(lods.size() - 1);
+	}
+
+	/**
+	 * Simplify the mesh into a chain of levels of detail, in one pass.
+	 * @param ratios the triangle count of each level as a fraction of the original count, in decreasing order
+	 * @return the levels, simplest last. There is one for each ratio, unless the error budget runs out first: then the
+	 * chain is shorter than {@code ratios}, and ends with the simplest mesh within the budget in place of the levels
+	 * that weren't reached.
+	 */
+	public List<Lod> lodChain(float[] ratios, float maxError)
+	{
+		checkArgument(maxError >= 0, "Error budget must not be negative");
+		int[] targets = new int[ratios.length];
+		for(int i = 0; i < ratios.length; i++)
+		{
+			checkArgument(ratios[i] >= 0 && ratios[i] <= 1, "Ratio %s is not between 0 and 1", ratios[i]);
+			checkArgument(i == 0 || ratios[i] <= ratios[i - 1], "Ratios must be in decreasing order");
+			targets[i] = (int) (ratios[i] * triangleCount());
+		}
+		return new Collapser().run(targets, maxError);
+	}
+
+	/**
+	 * Build a level of detail chain for each mesh, in parallel on the {@link SharedPool shared pool}.
+	 * @see #lodChain(float[], float)
+	 */
+	public static List<List<Lod>> lodChains(List<Simplifier> simplifiers, float[] ratios, float maxError)
+	{
+		return lodChains(simplifiers, ratios, maxError, SharedPool.get());
+	}
+
+	/**
+	 * Build a level of detail chain for each mesh, in parallel.
+	 * @param pool the pool to simplify the meshes on
+	 * @return the chains, in the same order as the meshes
+	 * @see #lodChain(float[], float)
+	 */
+	public static List<List<Lod>> lodChains(List<Simplifier> simplifiers, float[] ratios, float maxError, ForkJoinPool pool)
+	{
+		checkNotNull(pool, "pool");
+		List<List<Lod>> chains = new ArrayList<>(Collections.<List<Lod>>nCopies(simplifiers.size(), null));
+		if(!simplifiers.isEmpty())
+		{
+			pool.invoke(new ChainTask(simplifiers, ratios, maxError, chains, 0, simplifiers.size()));
+		}
+		return chains;
+	}
+
+	@SuppressWarnings("serial")
+	private static final class ChainTask extends RecursiveAction
+	{
+		private final List<Simplifier> simplifiers;
+		private final float[] ratios;
+		private final float maxError;
+		private final List<List<Lod>> chains;
+		private final int start, end;
+
+		ChainTask(List<Simplifier> simplifiers, float[] ratios, float maxError, List<List<Lod>> chains, int start, int end)
+		{
+			this.simplifiers = simplifiers;
+			this.ratios = ratios;
+			this.maxError = maxError;
+			this.chains = chains;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(end - start == 1)
+			{
+				chains.set(start, simplifiers.get(start).lodChain(ratios, maxError));
+			}
+			else
+			{
+				int middle = (start + end) >>> 1;
+				invokeAll(new ChainTask(simplifiers, ratios, maxError, chains, start, middle),
+					new ChainTask(simplifiers, ratios, maxError, chains, middle, end));
+			}
+		}
+	}
+
+	private void computeQuadrics()
+	{
+		double[] gradient = new double[3];
+		for(int t = 0; t < indices.length; t += 3)
+		{
+			int i0 = indices[t] * stride, i1 = indices[t + 1] * stride, i2 = indices[t + 2] * stride;
+			double e1x = vertices[i1] - vertices[i0], e1y = vertices[i1 + 1] - vertices[i0 + 1], e1z = vertices[i1 + 2] - vertices[i0 + 2];
+			double e2x = vertices[i2] - vertices[i0], e2y = vertices[i2 + 1] - vertices[i0 + 1], e2z = vertices[i2 + 2] - vertices[i0 + 2];
+			double nx = e1y * e2z - e1z * e2y;
+			double ny = e1z * e2x - e1x * e2z;
+			double nz = e1x * e2y - e1y * e2x;
+			double lengthSquared = nx * nx + ny * ny + nz * nz;
+			if(lengthSquared == 0)
+			{
+				// A degenerate triangle has no plane
+				continue;
+			}
+			double length = Math.sqrt(lengthSquared);
+			double area = length / 2;
+			double px = vertices[i0], py = vertices[i0 + 1], pz = vertices[i0 + 2];
+			double ux = nx / length, uy = ny / length, uz = nz / length;
+			double d = -(ux * px + uy * py + uz * pz);
+
+			// e2 x n and n x e1, which turn differences of an attribute along the edges into its gradient
+			double fx = e2y * nz - e2z * ny, fy = e2z * nx - e2x * nz, fz = e2x * ny - e2y * nx;
+			double gx = ny * e1z - nz * e1y, gy = nz * e1x - nx * e1z, gz = nx * e1y - ny * e1x;
+
+			for(int corner = 0; corner < 3; corner++)
+			{
+				int record = indices[t + corner] * recordSize;
+				quadrics[record] += area;
+				addQuadric(quadrics, record + 1, area, ux, uy, uz, d);
+			}
+
+			for(int k = 0; k < attributeCount; k++)
+			{
+				double a0 = vertices[i0 + 3 + k];
+				double d1 = vertices[i1 + 3 + k] - a0, d2 = vertices[i2 + 3 + k] - a0;
+				gradient[0] = (d1 * fx + d2 * gx) / lengthSquared;
+				gradient[1] = (d1 * fy + d2 * gy) / lengthSquared;
+				gradient[2] = (d1 * fz + d2 * gz) / lengthSquared;
+				double offset = a0 - (gradient[0] * px + gradient[1] * py + gradient[2] * pz);
+				for(int corner = 0; corner < 3; corner++)
+				{
+					int q = indices[t + corner] * recordSize + 1 + QUADRIC_SIZE + k * ATTRIBUTE_SIZE;
+					addQuadric(quadrics, q, area, gradient[0], gradient[1], gradient[2], offset);
+					quadrics[q + QUADRIC_SIZE] += area * gradient[0];
+					quadrics[q + QUADRIC_SIZE + 1] += area * gradient[1];
+					quadrics[q + QUADRIC_SIZE + 2] += area * gradient[2];
+					quadrics[q + QUADRIC_SIZE + 3] += area * offset;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add {@code weight} times the quadric of {@code (x, y, z) . p + d}.
+	 */
+	private static void addQuadric(double[] quadrics, int q, double weight, double x, double y, double z, double d)
+	{
+		quadrics[q] += weight * x * x;
+		quadrics[q + 1] += weight * x * y;
+		quadrics[q + 2] += weight * x * z;
+		quadrics[q + 3] += weight * y * y;
+		quadrics[q + 4] += weight * y * z;
+		quadrics[q + 5] += weight * z * z;
+		quadrics[q + 6] += weight * x * d;
+		quadrics[q + 7] += weight * y * d;
+		quadrics[q + 8] += weight * z * d;
+		quadrics[q + 9] += weight * d * d;
+	}
+
+	private static double evaluate(double[] quadrics, int q, double x, double y, double z)
+	{
+		return quadrics[q] * x * x + quadrics[q + 3] * y * y + quadrics[q + 5] * z * z
+			+ 2 * (quadrics[q + 1] * x * y + quadrics[q + 2] * x * z + quadrics[q + 4] * y * z)
+			+ 2 * (quadrics[q + 6] * x + quadrics[q + 7] * y + quadrics[q + 8] * z)
+			+ quadrics[q + 9];
+	}
+
+	private void findBorders()
+	{
+		// An edge is on a border if only one triangle uses it. Key each edge by its vertices in order, so that sorting
+		// puts the copies of an edge next to each other.
+		int edgeCount = indices.length;
+		long[] edges = new long[edgeCount];
+		for(int t = 0; t < indices.length; t += 3)
+		{
+			for(int corner = 0; corner < 3; corner++)
+			{
+				int a = indices[t + corner], b = indices[t + (corner + 1) % 3];
+				edges[t + corner] = (long) Math.min(a, b) << 32 | Math.max(a, b);
+			}
+		}
+		Arrays.sort(edges);
+		for(int i = 0; i < edgeCount; )
+		{
+			int j = i + 1;
+			while(j < edgeCount && edges[j] == edges[i])
+			{
+				j++;
+			}
+			if(j - i == 1)
+			{
+				border[(int) (edges[i] >>> 32)] = true;
+				border[(int) edges[i]] = true;
+			}
+			i = j;
+		}
+	}
+
+	private void findSeams()
+	{
+		// Vertices with exactly the same position are copies of one vertex, split for their attributes
+		Integer[] order = new Integer[vertexCount];
+		for(int v = 0; v < vertexCount; v++)
+		{
+			order[v] = v;
+		}
+		Comparator<Integer> byPosition = new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer a, Integer b)
+			{
+				for(int k = 0; k < 3; k++)
+				{
+					int c = Float.compare(vertices[a * stride + k], vertices[b * stride + k]);
+					if(c != 0)
+					{
+						return c;
+					}
+				}
+				return 0;
+			}
+		};
+		Arrays.sort(order, byPosition);
+		for(int i = 1; i < vertexCount; i++)
+		{
+			if(byPosition.compare(order[i - 1], order[i]) == 0)
+			{
+				seam[order[i - 1]] = true;
+				seam[order[i]] = true;
+			}
+		}
+	}
+
+	/**
+	 * The state of one simplification run.
+	 */
+	private final class Collapser
+	{
+		private final int[] triangles = indices.clone();
+		private final double[] q = quadrics.clone();
+		private final boolean[] locked = new boolean[vertexCount];
+		private final boolean[] removed = new boolean[vertexCount];
+		private final boolean[] deadTriangles = new boolean[triangles.length / 3];
+		private final int[] versions = new int[vertexCount];
+		private int liveTriangles = triangles.length / 3;
+		private float maxCollapseError = 0;
+
+		// Each vertex's triangles, as linked lists that can be joined in constant time. Lists may hold dead triangles.
+		private final int[] head = new int[vertexCount];
+		private final int[] tail = new int[vertexCount];
+		private final int[] nodeTriangle = new int[triangles.length];
+		private final int[] nodeNext = new int[triangles.length];
+
+		private final CollapseHeap heap = new CollapseHeap();
+
+		Collapser()
+		{
+			for(int v = 0; v < vertexCount; v++)
+			{
+				locked[v] = lockSeams && seam[v] || lockBorders && border[v] && !seam[v];
+				head[v] = -1;
+				tail[v] = -1;
+			}
+			for(int i = triangles.length - 1; i >= 0; i--)
+			{
+				int v = triangles[i];
+				nodeTriangle[i] = i / 3;
+				nodeNext[i] = head[v];
+				head[v] = i;
+				if(tail[v] < 0)
+				{
+					tail[v] = i;
+				}
+			}
+			for(int t = 0; t < triangles.length; t += 3)
+			{
+				for(int corner = 0; corner < 3; corner++)
+				{
+					int a = triangles[t + corner], b = triangles[t + (corner + 1) % 3];
+					push(a, b);
+					push(b, a);
+				}
+			}
+		}
+
+		private void push(int from, int to)
+		{
+			if(!locked[from] && from != to)
+			{
+				heap.push((float) cost(from, to), from, to, versions[from], versions[to]);
+			}
+		}
+
+		/**
+		 * @return the error of moving {@code from} onto {@code to}
+		 */
+		private double cost(int from, int to)
+		{
+			int position = to * stride;
+			double x = vertices[position], y = vertices[position + 1], z = vertices[position + 2];
+			int a = from * recordSize, b = to * recordSize;
+			double weight = q[a] + q[b];
+			if(weight <= 0)
+			{
+				return 0;
+			}
+			double error = evaluate(q, a + 1, x, y, z) + evaluate(q, b + 1, x, y, z);
+			for(int k = 0; k < attributeCount; k++)
+			{
+				float attributeWeight = attributeWeights[k];
+				if(attributeWeight != 0)
+				{
+					double value = vertices[position + 3 + k];
+					int offset = 1 + QUADRIC_SIZE + k * ATTRIBUTE_SIZE;
+					double attributeError = evaluate(q, a + offset, x, y, z) + evaluate(q, b + offset, x, y, z);
+					// The quadric is of the interpolated value; this subtracts the value the vertex will actually have
+					int s = offset + QUADRIC_SIZE;
+					double interpolated = (q[a + s] + q[b + s]) * x + (q[a + s + 1] + q[b + s + 1]) * y
+						+ (q[a + s + 2] + q[b + s + 2]) * z + q[a + s + 3] + q[b + s + 3];
+					attributeError += value * (value * weight - 2 * interpolated);
+					error += attributeWeight * attributeWeight * attributeError;
+				}
+			}
+			return Math.sqrt(Math.max(error, 0) / weight);
+		}
+
+		List<Lod> run(int[] targets, float maxError)
+		{
+			List<Lod> lods = new ArrayList<>();
+			int level = 0;
+			while(level < targets.length && liveTriangles <= targets[level])
+			{
+				lods.add(snapshot());
+				level++;
+			}
+			boolean changed = false;
+			while(level < targets.length && !heap.isEmpty())
+			{
+				float error = heap.topError();
+				if(error > maxError)
+				{
+					break;
+				}
+				int from = heap.topFrom(), to = heap.topTo();
+				boolean current = !removed[from] && !removed[to] &&
+					heap.topFromVersion() == versions[from] && heap.topToVersion() == versions[to];
+				heap.pop();
+				if(!current || flips(from, to))
+				{
+					continue;
+				}
+				collapse(from, to);
+				maxCollapseError = Math.max(maxCollapseError, error);
+				changed = true;
+				while(level < targets.length && liveTriangles <= targets[level])
+				{
+					lods.add(snapshot());
+					level++;
+					changed = false;
+				}
+			}
+			if(changed || lods.isEmpty())
+			{
+				lods.add(snapshot());
+			}
+			return lods;
+		}
+
+		/**
+		 * @return whether moving {@code from} onto {@code to} would turn any of the triangles around {@code from} over
+		 */
+		private boolean flips(int from, int to)
+		{
+			int p = to * stride;
+			for(int node = head[from]; node >= 0; node = nodeNext[node])
+			{
+				int t = 3 * nodeTriangle[node];
+				if(deadTriangles[t / 3])
+				{
+					continue;
+				}
+				int a = triangles[t], b = triangles[t + 1], c = triangles[t + 2];
+				if(a == to || b == to || c == to)
+				{
+					// This one collapses away
+					continue;
+				}
+				// Rotate the triangle so the moving vertex comes first
+				if(b == from)
+				{
+					b = c;
+					c = a;
+				}
+				else if(c == from)
+				{
+					c = b;
+					b = a;
+				}
+				int pf = from * stride, pb = b * stride, pc = c * stride;
+				float bcx = vertices[pc] - vertices[pb], bcy = vertices[pc + 1] - vertices[pb + 1], bcz = vertices[pc + 2] - vertices[pb + 2];
+				float oldX = vertices[pb] - vertices[pf], oldY = vertices[pb + 1] - vertices[pf + 1], oldZ = vertices[pb + 2] - vertices[pf + 2];
+				float newX = vertices[pb] - vertices[p], newY = vertices[pb + 1] - vertices[p + 1], newZ = vertices[pb + 2] - vertices[p + 2];
+				// The normals before and after, from the edge opposite the moving vertex
+				float n0x = oldY * bcz - oldZ * bcy, n0y = oldZ * bcx - oldX * bcz, n0z = oldX * bcy - oldY * bcx;
+				float n1x = newY * bcz - newZ * bcy, n1y = newZ * bcx - newX * bcz, n1z = newX * bcy - newY * bcx;
+				if(n0x * n1x + n0y * n1y + n0z * n1z <= 0)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void collapse(int from, int to)
+		{
+			int a = from * recordSize, b = to * recordSize;
+			for(int i = 0; i < recordSize; i++)
+			{
+				q[b + i] += q[a + i];
+			}
+			for(int node = head[from]; node >= 0; node = nodeNext[node])
+			{
+				int t = 3 * nodeTriangle[node];
+				if(deadTriangles[t / 3])
+				{
+					continue;
+				}
+				if(triangles[t] == to || triangles[t + 1] == to || triangles[t + 2] == to)
+				{
+					deadTriangles[t / 3] = true;
+					liveTriangles--;
+					continue;
+				}
+				for(int corner = 0; corner < 3; corner++)
+				{
+					if(triangles[t + corner] == from)
+					{
+						triangles[t + corner] = to;
+					}
+				}
+			}
+			if(head[from] >= 0)
+			{
+				if(head[to] < 0)
+				{
+					head[to] = head[from];
+				}
+				else
+				{
+					nodeNext[tail[to]] = head[from];
+				}
+				tail[to] = tail[from];
+			}
+			removed[from] = true;
+			versions[to]++;
+
+			// Push the new costs of the edges around the merged vertex, and drop dead triangles from its list on the way
+			int previous = -1;
+			for(int node = head[to]; node >= 0; node = nodeNext[node])
+			{
+				int t = 3 * nodeTriangle[node];
+				if(deadTriangles[t / 3])
+				{
+					if(previous < 0)
+					{
+						head[to] = nodeNext[node];
+					}
+					else
+					{
+						nodeNext[previous] = nodeNext[node];
+					}
+					continue;
+				}
+				previous = node;
+				for(int corner = 0; corner < 3; corner++)
+				{
+					int other = triangles[t + corner];
+					if(other != to)
+					{
+						push(other, to);
+						push(to, other);
+					}
+				}
+			}
+			tail[to] = previous;
+		}
+
+		private Lod snapshot()
+		{
+			int[] result = new int[3 * liveTriangles];
+			int out = 0;
+			for(int t = 0; t < triangles.length; t += 3)
+			{
+				if(!deadTriangles[t / 3])
+				{
+					result[out++] = triangles[t];
+					result[out++] = triangles[t + 1];
+					result[out++] = triangles[t + 2];
+				}
+			}
+			return new Lod(result, maxCollapseError);
+		}
+	}
+
+	/**
+	 * A binary min-heap of candidate collapses, in parallel arrays so that pushing one doesn't allocate. Entries aren't
+	 * removed when they go stale; they carry the versions of their vertices, and are checked when they reach the top.
+	 */
+	private static final class CollapseHeap
+	{
+		private float[] errors = new float[64];
+		private int[] from = new int[64];
+		private int[] to = new int[64];
+		private int[] fromVersions = new int[64];
+		private int[] toVersions = new int[64];
+		private int size = 0;
+
+		boolean isEmpty()
+		{
+			return size == 0;
+		}
+
+		float topError()
+		{
+			return errors[0];
+		}
+
+		int topFrom()
+		{
+			return from[0];
+		}
+
+		int topTo()
+		{
+			return to[0];
+		}
+
+		int topFromVersion()
+		{
+			return fromVersions[0];
+		}
+
+		int topToVersion()
+		{
+			return toVersions[0];
+		}
+
+		void push(float error, int fromVertex, int toVertex, int fromVersion, int toVersion)
+		{
+			if(size == errors.length)
+			{
+				int capacity = 2 * size;
+				errors = Arrays.copyOf(errors, capacity);
+				from = Arrays.copyOf(from, capacity);
+				to = Arrays.copyOf(to, capacity);
+				fromVersions = Arrays.copyOf(fromVersions, capacity);
+				toVersions = Arrays.copyOf(toVersions, capacity);
+			}
+			int i = size++;
+			while(i > 0)
+			{
+				int parent = (i - 1) >>> 1;
+				if(errors[parent] <= error)
+				{
+					break;
+				}
+				move(parent, i);
+				i = parent;
+			}
+			set(i, error, fromVertex, toVertex, fromVersion, toVersion);
+		}
+
+		void pop()
+		{
+			size--;
+			if(size == 0)
+			{
+				return;
+			}
+			// Sift the last entry down from the top
+			float error = errors[size];
+			int fromVertex = from[size], toVertex = to[size], fromVersion = fromVersions[size], toVersion = toVersions[size];
+			int i = 0;
+			while(true)
+			{
+				int child = 2 * i + 1;
+				if(child >= size)
+				{
+					break;
+				}
+				if(child + 1 < size && errors[child + 1] < errors[child])
+				{
+					child++;
+				}
+				if(error <= errors[child])
+				{
+					break;
+				}
+				move(child, i);
+				i = child;
+			}
+			set(i, error, fromVertex, toVertex, fromVersion, toVersion);
+		}
+
+		private void move(int src, int dst)
+		{
+			set(dst, errors[src], from[src], to[src], fromVersions[src], toVersions[src]);
+		}
+
+		private void set(int i, float error, int fromVertex, int toVertex, int fromVersion, int toVersion)
+		{
+			errors[i] = error;
+			from[i] = fromVertex;
+			to[i] = toVertex;
+			fromVersions[i] = fromVersion;
+			toVersions[i] = toVersion;
+		}
+	}
+}
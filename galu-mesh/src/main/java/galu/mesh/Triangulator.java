@@ -0,0 +1,979 @@
+package galu.mesh;
+
+import galu.util.Checks;
+import galu.vector.Vector2;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Triangulates polygons with holes, such as glyph outlines, by ear clipping.
+ * <p>
+ * The input is a set of closed contours, given either as lists of {@link Vector2}s or as packed {@code x, y} pairs with
+ * the index of the end of each contour. Contours may be in any order and either winding. Which ones are holes is decided
+ * by their nesting, by the even-odd rule: a contour inside no other one is an outer boundary, a contour inside one is a
+ * hole in it, a contour inside that hole is an island and so on, so glyphs like "O", "B", or "&reg;" come out right.
+ * Contours mustn't cross each other. Contours with fewer than three points or no area are skipped, and repeated and
+ * collinear points are dropped.
+ * <p>
+ * Each polygon's holes are joined to its outer boundary by bridges to make one ring, which is then cut into triangles
+ * one ear at a time, following Mapbox's earcut. To keep finding ears from being quadratic, larger rings (more than 80
+ * points) are also linked in order along a z-order curve over their bounding box, so that only the points near an ear
+ * are checked against it. That makes typical outlines close to {@code O(n log n)}. Self-intersections and other bad
+ * input that leaves no ears are cured locally or by splitting the ring along a diagonal, so something reasonable always
+ * comes out.
+ * <p>
+ * Triangles are written to an {@link IntBuffer} or {@link ShortBuffer} at its position, counterclockwise when y points
+ * up, as indices of the input points in the order they were given. A triangulator keeps its working memory between
+ * calls, so re-triangulating dynamic text into a reused index buffer doesn't allocate once it has warmed up. It isn't
+ * thread-safe.
+ */
+public final class Triangulator
+{
+	private static final int NONE = -1;
+
+	// Rings with more points than this are hashed along a z-order curve
+	private static final int HASH_THRESHOLD = 80;
+
+	// The Vector2 contours, packed
+	private float[] packed = new float[64];
+	private int[] packedEnds = new int[4];
+
+	// Per contour
+	private double[] areas = new double[4];
+	private float[] bounds = new float[16];
+	private int[] depths = new int[4];
+	private int[] parents = new int[4];
+
+	// The nodes of the rings being clipped, in a pool of parallel arrays
+	private int nodeCount;
+	private int[] nodePoint = new int[64];
+	private double[] nodeX = new double[64];
+	private double[] nodeY = new double[64];
+	private int[] prev = new int[64];
+	private int[] next = new int[64];
+	private int[] z = new int[64];
+	private int[] prevZ = new int[64];
+	private int[] nextZ = new int[64];
+	private int[] holes = new int[4];
+
+	// Where triangles go
+	private IntBuffer intIndices;
+	private ShortBuffer shortIndices;
+	private int triangleCount;
+
+	/**
+	 * @return the most indices that triangulating {@code contourCount} contours of {@code pointCount} points in all can
+	 * write
+	 */
+	public static int maxIndexCount(int pointCount, int contourCount)
+	{
+		// A polygon of n points with h holes has n + 2h - 2 triangles
+		return 3 * Math.max(0, pointCount + 2 * contourCount - 4);
+	}
+
+	/**
+	 * Triangulate contours of {@link Vector2}s. The indices count the points of all contours in order.
+	 * @return the number of triangles written
+	 */
+	public int triangulate(List<? extends List<Vector2>> contours, IntBuffer indices)
+	{
+		int pointCount = pack(contours);
+		Checks.checkRemaining("Index buffer", indices.remaining(), maxIndexCount(pointCount, contours.size()));
+		intIndices = indices;
+		return run(packed, packedEnds, contours.size());
+	}
+
+	/**
+	 * Triangulate contours of {@link Vector2}s into 16-bit indices. The indices count the points of all contours in order.
+	 * @return the number of triangles written
+	 */
+	public int triangulate(List<? extends List<Vector2>> contours, ShortBuffer indices)
+	{
+		int pointCount = pack(contours);
+		checkShortIndices(pointCount);
+		Checks.checkRemaining("Index buffer", indices.remaining(), maxIndexCount(pointCount, contours.size()));
+		shortIndices = indices;
+		return run(packed, packedEnds, contours.size());
+	}
+
+	/**
+	 * Triangulate packed contours.
+	 * @param points the {@code x, y} pairs of the contours' points
+	 * @param contourEnds the index of the point after the end of each contour. Each contour starts where the previous
+	 * one ends, and the first starts at 0.
+	 * @return the number of triangles written
+	 */
+	public int triangulate(float[] points, int[] contourEnds, int contourCount, IntBuffer indices)
+	{
+		int pointCount = checkContours(points, contourEnds, contourCount);
+		Checks.checkRemaining("Index buffer", indices.remaining(), maxIndexCount(pointCount, contourCount));
+		intIndices = indices;
+		return run(points, contourEnds, contourCount);
+	}
+
+	/**
+	 * Triangulate packed contours into 16-bit indices.
+	 * @see #triangulate(float[], int[], int, IntBuffer)
+	 */
+	public int triangulate(float[] points, int[] contourEnds, int contourCount, ShortBuffer indices)
+	{
+		int pointCount = checkContours(points, contourEnds, contourCount);
+		checkShortIndices(pointCount);
+		Checks.checkRemaining("Index buffer", indices.remaining(), maxIndexCount(pointCount, contourCount));
+		shortIndices = indices;
+		return run(points, contourEnds, contourCount);
+	}
+
+	private int pack(List<? extends List<Vector2>> contours)
+	{
+		int pointCount = 0;
+		if(packedEnds.length < contours.size())
+		{
+			packedEnds = new int[Math.max(contours.size(), 2 * packedEnds.length)];
+		}
+		for(int c = 0; c < contours.size(); c++)
+		{
+			List<Vector2> contour = contours.get(c);
+			if(packed.length < 2 * (pointCount + contour.size()))
+			{
+				packed = Arrays.copyOf(packed, Math.max(2 * (pointCount + contour.size()), 2 * packed.length));
+			}
+			for(Vector2 point : contour)
+			{
+				packed[2 * pointCount] = point.x;
+				packed[2 * pointCount + 1] = point.y;
+				pointCount++;
+			}
+			packedEnds[c] = pointCount;
+		}
+		return pointCount;
+	}
+
+	/**
+	 * @return the number of points
+	 */
+	private static int checkContours(float[] points, int[] contourEnds, int contourCount)
+	{
+		Checks.checkArgument(contourCount >= 0 && contourCount <= contourEnds.length,
+			"%d contours given, but there are %d contour ends", contourCount, contourEnds.length);
+		int end = 0;
+		for(int c = 0; c < contourCount; c++)
+		{
+			if(contourEnds[c] < end)
+			{
+				throw new IllegalArgumentException(String.format(
+					"Contour %d ends at %d, before the previous one at %d", c, contourEnds[c], end));
+			}
+			end = contourEnds[c];
+		}
+		Checks.checkRange("Point array", points.length, 0, 2, 2, end);
+		return end;
+	}
+
+	private static void checkShortIndices(int pointCount)
+	{
+		Checks.checkArgument(pointCount <= 0x10000, "%d points can't be indexed with 16 bits", pointCount);
+	}
+
+	private int run(float[] points, int[] contourEnds, int contourCount)
+	{
+		triangleCount = 0;
+		try
+		{
+			classify(points, contourEnds, contourCount);
+			for(int c = 0; c < contourCount; c++)
+			{
+				if(depths[c] >= 0 && depths[c] % 2 == 0)
+				{
+					triangulatePolygon(points, contourEnds, contourCount, c);
+				}
+			}
+		}
+		finally
+		{
+			intIndices = null;
+			shortIndices = null;
+		}
+		return triangleCount;
+	}
+
+	/**
+	 * Find each contour's area, bounds, nesting depth (or -1 if it's degenerate), and the contour it's directly inside.
+	 */
+	private void classify(float[] points, int[] contourEnds, int contourCount)
+	{
+		if(areas.length < contourCount)
+		{
+			int capacity = Math.max(contourCount, 2 * areas.length);
+			areas = new double[capacity];
+			bounds = new float[4 * capacity];
+			depths = new int[capacity];
+			parents = new int[capacity];
+		}
+		for(int c = 0; c < contourCount; c++)
+		{
+			int start = c == 0 ? 0 : contourEnds[c - 1], end = contourEnds[c];
+			float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+			float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+			double area = 0;
+			for(int i = start, j = end - 1; i < end; j = i++)
+			{
+				float x = points[2 * i], y = points[2 * i + 1];
+				area += ((double) points[2 * j] - x) * ((double) points[2 * j + 1] + y);
+				minX = Math.min(minX, x);
+				minY = Math.min(minY, y);
+				maxX = Math.max(maxX, x);
+				maxY = Math.max(maxY, y);
+			}
+			// That's twice the area, positive when counterclockwise
+			areas[c] = area / 2;
+			bounds[4 * c] = minX;
+			bounds[4 * c + 1] = minY;
+			bounds[4 * c + 2] = maxX;
+			bounds[4 * c + 3] = maxY;
+			boolean finite = !Double.isNaN(area) && !Double.isInfinite(area);
+			depths[c] = end - start >= 3 && area != 0 && finite ? 0 : NONE;
+			parents[c] = NONE;
+		}
+
+		for(int c = 0; c < contourCount; c++)
+		{
+			if(depths[c] < 0)
+			{
+				continue;
+			}
+			float x = points[2 * (c == 0 ? 0 : contourEnds[c - 1])], y = points[2 * (c == 0 ? 0 : contourEnds[c - 1]) + 1];
+			for(int d = 0; d < contourCount; d++)
+			{
+				// Only a bigger contour can contain this one
+				if(d == c || depths[d] < 0 || Math.abs(areas[d]) <= Math.abs(areas[c]) || !boundsContain(d, c) ||
+					!contains(points, d == 0 ? 0 : contourEnds[d - 1], contourEnds[d], x, y))
+				{
+					continue;
+				}
+				depths[c]++;
+				if(parents[c] == NONE || Math.abs(areas[d]) < Math.abs(areas[parents[c]]))
+				{
+					parents[c] = d;
+				}
+			}
+		}
+	}
+
+	private boolean boundsContain(int outer, int inner)
+	{
+		return bounds[4 * outer] <= bounds[4 * inner] && bounds[4 * outer + 1] <= bounds[4 * inner + 1] &&
+			bounds[4 * outer + 2] >= bounds[4 * inner + 2] && bounds[4 * outer + 3] >= bounds[4 * inner + 3];
+	}
+
+	/**
+	 * @return whether a point is inside a contour, by the even-odd rule
+	 */
+	private static boolean contains(float[] points, int start, int end, float x, float y)
+	{
+		boolean inside = false;
+		for(int i = start, j = end - 1; i < end; j = i++)
+		{
+			float xi = points[2 * i], yi = points[2 * i + 1], xj = points[2 * j], yj = points[2 * j + 1];
+			if((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi)
+			{
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	private void triangulatePolygon(float[] points, int[] contourEnds, int contourCount, int outer)
+	{
+		nodeCount = 0;
+		int start = outer == 0 ? 0 : contourEnds[outer - 1], end = contourEnds[outer];
+		int ring = linkContour(points, contourEnds, outer, true);
+		if(ring == NONE || next[ring] == prev[ring])
+		{
+			return;
+		}
+
+		int holeCount = 0;
+		for(int c = 0; c < contourCount; c++)
+		{
+			if(parents[c] == outer && depths[c] == depths[outer] + 1)
+			{
+				int hole = linkContour(points, contourEnds, c, false);
+				if(hole != NONE && next[hole] != hole)
+				{
+					if(holeCount == holes.length)
+					{
+						holes = Arrays.copyOf(holes, 2 * holeCount);
+					}
+					holes[holeCount++] = leftmost(hole);
+				}
+			}
+		}
+		if(holeCount > 0)
+		{
+			ring = eliminateHoles(holeCount, ring);
+		}
+
+		double minX = 0, minY = 0, invSize = 0;
+		if(end - start > HASH_THRESHOLD)
+		{
+			minX = bounds[4 * outer];
+			minY = bounds[4 * outer + 1];
+			double size = Math.max(bounds[4 * outer + 2] - minX, bounds[4 * outer + 3] - minY);
+			invSize = size != 0 ? 32767 / size : 0;
+		}
+		clip(ring, minX, minY, invSize, 0);
+	}
+
+	/**
+	 * Link a contour into a ring, turning it counterclockwise or clockwise.
+	 * @return a node of the ring, or {@link #NONE} if it's empty
+	 */
+	private int linkContour(float[] points, int[] contourEnds, int contour, boolean counterclockwise)
+	{
+		int start = contour == 0 ? 0 : contourEnds[contour - 1], end = contourEnds[contour];
+		int last = NONE;
+		if(counterclockwise == areas[contour] > 0)
+		{
+			for(int i = start; i < end; i++)
+			{
+				last = insertNode(i, points[2 * i], points[2 * i + 1], last);
+			}
+		}
+		else
+		{
+			for(int i = end - 1; i >= start; i--)
+			{
+				last = insertNode(i, points[2 * i], points[2 * i + 1], last);
+			}
+		}
+		if(last != NONE && equal(last, next[last]))
+		{
+			int after = next[last];
+			removeNode(last);
+			last = after;
+		}
+		return last;
+	}
+
+	/**
+	 * Clip ears off a ring until it's gone. If no ears are left before then, try again without repeated and collinear
+	 * points, then with local self-intersections cut off, and finally by splitting the ring in two.
+	 */
+	private void clip(int ear, double minX, double minY, double invSize, int pass)
+	{
+		if(ear == NONE)
+		{
+			return;
+		}
+		if(pass == 0 && invSize != 0)
+		{
+			indexCurve(ear, minX, minY, invSize);
+		}
+
+		int stop = ear;
+		while(prev[ear] != next[ear])
+		{
+			int before = prev[ear], after = next[ear];
+			if(invSize != 0 ? isEarHashed(ear, minX, minY, invSize) : isEar(ear))
+			{
+				emit(before, ear, after);
+				removeNode(ear);
+				// Skipping the next vertex leaves fewer slivers
+				ear = next[after];
+				stop = next[after];
+				continue;
+			}
+
+			ear = after;
+			if(ear == stop)
+			{
+				if(pass == 0)
+				{
+					clip(filterPoints(ear, NONE), minX, minY, invSize, 1);
+				}
+				else if(pass == 1)
+				{
+					ear = cureLocalIntersections(filterPoints(ear, NONE));
+					clip(ear, minX, minY, invSize, 2);
+				}
+				else
+				{
+					splitAndClip(ear, minX, minY, invSize);
+				}
+				break;
+			}
+		}
+	}
+
+	private boolean isEar(int ear)
+	{
+		int a = prev[ear], b = ear, c = next[ear];
+		if(area(a, b, c) >= 0)
+		{
+			// Reflex
+			return false;
+		}
+		double ax = nodeX[a], ay = nodeY[a], bx = nodeX[b], by = nodeY[b], cx = nodeX[c], cy = nodeY[c];
+		double x0 = Math.min(ax, Math.min(bx, cx)), y0 = Math.min(ay, Math.min(by, cy));
+		double x1 = Math.max(ax, Math.max(bx, cx)), y1 = Math.max(ay, Math.max(by, cy));
+		for(int p = next[c]; p != a; p = next[p])
+		{
+			if(nodeX[p] >= x0 && nodeX[p] <= x1 && nodeY[p] >= y0 && nodeY[p] <= y1 &&
+				pointInTriangle(ax, ay, bx, by, cx, cy, nodeX[p], nodeY[p]) && area(prev[p], p, next[p]) >= 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isEarHashed(int ear, double minX, double minY, double invSize)
+	{
+		int a = prev[ear], b = ear, c = next[ear];
+		if(area(a, b, c) >= 0)
+		{
+			return false;
+		}
+		double ax = nodeX[a], ay = nodeY[a], bx = nodeX[b], by = nodeY[b], cx = nodeX[c], cy = nodeY[c];
+		double x0 = Math.min(ax, Math.min(bx, cx)), y0 = Math.min(ay, Math.min(by, cy));
+		double x1 = Math.max(ax, Math.max(bx, cx)), y1 = Math.max(ay, Math.max(by, cy));
+		int minZ = zOrder(x0, y0, minX, minY, invSize), maxZ = zOrder(x1, y1, minX, minY, invSize);
+
+		// Look both ways along the curve from the ear, while inside the triangle's z range
+		int p = prevZ[ear], n = nextZ[ear];
+		while(p != NONE && z[p] >= minZ && n != NONE && z[n] <= maxZ)
+		{
+			if(blocks(p, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy))
+			{
+				return false;
+			}
+			p = prevZ[p];
+			if(blocks(n, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy))
+			{
+				return false;
+			}
+			n = nextZ[n];
+		}
+		while(p != NONE && z[p] >= minZ)
+		{
+			if(blocks(p, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy))
+			{
+				return false;
+			}
+			p = prevZ[p];
+		}
+		while(n != NONE && z[n] <= maxZ)
+		{
+			if(blocks(n, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy))
+			{
+				return false;
+			}
+			n = nextZ[n];
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether node {@code p} is a reflex vertex inside the ear {@code a, b, c}
+	 */
+	private boolean blocks(int p, int a, int c, double x0, double y0, double x1, double y1,
+		double ax, double ay, double bx, double by, double cx, double cy)
+	{
+		return nodeX[p] >= x0 && nodeX[p] <= x1 && nodeY[p] >= y0 && nodeY[p] <= y1 && p != a && p != c &&
+			pointInTriangle(ax, ay, bx, by, cx, cy, nodeX[p], nodeY[p]) && area(prev[p], p, next[p]) >= 0;
+	}
+
+	/**
+	 * Cut off the triangles around self-intersections of two neighbouring edges.
+	 */
+	private int cureLocalIntersections(int start)
+	{
+		int p = start;
+		do
+		{
+			int a = prev[p], b = next[next[p]];
+			if(!equal(a, b) && intersects(a, p, next[p], b) && locallyInside(a, b) && locallyInside(b, a))
+			{
+				emit(a, p, b);
+				removeNode(next[p]);
+				removeNode(p);
+				p = start = b;
+			}
+			p = next[p];
+		}
+		while(p != start);
+		return filterPoints(p, NONE);
+	}
+
+	/**
+	 * Split the ring along a valid diagonal and clip both halves.
+	 */
+	private void splitAndClip(int start, double minX, double minY, double invSize)
+	{
+		int a = start;
+		do
+		{
+			for(int b = next[next[a]]; b != prev[a]; b = next[b])
+			{
+				if(nodePoint[a] != nodePoint[b] && isValidDiagonal(a, b))
+				{
+					int c = splitPolygon(a, b);
+					a = filterPoints(a, next[a]);
+					c = filterPoints(c, next[c]);
+					clip(a, minX, minY, invSize, 0);
+					clip(c, minX, minY, invSize, 0);
+					return;
+				}
+			}
+			a = next[a];
+		}
+		while(a != start);
+	}
+
+	/**
+	 * Join the holes to the outer ring, from left to right, so it becomes one ring.
+	 */
+	private int eliminateHoles(int holeCount, int ring)
+	{
+		// Insertion sort by x; polygons rarely have many holes
+		for(int i = 1; i < holeCount; i++)
+		{
+			int hole = holes[i];
+			int j = i - 1;
+			while(j >= 0 && (nodeX[holes[j]] > nodeX[hole] || nodeX[holes[j]] == nodeX[hole] && nodeY[holes[j]] > nodeY[hole]))
+			{
+				holes[j + 1] = holes[j];
+				j--;
+			}
+			holes[j + 1] = hole;
+		}
+		for(int i = 0; i < holeCount; i++)
+		{
+			int bridge = findHoleBridge(holes[i], ring);
+			if(bridge != NONE)
+			{
+				int bridgeReverse = splitPolygon(bridge, holes[i]);
+				filterPoints(bridgeReverse, next[bridgeReverse]);
+				ring = filterPoints(bridge, next[bridge]);
+			}
+		}
+		return ring;
+	}
+
+	/**
+	 * Find a vertex of the outer ring that can be connected to a hole's leftmost vertex without crossing anything, using
+	 * David Eberly's algorithm.
+	 */
+	private int findHoleBridge(int hole, int outer)
+	{
+		double hx = nodeX[hole], hy = nodeY[hole];
+		double qx = Double.NEGATIVE_INFINITY;
+		int m = NONE;
+
+		// Cast a ray to the left from the hole's point and find the nearest edge it hits
+		int p = outer;
+		do
+		{
+			int n = next[p];
+			if(hy <= nodeY[p] && hy >= nodeY[n] && nodeY[n] != nodeY[p])
+			{
+				double x = nodeX[p] + (hy - nodeY[p]) * (nodeX[n] - nodeX[p]) / (nodeY[n] - nodeY[p]);
+				if(x <= hx && x > qx)
+				{
+					qx = x;
+					m = nodeX[p] < nodeX[n] ? p : n;
+					if(x == hx)
+					{
+						// The hole touches the edge, so bridge to its leftmost end
+						return m;
+					}
+				}
+			}
+			p = n;
+		}
+		while(p != outer);
+		if(m == NONE)
+		{
+			return NONE;
+		}
+
+		// Any vertex inside the triangle of the hole's point, the hit, and the edge's end would block the bridge; if
+		// there are some, connect to the one making the smallest angle with the ray
+		int stop = m;
+		double mx = nodeX[m], my = nodeY[m];
+		double tanMin = Double.POSITIVE_INFINITY;
+		p = m;
+		do
+		{
+			if(hx >= nodeX[p] && nodeX[p] >= mx && hx != nodeX[p] &&
+				pointInTriangle(hy < my ? hx : qx, hy, mx, my, hy < my ? qx : hx, hy, nodeX[p], nodeY[p]))
+			{
+				double tan = Math.abs(hy - nodeY[p]) / (hx - nodeX[p]);
+				if(locallyInside(p, hole) && (tan < tanMin ||
+					tan == tanMin && (nodeX[p] > nodeX[m] || nodeX[p] == nodeX[m] && sectorContainsSector(m, p))))
+				{
+					m = p;
+					tanMin = tan;
+				}
+			}
+			p = next[p];
+		}
+		while(p != stop);
+		return m;
+	}
+
+	private boolean sectorContainsSector(int m, int p)
+	{
+		return area(prev[m], m, prev[p]) < 0 && area(next[p], m, next[m]) < 0;
+	}
+
+	private int leftmost(int start)
+	{
+		int p = start, leftmost = start;
+		do
+		{
+			if(nodeX[p] < nodeX[leftmost] || nodeX[p] == nodeX[leftmost] && nodeY[p] < nodeY[leftmost])
+			{
+				leftmost = p;
+			}
+			p = next[p];
+		}
+		while(p != start);
+		return leftmost;
+	}
+
+	/**
+	 * Link a ring's nodes in z-order, for finding the points near an ear.
+	 */
+	private void indexCurve(int start, double minX, double minY, double invSize)
+	{
+		int p = start;
+		do
+		{
+			if(z[p] == 0)
+			{
+				z[p] = zOrder(nodeX[p], nodeY[p], minX, minY, invSize);
+			}
+			prevZ[p] = prev[p];
+			nextZ[p] = next[p];
+			p = next[p];
+		}
+		while(p != start);
+		nextZ[prevZ[p]] = NONE;
+		prevZ[p] = NONE;
+		sortLinked(p);
+	}
+
+	/**
+	 * Sort the z-order list with a bottom-up merge sort, which works on linked lists in place.
+	 */
+	private void sortLinked(int list)
+	{
+		int inSize = 1;
+		int merges;
+		do
+		{
+			int p = list;
+			list = NONE;
+			int tail = NONE;
+			merges = 0;
+			while(p != NONE)
+			{
+				merges++;
+				int q = p;
+				int pSize = 0;
+				for(int i = 0; i < inSize; i++)
+				{
+					pSize++;
+					q = nextZ[q];
+					if(q == NONE)
+					{
+						break;
+					}
+				}
+				int qSize = inSize;
+				while(pSize > 0 || qSize > 0 && q != NONE)
+				{
+					int e;
+					if(pSize != 0 && (qSize == 0 || q == NONE || z[p] <= z[q]))
+					{
+						e = p;
+						p = nextZ[p];
+						pSize--;
+					}
+					else
+					{
+						e = q;
+						q = nextZ[q];
+						qSize--;
+					}
+					if(tail != NONE)
+					{
+						nextZ[tail] = e;
+					}
+					else
+					{
+						list = e;
+					}
+					prevZ[e] = tail;
+					tail = e;
+				}
+				p = q;
+			}
+			nextZ[tail] = NONE;
+			inSize *= 2;
+		}
+		while(merges > 1);
+	}
+
+	/**
+	 * @return the z-order curve position of a point, interleaving 15 bits of each coordinate
+	 */
+	private static int zOrder(double px, double py, double minX, double minY, double invSize)
+	{
+		int x = (int) ((px - minX) * invSize);
+		int y = (int) ((py - minY) * invSize);
+		x = (x | (x << 8)) & 0x00ff00ff;
+		x = (x | (x << 4)) & 0x0f0f0f0f;
+		x = (x | (x << 2)) & 0x33333333;
+		x = (x | (x << 1)) & 0x55555555;
+		y = (y | (y << 8)) & 0x00ff00ff;
+		y = (y | (y << 4)) & 0x0f0f0f0f;
+		y = (y | (y << 2)) & 0x33333333;
+		y = (y | (y << 1)) & 0x55555555;
+		return x | (y << 1);
+	}
+
+	private static boolean pointInTriangle(double ax, double ay, double bx, double by, double cx, double cy, double px, double py)
+	{
+		return (cx - px) * (ay - py) >= (ax - px) * (cy - py) &&
+			(ax - px) * (by - py) >= (bx - px) * (ay - py) &&
+			(bx - px) * (cy - py) >= (cx - px) * (by - py);
+	}
+
+	private boolean isValidDiagonal(int a, int b)
+	{
+		return nodePoint[next[a]] != nodePoint[b] && nodePoint[prev[a]] != nodePoint[b] && !intersectsPolygon(a, b) &&
+			(locallyInside(a, b) && locallyInside(b, a) && middleInside(a, b) &&
+				(area(prev[a], a, prev[b]) != 0 || area(a, prev[b], b) != 0) ||
+				equal(a, b) && area(prev[a], a, next[a]) > 0 && area(prev[b], b, next[b]) > 0);
+	}
+
+	/**
+	 * @return twice the signed area of a triangle, negative when it's counterclockwise
+	 */
+	private double area(int p, int q, int r)
+	{
+		return (nodeY[q] - nodeY[p]) * (nodeX[r] - nodeX[q]) - (nodeX[q] - nodeX[p]) * (nodeY[r] - nodeY[q]);
+	}
+
+	private boolean equal(int p, int q)
+	{
+		return nodeX[p] == nodeX[q] && nodeY[p] == nodeY[q];
+	}
+
+	private boolean intersects(int p1, int q1, int p2, int q2)
+	{
+		int o1 = sign(area(p1, q1, p2));
+		int o2 = sign(area(p1, q1, q2));
+		int o3 = sign(area(p2, q2, p1));
+		int o4 = sign(area(p2, q2, q1));
+		return o1 != o2 && o3 != o4 ||
+			o1 == 0 && onSegment(p1, p2, q1) ||
+			o2 == 0 && onSegment(p1, q2, q1) ||
+			o3 == 0 && onSegment(p2, p1, q2) ||
+			o4 == 0 && onSegment(p2, q1, q2);
+	}
+
+	/**
+	 * @return whether {@code q} is within the bounds of the segment from {@code p} to {@code r}, given that the three
+	 * are collinear
+	 */
+	private boolean onSegment(int p, int q, int r)
+	{
+		return nodeX[q] <= Math.max(nodeX[p], nodeX[r]) && nodeX[q] >= Math.min(nodeX[p], nodeX[r]) &&
+			nodeY[q] <= Math.max(nodeY[p], nodeY[r]) && nodeY[q] >= Math.min(nodeY[p], nodeY[r]);
+	}
+
+	private static int sign(double value)
+	{
+		return value > 0 ? 1 : value < 0 ? -1 : 0;
+	}
+
+	private boolean intersectsPolygon(int a, int b)
+	{
+		int p = a;
+		do
+		{
+			int n = next[p];
+			if(nodePoint[p] != nodePoint[a] && nodePoint[n] != nodePoint[a] && nodePoint[p] != nodePoint[b] &&
+				nodePoint[n] != nodePoint[b] && intersects(p, n, a, b))
+			{
+				return true;
+			}
+			p = n;
+		}
+		while(p != a);
+		return false;
+	}
+
+	/**
+	 * @return whether the diagonal from {@code a} to {@code b} starts off inside the ring
+	 */
+	private boolean locallyInside(int a, int b)
+	{
+		return area(prev[a], a, next[a]) < 0 ?
+			area(a, b, next[a]) >= 0 && area(a, prev[a], b) >= 0 :
+			area(a, b, prev[a]) < 0 || area(a, next[a], b) < 0;
+	}
+
+	/**
+	 * @return whether the middle of the diagonal from {@code a} to {@code b} is inside the ring
+	 */
+	private boolean middleInside(int a, int b)
+	{
+		boolean inside = false;
+		double px = (nodeX[a] + nodeX[b]) / 2, py = (nodeY[a] + nodeY[b]) / 2;
+		int p = a;
+		do
+		{
+			int n = next[p];
+			if((nodeY[p] > py) != (nodeY[n] > py) && nodeY[n] != nodeY[p] &&
+				px < (nodeX[n] - nodeX[p]) * (py - nodeY[p]) / (nodeY[n] - nodeY[p]) + nodeX[p])
+			{
+				inside = !inside;
+			}
+			p = n;
+		}
+		while(p != a);
+		return inside;
+	}
+
+	/**
+	 * Connect {@code a} and {@code b} with a diagonal, splitting their ring in two, or joining two rings into one.
+	 * @return the copy of {@code b} that starts the other ring
+	 */
+	private int splitPolygon(int a, int b)
+	{
+		int a2 = newNode(nodePoint[a], nodeX[a], nodeY[a]);
+		int b2 = newNode(nodePoint[b], nodeX[b], nodeY[b]);
+		int an = next[a], bp = prev[b];
+		next[a] = b;
+		prev[b] = a;
+		next[a2] = an;
+		prev[an] = a2;
+		next[b2] = a2;
+		prev[a2] = b2;
+		next[bp] = b2;
+		prev[b2] = bp;
+		return b2;
+	}
+
+	/**
+	 * Remove repeated and collinear points from {@code start} up to {@code end} (or all the way round).
+	 */
+	private int filterPoints(int start, int end)
+	{
+		if(start == NONE)
+		{
+			return start;
+		}
+		if(end == NONE)
+		{
+			end = start;
+		}
+		int p = start;
+		boolean again;
+		do
+		{
+			again = false;
+			if(equal(p, next[p]) || area(prev[p], p, next[p]) == 0)
+			{
+				int before = prev[p];
+				removeNode(p);
+				p = end = before;
+				if(p == next[p])
+				{
+					break;
+				}
+				again = true;
+			}
+			else
+			{
+				p = next[p];
+			}
+		}
+		while(again || p != end);
+		return end;
+	}
+
+	private int newNode(int point, double x, double y)
+	{
+		if(nodeCount == nodePoint.length)
+		{
+			int capacity = 2 * nodeCount;
+			nodePoint = Arrays.copyOf(nodePoint, capacity);
+			nodeX = Arrays.copyOf(nodeX, capacity);
+			nodeY = Arrays.copyOf(nodeY, capacity);
+			prev = Arrays.copyOf(prev, capacity);
+			next = Arrays.copyOf(next, capacity);
+			z = Arrays.copyOf(z, capacity);
+			prevZ = Arrays.copyOf(prevZ, capacity);
+			nextZ = Arrays.copyOf(nextZ, capacity);
+		}
+		int node = nodeCount++;
+		nodePoint[node] = point;
+		nodeX[node] = x;
+		nodeY[node] = y;
+		prev[node] = node;
+		next[node] = node;
+		z[node] = 0;
+		prevZ[node] = NONE;
+		nextZ[node] = NONE;
+		return node;
+	}
+
+	private int insertNode(int point, float x, float y, int last)
+	{
+		int node = newNode(point, x, y);
+		if(last != NONE)
+		{
+			next[node] = next[last];
+			prev[node] = last;
+			prev[next[last]] = node;
+			next[last] = node;
+		}
+		return node;
+	}
+
+	private void removeNode(int p)
+	{
+		prev[next[p]] = prev[p];
+		next[prev[p]] = next[p];
+		if(prevZ[p] != NONE)
+		{
+			nextZ[prevZ[p]] = nextZ[p];
+		}
+		if(nextZ[p] != NONE)
+		{
+			prevZ[nextZ[p]] = prevZ[p];
+		}
+	}
+
+	private void emit(int a, int b, int c)
+	{
+		if(intIndices != null)
+		{
+			intIndices.put(nodePoint[a]).put(nodePoint[b]).put(nodePoint[c]);
+		}
+		else
+		{
+			shortIndices.put((short) nodePoint[a]).put((short) nodePoint[b]).put((short) nodePoint[c]);
+		}
+		triangleCount++;
+	}
+}
@@ -0,0 +1,307 @@
+package galu.mesh;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Reordering of indexed triangle lists for the GPU's post-transform vertex cache, and measurement of how well a list
+ * uses it.
+ * <p>
+ * When a vertex is shaded, the GPU keeps the result in a small cache, so the other triangles sharing that vertex can
+ * reuse it if they come soon after. With triangles in an arbitrary order, each vertex is shaded about twice;
+ * {@link #optimize(int[], int, int, int)} reorders them so that triangles sharing vertices are drawn together, using Tom
+ * Forsyth's linear-speed vertex cache optimization. It models the cache as a {@value #CACHE_SIZE}-entry LRU cache, and
+ * greedily picks the next triangle by a score that favors vertices used recently and vertices with few triangles
+ * left, so that it finishes off regions instead of leaving holes to come back to.
+ * <p>
+ * The quality of an order is measured with {@link #acmr(int[], int, int, int)}: the average cache miss ratio, which is
+ * the number of vertices shaded per triangle under a FIFO cache of a given size. It's 3 for unshared triangles and
+ * approaches 0.5 for a large regular grid. Only the order of the triangles changes, not the winding within each one.
+ */
+public final class VertexCache
+{
+	/**
+	 * The size of the LRU cache modelled by the optimizer.
+	 */
+	public static final int CACHE_SIZE = 32;
+
+	// The constants from Forsyth's paper
+	private static final float CACHE_DECAY_POWER = 1.5f;
+	private static final float LAST_TRIANGLE_SCORE = 0.75f;
+	private static final float VALENCE_BOOST_SCALE = 2f;
+	private static final float VALENCE_BOOST_POWER = 0.5f;
+
+	// Scores by cache position and by number of remaining triangles, so the hot loop doesn't call pow
+	private static final int MAX_TABULATED_VALENCE = 64;
+	private static final float[] CACHE_SCORES = new float[CACHE_SIZE];
+	private static final float[] VALENCE_SCORES = new float[MAX_TABULATED_VALENCE + 1];
+
+	static
+	{
+		for(int i = 0; i < CACHE_SIZE; i++)
+		{
+			// The last triangle's vertices get a fixed score, so the optimizer doesn't favor going back over its own tracks
+			CACHE_SCORES[i] = i < 3 ? LAST_TRIANGLE_SCORE :
+				(float) Math.pow(1 - (i - 3) / (float) (CACHE_SIZE - 3), CACHE_DECAY_POWER);
+		}
+		for(int i = 1; i <= MAX_TABULATED_VALENCE; i++)
+		{
+			VALENCE_SCORES[i] = valenceScore(i);
+		}
+	}
+
+	private VertexCache() {}
+
+	private static float valenceScore(int remainingTriangles)
+	{
+		return VALENCE_BOOST_SCALE * (float) Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+	}
+
+	/**
+	 * @param cachePosition the vertex's position in the cache, or -1 if it isn't in it
+	 */
+	private static float vertexScore(int cachePosition, int remainingTriangles)
+	{
+		if(remainingTriangles == 0)
+		{
+			return -1;
+		}
+		float score = cachePosition < 0 ? 0 : CACHE_SCORES[cachePosition];
+		return score + (remainingTriangles <= MAX_TABULATED_VALENCE ? VALENCE_SCORES[remainingTriangles] :
+			valenceScore(remainingTriangles));
+	}
+
+	/**
+	 * Reorder {@code count / 3} triangles in place for the vertex cache.
+	 * @param vertexCount the number of vertices the indices refer to
+	 * @throws IllegalArgumentException if the indices aren't whole triangles or are out of range
+	 */
+	public static void optimize(int[] indices, int offset, int count, int vertexCount)
+	{
+		Indices.checkTriangles(indices, offset, count, vertexCount);
+		int triangleCount = count / 3;
+
+		// Each vertex's triangles, with the ones still to be drawn at the front of its range
+		int[] remaining = new int[vertexCount];
+		for(int i = offset; i < offset + count; i++)
+		{
+			remaining[indices[i]]++;
+		}
+		int[] adjacencyStart = new int[vertexCount + 1];
+		for(int v = 0; v < vertexCount; v++)
+		{
+			adjacencyStart[v + 1] = adjacencyStart[v] + remaining[v];
+		}
+		int[] adjacency = new int[count];
+		int[] fill = new int[vertexCount];
+		for(int i = 0; i < count; i++)
+		{
+			int vertex = indices[offset + i];
+			adjacency[adjacencyStart[vertex] + fill[vertex]++] = i / 3;
+		}
+
+		float[] vertexScores = new float[vertexCount];
+		for(int v = 0; v < vertexCount; v++)
+		{
+			vertexScores[v] = vertexScore(-1, remaining[v]);
+		}
+		float[] triangleScores = new float[triangleCount];
+		int bestTriangle = -1;
+		float bestScore = Float.NEGATIVE_INFINITY;
+		for(int t = 0; t < triangleCount; t++)
+		{
+			int i = offset + 3 * t;
+			triangleScores[t] = vertexScores[indices[i]] + vertexScores[indices[i + 1]] + vertexScores[indices[i + 2]];
+			if(triangleScores[t] > bestScore)
+			{
+				bestScore = triangleScores[t];
+				bestTriangle = t;
+			}
+		}
+
+		boolean[] emitted = new boolean[triangleCount];
+		int[] output = new int[count];
+		// The extra three slots hold the vertices pushed out of the cache by the last triangle, so their scores get updated
+		int[] cache = new int[CACHE_SIZE + 3];
+		int[] newCache = new int[CACHE_SIZE + 3];
+		int cacheCount = 0;
+		int cursor = 0;
+
+		for(int t = 0; t < triangleCount; t++)
+		{
+			if(bestTriangle < 0)
+			{
+				// None of the cached vertices have triangles left, so carry on from the next triangle in the input order
+				while(emitted[cursor])
+				{
+					cursor++;
+				}
+				bestTriangle = cursor;
+			}
+
+			int a = indices[offset + 3 * bestTriangle];
+			int b = indices[offset + 3 * bestTriangle + 1];
+			int c = indices[offset + 3 * bestTriangle + 2];
+			output[3 * t] = a;
+			output[3 * t + 1] = b;
+			output[3 * t + 2] = c;
+			emitted[bestTriangle] = true;
+			removeTriangle(a, bestTriangle, remaining, adjacencyStart, adjacency);
+			removeTriangle(b, bestTriangle, remaining, adjacencyStart, adjacency);
+			removeTriangle(c, bestTriangle, remaining, adjacencyStart, adjacency);
+
+			// Move the triangle's vertices to the front of the cache
+			int newCount = 0;
+			newCache[newCount++] = a;
+			if(b != a)
+			{
+				newCache[newCount++] = b;
+			}
+			if(c != a && c != b)
+			{
+				newCache[newCount++] = c;
+			}
+			for(int i = 0; i < cacheCount; i++)
+			{
+				int v = cache[i];
+				if(v != a && v != b && v != c)
+				{
+					newCache[newCount++] = v;
+				}
+			}
+			int[] swap = cache;
+			cache = newCache;
+			newCache = swap;
+
+			// Rescore the cached vertices and their triangles
+			for(int i = 0; i < newCount; i++)
+			{
+				int v = cache[i];
+				float score = vertexScore(i < CACHE_SIZE ? i : -1, remaining[v]);
+				float delta = score - vertexScores[v];
+				vertexScores[v] = score;
+				for(int j = adjacencyStart[v], end = j + remaining[v]; j < end; j++)
+				{
+					triangleScores[adjacency[j]] += delta;
+				}
+			}
+			// Then pick the best of those triangles to draw next, once all of their vertices' scores are up to date
+			bestTriangle = -1;
+			bestScore = Float.NEGATIVE_INFINITY;
+			for(int i = 0; i < newCount; i++)
+			{
+				int v = cache[i];
+				for(int j = adjacencyStart[v], end = j + remaining[v]; j < end; j++)
+				{
+					int triangle = adjacency[j];
+					if(triangleScores[triangle] > bestScore)
+					{
+						bestScore = triangleScores[triangle];
+						bestTriangle = triangle;
+					}
+				}
+			}
+			cacheCount = Math.min(newCount, CACHE_SIZE);
+		}
+
+		System.arraycopy(output, 0, indices, offset, count);
+	}
+
+	private static void removeTriangle(int vertex, int triangle, int[] remaining, int[] adjacencyStart, int[] adjacency)
+	{
+		int start = adjacencyStart[vertex];
+		int last = start + remaining[vertex] - 1;
+		for(int i = start; i <= last; i++)
+		{
+			if(adjacency[i] == triangle)
+			{
+				adjacency[i] = adjacency[last];
+				adjacency[last] = triangle;
+				remaining[vertex]--;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reorder the triangles from the buffer's position to its limit in place, leaving the position where it is.
+	 * @see #optimize(int[], int, int, int)
+	 */
+	public static void optimize(IntBuffer indices, int vertexCount)
+	{
+		int[] array = Indices.read(indices);
+		optimize(array, 0, array.length, vertexCount);
+		Indices.write(array, indices);
+	}
+
+	/**
+	 * Reorder the triangles from the buffer's position to its limit in place, leaving the position where it is. The
+	 * indices are unsigned.
+	 * @see #optimize(int[], int, int, int)
+	 */
+	public static void optimize(ShortBuffer indices, int vertexCount)
+	{
+		int[] array = Indices.read(indices);
+		optimize(array, 0, array.length, vertexCount);
+		Indices.write(array, indices);
+	}
+
+	/**
+	 * Compute the average cache miss ratio of a triangle list: the number of vertices shaded per triangle, if the GPU
+	 * kept the last {@code cacheSize} shaded vertices in a FIFO cache. Real caches are usually modelled with 16 to 32
+	 * entries.
+	 * @return the ratio, from 3 (no reuse at all) down towards 0.5, or 0 for no triangles
+	 */
+	public static float acmr(int[] indices, int offset, int count, int cacheSize)
+	{
+		checkArgument(cacheSize > 0, "Cache size must be positive");
+		Indices.checkTriangles(indices, offset, count, Integer.MAX_VALUE);
+		if(count == 0)
+		{
+			return 0;
+		}
+		int maxIndex = 0;
+		for(int i = offset; i < offset + count; i++)
+		{
+			maxIndex = Math.max(maxIndex, indices[i]);
+		}
+
+		// A vertex is in the cache if fewer than cacheSize misses have happened since its own
+		int[] missedAt = new int[maxIndex + 1];
+		Arrays.fill(missedAt, -cacheSize - 1);
+		int misses = 0;
+		for(int i = offset; i < offset + count; i++)
+		{
+			int vertex = indices[i];
+			if(misses - missedAt[vertex] > cacheSize)
+			{
+				missedAt[vertex] = misses++;
+			}
+		}
+		return misses / (count / 3f);
+	}
+
+	/**
+	 * Compute the average cache miss ratio of the triangles from the buffer's position to its limit.
+	 * @see #acmr(int[], int, int, int)
+	 */
+	public static float acmr(IntBuffer indices, int cacheSize)
+	{
+		int[] array = Indices.read(indices);
+		return acmr(array, 0, array.length, cacheSize);
+	}
+
+	/**
+	 * Compute the average cache miss ratio of the triangles from the buffer's position to its limit. The indices are
+	 * unsigned.
+	 * @see #acmr(int[], int, int, int)
+	 */
+	public static float acmr(ShortBuffer indices, int cacheSize)
+	{
+		int[] array = Indices.read(indices);
+		return acmr(array, 0, array.length, cacheSize);
+	}
+}
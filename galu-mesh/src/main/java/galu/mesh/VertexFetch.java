@@ -0,0 +1,123 @@
+package galu.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Reordering of vertex buffers to match their index buffers, for the GPU's vertex fetch.
+ * <p>
+ * Once the triangles are in cache-friendly order (see {@link VertexCache}), the vertices they use are still scattered
+ * over the vertex buffer, so fetching them misses the memory caches. {@link #optimize(int[], int, int, int)} renumbers
+ * the vertices in the order the triangles first use them, rewriting the indices, and returns the renumbering, which
+ * {@code remap} then applies to each vertex buffer (or to each stream of a non-interleaved mesh). Vertices that no
+ * triangle uses are kept, after the used ones, so the buffers don't change size.
+ */
+public final class VertexFetch
+{
+	private VertexFetch() {}
+
+	/**
+	 * Renumber the vertices in order of first use, rewriting {@code count} indices in place.
+	 * @param vertexCount the number of vertices the indices refer to
+	 * @return the new index of each vertex, by its old index
+	 * @throws IllegalArgumentException if the indices aren't whole triangles or are out of range
+	 */
+	public static int[] optimize(int[] indices, int offset, int count, int vertexCount)
+	{
+		Indices.checkTriangles(indices, offset, count, vertexCount);
+		int[] remap = new int[vertexCount];
+		for(int v = 0; v < vertexCount; v++)
+		{
+			remap[v] = -1;
+		}
+		int next = 0;
+		for(int i = offset; i < offset + count; i++)
+		{
+			int vertex = indices[i];
+			if(remap[vertex] < 0)
+			{
+				remap[vertex] = next++;
+			}
+			indices[i] = remap[vertex];
+		}
+		for(int v = 0; v < vertexCount; v++)
+		{
+			if(remap[v] < 0)
+			{
+				remap[v] = next++;
+			}
+		}
+		return remap;
+	}
+
+	/**
+	 * Renumber the vertices in order of first use, rewriting the indices from the buffer's position to its limit in
+	 * place and leaving the position where it is.
+	 * @see #optimize(int[], int, int, int)
+	 */
+	public static int[] optimize(IntBuffer indices, int vertexCount)
+	{
+		int[] array = Indices.read(indices);
+		int[] remap = optimize(array, 0, array.length, vertexCount);
+		Indices.write(array, indices);
+		return remap;
+	}
+
+	/**
+	 * Renumber the vertices in order of first use, rewriting the unsigned indices from the buffer's position to its limit
+	 * in place and leaving the position where it is.
+	 * @see #optimize(int[], int, int, int)
+	 */
+	public static int[] optimize(ShortBuffer indices, int vertexCount)
+	{
+		int[] array = Indices.read(indices);
+		int[] remap = optimize(array, 0, array.length, vertexCount);
+		Indices.write(array, indices);
+		return remap;
+	}
+
+	/**
+	 * Copy packed vertices of {@code stride} floats each from {@code src} to their new places in {@code dst}, which
+	 * must be a different array.
+	 * @param remap the new index of each vertex, as returned by {@code optimize}
+	 */
+	public static void remap(int[] remap, float[] src, int srcOffset, float[] dst, int dstOffset, int stride)
+	{
+		checkArgument(src != dst, "Can't remap vertices in place");
+		checkArgument(stride > 0, "Stride must be positive");
+		int size = remap.length * stride;
+		checkArgument(srcOffset >= 0 && srcOffset + size <= src.length, "Source can't hold %s vertices", remap.length);
+		checkArgument(dstOffset >= 0 && dstOffset + size <= dst.length, "Destination can't hold %s vertices", remap.length);
+		for(int v = 0; v < remap.length; v++)
+		{
+			System.arraycopy(src, srcOffset + v * stride, dst, dstOffset + remap[v] * stride, stride);
+		}
+	}
+
+	/**
+	 * Copy interleaved vertices of {@code vertexSize} bytes each from {@code src} to their new places in {@code dst},
+	 * which must not share memory with it. Both buffers' positions are advanced past the vertices.
+	 * @param remap the new index of each vertex, as returned by {@code optimize}
+	 */
+	public static void remap(int[] remap, ByteBuffer src, ByteBuffer dst, int vertexSize)
+	{
+		checkArgument(vertexSize > 0, "Vertex size must be positive");
+		int size = remap.length * vertexSize;
+		checkArgument(src.remaining() >= size, "Source has %s bytes remaining, but %s are needed", src.remaining(), size);
+		checkArgument(dst.remaining() >= size, "Destination has %s bytes remaining, but %s are needed", dst.remaining(), size);
+		ByteBuffer from = src.duplicate();
+		ByteBuffer to = dst.duplicate();
+		for(int v = 0; v < remap.length; v++)
+		{
+			int start = src.position() + v * vertexSize;
+			from.limit(start + vertexSize).position(start);
+			to.position(dst.position() + remap[v] * vertexSize);
+			to.put(from);
+		}
+		src.position(src.position() + size);
+		dst.position(dst.position() + size);
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * Contains mesh processing for rendering, such as reordering index and vertex buffers so the GPU's post-transform
+ * vertex cache and depth test do less work.
+ */
+package galu.mesh;
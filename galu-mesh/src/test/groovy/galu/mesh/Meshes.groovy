@@ -0,0 +1,82 @@
+package galu.mesh
+
+/**
+ * Meshes for testing the optimizers.
+ */
+class Meshes
+{
+	/**
+	 * @return the positions of an {@code n} by {@code n} grid of vertices in the z = 0 plane, facing +z
+	 */
+	static float[] gridPositions(int n)
+	{
+		float[] positions = new float[3 * n * n]
+		for(int y = 0; y < n; y++)
+		{
+			for(int x = 0; x < n; x++)
+			{
+				positions[3 * (y * n + x)] = x
+				positions[3 * (y * n + x) + 1] = y
+			}
+		}
+		return positions
+	}
+
+	/**
+	 * @return the indices of the {@code 2 (n - 1)^2} counterclockwise triangles of an {@code n} by {@code n} grid,
+	 * row by row
+	 */
+	static int[] gridIndices(int n)
+	{
+		int[] indices = new int[6 * (n - 1) * (n - 1)]
+		int i = 0
+		for(int y = 0; y < n - 1; y++)
+		{
+			for(int x = 0; x < n - 1; x++)
+			{
+				int v = y * n + x
+				indices[i++] = v
+				indices[i++] = v + 1
+				indices[i++] = v + n
+				indices[i++] = v + 1
+				indices[i++] = v + n + 1
+				indices[i++] = v + n
+			}
+		}
+		return indices
+	}
+
+	/**
+	 * @return the triangles in a random order
+	 */
+	static int[] shuffleTriangles(int[] indices, Random random)
+	{
+		int[] shuffled = Arrays.copyOf(indices, indices.length)
+		for(int t = shuffled.length / 3 - 1; t > 0; t--)
+		{
+			int other = random.nextInt(t + 1)
+			for(int k = 0; k < 3; k++)
+			{
+				int tmp = shuffled[3 * t + k]
+				shuffled[3 * t + k] = shuffled[3 * other + k]
+				shuffled[3 * other + k] = tmp
+			}
+		}
+		return shuffled
+	}
+
+	/**
+	 * @return each triangle as a string, rotated to start at its smallest index, in sorted order
+	 */
+	static List<String> triangleSet(int[] indices)
+	{
+		def triangles = []
+		for(int t = 0; t < indices.length / 3; t++)
+		{
+			int a = indices[3 * t], b = indices[3 * t + 1], c = indices[3 * t + 2]
+			int min = Math.min(a, Math.min(b, c))
+			triangles << (min == a ? "$a $b $c" : min == b ? "$b $c $a" : "$c $a $b").toString()
+		}
+		return triangles.sort()
+	}
+}
@@ -0,0 +1,114 @@
+package galu.mesh
+
+import spock.lang.Specification
+
+import java.nio.IntBuffer
+
+import static galu.mesh.Meshes.*
+
+class OverdrawSpec extends Specification
+{
+	def random = new Random(1234)
+
+	/**
+	 * A closed box made of six n by n grids, with each face's triangles drawn in order.
+	 */
+	static Map box(int n)
+	{
+		float[] grid = gridPositions(n)
+		int[] gridIndices = gridIndices(n)
+		int vertices = n * n
+		float[] positions = new float[6 * 3 * vertices]
+		int[] indices = new int[6 * gridIndices.length]
+		float half = (n - 1) / 2f
+		for(int face = 0; face < 6; face++)
+		{
+			for(int v = 0; v < vertices; v++)
+			{
+				// Centre the grid on the origin, push it out by half a side, and turn it to face each axis
+				float u = grid[3 * v] - half, w = grid[3 * v + 1] - half
+				float sign = face % 2 == 0 ? 1 : -1
+				float[] p
+				switch(face.intdiv(2))
+				{
+					case 0: p = [sign * half, sign * u, w] as float[]; break
+					case 1: p = [w, sign * half, sign * u] as float[]; break
+					default: p = [sign * u, w, sign * half] as float[]; break
+				}
+				System.arraycopy(p, 0, positions, 3 * (face * vertices + v), 3)
+			}
+			for(int i = 0; i < gridIndices.length; i++)
+			{
+				indices[face * gridIndices.length + i] = face * vertices + gridIndices[i]
+			}
+		}
+		return [positions: positions, indices: indices, vertexCount: 6 * vertices]
+	}
+
+	def "keeps the triangles and most of the cache efficiency"()
+	{
+		given:
+			def mesh = box(16)
+			int[] indices = mesh.indices
+			VertexCache.optimize(indices, 0, indices.length, mesh.vertexCount)
+			float before = VertexCache.acmr(indices, 0, indices.length, 16)
+			def triangles = triangleSet(indices)
+		when:
+			Overdraw.optimize(indices, 0, indices.length, mesh.positions, 0, 3, mesh.vertexCount, 1.05f)
+		then:
+			triangleSet(indices) == triangles
+			VertexCache.acmr(indices, 0, indices.length, 16) <= before * 1.2f
+	}
+
+	def "keeps every triangle when the first one is degenerate"()
+	{
+		given:
+			int[] indices = [0, 0, 1, 2, 3, 4, 5, 6, 7] as int[]
+			def triangles = triangleSet(indices)
+			float[] positions = (0..<24).collect { random.nextFloat() } as float[]
+		when:
+			Overdraw.optimize(indices, 0, indices.length, positions, 0, 3, 8, 1.05f)
+		then:
+			triangleSet(indices) == triangles
+	}
+
+	def "outward-facing clusters are drawn first"()
+	{
+		given:
+			// Two disconnected patches facing +z: one on the far side of the mesh, facing in, and one on the near side,
+			// facing out
+			int n = 4
+			float[] patch = gridPositions(n)
+			float[] positions = new float[2 * patch.length]
+			for(int v = 0; v < n * n; v++)
+			{
+				positions[3 * v] = patch[3 * v]
+				positions[3 * v + 1] = patch[3 * v + 1]
+				positions[3 * v + 2] = -5
+				positions[3 * (n * n + v)] = patch[3 * v]
+				positions[3 * (n * n + v) + 1] = patch[3 * v + 1]
+				positions[3 * (n * n + v) + 2] = 5
+			}
+			int[] grid = gridIndices(n)
+			int[] indices = new int[2 * grid.length]
+			for(int i = 0; i < grid.length; i++)
+			{
+				indices[i] = grid[i]
+				indices[grid.length + i] = n * n + grid[i]
+			}
+			def ints = IntBuffer.wrap(indices)
+		when:
+			Overdraw.optimize(ints, positions, 0, 3, 2 * n * n, 1.05f)
+		then:
+			(0..<grid.length).every { indices[it] >= n * n }
+			(grid.length..<indices.length).every { indices[it] < n * n }
+	}
+
+	def "rejects thresholds below 1"()
+	{
+		when:
+			Overdraw.optimize([0, 1, 2] as int[], 0, 3, new float[9], 0, 3, 3, 0.5f)
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
@@ -0,0 +1,239 @@
+package galu.mesh
+
+import spock.lang.Specification
+
+import java.util.concurrent.ForkJoinPool
+
+import static galu.mesh.Meshes.*
+
+class SimplifierSpec extends Specification
+{
+	def "flat meshes simplify without error"()
+	{
+		given:
+			int n = 16
+			def simplifier = new Simplifier(gridPositions(n), 3, n * n, gridIndices(n), 0, 6 * (n - 1) * (n - 1))
+		when:
+			Lod lod = simplifier.simplify(0, 1e-4f)
+		then:
+			lod.triangleCount() < 100
+			lod.error() < 1e-4f
+			// The locked border is all still there
+			borderVertices(n).every { lod.indices().contains(it) }
+			facesUp(gridPositions(n), lod.indices())
+	}
+
+	def "unlocked borders can shrink"()
+	{
+		given:
+			int n = 8
+			def simplifier = new Simplifier(bumpyGrid(n), 3, n * n, gridIndices(n), 0, 6 * (n - 1) * (n - 1))
+			simplifier.lockBorders = false
+		when:
+			Lod lod = simplifier.simplify(0, 100)
+		then:
+			!borderVertices(n).every { lod.indices().contains(it) }
+			lod.triangleCount() <= 2
+	}
+
+	def "stops at the target triangle count"()
+	{
+		given:
+			int n = 16
+			def simplifier = new Simplifier(bumpyGrid(n), 3, n * n, gridIndices(n), 0, 6 * (n - 1) * (n - 1))
+		when:
+			Lod lod = simplifier.simplify(target, 100)
+		then:
+			lod.triangleCount() <= target
+			lod.triangleCount() >= target - 2
+		where:
+			target << [400, 200, 100]
+	}
+
+	def "stops when the error budget runs out"()
+	{
+		given:
+			int n = 16
+			def simplifier = new Simplifier(bumpyGrid(n), 3, n * n, gridIndices(n), 0, 6 * (n - 1) * (n - 1))
+		when:
+			Lod tight = simplifier.simplify(0, 0.01f)
+			Lod loose = simplifier.simplify(0, 0.1f)
+		then:
+			tight.error() <= 0.01f
+			loose.error() <= 0.1f
+			tight.triangleCount() > loose.triangleCount()
+			loose.triangleCount() > 60
+	}
+
+	def "keeps seams closed"()
+	{
+		given:
+			// Two grids side by side, sharing the positions of the column between them but not its texture coordinates
+			int n = 9
+			float[] vertices = new float[2 * n * n * 4]
+			int[] indices = new int[2 * 6 * (n - 1) * (n - 1)]
+			int[] grid = gridIndices(n)
+			for(int half = 0; half < 2; half++)
+			{
+				for(int v = 0; v < n * n; v++)
+				{
+					int x = v % n, y = v.intdiv(n)
+					int i = 4 * (half * n * n + v)
+					vertices[i] = x + half * (n - 1)
+					vertices[i + 1] = y
+					vertices[i + 3] = half + x / (n - 1)
+				}
+				for(int i = 0; i < grid.length; i++)
+				{
+					indices[half * grid.length + i] = grid[i] + half * n * n
+				}
+			}
+			def simplifier = new Simplifier(vertices, 4, 2 * n * n, indices, 0, indices.length)
+			simplifier.lockBorders = false
+			simplifier.attributeWeights = 1
+			def seam = (0..<n).collect { it * n + n - 1 } + (0..<n).collect { n * n + it * n }
+		when:
+			Lod locked = simplifier.simplify(0, 1e-4f)
+			simplifier.lockSeams = false
+			Lod unlocked = simplifier.simplify(0, 1e-4f)
+		then:
+			seam.every { locked.indices().contains(it) }
+			!seam.every { unlocked.indices().contains(it) }
+			locked.triangleCount() < indices.length / 6
+	}
+
+	def "weighted attributes limit simplification"()
+	{
+		given:
+			int n = 16
+			float[] positions = gridPositions(n)
+			float[] vertices = new float[4 * n * n]
+			for(int v = 0; v < n * n; v++)
+			{
+				float x = positions[3 * v], y = positions[3 * v + 1]
+				vertices[4 * v] = x
+				vertices[4 * v + 1] = y
+				// Something that isn't linear, so collapses change how it's interpolated
+				vertices[4 * v + 3] = (float) Math.sin(x / 2) * Math.cos(y / 3)
+			}
+			def simplifier = new Simplifier(vertices, 4, n * n, gridIndices(n), 0, 6 * (n - 1) * (n - 1))
+		when:
+			int ignored = simplifier.simplify(0, 0.01f).triangleCount()
+			simplifier.attributeWeights = 1
+			int weighted = simplifier.simplify(0, 0.01f).triangleCount()
+		then:
+			weighted > 2 * ignored
+	}
+
+	def "builds a level of detail chain in one pass"()
+	{
+		given:
+			int n = 16
+			def simplifier = new Simplifier(bumpyGrid(n), 3, n * n, gridIndices(n), 0, 6 * (n - 1) * (n - 1))
+			float[] ratios = [1, 0.5f, 0.25f, 0.2f]
+		when:
+			List<Lod> chain = simplifier.lodChain(ratios, 100)
+		then:
+			chain.size() == 4
+			chain[0].triangleCount() == 450
+			chain[0].error() == 0
+			(1..3).every { chain[it].triangleCount() <= (int) (ratios[it] * 450) }
+			(1..3).every { chain[it].error() >= chain[it - 1].error() }
+			// Each level is where simplifying to its target on its own would stop
+			(1..3).every { chain[it].indices() == simplifier.simplify((int) (ratios[it] * 450), 100).indices() }
+	}
+
+	def "ends the chain early when the error budget runs out"()
+	{
+		given:
+			int n = 16
+			def simplifier = new Simplifier(bumpyGrid(n), 3, n * n, gridIndices(n), 0, 6 * (n - 1) * (n - 1))
+		when:
+			List<Lod> chain = simplifier.lodChain([0.5f, 0.1f, 0.05f] as float[], 0.05f)
+		then:
+			chain.size() == 2
+			chain[1].triangleCount() > 45
+			chain[1].error() <= 0.05f
+			chain[1].indices() == simplifier.simplify(0, 0.05f).indices()
+	}
+
+	def "builds chains for many meshes in parallel"()
+	{
+		given:
+			def simplifiers = (4..12).collect { int n ->
+				new Simplifier(bumpyGrid(n), 3, n * n, gridIndices(n), 0, 6 * (n - 1) * (n - 1))
+			}
+			float[] ratios = [0.5f, 0.25f]
+		when:
+			def chains = Simplifier.lodChains(simplifiers, ratios, 100, new ForkJoinPool(4))
+		then:
+			chains.size() == simplifiers.size()
+			(0..<simplifiers.size()).every { i ->
+				def sequential = simplifiers[i].lodChain(ratios, 100)
+				chains[i].size() == sequential.size() &&
+					(0..<sequential.size()).every { chains[i][it].indices() == sequential[it].indices() }
+			}
+	}
+
+	def "vertex quadrics measure squared distance to the planes around them"()
+	{
+		given:
+			int n = 4
+			def simplifier = new Simplifier(gridPositions(n), 3, n * n, gridIndices(n), 0, 6 * (n - 1) * (n - 1))
+		expect:
+			// The corner is in one triangle and an inner vertex in six, each with an area of 1/2
+			simplifier.quadric(0).m22 == 0.5f
+			simplifier.quadric(5).m22 == 3f
+			simplifier.quadric(5).m00 == 0f
+			simplifier.quadric(5).m23 == 0f
+	}
+
+	def "rejects bad meshes"()
+	{
+		when:
+			new Simplifier(new float[9], 3, 3, [0, 1, 3] as int[], 0, 3)
+		then:
+			thrown(IllegalArgumentException)
+
+		when:
+			new Simplifier(new float[9], 2, 3, [0, 1, 2] as int[], 0, 3)
+		then:
+			thrown(IllegalArgumentException)
+
+		when:
+			new Simplifier(new float[9], 3, 3, [0, 1, 2] as int[], 0, 3).lodChain([0.25f, 0.5f] as float[], 1)
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	/**
+	 * @return an {@code n} by {@code n} grid with a bump in the middle
+	 */
+	private static float[] bumpyGrid(int n)
+	{
+		float[] positions = gridPositions(n)
+		for(int v = 0; v < n * n; v++)
+		{
+			float x = positions[3 * v] / (n - 1) - 0.5f, y = positions[3 * v + 1] / (n - 1) - 0.5f
+			positions[3 * v + 2] = (float) Math.exp(-8 * (x * x + y * y)) * n / 4
+		}
+		return positions
+	}
+
+	private static List<Integer> borderVertices(int n)
+	{
+		(0..<n * n).findAll { int v -> v % n == 0 || v % n == n - 1 || v < n || v >= n * (n - 1) }
+	}
+
+	/**
+	 * @return whether every triangle of a mesh in the z = 0 plane still faces +z
+	 */
+	private static boolean facesUp(float[] positions, int[] indices)
+	{
+		(0..<indices.length / 3).every { int t ->
+			int a = 3 * indices[3 * t], b = 3 * indices[3 * t + 1], c = 3 * indices[3 * t + 2]
+			(positions[b] - positions[a]) * (positions[c + 1] - positions[a + 1]) -
+				(positions[b + 1] - positions[a + 1]) * (positions[c] - positions[a]) > 0
+		}
+	}
+}
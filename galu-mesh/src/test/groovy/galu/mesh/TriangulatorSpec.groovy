@@ -0,0 +1,205 @@
+package galu.mesh
+
+import galu.vector.Vector2
+import spock.lang.Specification
+
+import java.nio.IntBuffer
+import java.nio.ShortBuffer
+
+class TriangulatorSpec extends Specification
+{
+	def triangulator = new Triangulator()
+
+	def "triangulates a square"()
+	{
+		given:
+			def indices = IntBuffer.allocate(6)
+		when:
+			int count = triangulator.triangulate(square(0, 0, 1, false), [4] as int[], 1, indices)
+		then:
+			count == 2
+			indices.position() == 6
+			areas(square(0, 0, 1, false), indices).every { it > 0 }
+			areas(square(0, 0, 1, false), indices).sum() == 1
+	}
+
+	def "cuts holes out, whichever way they wind"()
+	{
+		given:
+			float[] points = concat(square(0, 0, 4, false), square(1, 1, 2, holeClockwise))
+			def indices = IntBuffer.allocate(Triangulator.maxIndexCount(8, 2))
+		when:
+			int count = triangulator.triangulate(points, [4, 8] as int[], 2, indices)
+		then:
+			count == 8
+			areas(points, indices).every { it > 0 }
+			areas(points, indices).sum() == 12
+			// Nothing covers the hole
+			centroids(points, indices).every { !(it[0] > 1 && it[0] < 3 && it[1] > 1 && it[1] < 3) }
+		where:
+			holeClockwise << [true, false]
+	}
+
+	def "fills islands inside holes"()
+	{
+		given:
+			// Like a bullseye, with the contours in no particular order
+			float[] points = concat(square(2, 2, 2, false), square(0, 0, 6, true), square(1, 1, 4, false))
+			def indices = IntBuffer.allocate(Triangulator.maxIndexCount(12, 3))
+		when:
+			int count = triangulator.triangulate(points, [4, 8, 12] as int[], 3, indices)
+		then:
+			count == 10
+			areas(points, indices).every { it > 0 }
+			areas(points, indices).sum() == 36 - 16 + 4
+	}
+
+	def "triangulates separate polygons together"()
+	{
+		given:
+			float[] points = concat(square(0, 0, 1, false), square(5, 5, 2, true))
+			def indices = IntBuffer.allocate(Triangulator.maxIndexCount(8, 2))
+		when:
+			int count = triangulator.triangulate(points, [4, 8] as int[], 2, indices)
+		then:
+			count == 4
+			areas(points, indices).sum() == 5
+	}
+
+	def "skips degenerate contours and points"()
+	{
+		given:
+			float[] points = [
+				0, 0, 2, 0, 2, 0, 2, 1, 2, 2, 0, 2, // a square with a repeated and a collinear point
+				5, 5, 6, 6,                         // too short
+				7, 7, 8, 8, 9, 9                    // no area
+			]
+			def indices = IntBuffer.allocate(Triangulator.maxIndexCount(11, 3))
+		when:
+			triangulator.triangulate(points, [6, 8, 11] as int[], 3, indices)
+		then:
+			areas(points, indices).every { it > 0 }
+			areas(points, indices).sum() == 4
+	}
+
+	def "triangulates large polygons along the z-order curve"()
+	{
+		given:
+			// A star with a random radius at each point, so there are plenty of reflex vertices
+			def random = new Random(1234)
+			int n = 500
+			float[] points = new float[2 * n]
+			for(int i = 0; i < n; i++)
+			{
+				double angle = 2 * Math.PI * i / n
+				double radius = 50 + random.nextDouble() * 50
+				points[2 * i] = (float) (radius * Math.cos(angle))
+				points[2 * i + 1] = (float) (radius * Math.sin(angle))
+			}
+			def indices = IntBuffer.allocate(Triangulator.maxIndexCount(n, 1))
+		when:
+			int count = triangulator.triangulate(points, [n] as int[], 1, indices)
+		then:
+			count == n - 2
+			areas(points, indices).every { it > 0 }
+			Math.abs(areas(points, indices).sum() - polygonArea(points)) < 1e-6 * polygonArea(points)
+	}
+
+	def "triangulates Vector2 contours into 16-bit indices"()
+	{
+		given:
+			def outer = [new Vector2(0, 0), new Vector2(4, 0), new Vector2(4, 4), new Vector2(0, 4)]
+			def hole = [new Vector2(1, 1), new Vector2(1, 3), new Vector2(3, 3), new Vector2(3, 1)]
+			def indices = ShortBuffer.allocate(30)
+			indices.position(3)
+		when:
+			int count = triangulator.triangulate([outer, hole], indices)
+		then:
+			count == 8
+			indices.position() == 27
+			(3..<27).every { indices.get(it) >= 0 && indices.get(it) < 8 }
+	}
+
+	def "gives the same triangles when reused"()
+	{
+		given:
+			float[] points = concat(square(0, 0, 4, false), square(1, 1, 2, true))
+			def first = IntBuffer.allocate(24)
+			def second = IntBuffer.allocate(24)
+		when:
+			triangulator.triangulate(points, [4, 8] as int[], 2, first)
+			triangulator.triangulate(square(0, 0, 1, false), [4] as int[], 1, IntBuffer.allocate(6))
+			triangulator.triangulate(points, [4, 8] as int[], 2, second)
+		then:
+			first.array() == second.array()
+	}
+
+	def "rejects bad input"()
+	{
+		when:
+			triangulator.triangulate(square(0, 0, 1, false), [4] as int[], 1, IntBuffer.allocate(5))
+		then:
+			thrown(IllegalArgumentException)
+
+		when:
+			triangulator.triangulate(square(0, 0, 1, false), [5] as int[], 1, IntBuffer.allocate(9))
+		then:
+			thrown(IllegalArgumentException)
+
+		when:
+			triangulator.triangulate(concat(square(0, 0, 1, false), square(0, 0, 1, false)), [4, 3] as int[], 2, IntBuffer.allocate(24))
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	private static float[] square(float x, float y, float size, boolean clockwise)
+	{
+		float[] points = [x, y, x + size, y, x + size, y + size, x, y + size]
+		if(clockwise)
+		{
+			points = [x, y, x, y + size, x + size, y + size, x + size, y]
+		}
+		return points
+	}
+
+	private static float[] concat(float[]... arrays)
+	{
+		float[] result = new float[arrays.sum { it.length }]
+		int offset = 0
+		for(float[] array : arrays)
+		{
+			System.arraycopy(array, 0, result, offset, array.length)
+			offset += array.length
+		}
+		return result
+	}
+
+	/**
+	 * @return the signed area of each triangle written to a buffer, positive if it's counterclockwise
+	 */
+	private static List<Double> areas(float[] points, IntBuffer indices)
+	{
+		(0..<indices.position().intdiv(3)).collect { int t ->
+			int a = indices.get(3 * t), b = indices.get(3 * t + 1), c = indices.get(3 * t + 2)
+			((points[2 * b] - points[2 * a]) * (points[2 * c + 1] - points[2 * a + 1]) -
+				(points[2 * b + 1] - points[2 * a + 1]) * (points[2 * c] - points[2 * a])) / 2d
+		}
+	}
+
+	private static List<List<Double>> centroids(float[] points, IntBuffer indices)
+	{
+		(0..<indices.position().intdiv(3)).collect { int t ->
+			def corners = (0..2).collect { indices.get(3 * t + it) }
+			[corners.sum { points[2 * it] } / 3d, corners.sum { points[2 * it + 1] } / 3d]
+		}
+	}
+
+	private static double polygonArea(float[] points)
+	{
+		int n = points.length.intdiv(2)
+		(0..<n).sum { int i ->
+			int j = (i + 1) % n
+			(points[2 * i] * (double) points[2 * j + 1] - points[2 * j] * (double) points[2 * i + 1]) / 2
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package galu.mesh
+
+import spock.lang.Specification
+
+import java.nio.IntBuffer
+import java.nio.ShortBuffer
+
+import static galu.mesh.Meshes.*
+
+class VertexCacheSpec extends Specification
+{
+	def random = new Random(1234)
+
+	def "measures the cache miss ratio"()
+	{
+		expect:
+			// Unshared triangles miss every vertex
+			VertexCache.acmr([0, 1, 2, 3, 4, 5] as int[], 0, 6, 16) == 3f
+			// A strip-like fan of four triangles shades six vertices
+			VertexCache.acmr([0, 1, 2, 2, 1, 3, 2, 3, 4, 4, 3, 5] as int[], 0, 12, 16) == 1.5f
+			// And a cache of one vertex can't reuse much
+			VertexCache.acmr([0, 1, 2, 0, 1, 2] as int[], 0, 6, 1) == 3f
+			VertexCache.acmr(new int[0], 0, 0, 16) == 0f
+	}
+
+	def "a shuffled grid gets much better"()
+	{
+		given:
+			int[] indices = shuffleTriangles(gridIndices(64), random)
+			float before = VertexCache.acmr(indices, 0, indices.length, 16)
+			def triangles = triangleSet(indices)
+		when:
+			VertexCache.optimize(indices, 0, indices.length, 64 * 64)
+			float after = VertexCache.acmr(indices, 0, indices.length, 16)
+		then:
+			before > 1.5f
+			after < 0.8f
+			// Same triangles, each with the same winding
+			triangleSet(indices) == triangles
+	}
+
+	def "optimizing only touches the given range"()
+	{
+		given:
+			int[] grid = shuffleTriangles(gridIndices(8), random)
+			int[] indices = new int[grid.length + 6]
+			System.arraycopy(grid, 0, indices, 3, grid.length)
+			indices[0] = indices[1] = indices[2] = 7
+			indices[indices.length - 3] = indices[indices.length - 2] = indices[indices.length - 1] = 9
+		when:
+			VertexCache.optimize(indices, 3, grid.length, 64)
+		then:
+			indices[0..2] == [7, 7, 7]
+			indices[-3..-1] == [9, 9, 9]
+			triangleSet(Arrays.copyOfRange(indices, 3, 3 + grid.length)) == triangleSet(grid)
+	}
+
+	def "buffers are optimized between their position and limit"()
+	{
+		given:
+			int[] grid = shuffleTriangles(gridIndices(16), random)
+			def ints = IntBuffer.allocate(grid.length + 3)
+			ints.position(3)
+			ints.put(grid)
+			ints.position(3)
+			def shorts = ShortBuffer.allocate(grid.length)
+			grid.each { shorts.put((short) it) }
+			shorts.flip()
+			int[] expected = Arrays.copyOf(grid, grid.length)
+			VertexCache.optimize(expected, 0, expected.length, 256)
+		when:
+			VertexCache.optimize(ints, 256)
+			VertexCache.optimize(shorts, 256)
+		then:
+			ints.position() == 3
+			shorts.position() == 0
+			(0..<grid.length).every { ints.get(3 + it) == expected[it] && shorts.get(it) == (short) expected[it] }
+			VertexCache.acmr(ints, 16) == VertexCache.acmr(expected, 0, expected.length, 16)
+	}
+
+	def "handles degenerate and repeated triangles"()
+	{
+		given:
+			int[] indices = [0, 0, 1, 1, 2, 3, 1, 2, 3, 3, 2, 4, 4, 4, 4]
+			def triangles = triangleSet(indices)
+		when:
+			VertexCache.optimize(indices, 0, indices.length, 5)
+		then:
+			triangleSet(indices) == triangles
+	}
+
+	def "rejects bad indices"()
+	{
+		when:
+			VertexCache.optimize(indices as int[], 0, indices.size(), 3)
+		then:
+			thrown(IllegalArgumentException)
+		where:
+			indices << [[0, 1], [0, 1, 3], [0, -1, 2]]
+	}
+}
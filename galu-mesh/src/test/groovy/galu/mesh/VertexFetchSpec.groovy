@@ -0,0 +1,75 @@
+package galu.mesh
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.ShortBuffer
+
+import static galu.mesh.Meshes.*
+
+class VertexFetchSpec extends Specification
+{
+	def random = new Random(1234)
+
+	def "renumbers vertices in order of first use"()
+	{
+		given:
+			int[] indices = [4, 2, 0, 2, 4, 5]
+		when:
+			int[] remap = VertexFetch.optimize(indices, 0, 6, 7)
+		then:
+			indices == [0, 1, 2, 1, 0, 3] as int[]
+			// The unused vertices 1, 3, and 6 come last, in their old order
+			remap == [2, 4, 1, 5, 0, 3, 6] as int[]
+	}
+
+	def "remapped vertices draw the same triangles"()
+	{
+		given:
+			int n = 16
+			float[] positions = gridPositions(n)
+			int[] indices = shuffleTriangles(gridIndices(n), random)
+			int[] original = Arrays.copyOf(indices, indices.length)
+			float[] remapped = new float[positions.length]
+		when:
+			VertexCache.optimize(indices, 0, indices.length, n * n)
+			int[] optimized = Arrays.copyOf(indices, indices.length)
+			int[] remap = VertexFetch.optimize(indices, 0, indices.length, n * n)
+			VertexFetch.remap(remap, positions, 0, remapped, 0, 3)
+		then:
+			(0..<indices.length).every {
+				int before = optimized[it], after = indices[it]
+				(0..2).every { k -> remapped[3 * after + k] == positions[3 * before + k] }
+			}
+			// And the vertices are now fetched in increasing order, with no jump past the next new one
+			(0..<indices.length).every { indices[it] <= (it == 0 ? 0 : (0..<it).collect { j -> indices[j] }.max() + 1) }
+			triangleSet(original).size() == triangleSet(indices).size()
+	}
+
+	def "remaps interleaved vertex buffers"()
+	{
+		given:
+			def indices = ShortBuffer.wrap([2, 0, 1] as short[])
+			def src = ByteBuffer.wrap([0, 0, 1, 1, 2, 2, 9] as byte[])
+			def dst = ByteBuffer.allocate(8)
+			dst.position(1)
+		when:
+			int[] remap = VertexFetch.optimize(indices, 3)
+			VertexFetch.remap(remap, src, dst, 2)
+		then:
+			indices.array() == [0, 1, 2] as short[]
+			dst.array() == [0, 2, 2, 0, 0, 1, 1, 0] as byte[]
+			src.position() == 6
+			dst.position() == 7
+	}
+
+	def "rejects remapping in place"()
+	{
+		given:
+			float[] positions = new float[6]
+		when:
+			VertexFetch.remap([1, 0] as int[], positions, 0, positions, 0, 3)
+		then:
+			thrown(IllegalArgumentException)
+	}
+}
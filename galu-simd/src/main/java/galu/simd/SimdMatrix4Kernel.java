@@ -0,0 +1,71 @@
+package galu.simd;
+
+import galu.matrix.Matrix4Kernel;
+import galu.util.Checks;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link Matrix4Kernel} that uses the JDK Vector API to work on a whole row or column (4 floats) at a time.
+ * <p>
+ * Each output element is computed with the same multiplies and adds, in the same order, as the scalar kernel. No fused
+ * multiply-adds are used, so the results are identical bit for bit. This is registered as a service provider, so
+ * {@link galu.matrix.Matrix4Kernels#get()} picks it up automatically when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}.
+ */
+public final class SimdMatrix4Kernel implements Matrix4Kernel
+{
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_128;
+
+	// Indices of one column of a row-major matrix, for gathering it into a single vector
+	private static final int[] COLUMN = {0, 4, 8, 12};
+
+	@Override
+	public void multiply(float[] a, int aOffset, float[] b, int bOffset, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRange("First operand", a.length, aOffset, 16, 16, count);
+		Checks.checkRange("Second operand", b.length, bOffset, 16, 16, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, 16, 16, count);
+		for(int n = 0, i = aOffset, j = bOffset, d = dstOffset; n < count; n++, i += 16, j += 16, d += 16)
+		{
+			FloatVector b0 = FloatVector.fromArray(SPECIES, b, j);
+			FloatVector b1 = FloatVector.fromArray(SPECIES, b, j + 4);
+			FloatVector b2 = FloatVector.fromArray(SPECIES, b, j + 8);
+			FloatVector b3 = FloatVector.fromArray(SPECIES, b, j + 12);
+
+			// Row r of the product is the rows of b weighted by row r of a. Each row of a is read before that row of dst
+			// is written, so dst may be a.
+			for(int r = 0; r < 16; r += 4)
+			{
+				b0.mul(a[i + r])
+				  .add(b1.mul(a[i + r + 1]))
+				  .add(b2.mul(a[i + r + 2]))
+				  .add(b3.mul(a[i + r + 3]))
+				  .intoArray(dst, d + r);
+			}
+		}
+	}
+
+	@Override
+	public void transform(float[] matrix, int matrixOffset, float[] src, int srcOffset, float[] dst, int dstOffset, int count)
+	{
+		Checks.checkRange("Matrix", matrix.length, matrixOffset, 16, 16, 1);
+		Checks.checkRange("Source", src.length, srcOffset, 4, 4, count);
+		Checks.checkRange("Destination", dst.length, dstOffset, 4, 4, count);
+
+		// The product is the columns of the matrix weighted by the vector's components
+		FloatVector c0 = FloatVector.fromArray(SPECIES, matrix, matrixOffset, COLUMN, 0);
+		FloatVector c1 = FloatVector.fromArray(SPECIES, matrix, matrixOffset + 1, COLUMN, 0);
+		FloatVector c2 = FloatVector.fromArray(SPECIES, matrix, matrixOffset + 2, COLUMN, 0);
+		FloatVector c3 = FloatVector.fromArray(SPECIES, matrix, matrixOffset + 3, COLUMN, 0);
+
+		for(int n = 0, s = srcOffset, d = dstOffset; n < count; n++, s += 4, d += 4)
+		{
+			c0.mul(src[s])
+			  .add(c1.mul(src[s + 1]))
+			  .add(c2.mul(src[s + 2]))
+			  .add(c3.mul(src[s + 3]))
+			  .intoArray(dst, d);
+		}
+	}
+}
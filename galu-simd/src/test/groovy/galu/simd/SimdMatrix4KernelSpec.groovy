@@ -0,0 +1,77 @@
+package galu.simd
+
+import galu.matrix.Matrix4Kernels
+import spock.lang.Specification
+
+class SimdMatrix4KernelSpec extends Specification
+{
+	def random = new Random(4321)
+	def simd = new SimdMatrix4Kernel()
+
+	def "chosen automatically when the Vector API is available"()
+	{
+		expect:
+			Matrix4Kernels.get() instanceof SimdMatrix4Kernel
+			Matrix4Kernels.isAccelerated()
+	}
+
+	def "multiply is bit-identical to the scalar kernel"()
+	{
+		given:
+			def a = randomArray(16 * 100 + 1)
+			def b = randomArray(16 * 100 + 2)
+			def expected = new float[16 * 100]
+			def actual = new float[16 * 100]
+		when:
+			Matrix4Kernels.scalar().multiply(a, 1, b, 2, expected, 0, 100)
+			simd.multiply(a, 1, b, 2, actual, 0, 100)
+		then:
+			Arrays.equals(actual, expected)
+	}
+
+	def "multiply into either operand"()
+	{
+		given:
+			def a = randomArray(16 * 3)
+			def b = randomArray(16 * 3)
+			def expected = new float[16 * 3]
+			Matrix4Kernels.scalar().multiply(a, 0, b, 0, expected, 0, 3)
+			def intoA = Arrays.copyOf(a, a.length)
+			def intoB = Arrays.copyOf(b, b.length)
+		when:
+			simd.multiply(intoA, 0, b, 0, intoA, 0, 3)
+			simd.multiply(a, 0, intoB, 0, intoB, 0, 3)
+		then:
+			Arrays.equals(intoA, expected)
+			Arrays.equals(intoB, expected)
+	}
+
+	def "transform is bit-identical to the scalar kernel"()
+	{
+		given:
+			def m = randomArray(16 + 5)
+			def src = randomArray(4 * 1000 + 3)
+			def expected = new float[4 * 1000]
+			def actual = new float[4 * 1000]
+		when:
+			Matrix4Kernels.scalar().transform(m, 5, src, 3, expected, 0, 1000)
+			simd.transform(m, 5, src, 3, actual, 0, 1000)
+		then:
+			Arrays.equals(actual, expected)
+	}
+
+	def "transform past the end of an array"()
+	{
+		when:
+			simd.transform(new float[16], 0, new float[8], 0, new float[8], 1, 2)
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	private float[] randomArray(int size)
+	{
+		def array = new float[size]
+		size.times { array[it] = (random.nextFloat() * 20 - 10) as float }
+		return array
+	}
+}
@@ -0,0 +1,683 @@
+package galu.text;
+
+import galu.util.SharedPool;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Makes signed distance fields of glyphs, which, unlike bitmaps, can be drawn sharply at any scale from one atlas entry.
+ * <p>
+ * Each pixel of a field stores the distance from its center to the nearest edge of the shape, positive inside and
+ * negative outside, mapped so that the edge is at 127.5 and {@code spread} pixels in or out are 255 or 0. A shader then
+ * draws the glyph by thresholding at one half, and can soften the threshold for antialiasing or move it for outlines and
+ * glows.
+ * <p>
+ * Fields can be made from outlines, such as from {@link GlyphVector#getGlyphOutline(int)}, or from coverage bitmaps.
+ * Outlines give exact distances: they're flattened to line segments within 0.02 pixels and each pixel is measured
+ * against every segment, with inside and outside from the outline's winding rule. Coverage bitmaps should be rendered
+ * at several times the field's resolution; their distances come from 8SSEDT (Danielsson's sequential Euclidean distance
+ * transform, in two passes over the bitmap), which is exact to within a fraction of a pixel, and are averaged down.
+ * <p>
+ * Plain distance fields round off sharp corners. With {@code multiChannel} set, outlines give multi-channel distance
+ * fields (MSDF, after Chlumsky's thesis) instead: each edge is assigned a subset of the red, green and blue channels so
+ * that edges meeting at a corner differ in some channel, each channel stores the distance to its own edges, and the
+ * shader takes the median of the three, which keeps corners sharp. Where the median would disagree with the plain field
+ * about which side of the edge a pixel is on, all three channels fall back to the plain distance, which takes care of
+ * most artifacts. Coverage bitmaps have no edges to assign, so they give the same value in all three channels.
+ * <p>
+ * {@link #glyphs} makes fields for many glyphs of a font at once, in parallel across glyphs on a {@link ForkJoinPool}.
+ */
+public final class DistanceFieldGenerator
+{
+	private static final double FLATNESS = 0.02;
+
+	// Edges meeting at an angle with a bigger sine than this (about 8 degrees) form a corner, as in msdfgen
+	private static final double CORNER_SINE = Math.sin(3.0);
+
+	private static final int RED = 1, GREEN = 2, BLUE = 4;
+	private static final int CYAN = GREEN | BLUE, MAGENTA = RED | BLUE, YELLOW = RED | GREEN, WHITE = RED | GREEN | BLUE;
+
+	// Larger than any distance between pixels, but small enough that squaring two offsets can't overflow
+	private static final int FAR = 1 << 14;
+
+	private final float spread;
+	private final boolean multiChannel;
+
+	/**
+	 * @param spread the distance, in pixels of the field, that the full range of values covers on each side of the edge
+	 * @param multiChannel whether to make three-channel MSDFs from outlines instead of single-channel fields
+	 */
+	public DistanceFieldGenerator(float spread, boolean multiChannel)
+	{
+		checkArgument(spread > 0, "Spread must be positive");
+		this.spread = spread;
+		this.multiChannel = multiChannel;
+	}
+
+	public float spread()
+	{
+		return spread;
+	}
+
+	/**
+	 * @return the number of bytes per pixel of the fields made: 3 for MSDFs, and 1 otherwise
+	 */
+	public int channels()
+	{
+		return multiChannel ? 3 : 1;
+	}
+
+	/**
+	 * Make the distance field of an outline. Pixel {@code (i, j)} measures from the point
+	 * {@code (x + i + 0.5, y + j + 0.5)} of the outline, so the outline's units are the field's pixels.
+	 * @param dst where to write the field, {@link #channels()} bytes per pixel, row by row; it's advanced past them
+	 */
+	public void fromOutline(Shape outline, float x, float y, int width, int height, ByteBuffer dst)
+	{
+		checkArgument(width >= 0 && height >= 0, "Invalid size %sx%s", width, height);
+		checkArgument(dst.remaining() >= width * height * channels(),
+			"Buffer has %s bytes remaining, but %s are needed", dst.remaining(), width * height * channels());
+		new Outline(outline).render(x, y, width, height, dst);
+	}
+
+	/**
+	 * Make the distance field of a coverage bitmap, such as a glyph rendered by Java 2D at {@code downsample} times the
+	 * field's size. Pixels with a coverage of at least half are inside.
+	 * @param coverage one byte per pixel, row by row
+	 * @param downsample how many bitmap pixels across each field pixel covers
+	 * @param dst where to write the field, which is {@code width / downsample} by {@code height / downsample} pixels of
+	 * {@link #channels()} bytes each; it's advanced past them
+	 */
+	public void fromCoverage(byte[] coverage, int width, int height, int downsample, ByteBuffer dst)
+	{
+		checkArgument(width >= 0 && height >= 0 && (long) width * height <= coverage.length,
+			"Coverage of length %s can't hold %sx%s pixels", coverage.length, width, height);
+		checkArgument(downsample > 0, "Downsampling factor must be positive");
+		int fieldWidth = width / downsample, fieldHeight = height / downsample;
+		checkArgument(dst.remaining() >= fieldWidth * fieldHeight * channels(),
+			"Buffer has %s bytes remaining, but %s are needed", dst.remaining(), fieldWidth * fieldHeight * channels());
+
+		float[] distances = new float[width * height];
+		signedDistances(coverage, width, height, distances);
+		for(int j = 0; j < fieldHeight; j++)
+		{
+			for(int i = 0; i < fieldWidth; i++)
+			{
+				double sum = 0;
+				for(int y = j * downsample; y < (j + 1) * downsample; y++)
+				{
+					for(int x = i * downsample; x < (i + 1) * downsample; x++)
+					{
+						sum += distances[y * width + x];
+					}
+				}
+				byte value = encode(sum / downsample / downsample / downsample);
+				for(int c = 0; c < channels(); c++)
+				{
+					dst.put(value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Make fields for glyphs of a font at its size, in parallel on the {@link SharedPool shared pool}.
+	 * @see #glyphs(Font, int[], ForkJoinPool)
+	 */
+	public List<DistanceFieldGlyph> glyphs(Font font, int[] glyphCodes)
+	{
+		return glyphs(font, glyphCodes, SharedPool.get());
+	}
+
+	/**
+	 * Make fields for glyphs of a font at its size, in parallel. Each field covers the glyph's outline plus
+	 * {@code spread} pixels on each side; glyphs with nothing to draw, such as spaces, get empty fields.
+	 * @param glyphCodes the glyphs' codes in the font, as from {@link GlyphVector#getGlyphCode(int)}
+	 * @param pool the pool to make the fields on
+	 * @return the fields, in the same order as the codes
+	 */
+	public List<DistanceFieldGlyph> glyphs(Font font, int[] glyphCodes, ForkJoinPool pool)
+	{
+		checkNotNull(font, "font");
+		checkNotNull(pool, "pool");
+		FontRenderContext context = new FontRenderContext(null, true, true);
+		GlyphVector vector = font.createGlyphVector(context, glyphCodes);
+		// Java 2D does the layout on this thread; only the fields are made in parallel
+		Shape[] outlines = new Shape[glyphCodes.length];
+		float[] advances = new float[glyphCodes.length];
+		for(int i = 0; i < glyphCodes.length; i++)
+		{
+			Point2D position = vector.getGlyphPosition(i);
+			outlines[i] = vector.getGlyphOutline(i, (float) -position.getX(), (float) -position.getY());
+			advances[i] = vector.getGlyphMetrics(i).getAdvance();
+		}
+		List<DistanceFieldGlyph> fields = new ArrayList<>(Collections.<DistanceFieldGlyph>nCopies(glyphCodes.length, null));
+		if(glyphCodes.length > 0)
+		{
+			pool.invoke(new GlyphTask(glyphCodes, outlines, advances, fields, 0, glyphCodes.length));
+		}
+		return fields;
+	}
+
+	private DistanceFieldGlyph glyph(int glyphCode, Shape outline, float advance)
+	{
+		Rectangle2D bounds = outline.getBounds2D();
+		if(bounds.isEmpty())
+		{
+			return new DistanceFieldGlyph(glyphCode, 0, 0, channels(), 0, 0, advance, ByteBuffer.allocate(0));
+		}
+		int padding = (int) Math.ceil(spread);
+		int x = (int) Math.floor(bounds.getMinX()) - padding, y = (int) Math.floor(bounds.getMinY()) - padding;
+		int width = (int) Math.ceil(bounds.getMaxX()) + padding - x, height = (int) Math.ceil(bounds.getMaxY()) + padding - y;
+		ByteBuffer pixels = ByteBuffer.allocate(width * height * channels());
+		new Outline(outline).render(x, y, width, height, pixels);
+		pixels.flip();
+		return new DistanceFieldGlyph(glyphCode, width, height, channels(), x, y, advance, pixels);
+	}
+
+	@SuppressWarnings("serial")
+	private final class GlyphTask extends RecursiveAction
+	{
+		private final int[] glyphCodes;
+		private final Shape[] outlines;
+		private final float[] advances;
+		private final List<DistanceFieldGlyph> fields;
+		private final int start, end;
+
+		GlyphTask(int[] glyphCodes, Shape[] outlines, float[] advances, List<DistanceFieldGlyph> fields, int start, int end)
+		{
+			this.glyphCodes = glyphCodes;
+			this.outlines = outlines;
+			this.advances = advances;
+			this.fields = fields;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(end - start == 1)
+			{
+				fields.set(start, glyph(glyphCodes[start], outlines[start], advances[start]));
+			}
+			else
+			{
+				int middle = (start + end) >>> 1;
+				invokeAll(new GlyphTask(glyphCodes, outlines, advances, fields, start, middle),
+					new GlyphTask(glyphCodes, outlines, advances, fields, middle, end));
+			}
+		}
+	}
+
+	private byte encode(double distance)
+	{
+		long value = Math.round(127.5 + distance / spread * 127.5);
+		return (byte) Math.max(0, Math.min(255, value));
+	}
+
+	/**
+	 * Find the signed distance from each pixel center of a coverage bitmap to the edge, which is halfway between the
+	 * centers of neighbouring inside and outside pixels.
+	 */
+	private static void signedDistances(byte[] coverage, int width, int height, float[] distances)
+	{
+		int[] dx = new int[width * height];
+		int[] dy = new int[width * height];
+		// Distances from outside pixels to the nearest inside one
+		seed(coverage, width, height, true, dx, dy);
+		sweep(width, height, dx, dy);
+		for(int i = 0; i < width * height; i++)
+		{
+			if((coverage[i] & 0xff) < 128)
+			{
+				distances[i] = 0.5f - (float) Math.sqrt((double) dx[i] * dx[i] + (double) dy[i] * dy[i]);
+			}
+		}
+		// And from inside pixels to the nearest outside one
+		seed(coverage, width, height, false, dx, dy);
+		sweep(width, height, dx, dy);
+		for(int i = 0; i < width * height; i++)
+		{
+			if((coverage[i] & 0xff) >= 128)
+			{
+				distances[i] = (float) Math.sqrt((double) dx[i] * dx[i] + (double) dy[i] * dy[i]) - 0.5f;
+			}
+		}
+	}
+
+	private static void seed(byte[] coverage, int width, int height, boolean inside, int[] dx, int[] dy)
+	{
+		for(int i = 0; i < width * height; i++)
+		{
+			boolean seed = ((coverage[i] & 0xff) >= 128) == inside;
+			dx[i] = seed ? 0 : FAR;
+			dy[i] = seed ? 0 : FAR;
+		}
+	}
+
+	/**
+	 * The two passes of 8SSEDT: propagate each pixel's offset to its nearest seed down and then up the bitmap, each
+	 * time sweeping rows forwards and backwards.
+	 */
+	private static void sweep(int width, int height, int[] dx, int[] dy)
+	{
+		for(int y = 0; y < height; y++)
+		{
+			for(int x = 0; x < width; x++)
+			{
+				compare(dx, dy, width, height, x, y, -1, 0);
+				compare(dx, dy, width, height, x, y, 0, -1);
+				compare(dx, dy, width, height, x, y, -1, -1);
+				compare(dx, dy, width, height, x, y, 1, -1);
+			}
+			for(int x = width - 1; x >= 0; x--)
+			{
+				compare(dx, dy, width, height, x, y, 1, 0);
+			}
+		}
+		for(int y = height - 1; y >= 0; y--)
+		{
+			for(int x = width - 1; x >= 0; x--)
+			{
+				compare(dx, dy, width, height, x, y, 1, 0);
+				compare(dx, dy, width, height, x, y, 0, 1);
+				compare(dx, dy, width, height, x, y, -1, 1);
+				compare(dx, dy, width, height, x, y, 1, 1);
+			}
+			for(int x = 0; x < width; x++)
+			{
+				compare(dx, dy, width, height, x, y, -1, 0);
+			}
+		}
+	}
+
+	/**
+	 * Take the neighbour's nearest seed, if it's nearer.
+	 */
+	private static void compare(int[] dx, int[] dy, int width, int height, int x, int y, int offsetX, int offsetY)
+	{
+		int nx = x + offsetX, ny = y + offsetY;
+		if(nx < 0 || nx >= width || ny < 0 || ny >= height)
+		{
+			return;
+		}
+		int i = y * width + x, n = ny * width + nx;
+		int candidateX = dx[n] + offsetX, candidateY = dy[n] + offsetY;
+		if(candidateX * candidateX + candidateY * candidateY < dx[i] * dx[i] + dy[i] * dy[i])
+		{
+			dx[i] = candidateX;
+			dy[i] = candidateY;
+		}
+	}
+
+	/**
+	 * An outline flattened to segments, grouped into edges (the lines and curves of the original path), with the edges
+	 * coloured for MSDF.
+	 */
+	private final class Outline
+	{
+		// Per segment: x0, y0, x1, y1
+		private double[] segments = new double[64];
+		private int[] segmentEdge = new int[16];
+		private int segmentCount;
+
+		// Per edge: its first segment, colour, and directions at its start and end
+		private int[] edgeStart = new int[16];
+		private int[] edgeColor = new int[16];
+		private double[] edgeDirections = new double[64];
+		private int edgeCount;
+
+		// The nearest segment of each channel's edges to the point being measured
+		private final double[] channelDistance = new double[3];
+		private final double[] channelOrthogonality = new double[3];
+		private final int[] channelSegment = new int[3];
+
+		private final boolean evenOdd;
+		// 1 if inside is to the left of the segments, with x right and y up, or -1 if it's to the right
+		private final int orientation;
+
+		Outline(Shape shape)
+		{
+			PathIterator path = shape.getPathIterator(null);
+			evenOdd = path.getWindingRule() == PathIterator.WIND_EVEN_ODD;
+			double[] coords = new double[6];
+			double startX = 0, startY = 0, x = 0, y = 0;
+			int contourStart = 0;
+			for(; !path.isDone(); path.next())
+			{
+				switch(path.currentSegment(coords))
+				{
+					case PathIterator.SEG_MOVETO:
+						colorContour(contourStart, edgeCount);
+						contourStart = edgeCount;
+						startX = x = coords[0];
+						startY = y = coords[1];
+						break;
+					case PathIterator.SEG_LINETO:
+						addLine(x, y, coords[0], coords[1]);
+						x = coords[0];
+						y = coords[1];
+						break;
+					case PathIterator.SEG_QUADTO:
+						addCurve(x, y, coords[0], coords[1], coords[0], coords[1], coords[2], coords[3], false);
+						x = coords[2];
+						y = coords[3];
+						break;
+					case PathIterator.SEG_CUBICTO:
+						addCurve(x, y, coords[0], coords[1], coords[2], coords[3], coords[4], coords[5], true);
+						x = coords[4];
+						y = coords[5];
+						break;
+					case PathIterator.SEG_CLOSE:
+						addLine(x, y, startX, startY);
+						x = startX;
+						y = startY;
+						break;
+				}
+			}
+			colorContour(contourStart, edgeCount);
+
+			double area = 0;
+			for(int s = 0; s < segmentCount; s++)
+			{
+				area += segments[4 * s] * segments[4 * s + 3] - segments[4 * s + 2] * segments[4 * s + 1];
+			}
+			orientation = area >= 0 ? 1 : -1;
+		}
+
+		private void addLine(double x0, double y0, double x1, double y1)
+		{
+			if(x0 == x1 && y0 == y1)
+			{
+				return;
+			}
+			int edge = addEdge(x1 - x0, y1 - y0, x1 - x0, y1 - y0);
+			addSegment(edge, x0, y0, x1, y1);
+		}
+
+		/**
+		 * Add a quadratic or cubic Bezier curve, split into enough segments to stay within {@link #FLATNESS} of it.
+		 */
+		private void addCurve(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3, boolean cubic)
+		{
+			int steps;
+			if(cubic)
+			{
+				double d = Math.max(Math.hypot(x0 - 2 * x1 + x2, y0 - 2 * y1 + y2), Math.hypot(x1 - 2 * x2 + x3, y1 - 2 * y2 + y3));
+				steps = (int) Math.ceil(Math.sqrt(3 * d / (4 * FLATNESS)));
+			}
+			else
+			{
+				double d = Math.hypot(x0 - 2 * x1 + x3, y0 - 2 * y1 + y3);
+				steps = (int) Math.ceil(Math.sqrt(d / (4 * FLATNESS)));
+			}
+			steps = Math.max(1, Math.min(steps, 256));
+
+			// Tangents at the ends, falling back to the chord for degenerate control points
+			double startX = x1 - x0, startY = y1 - y0, endX = x3 - x2, endY = y3 - y2;
+			if(startX == 0 && startY == 0)
+			{
+				startX = x3 - x0;
+				startY = y3 - y0;
+			}
+			if(endX == 0 && endY == 0)
+			{
+				endX = x3 - x0;
+				endY = y3 - y0;
+			}
+			if(startX == 0 && startY == 0)
+			{
+				return;
+			}
+			int edge = addEdge(startX, startY, endX, endY);
+
+			double px = x0, py = y0;
+			for(int i = 1; i <= steps; i++)
+			{
+				double t = (double) i / steps, u = 1 - t;
+				double qx, qy;
+				if(cubic)
+				{
+					qx = u * u * u * x0 + 3 * u * u * t * x1 + 3 * u * t * t * x2 + t * t * t * x3;
+					qy = u * u * u * y0 + 3 * u * u * t * y1 + 3 * u * t * t * y2 + t * t * t * y3;
+				}
+				else
+				{
+					qx = u * u * x0 + 2 * u * t * x1 + t * t * x3;
+					qy = u * u * y0 + 2 * u * t * y1 + t * t * y3;
+				}
+				if(qx != px || qy != py)
+				{
+					addSegment(edge, px, py, qx, qy);
+				}
+				px = qx;
+				py = qy;
+			}
+		}
+
+		private int addEdge(double startX, double startY, double endX, double endY)
+		{
+			if(edgeCount == edgeStart.length)
+			{
+				edgeStart = Arrays.copyOf(edgeStart, 2 * edgeCount);
+				edgeColor = Arrays.copyOf(edgeColor, 2 * edgeCount);
+				edgeDirections = Arrays.copyOf(edgeDirections, 8 * edgeCount);
+			}
+			int edge = edgeCount++;
+			edgeStart[edge] = segmentCount;
+			edgeColor[edge] = WHITE;
+			double startLength = Math.hypot(startX, startY), endLength = Math.hypot(endX, endY);
+			edgeDirections[4 * edge] = startX / startLength;
+			edgeDirections[4 * edge + 1] = startY / startLength;
+			edgeDirections[4 * edge + 2] = endX / endLength;
+			edgeDirections[4 * edge + 3] = endY / endLength;
+			return edge;
+		}
+
+		private void addSegment(int edge, double x0, double y0, double x1, double y1)
+		{
+			if(segmentCount == segmentEdge.length)
+			{
+				segments = Arrays.copyOf(segments, 8 * segmentCount);
+				segmentEdge = Arrays.copyOf(segmentEdge, 2 * segmentCount);
+			}
+			segments[4 * segmentCount] = x0;
+			segments[4 * segmentCount + 1] = y0;
+			segments[4 * segmentCount + 2] = x1;
+			segments[4 * segmentCount + 3] = y1;
+			segmentEdge[segmentCount++] = edge;
+		}
+
+		/**
+		 * Colour the edges of a contour so that the two edges at each corner differ in some channel but share another.
+		 */
+		private void colorContour(int first, int end)
+		{
+			int count = end - first;
+			if(count == 0)
+			{
+				return;
+			}
+			int[] corners = new int[count];
+			int cornerCount = 0;
+			for(int e = 0; e < count; e++)
+			{
+				int previous = first + (e + count - 1) % count, edge = first + e;
+				double ax = edgeDirections[4 * previous + 2], ay = edgeDirections[4 * previous + 3];
+				double bx = edgeDirections[4 * edge], by = edgeDirections[4 * edge + 1];
+				if(ax * bx + ay * by <= 0 || Math.abs(ax * by - ay * bx) > CORNER_SINE)
+				{
+					corners[cornerCount++] = e;
+				}
+			}
+
+			if(cornerCount == 0)
+			{
+				// Smooth all the way round, so every channel can see every edge
+				return;
+			}
+			if(cornerCount == 1)
+			{
+				// A teardrop: split it into thirds, with white in the middle sharing a channel with both sides
+				int[] thirds = {MAGENTA, WHITE, YELLOW};
+				for(int e = 0; e < count; e++)
+				{
+					int edge = first + (corners[0] + e) % count;
+					edgeColor[edge] = count < 3 ? thirds[2 * e] : thirds[Math.min(2, 3 * e / count)];
+				}
+				return;
+			}
+
+			int color = CYAN;
+			int firstColor = color;
+			for(int c = 0; c < cornerCount; c++)
+			{
+				if(c > 0)
+				{
+					color = nextColor(color);
+					// The last run meets the first one too
+					if(c == cornerCount - 1 && color == firstColor)
+					{
+						color = nextColor(color);
+					}
+				}
+				int runEnd = c + 1 < cornerCount ? corners[c + 1] : corners[0] + count;
+				for(int e = corners[c]; e < runEnd; e++)
+				{
+					edgeColor[first + e % count] = color;
+				}
+			}
+		}
+
+		private int nextColor(int color)
+		{
+			return color == CYAN ? MAGENTA : color == MAGENTA ? YELLOW : CYAN;
+		}
+
+		void render(float originX, float originY, int width, int height, ByteBuffer dst)
+		{
+			double[] channel = new double[3];
+			for(int j = 0; j < height; j++)
+			{
+				double py = originY + j + 0.5;
+				for(int i = 0; i < width; i++)
+				{
+					double px = originX + i + 0.5;
+					double distance = distance(px, py, channel);
+					if(!multiChannel)
+					{
+						dst.put(encode(distance));
+						continue;
+					}
+					double median = Math.max(Math.min(channel[0], channel[1]), Math.min(Math.max(channel[0], channel[1]), channel[2]));
+					if((median > 0) != (distance > 0))
+					{
+						channel[0] = channel[1] = channel[2] = distance;
+					}
+					dst.put(encode(channel[0])).put(encode(channel[1])).put(encode(channel[2]));
+				}
+			}
+		}
+
+		/**
+		 * @param channels filled in with each channel's signed pseudo-distance, for MSDF
+		 * @return the signed distance from a point to the outline, positive inside
+		 */
+		private double distance(double px, double py, double[] channels)
+		{
+			int winding = 0;
+			double nearest = Double.POSITIVE_INFINITY;
+			Arrays.fill(channelDistance, Double.POSITIVE_INFINITY);
+			Arrays.fill(channelSegment, -1);
+
+			for(int s = 0; s < segmentCount; s++)
+			{
+				double x0 = segments[4 * s], y0 = segments[4 * s + 1], x1 = segments[4 * s + 2], y1 = segments[4 * s + 3];
+				if((y0 <= py) != (y1 <= py) && px < x0 + (py - y0) * (x1 - x0) / (y1 - y0))
+				{
+					winding += y1 > y0 ? 1 : -1;
+				}
+
+				double ex = x1 - x0, ey = y1 - y0;
+				double t = Math.max(0, Math.min(1, ((px - x0) * ex + (py - y0) * ey) / (ex * ex + ey * ey)));
+				double qx = px - (x0 + t * ex), qy = py - (y0 + t * ey);
+				double d = Math.sqrt(qx * qx + qy * qy);
+				nearest = Math.min(nearest, d);
+
+				if(multiChannel)
+				{
+					// At a shared end, the segment seen more nearly square on gives the right side
+					double orthogonality = d == 0 ? 1 : Math.abs(ex * qy - ey * qx) / (d * Math.sqrt(ex * ex + ey * ey));
+					int color = edgeColor[segmentEdge[s]];
+					for(int c = 0; c < 3; c++)
+					{
+						if((color & (1 << c)) != 0 && (d < channelDistance[c] - 1e-9 ||
+							d < channelDistance[c] + 1e-9 && orthogonality > channelOrthogonality[c]))
+						{
+							channelDistance[c] = d;
+							channelOrthogonality[c] = orthogonality;
+							channelSegment[c] = s;
+						}
+					}
+				}
+			}
+
+			boolean inside = evenOdd ? (winding & 1) != 0 : winding != 0;
+			if(multiChannel)
+			{
+				for(int c = 0; c < 3; c++)
+				{
+					channels[c] = channelSegment[c] < 0 ? (inside ? nearest : -nearest) :
+						pseudoDistance(channelSegment[c], channelDistance[c], px, py);
+				}
+			}
+			return inside ? nearest : -nearest;
+		}
+
+		/**
+		 * @return the signed distance to a segment, positive on the inside, or to the line through it beyond the end of
+		 * its edge
+		 */
+		private double pseudoDistance(int s, double distance, double px, double py)
+		{
+			double x0 = segments[4 * s], y0 = segments[4 * s + 1], x1 = segments[4 * s + 2], y1 = segments[4 * s + 3];
+			double ex = x1 - x0, ey = y1 - y0;
+			double length = Math.sqrt(ex * ex + ey * ey);
+			double t = ((px - x0) * ex + (py - y0) * ey) / (length * length);
+			int edge = segmentEdge[s];
+			boolean firstOfEdge = s == edgeStart[edge];
+			boolean lastOfEdge = s + 1 == segmentCount || segmentEdge[s + 1] != edge;
+			double perpendicular = (ex * (py - y0) - ey * (px - x0)) / length;
+			double side;
+			if(t < 0 && !firstOfEdge || t > 1 && !lastOfEdge || t >= 0 && t <= 1)
+			{
+				double qx = px - (x0 + Math.max(0, Math.min(1, t)) * ex), qy = py - (y0 + Math.max(0, Math.min(1, t)) * ey);
+				side = ex * qy - ey * qx;
+			}
+			else
+			{
+				// Past the end of the edge, extending it keeps the corner sharp
+				distance = Math.abs(perpendicular);
+				side = perpendicular;
+			}
+			return side * orientation >= 0 ? distance : -distance;
+		}
+	}
+}
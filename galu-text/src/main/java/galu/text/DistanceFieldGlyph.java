@@ -0,0 +1,86 @@
+package galu.text;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A glyph's distance field, made by {@link DistanceFieldGenerator#glyphs}. Positions are in pixels at the font's size,
+ * with y pointing down as in Java 2D.
+ */
+public final class DistanceFieldGlyph
+{
+	private final int glyphCode;
+	private final int width, height, channels;
+	private final int offsetX, offsetY;
+	private final float advance;
+	private final ByteBuffer pixels;
+
+	DistanceFieldGlyph(int glyphCode, int width, int height, int channels, int offsetX, int offsetY, float advance, ByteBuffer pixels)
+	{
+		this.glyphCode = glyphCode;
+		this.width = width;
+		this.height = height;
+		this.channels = channels;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+		this.advance = advance;
+		this.pixels = pixels;
+	}
+
+	public int glyphCode()
+	{
+		return glyphCode;
+	}
+
+	public int width()
+	{
+		return width;
+	}
+
+	public int height()
+	{
+		return height;
+	}
+
+	/**
+	 * @return 1 for a plain distance field, or 3 for a multi-channel one
+	 */
+	public int channels()
+	{
+		return channels;
+	}
+
+	/**
+	 * @return how far right of the pen the field's left edge is
+	 */
+	public int offsetX()
+	{
+		return offsetX;
+	}
+
+	/**
+	 * @return how far below the baseline the field's top edge is
+	 */
+	public int offsetY()
+	{
+		return offsetY;
+	}
+
+	public float advance()
+	{
+		return advance;
+	}
+
+	/**
+	 * @return the field, {@code channels} bytes per pixel with rows from the top, in a new buffer that shares it
+	 */
+	public ByteBuffer pixels()
+	{
+		return pixels.duplicate();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "DistanceFieldGlyph[" + glyphCode + ", " + width + "x" + height + "x" + channels + "]";
+	}
+}
@@ -0,0 +1,96 @@
+package galu.text;
+
+import galu.vector.Vector4;
+
+/**
+ * A glyph rasterized into a {@link GlyphAtlas}: where its bitmap is in the atlas, and how to place it relative to the
+ * pen. Positions are in pixels, with y pointing down as in Java 2D.
+ */
+public final class Glyph
+{
+	private final int x, y, width, height;
+	private final int offsetX, offsetY;
+	private final float advance;
+	private final Vector4 textureCoordinates;
+
+	Glyph(int x, int y, int width, int height, int offsetX, int offsetY, float advance, int atlasWidth, int atlasHeight)
+	{
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+		this.advance = advance;
+		this.textureCoordinates = new Vector4((float) x / atlasWidth, (float) y / atlasHeight,
+			(float) (x + width) / atlasWidth, (float) (y + height) / atlasHeight);
+	}
+
+	/**
+	 * @return the left edge of the bitmap in the atlas
+	 */
+	public int x()
+	{
+		return x;
+	}
+
+	/**
+	 * @return the top edge of the bitmap in the atlas
+	 */
+	public int y()
+	{
+		return y;
+	}
+
+	/**
+	 * @return the width of the bitmap, which is 0 for glyphs with nothing to draw, such as spaces
+	 */
+	public int width()
+	{
+		return width;
+	}
+
+	public int height()
+	{
+		return height;
+	}
+
+	/**
+	 * @return how far right of the pen the bitmap's left edge is
+	 */
+	public int offsetX()
+	{
+		return offsetX;
+	}
+
+	/**
+	 * @return how far below the baseline the bitmap's top edge is, which is negative for most glyphs
+	 */
+	public int offsetY()
+	{
+		return offsetY;
+	}
+
+	/**
+	 * @return how far to move the pen after the glyph
+	 */
+	public float advance()
+	{
+		return advance;
+	}
+
+	/**
+	 * @return the bitmap's rectangle in the atlas as texture coordinates: {@code (u0, v0, u1, v1)}, from the top-left
+	 * corner to the bottom-right one
+	 */
+	public Vector4 textureCoordinates()
+	{
+		return textureCoordinates;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Glyph[" + width + "x" + height + " at (" + x + ", " + y + ")]";
+	}
+}
@@ -0,0 +1,367 @@
+package galu.text;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A cache of glyphs rasterized into one single-channel texture atlas.
+ * <p>
+ * Glyphs are rasterized with Java 2D the first time they're asked for, antialiased, which works in headless mode. Each
+ * one gets a 1 pixel border of empty space so that linear filtering doesn't bleed its neighbours in. They're packed
+ * with a skyline allocator into a direct {@link ByteBuffer} of one byte per pixel, row by row from the top, ready to
+ * upload as a {@code GL_R8} texture.
+ * <p>
+ * When a glyph doesn't fit, the least recently used glyphs are evicted until at most half the atlas is taken, and the
+ * rest are packed again from scratch, since a skyline can't reuse space piecemeal. That moves the glyphs that stay, so
+ * it bumps the {@linkplain #generation() generation}: {@link Glyph}s from an older generation have stale positions and
+ * should be looked up again. Glyphs that don't fit even in an empty atlas are rejected.
+ * <p>
+ * Changes to the pixels are tracked as a dirty rectangle, which covers every pixel changed since
+ * {@link #clearDirty()} was last called, so that only that part of the texture needs uploading. A glyph atlas isn't
+ * thread-safe.
+ */
+public final class GlyphAtlas
+{
+	private static final int PADDING = 1;
+
+	// After an eviction, at most this fraction of the atlas is kept, so evictions don't happen one glyph at a time
+	private static final float KEEP_FRACTION = 0.5f;
+
+	private final int width;
+	private final int height;
+	private final ByteBuffer pixels;
+	private final SkylinePacker packer;
+	private final FontRenderContext context = new FontRenderContext(null, true, true);
+
+	// In access order, so the least recently used glyph comes first
+	private final LinkedHashMap<GlyphKey, Glyph> glyphs = new LinkedHashMap<>(64, 0.75f, true);
+	private long usedArea;
+	private int generation;
+
+	private int dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY;
+
+	private BufferedImage scratch;
+	private byte[] snapshot;
+
+	/**
+	 * Create an empty atlas. Sizes up to 32768 by 32768 pixels are supported.
+	 */
+	public GlyphAtlas(int width, int height)
+	{
+		checkArgument(width > 0 && width <= 32768 && height > 0 && height <= 32768, "Invalid atlas size %sx%s", width, height);
+		this.width = width;
+		this.height = height;
+		this.pixels = ByteBuffer.allocateDirect(width * height);
+		this.packer = new SkylinePacker(width, height);
+		clearDirty();
+	}
+
+	public int width()
+	{
+		return width;
+	}
+
+	public int height()
+	{
+		return height;
+	}
+
+	/**
+	 * @return the atlas's pixels, one byte each with rows from the top, in a new buffer that shares them
+	 */
+	public ByteBuffer pixels()
+	{
+		return pixels.duplicate();
+	}
+
+	/**
+	 * @return the number of glyphs in the atlas
+	 */
+	public int size()
+	{
+		return glyphs.size();
+	}
+
+	/**
+	 * @return how many times glyphs have been evicted and the rest moved
+	 */
+	public int generation()
+	{
+		return generation;
+	}
+
+	/**
+	 * Get a glyph, rasterizing and packing it if it isn't in the atlas yet, and mark it as recently used.
+	 * @param glyphCode the glyph's code in the font, as from {@link GlyphVector#getGlyphCode(int)}
+	 * @throws IllegalArgumentException if the glyph is too big for the atlas
+	 */
+	public Glyph glyph(Font font, int glyphCode)
+	{
+		checkNotNull(font, "font");
+		GlyphKey key = new GlyphKey(font, glyphCode);
+		Glyph glyph = glyphs.get(key);
+		if(glyph == null)
+		{
+			glyph = rasterize(font, glyphCode);
+			glyphs.put(key, glyph);
+		}
+		return glyph;
+	}
+
+	/**
+	 * Get the glyph for a character, without any layout; for text, lay it out with a {@link GlyphVector} and look up
+	 * its glyph codes instead.
+	 * @see #glyph(Font, int)
+	 */
+	public Glyph glyph(Font font, char c)
+	{
+		return glyph(font, font.createGlyphVector(context, new char[] {c}).getGlyphCode(0));
+	}
+
+	public boolean isDirty()
+	{
+		return dirtyMaxX > dirtyMinX;
+	}
+
+	/**
+	 * @return the left edge of the dirty rectangle
+	 */
+	public int dirtyX()
+	{
+		return isDirty() ? dirtyMinX : 0;
+	}
+
+	/**
+	 * @return the top edge of the dirty rectangle
+	 */
+	public int dirtyY()
+	{
+		return isDirty() ? dirtyMinY : 0;
+	}
+
+	public int dirtyWidth()
+	{
+		return isDirty() ? dirtyMaxX - dirtyMinX : 0;
+	}
+
+	public int dirtyHeight()
+	{
+		return isDirty() ? dirtyMaxY - dirtyMinY : 0;
+	}
+
+	/**
+	 * Mark all the pixels as uploaded.
+	 */
+	public void clearDirty()
+	{
+		dirtyMinX = Integer.MAX_VALUE;
+		dirtyMinY = Integer.MAX_VALUE;
+		dirtyMaxX = Integer.MIN_VALUE;
+		dirtyMaxY = Integer.MIN_VALUE;
+	}
+
+	private void markDirty(int x, int y, int rectWidth, int rectHeight)
+	{
+		dirtyMinX = Math.min(dirtyMinX, x);
+		dirtyMinY = Math.min(dirtyMinY, y);
+		dirtyMaxX = Math.max(dirtyMaxX, x + rectWidth);
+		dirtyMaxY = Math.max(dirtyMaxY, y + rectHeight);
+	}
+
+	private Glyph rasterize(Font font, int glyphCode)
+	{
+		GlyphVector vector = font.createGlyphVector(context, new int[] {glyphCode});
+		Rectangle bounds = vector.getGlyphPixelBounds(0, context, 0, 0);
+		float advance = vector.getGlyphMetrics(0).getAdvance();
+		if(bounds.isEmpty())
+		{
+			return new Glyph(0, 0, 0, 0, 0, 0, advance, width, height);
+		}
+
+		int paddedWidth = bounds.width + 2 * PADDING, paddedHeight = bounds.height + 2 * PADDING;
+		checkArgument(paddedWidth <= width && paddedHeight <= height,
+			"Glyph of %sx%s pixels doesn't fit in a %sx%s atlas", bounds.width, bounds.height, width, height);
+		int position = packer.allocate(paddedWidth, paddedHeight);
+		if(position == SkylinePacker.NO_ROOM)
+		{
+			evict((long) paddedWidth * paddedHeight);
+			position = packer.allocate(paddedWidth, paddedHeight);
+			if(position == SkylinePacker.NO_ROOM)
+			{
+				// Only left to fragmentation, so start over with nothing but this glyph
+				glyphs.clear();
+				usedArea = 0;
+				repack();
+				position = packer.allocate(paddedWidth, paddedHeight);
+			}
+		}
+		usedArea += (long) paddedWidth * paddedHeight;
+		int x = (position & 0xffff) + PADDING, y = (position >>> 16) + PADDING;
+
+		BufferedImage image = scratch(bounds.width, bounds.height);
+		Graphics2D graphics = image.createGraphics();
+		try
+		{
+			graphics.setColor(Color.BLACK);
+			graphics.fillRect(0, 0, bounds.width, bounds.height);
+			graphics.setColor(Color.WHITE);
+			graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+			graphics.drawGlyphVector(vector, -bounds.x, -bounds.y);
+		}
+		finally
+		{
+			graphics.dispose();
+		}
+		byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		for(int row = 0; row < bounds.height; row++)
+		{
+			pixels.position((y + row) * width + x);
+			pixels.put(data, row * image.getWidth(), bounds.width);
+		}
+		pixels.clear();
+		markDirty(x - PADDING, y - PADDING, paddedWidth, paddedHeight);
+		return new Glyph(x, y, bounds.width, bounds.height, bounds.x, bounds.y, advance, width, height);
+	}
+
+	/**
+	 * @return a grayscale image at least the given size, reused between glyphs
+	 */
+	private BufferedImage scratch(int minWidth, int minHeight)
+	{
+		if(scratch == null || scratch.getWidth() < minWidth || scratch.getHeight() < minHeight)
+		{
+			int scratchWidth = Math.max(minWidth, scratch == null ? 64 : scratch.getWidth());
+			int scratchHeight = Math.max(minHeight, scratch == null ? 64 : scratch.getHeight());
+			scratch = new BufferedImage(scratchWidth, scratchHeight, BufferedImage.TYPE_BYTE_GRAY);
+		}
+		return scratch;
+	}
+
+	/**
+	 * Evict the least recently used glyphs until the rest and {@code needed} take at most {@link #KEEP_FRACTION} of the
+	 * atlas, and pack the rest again.
+	 */
+	private void evict(long needed)
+	{
+		long keep = (long) (KEEP_FRACTION * width * height) - needed;
+		Iterator<Glyph> iterator = glyphs.values().iterator();
+		while(usedArea > keep && iterator.hasNext())
+		{
+			usedArea -= paddedArea(iterator.next());
+			iterator.remove();
+		}
+		repack();
+	}
+
+	/**
+	 * Pack the glyphs again from scratch, tallest first, copying their pixels from where they were.
+	 */
+	private void repack()
+	{
+		generation++;
+		if(snapshot == null)
+		{
+			snapshot = new byte[width * height];
+		}
+		pixels.get(snapshot);
+		pixels.clear();
+		for(int i = 0; i < width * height; i++)
+		{
+			pixels.put(i, (byte) 0);
+		}
+		packer.reset();
+		markDirty(0, 0, width, height);
+
+		List<Map.Entry<GlyphKey, Glyph>> entries = new ArrayList<>(glyphs.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<GlyphKey, Glyph>>()
+		{
+			@Override
+			public int compare(Map.Entry<GlyphKey, Glyph> a, Map.Entry<GlyphKey, Glyph> b)
+			{
+				return Integer.compare(b.getValue().height(), a.getValue().height());
+			}
+		});
+		for(Map.Entry<GlyphKey, Glyph> entry : entries)
+		{
+			Glyph old = entry.getValue();
+			if(old.width() == 0)
+			{
+				continue;
+			}
+			int position = packer.allocate(old.width() + 2 * PADDING, old.height() + 2 * PADDING);
+			if(position == SkylinePacker.NO_ROOM)
+			{
+				// Packing in a different order can fragment more, so this is possible, if rare
+				glyphs.remove(entry.getKey());
+				usedArea -= paddedArea(old);
+				continue;
+			}
+			int x = (position & 0xffff) + PADDING, y = (position >>> 16) + PADDING;
+			for(int row = 0; row < old.height(); row++)
+			{
+				pixels.position((y + row) * width + x);
+				pixels.put(snapshot, (old.y() + row) * width + old.x(), old.width());
+			}
+			// Setting an existing key's value doesn't count as an access
+			entry.setValue(new Glyph(x, y, old.width(), old.height(), old.offsetX(), old.offsetY(), old.advance(), width, height));
+		}
+		pixels.clear();
+	}
+
+	private static long paddedArea(Glyph glyph)
+	{
+		return glyph.width() == 0 ? 0 : (long) (glyph.width() + 2 * PADDING) * (glyph.height() + 2 * PADDING);
+	}
+
+	private static final class GlyphKey
+	{
+		private final Font font;
+		private final int glyphCode;
+
+		GlyphKey(Font font, int glyphCode)
+		{
+			this.font = font;
+			this.glyphCode = glyphCode;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(this == o)
+			{
+				return true;
+			}
+			if(!(o instanceof GlyphKey))
+			{
+				return false;
+			}
+			GlyphKey other = (GlyphKey) o;
+			return glyphCode == other.glyphCode && font.equals(other.font);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * font.hashCode() + glyphCode;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package galu.text;
+
+import java.util.Arrays;
+
+/**
+ * Packs rectangles into a fixed area with the skyline bottom-left heuristic. The packer keeps the outline of the top of
+ * everything placed so far, as a list of horizontal segments from left to right, and puts each rectangle where its top
+ * would be lowest. Space under the skyline is never reused, so rectangles can't be freed one by one; the packer can
+ * only be {@linkplain #reset() reset}.
+ */
+final class SkylinePacker
+{
+	/**
+	 * Returned by {@link #allocate} when there isn't room.
+	 */
+	static final int NO_ROOM = -1;
+
+	private final int width;
+	private final int height;
+
+	// The skyline's segments, from left to right, covering the whole width
+	private int[] xs = new int[16];
+	private int[] ys = new int[16];
+	private int[] widths = new int[16];
+	private int count;
+
+	SkylinePacker(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+		reset();
+	}
+
+	void reset()
+	{
+		count = 1;
+		xs[0] = 0;
+		ys[0] = 0;
+		widths[0] = width;
+	}
+
+	/**
+	 * Find room for a rectangle.
+	 * @return its top-left corner, packed as {@code x | y << 16}, or {@link #NO_ROOM}
+	 */
+	int allocate(int rectWidth, int rectHeight)
+	{
+		int best = -1;
+		int bestY = Integer.MAX_VALUE;
+		int bestWidth = Integer.MAX_VALUE;
+		for(int i = 0; i < count; i++)
+		{
+			int y = fit(i, rectWidth, rectHeight);
+			// Lowest first, then on the narrowest segment, to leave wide ones for wide rectangles
+			if(y >= 0 && (y < bestY || y == bestY && widths[i] < bestWidth))
+			{
+				best = i;
+				bestY = y;
+				bestWidth = widths[i];
+			}
+		}
+		if(best < 0)
+		{
+			return NO_ROOM;
+		}
+		int x = xs[best];
+		raise(best, x, bestY + rectHeight, rectWidth);
+		return x | bestY << 16;
+	}
+
+	/**
+	 * @return the lowest y a rectangle can have with its left edge at segment {@code i}, or -1 if it doesn't fit there
+	 */
+	private int fit(int i, int rectWidth, int rectHeight)
+	{
+		if(xs[i] + rectWidth > width)
+		{
+			return -1;
+		}
+		int y = 0;
+		int remaining = rectWidth;
+		for(int j = i; remaining > 0; j++)
+		{
+			y = Math.max(y, ys[j]);
+			if(y + rectHeight > height)
+			{
+				return -1;
+			}
+			remaining -= widths[j];
+		}
+		return y;
+	}
+
+	/**
+	 * Add a segment at {@code index} and cut back the ones it covers.
+	 */
+	private void raise(int index, int x, int y, int segmentWidth)
+	{
+		if(count == xs.length)
+		{
+			xs = Arrays.copyOf(xs, 2 * count);
+			ys = Arrays.copyOf(ys, 2 * count);
+			widths = Arrays.copyOf(widths, 2 * count);
+		}
+		System.arraycopy(xs, index, xs, index + 1, count - index);
+		System.arraycopy(ys, index, ys, index + 1, count - index);
+		System.arraycopy(widths, index, widths, index + 1, count - index);
+		xs[index] = x;
+		ys[index] = y;
+		widths[index] = segmentWidth;
+		count++;
+
+		int end = x + segmentWidth;
+		while(index + 1 < count && xs[index + 1] < end)
+		{
+			int next = index + 1;
+			int overlap = end - xs[next];
+			if(overlap >= widths[next])
+			{
+				remove(next);
+			}
+			else
+			{
+				xs[next] += overlap;
+				widths[next] -= overlap;
+				break;
+			}
+		}
+
+		// Merge neighbours at the same height
+		for(int i = 0; i + 1 < count; )
+		{
+			if(ys[i] == ys[i + 1])
+			{
+				widths[i] += widths[i + 1];
+				remove(i + 1);
+			}
+			else
+			{
+				i++;
+			}
+		}
+	}
+
+	private void remove(int index)
+	{
+		System.arraycopy(xs, index + 1, xs, index, count - index - 1);
+		System.arraycopy(ys, index + 1, ys, index, count - index - 1);
+		System.arraycopy(widths, index + 1, widths, index, count - index - 1);
+		count--;
+	}
+}
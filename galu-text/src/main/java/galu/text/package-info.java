@@ -0,0 +1,4 @@
+/**
+ * Contains text rendering support, such as caching rasterized glyphs in a texture atlas.
+ */
+package galu.text;
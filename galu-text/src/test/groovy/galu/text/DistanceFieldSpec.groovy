@@ -0,0 +1,217 @@
+package galu.text
+
+import spock.lang.Specification
+
+import java.awt.Font
+import java.awt.Shape
+import java.awt.font.FontRenderContext
+import java.awt.geom.Ellipse2D
+import java.awt.geom.Line2D
+import java.awt.geom.Path2D
+import java.awt.geom.PathIterator
+import java.awt.geom.Rectangle2D
+import java.nio.ByteBuffer
+import java.util.concurrent.ForkJoinPool
+
+class DistanceFieldSpec extends Specification
+{
+	def setupSpec()
+	{
+		System.setProperty("java.awt.headless", "true")
+	}
+
+	def circle = new Ellipse2D.Float(6, 6, 20, 20)
+
+	def "measures exact distances from outlines"()
+	{
+		given:
+			def generator = new DistanceFieldGenerator(4, false)
+			def field = ByteBuffer.allocate(32 * 32)
+		when:
+			generator.fromOutline(circle, 0, 0, 32, 32, field)
+		then:
+			field.position() == 32 * 32
+			(0..<32).every { int y ->
+				(0..<32).every { int x ->
+					def expected = Math.max(-4, Math.min(4, 10 - Math.hypot(x + 0.5 - 16, y + 0.5 - 16)))
+					Math.abs(decode(field.get(y * 32 + x), 4) - expected) < 0.06
+				}
+			}
+	}
+
+	def "follows quadratic curves closely"()
+	{
+		given:
+			// A lens of two quadratics, like the curves in TrueType outlines
+			def lens = new Path2D.Float()
+			lens.moveTo(4, 16)
+			lens.quadTo(16, -8, 28, 16)
+			lens.quadTo(16, 40, 4, 16)
+			lens.closePath()
+			def generator = new DistanceFieldGenerator(4, false)
+			def field = ByteBuffer.allocate(32 * 32)
+		when:
+			generator.fromOutline(lens, 0, 0, 32, 32, field)
+		then:
+			(0..<32).every { int y ->
+				(0..<32).every { int x ->
+					double distance = distance(lens, x + 0.5, y + 0.5)
+					def expected = Math.max(-4, Math.min(4, lens.contains(x + 0.5, y + 0.5) ? distance : -distance))
+					Math.abs(decode(field.get(y * 32 + x), 4) - expected) < 0.04
+				}
+			}
+	}
+
+	def "measures distances from coverage bitmaps"()
+	{
+		given:
+			def generator = new DistanceFieldGenerator(4, false)
+			// The same circle, at 8 times the resolution
+			def coverage = new byte[256 * 256]
+			for(int y = 0; y < 256; y++)
+			{
+				for(int x = 0; x < 256; x++)
+				{
+					coverage[y * 256 + x] = Math.hypot(x + 0.5 - 128, y + 0.5 - 128) < 80 ? (byte) 255 : 0
+				}
+			}
+			def field = ByteBuffer.allocate(32 * 32)
+		when:
+			generator.fromCoverage(coverage, 256, 256, 8, field)
+		then:
+			field.position() == 32 * 32
+			(0..<32).every { int y ->
+				(0..<32).every { int x ->
+					def expected = Math.max(-4, Math.min(4, 10 - Math.hypot(x + 0.5 - 16, y + 0.5 - 16)))
+					Math.abs(decode(field.get(y * 32 + x), 4) - expected) < 0.2
+				}
+			}
+	}
+
+	def "keeps corners sharp in multi-channel fields"()
+	{
+		given:
+			def square = new Rectangle2D.Float(8, 8, 16, 16)
+			def plain = ByteBuffer.allocate(32 * 32)
+			def msdf = ByteBuffer.allocate(32 * 32 * 3)
+		when:
+			new DistanceFieldGenerator(4, false).fromOutline(square, 0, 0, 32, 32, plain)
+			new DistanceFieldGenerator(4, true).fromOutline(square, 0, 0, 32, 32, msdf)
+		then:
+			msdf.position() == 32 * 32 * 3
+			// Diagonally off a corner, the plain field is rounded but the median is as far as the square's sides
+			Math.abs(decode(plain.get(25 * 32 + 25), 4) + 1.5 * Math.sqrt(2)) < 0.05
+			Math.abs(median(msdf, 25 * 32 + 25) + 1.5) < 0.05
+			// And the median is on the right side everywhere
+			(0..<32).every { int y ->
+				(0..<32).every { int x ->
+					def inside = square.contains(x + 0.5, y + 0.5)
+					(median(msdf, y * 32 + x) > 0) == inside
+				}
+			}
+	}
+
+	def "makes fields for a font's glyphs"()
+	{
+		given:
+			def font = new Font(Font.SERIF, Font.PLAIN, 32)
+			def codes = font.createGlyphVector(new FontRenderContext(null, true, true), "A ").getGlyphCodes(0, 2, null)
+		when:
+			List<DistanceFieldGlyph> glyphs = new DistanceFieldGenerator(3, false).glyphs(font, codes)
+			def a = glyphs[0]
+			def space = glyphs[1]
+			def pixels = a.pixels()
+		then:
+			a.glyphCode() == codes[0]
+			a.channels() == 1
+			a.width() > 20 && a.height() > 20
+			a.offsetY() < -20
+			a.advance() > 10
+			pixels.remaining() == a.width() * a.height()
+			// The padding is all outside, and some of the middle is inside
+			(0..<a.width()).every { (pixels.get(it) & 0xff) < 64 && (pixels.get((a.height() - 1) * a.width() + it) & 0xff) < 64 }
+			(0..<pixels.remaining()).any { (pixels.get(it) & 0xff) > 192 }
+			space.width() == 0
+			space.advance() > 0
+	}
+
+	def "gives the same fields in parallel as one at a time"()
+	{
+		given:
+			def font = new Font(Font.SANS_SERIF, Font.BOLD, 24)
+			def codes = font.createGlyphVector(new FontRenderContext(null, true, true), "Quartz glyphs").getGlyphCodes(0, 13, null)
+			def generator = new DistanceFieldGenerator(4, true)
+		when:
+			def parallel = generator.glyphs(font, codes, new ForkJoinPool(4))
+			def sequential = generator.glyphs(font, codes, new ForkJoinPool(1))
+		then:
+			parallel.size() == 13
+			(0..<13).every {
+				parallel[it].glyphCode() == codes[it] && parallel[it].channels() == 3 &&
+					parallel[it].pixels() == sequential[it].pixels()
+			}
+	}
+
+	def "rejects bad arguments"()
+	{
+		when:
+			new DistanceFieldGenerator(0, false)
+		then:
+			thrown(IllegalArgumentException)
+
+		when:
+			new DistanceFieldGenerator(4, true).fromOutline(circle, 0, 0, 32, 32, ByteBuffer.allocate(32 * 32))
+		then:
+			thrown(IllegalArgumentException)
+
+		when:
+			new DistanceFieldGenerator(4, false).fromCoverage(new byte[100], 20, 20, 2, ByteBuffer.allocate(100))
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	/**
+	 * @return the signed distance, in pixels, that a field's value stands for
+	 */
+	private static double decode(byte value, double spread)
+	{
+		return ((value & 0xff) - 127.5) / 127.5 * spread
+	}
+
+	/**
+	 * @return the distance from a point to a finely flattened outline
+	 */
+	private static double distance(Shape outline, double x, double y)
+	{
+		double nearest = Double.POSITIVE_INFINITY
+		def coords = new double[6]
+		double startX = 0
+		double startY = 0
+		double lastX = 0
+		double lastY = 0
+		for(def path = outline.getPathIterator(null, 0.0001); !path.isDone(); path.next())
+		{
+			int type = path.currentSegment(coords)
+			if(type == PathIterator.SEG_MOVETO)
+			{
+				startX = lastX = coords[0]
+				startY = lastY = coords[1]
+				continue
+			}
+			double nextX = type == PathIterator.SEG_CLOSE ? startX : coords[0]
+			double nextY = type == PathIterator.SEG_CLOSE ? startY : coords[1]
+			nearest = Math.min(nearest, new Line2D.Double(lastX, lastY, nextX, nextY).ptSegDist(x, y))
+			lastX = nextX
+			lastY = nextY
+		}
+		return nearest
+	}
+
+	private static double median(ByteBuffer msdf, int pixel)
+	{
+		def r = decode(msdf.get(3 * pixel), 4)
+		def g = decode(msdf.get(3 * pixel + 1), 4)
+		def b = decode(msdf.get(3 * pixel + 2), 4)
+		return Math.max(Math.min(r, g), Math.min(Math.max(r, g), b))
+	}
+}
@@ -0,0 +1,136 @@
+package galu.text
+
+import spock.lang.Specification
+
+import java.awt.Font
+
+class GlyphAtlasSpec extends Specification
+{
+	def setupSpec()
+	{
+		System.setProperty("java.awt.headless", "true")
+	}
+
+	def font = new Font(Font.SERIF, Font.PLAIN, 32)
+
+	def "rasterizes glyphs on demand and caches them"()
+	{
+		given:
+			def atlas = new GlyphAtlas(256, 256)
+		when:
+			Glyph a = atlas.glyph(font, 'A' as char)
+		then:
+			atlas.size() == 1
+			atlas.glyph(font, 'A' as char).is(a)
+			a.width() > 10 && a.height() > 10
+			a.advance() > 10
+			// The pen is on the baseline, and A sits on top of it
+			a.offsetY() < -10
+			ink(atlas, a) > 0
+	}
+
+	def "gives texture coordinates of the glyph's pixels"()
+	{
+		given:
+			def atlas = new GlyphAtlas(256, 128)
+		when:
+			atlas.glyph(font, 'x' as char)
+			Glyph g = atlas.glyph(font, 'g' as char)
+		then:
+			g.textureCoordinates().x == g.x() / 256f
+			g.textureCoordinates().y == g.y() / 128f
+			g.textureCoordinates().z == (g.x() + g.width()) / 256f
+			g.textureCoordinates().w == (g.y() + g.height()) / 128f
+	}
+
+	def "leaves spaces out of the atlas"()
+	{
+		given:
+			def atlas = new GlyphAtlas(64, 64)
+		when:
+			Glyph space = atlas.glyph(font, ' ' as char)
+		then:
+			space.width() == 0
+			space.advance() > 0
+			!atlas.dirty
+	}
+
+	def "tracks the dirty region"()
+	{
+		given:
+			def atlas = new GlyphAtlas(256, 256)
+		when:
+			Glyph a = atlas.glyph(font, 'a' as char)
+			Glyph b = atlas.glyph(font, 'b' as char)
+		then:
+			atlas.dirty
+			[a, b].every {
+				atlas.dirtyX() <= it.x() && atlas.dirtyY() <= it.y() &&
+					atlas.dirtyX() + atlas.dirtyWidth() >= it.x() + it.width() &&
+					atlas.dirtyY() + atlas.dirtyHeight() >= it.y() + it.height()
+			}
+
+		when:
+			atlas.clearDirty()
+			atlas.glyph(font, 'a' as char)
+		then:
+			!atlas.dirty
+			atlas.dirtyWidth() == 0
+
+		when:
+			Glyph c = atlas.glyph(font, 'c' as char)
+		then:
+			atlas.dirtyX() == c.x() - 1
+			atlas.dirtyWidth() == c.width() + 2
+			atlas.dirtyHeight() == c.height() + 2
+	}
+
+	def "evicts the least recently used glyphs when it fills up"()
+	{
+		given:
+			def atlas = new GlyphAtlas(96, 96)
+			def letters = ('A'..'Z').collect { it as char }
+			def fresh = new GlyphAtlas(96, 96)
+		when:
+			// Keep using A while going through the alphabet, which doesn't all fit
+			for(char c : letters)
+			{
+				atlas.glyph(font, 'A' as char)
+				atlas.glyph(font, c)
+			}
+			Glyph a = atlas.glyph(font, 'A' as char)
+			Glyph z = atlas.glyph(font, 'Z' as char)
+		then:
+			atlas.generation() > 0
+			atlas.size() < 26
+			// A and the last letters survived and were moved along with their pixels
+			a.is(atlas.glyph(font, 'A' as char))
+			ink(atlas, a) == ink(fresh, fresh.glyph(font, 'A' as char))
+			ink(atlas, z) > 0
+	}
+
+	def "rejects glyphs bigger than the atlas"()
+	{
+		when:
+			new GlyphAtlas(16, 16).glyph(font, 'W' as char)
+		then:
+			thrown(IllegalArgumentException)
+	}
+
+	/**
+	 * @return the sum of a glyph's pixels in the atlas
+	 */
+	private static long ink(GlyphAtlas atlas, Glyph glyph)
+	{
+		def pixels = atlas.pixels()
+		long sum = 0
+		for(int y = glyph.y(); y < glyph.y() + glyph.height(); y++)
+		{
+			for(int x = glyph.x(); x < glyph.x() + glyph.width(); x++)
+			{
+				sum += pixels.get(y * atlas.width() + x) & 0xff
+			}
+		}
+		return sum
+	}
+}
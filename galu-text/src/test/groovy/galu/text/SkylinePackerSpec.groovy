@@ -0,0 +1,60 @@
+package galu.text
+
+import spock.lang.Specification
+
+class SkylinePackerSpec extends Specification
+{
+	def "packs rectangles without overlap until it's full"()
+	{
+		given:
+			def random = new Random(1234)
+			def packer = new SkylinePacker(128, 128)
+			def placed = []
+		when:
+			while(true)
+			{
+				int w = 1 + random.nextInt(20), h = 1 + random.nextInt(20)
+				int position = packer.allocate(w, h)
+				if(position == SkylinePacker.NO_ROOM)
+				{
+					break
+				}
+				placed << [position & 0xffff, position >>> 16, w, h]
+			}
+		then:
+			placed.every { it[0] >= 0 && it[1] >= 0 && it[0] + it[2] <= 128 && it[1] + it[3] <= 128 }
+			(0..<placed.size()).every { i -> (0..<i).every { j -> !overlap(placed[i], placed[j]) } }
+			// Most of the area gets used
+			placed.sum { it[2] * it[3] } > 0.7 * 128 * 128
+	}
+
+	def "puts rectangles as low as they go"()
+	{
+		given:
+			def packer = new SkylinePacker(10, 10)
+		expect:
+			packer.allocate(6, 4) == 0
+			packer.allocate(4, 2) == (6 | 0 << 16)
+			// Fits on top of the shorter one
+			packer.allocate(4, 3) == (6 | 2 << 16)
+			packer.allocate(10, 3) == (0 | 5 << 16)
+			packer.allocate(1, 3) == SkylinePacker.NO_ROOM
+			packer.allocate(11, 1) == SkylinePacker.NO_ROOM
+	}
+
+	def "starts over when reset"()
+	{
+		given:
+			def packer = new SkylinePacker(8, 8)
+			packer.allocate(8, 8)
+		when:
+			packer.reset()
+		then:
+			packer.allocate(8, 8) == 0
+	}
+
+	private static boolean overlap(List<Integer> a, List<Integer> b)
+	{
+		a[0] < b[0] + b[2] && b[0] < a[0] + a[2] && a[1] < b[1] + b[3] && b[1] < a[1] + a[3]
+	}
+}